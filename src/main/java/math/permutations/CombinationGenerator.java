@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2011, Stanislav Muhametsin. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package math.permutations;
+
+import java.math.BigInteger;
+import java.util.Spliterator;
+import java.util.stream.Stream;
+
+/**
+ * <p>
+ * The generator of combinations of a multiset, that is, sub-multisets of <code>k</code> elements. Each combination is
+ * produced exactly once, as a sorted array of length <code>k</code>, and the combinations are in lexicographic order.
+ * The methods in {@link PermutationGeneratorProvider} should be used to create instances of
+ * {@link CombinationGenerator}.
+ * </p>
+ * 
+ * <p>
+ * The iterators are the same {@link PermutationIterator}s as the ones of {@link PermutationGenerator}: they modify
+ * the same array in-place without allocating anything, can fill blocks of combinations, and can be checkpointed. The
+ * array should be copied if it needs to be stored.
+ * </p>
+ * 
+ * @author 2011 Stanislav Muhametsin
+ * @param <T> The type of the combination array.
+ * @see PermutationGeneratorProvider#createCombinationGenerator(PermutationGenerator, int)
+ */
+public interface CombinationGenerator<T>
+    extends Iterable<T>
+{
+    /**
+     * Returns the total amount of combinations.
+     * 
+     * @return The total amount of combinations.
+     */
+    public BigInteger getTotal();
+
+    /**
+     * Returns the iterator over all combinations in lexicographic order.
+     * 
+     * @return The iterator over all combinations.
+     */
+    @Override
+    public PermutationIterator<T> iterator();
+
+    /**
+     * Returns the iterator, which starts from the combination with given lexicographic rank.
+     * 
+     * @param fromRank The rank of the first combination to return. May be equal to {@link #getTotal()}.
+     * @return The iterator starting from given combination.
+     * @exception IllegalArgumentException If the rank is negative, or greater than {@link #getTotal()}.
+     */
+    public PermutationIterator<T> iterator( BigInteger fromRank );
+
+    /**
+     * Returns the iterator over combinations with lexicographic ranks from <code>fromRank</code> (inclusive) to
+     * <code>toRank</code> (exclusive).
+     * 
+     * @param fromRank The rank of the first combination to return.
+     * @param toRank The rank after the last combination to return.
+     * @return The iterator over given range of combinations.
+     * @exception IllegalArgumentException If <code>fromRank</code> is negative, <code>toRank</code> is less than
+     *                <code>fromRank</code>, or <code>toRank</code> is greater than {@link #getTotal()}.
+     */
+    public PermutationIterator<T> iterator( BigInteger fromRank, BigInteger toRank );
+
+    /**
+     * Returns the iterator, which continues from given checkpoint captured with
+     * {@link PermutationIterator#checkpoint()} from an iterator of this combination generator.
+     * 
+     * @param checkpoint The checkpoint.
+     * @return The iterator continuing from given checkpoint.
+     * @exception IllegalArgumentException If the checkpoint is not valid for this combination generator.
+     */
+    public PermutationIterator<T> iterator( PermutationCheckpoint checkpoint );
+
+    /**
+     * Returns the {@link Spliterator} over all combinations, which splits by halving the range of ranks.
+     * 
+     * @return The {@link Spliterator} over all combinations.
+     */
+    @Override
+    public Spliterator<T> spliterator();
+
+    /**
+     * Returns the sequential {@link Stream} over all combinations.
+     * 
+     * @return The sequential {@link Stream} over all combinations.
+     */
+    public Stream<T> stream();
+
+    /**
+     * Returns the parallel {@link Stream} over all combinations.
+     * 
+     * @return The parallel {@link Stream} over all combinations.
+     */
+    public Stream<T> parallelStream();
+
+    /**
+     * Stores the combination with given lexicographic rank into given array.
+     * 
+     * @param rank The rank of the combination.
+     * @param dest The array where to store the combination. If <code>null</code>, a new array will be created.
+     * @return The array containing the combination, that is, <code>dest</code> if it was not <code>null</code>.
+     * @exception IllegalArgumentException If the rank is negative, or not less than {@link #getTotal()}, or if the
+     *                length of the given array is not <code>k</code>.
+     */
+    public T combinationAt( BigInteger rank, T dest );
+
+    /**
+     * Computes the lexicographic rank of given combination.
+     * 
+     * @param combination The combination, as sorted array.
+     * @return The lexicographic rank of the combination.
+     * @exception IllegalArgumentException If the given array is not a sorted combination of this multiset.
+     */
+    public BigInteger getRank( T combination );
+
+    /**
+     * Computes the lexicographic rank of given combination as <code>long</code>.
+     * 
+     * @param combination The combination, as sorted array.
+     * @return The lexicographic rank of the combination.
+     * @exception IllegalArgumentException If the given array is not a sorted combination of this multiset.
+     * @exception ArithmeticException If {@link #getTotal()} does not fit into <code>long</code>.
+     */
+    public long getRankAsLong( T combination );
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2011, Stanislav Muhametsin. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package math.permutations;
+
+import java.math.BigInteger;
+import java.util.Iterator;
+
+/**
+ * <p>
+ * The permutations of some array satisfying given {@link PermutationConstraints}. The constraints are checked while
+ * building the permutation one position at a time, so invalid prefixes are never extended. The permutations are
+ * produced in lexicographic order, and the working array is modified in-place, just like with
+ * {@link PermutationGenerator#iterator()}.
+ * </p>
+ * 
+ * <p>
+ * When the amount of distinct states of the multiset is small enough, the amount of valid completions of each
+ * state is computed beforehand. Then the count of valid permutations is exact, and prefixes which can not be completed
+ * are not extended either. Otherwise the count is an upper bound.
+ * </p>
+ * 
+ * @author 2011 Stanislav Muhametsin
+ * @param <T> The type of the permutation array.
+ * @see PermutationGeneratorProvider#createConstrainedPermutations(PermutationGenerator, Object, PermutationConstraints)
+ */
+public interface ConstrainedPermutations<T>
+    extends Iterable<T>
+{
+    /**
+     * Returns the total amount of permutations without constraints, that is, {@link PermutationGenerator#getTotal()}.
+     * 
+     * @return The total amount of permutations without constraints.
+     */
+    public BigInteger getUnconstrainedTotal();
+
+    /**
+     * Returns the amount of permutations satisfying the constraints, if {@link #isCountExact()} returns
+     * <code>true</code>. Otherwise returns an upper bound for the amount.
+     * 
+     * @return The amount of permutations satisfying the constraints, or an upper bound for it.
+     */
+    public BigInteger getCount();
+
+    /**
+     * Returns whether {@link #getCount()} is exact.
+     * 
+     * @return <code>true</code> if {@link #getCount()} is exact, <code>false</code> if it is an upper bound.
+     */
+    public boolean isCountExact();
+
+    /**
+     * Returns the iterator over the permutations satisfying the constraints, in lexicographic order.
+     * 
+     * @return The iterator over the permutations satisfying the constraints.
+     */
+    @Override
+    public Iterator<T> iterator();
+
+    /**
+     * Traverses the tree of prefixes satisfying the constraints, just like
+     * {@link RankedPermutationGenerator#visit(PermutationVisitor)}. The visitor is invoked only for prefixes satisfying
+     * the constraints.
+     * 
+     * @param visitor The {@link PermutationVisitor}.
+     * @return <code>true</code> if the traversal completed, <code>false</code> if the visitor returned
+     *         {@link VisitResult#TERMINATE}.
+     */
+    public boolean visit( PermutationVisitor<T> visitor );
+}
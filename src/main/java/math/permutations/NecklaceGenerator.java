@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2011, Stanislav Muhametsin. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package math.permutations;
+
+import java.math.BigInteger;
+import java.util.Iterator;
+
+/**
+ * <p>
+ * The generator of necklaces, or optionally bracelets, of a multiset. A necklace is an equivalence class of
+ * permutations under rotation, and a bracelet is an equivalence class under rotation and reflection. Each class is
+ * produced exactly once, as its canonical representative: the lexicographically smallest rotation of the permutation,
+ * or for bracelets, the lexicographically smallest rotation of the permutation or of its reversal. The
+ * representatives are produced in lexicographic order.
+ * </p>
+ * 
+ * <p>
+ * Just like with {@link PermutationGenerator}, the iterator modifies the same array in-place, and the array should be
+ * copied if it needs to be stored.
+ * </p>
+ * 
+ * @author 2011 Stanislav Muhametsin
+ * @param <T> The type of the permutation array.
+ * @see PermutationGeneratorProvider#createNecklaceGenerator(PermutationGenerator, boolean)
+ */
+public interface NecklaceGenerator<T>
+    extends Iterable<T>
+{
+    /**
+     * Returns the exact amount of necklaces or bracelets, computed with Burnside's lemma from the multiplicities of
+     * the elements.
+     * 
+     * @return The amount of necklaces or bracelets.
+     */
+    public BigInteger getTotal();
+
+    /**
+     * Returns whether this generator produces bracelets, that is, whether reflections are considered equivalent too.
+     * 
+     * @return <code>true</code> if this generator produces bracelets, <code>false</code> if it produces necklaces.
+     */
+    public boolean isBracelets();
+
+    /**
+     * Returns the iterator over the canonical representatives, in lexicographic order.
+     * 
+     * @return The iterator over the canonical representatives.
+     */
+    @Override
+    public Iterator<T> iterator();
+}
@@ -0,0 +1,209 @@
+/*
+ * Copyright (c) 2011, Stanislav Muhametsin. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package math.permutations;
+
+import java.math.BigInteger;
+import java.util.Iterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BiConsumer;
+import java.util.function.BinaryOperator;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * <p>
+ * This class contains static methods to process all permutations of some {@link PermutationGenerator} in parallel,
+ * using a {@link ForkJoinPool}. The range of lexicographic ranks is recursively halved until the chunks are small
+ * enough, and each chunk is then iterated using {@link RankedPermutationGenerator#iterator(BigInteger, BigInteger)}.
+ * The size of the chunks is computed from {@link PermutationGenerator#getTotal()} and the parallelism of the pool, so
+ * that there are {@value #CHUNKS_PER_WORKER} chunks per worker thread, which gives good balance even when processing of
+ * some permutations takes longer than others.
+ * </p>
+ * 
+ * <p>
+ * Each chunk, not each worker thread, has its own working array and its own accumulator, which are confined to the
+ * thread processing the chunk. Thus neither the action nor the accumulator need to be thread-safe, as long as they
+ * don't modify shared state. The accumulators of the chunks are combined using the combiner given by the caller, in
+ * the order of the chunks. Keeping the accumulators per chunk is what allows combining them in the order of the
+ * ranks, since one worker thread processes chunks from anywhere in the range. Halving the range creates less than
+ * twice {@value #CHUNKS_PER_WORKER} chunks per worker thread, so the accumulator factory and the combiner are called
+ * that many times, instead of once per worker thread.
+ * </p>
+ * 
+ * @author 2011 Stanislav Muhametsin
+ */
+public final class ParallelPermutations
+{
+    /**
+     * How many chunks to create per each worker thread of the pool.
+     */
+    public static final int CHUNKS_PER_WORKER = 8;
+
+    /**
+     * {@link ParallelPermutations} is not instantiable.
+     */
+    private ParallelPermutations()
+    {
+    }
+
+    /**
+     * Performs given action for each permutation of given generator in parallel, using the common
+     * {@link ForkJoinPool}.
+     * 
+     * @param generator The {@link PermutationGenerator}.
+     * @param action The action to perform. May be invoked concurrently from many threads, each time with a different
+     *            working array.
+     * @see #forEach(ForkJoinPool, PermutationGenerator, Consumer)
+     */
+    public static <T> void forEach( RankedPermutationGenerator<T> generator, Consumer<? super T> action )
+    {
+        forEach( ForkJoinPool.commonPool(), generator, action );
+    }
+
+    /**
+     * Performs given action for each permutation of given generator in parallel, using given {@link ForkJoinPool}.
+     * The array given to action is the working array of the chunk, and should be copied if it needs to be stored.
+     * 
+     * @param pool The {@link ForkJoinPool} to use.
+     * @param generator The {@link PermutationGenerator}.
+     * @param action The action to perform. May be invoked concurrently from many threads, each time with a different
+     *            working array.
+     */
+    public static <T> void forEach( ForkJoinPool pool, RankedPermutationGenerator<T> generator,
+        final Consumer<? super T> action )
+    {
+        reduce( pool, generator, new Supplier<Void>()
+        {
+            @Override
+            public Void get()
+            {
+                return null;
+            }
+        }, new BiConsumer<Void, T>()
+        {
+            @Override
+            public void accept( Void accumulator, T permutation )
+            {
+                action.accept( permutation );
+            }
+        }, new BinaryOperator<Void>()
+        {
+            @Override
+            public Void apply( Void left, Void right )
+            {
+                return null;
+            }
+        } );
+    }
+
+    /**
+     * Reduces all permutations of given generator in parallel, using the common {@link ForkJoinPool}.
+     * 
+     * @param generator The {@link PermutationGenerator}.
+     * @param accumulatorFactory The factory to create a new accumulator for each chunk.
+     * @param accumulator The function to accumulate the permutation into the accumulator of the chunk.
+     * @param combiner The function to combine the accumulators of two adjacent chunks.
+     * @return The result of combining all accumulators.
+     * @see #reduce(ForkJoinPool, PermutationGenerator, Supplier, BiConsumer, BinaryOperator)
+     */
+    public static <T, A> A reduce( RankedPermutationGenerator<T> generator, Supplier<A> accumulatorFactory,
+        BiConsumer<A, ? super T> accumulator, BinaryOperator<A> combiner )
+    {
+        return reduce( ForkJoinPool.commonPool(), generator, accumulatorFactory, accumulator, combiner );
+    }
+
+    /**
+     * Reduces all permutations of given generator in parallel, using given {@link ForkJoinPool}. A new accumulator
+     * is created for each chunk, and all permutations of the chunk are accumulated into it within the same thread.
+     * There are less than <code>2 * {@value #CHUNKS_PER_WORKER}</code> chunks per worker thread of the pool, and the
+     * combiner is called once less than there are chunks.
+     * The accumulators are then combined, so that the accumulator of the chunk with smaller ranks is always the first
+     * argument of the combiner. This is typically used to compute minimum cost, a histogram, or just a count of
+     * permutations satisfying some criteria.
+     * 
+     * @param pool The {@link ForkJoinPool} to use.
+     * @param generator The {@link PermutationGenerator}.
+     * @param accumulatorFactory The factory to create a new accumulator for each chunk.
+     * @param accumulator The function to accumulate the permutation into the accumulator of the chunk. The
+     *            permutation is the working array of the chunk, and should be copied if it needs to be stored.
+     * @param combiner The function to combine the accumulators of two adjacent chunks. May return either of its
+     *            arguments.
+     * @return The result of combining all accumulators.
+     */
+    public static <T, A> A reduce( ForkJoinPool pool, RankedPermutationGenerator<T> generator,
+        Supplier<A> accumulatorFactory, BiConsumer<A, ? super T> accumulator, BinaryOperator<A> combiner )
+    {
+        BigInteger total = generator.getTotal();
+        BigInteger chunks = BigInteger.valueOf( (long) pool.getParallelism() * CHUNKS_PER_WORKER );
+        BigInteger chunkSize = total.add( chunks ).subtract( BigInteger.ONE ).divide( chunks ).max( BigInteger.ONE );
+        return pool.invoke( new ReduceTask<T, A>( generator, BigInteger.ZERO, total, chunkSize, accumulatorFactory,
+            accumulator, combiner ) );
+    }
+
+    private static final class ReduceTask<T, A> extends RecursiveTask<A>
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final RankedPermutationGenerator<T> _generator;
+        private final BigInteger _from;
+        private final BigInteger _to;
+        private final BigInteger _chunkSize;
+        private final Supplier<A> _accumulatorFactory;
+        private final BiConsumer<A, ? super T> _accumulator;
+        private final BinaryOperator<A> _combiner;
+
+        private ReduceTask( RankedPermutationGenerator<T> generator, BigInteger from, BigInteger to,
+            BigInteger chunkSize, Supplier<A> accumulatorFactory, BiConsumer<A, ? super T> accumulator,
+            BinaryOperator<A> combiner )
+        {
+            this._generator = generator;
+            this._from = from;
+            this._to = to;
+            this._chunkSize = chunkSize;
+            this._accumulatorFactory = accumulatorFactory;
+            this._accumulator = accumulator;
+            this._combiner = combiner;
+        }
+
+        @Override
+        protected A compute()
+        {
+            BigInteger size = this._to.subtract( this._from );
+            A result;
+            if( size.compareTo( this._chunkSize ) <= 0 )
+            {
+                result = this._accumulatorFactory.get();
+                BiConsumer<A, ? super T> accumulator = this._accumulator;
+                Iterator<T> iter = this._generator.iterator( this._from, this._to );
+                while( iter.hasNext() )
+                {
+                    accumulator.accept( result, iter.next() );
+                }
+            }
+            else
+            {
+                BigInteger middle = this._from.add( size.shiftRight( 1 ) );
+                ReduceTask<T, A> left = new ReduceTask<T, A>( this._generator, this._from, middle, this._chunkSize,
+                    this._accumulatorFactory, this._accumulator, this._combiner );
+                left.fork();
+                A right = new ReduceTask<T, A>( this._generator, middle, this._to, this._chunkSize,
+                    this._accumulatorFactory, this._accumulator, this._combiner ).compute();
+                result = this._combiner.apply( left.join(), right );
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2011, Stanislav Muhametsin. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package math.permutations;
+
+/**
+ * <p>
+ * The listener, which is notified about exactly which positions of the permutation array change on each step of the
+ * iterator returned by {@link RankedPermutationGenerator#iterator(PermutationOrder, PermutationChangeListener)}. This
+ * allows updating some value computed from the permutation incrementally, doing work proportional to the amount of
+ * changed positions instead of the length of the permutation.
+ * </p>
+ * 
+ * <p>
+ * The methods are invoked during {@link java.util.Iterator#next()}, after the change has been applied to the
+ * permutation array, but before the array is returned. The first call to {@link java.util.Iterator#next()} returns the
+ * sorted array and does not invoke the listener. In {@link PermutationOrder#LEXICOGRAPHIC} order, each step invokes
+ * {@link #onSwap(int, int)} followed by {@link #onReverse(int, int)}. In {@link PermutationOrder#COOL_LEX} order,
+ * each step invokes only {@link #onRotate(int, int)}. In the other orders, each step invokes only
+ * {@link #onSwap(int, int)}.
+ * </p>
+ * 
+ * @author 2011 Stanislav Muhametsin
+ */
+public interface PermutationChangeListener
+{
+    /**
+     * Invoked when elements at given positions have been swapped.
+     * 
+     * @param first The smaller position.
+     * @param second The greater position.
+     */
+    public void onSwap( int first, int second );
+
+    /**
+     * Invoked when elements at given range have been reversed. Is invoked even when the range contains less than two
+     * elements, in which case nothing actually changes.
+     * 
+     * @param from The first position of the range.
+     * @param to The position after the last position of the range.
+     */
+    public void onReverse( int from, int to );
+
+    /**
+     * Invoked when elements at given range have been rotated right by one position. That is, the element at position
+     * <code>to - 1</code> has been moved to position <code>from</code>, and the other elements of the range have been
+     * moved one position to the right.
+     * 
+     * @param from The first position of the range.
+     * @param to The position after the last position of the range.
+     */
+    public void onRotate( int from, int to );
+}
@@ -0,0 +1,306 @@
+/*
+ * Copyright (c) 2011, Stanislav Muhametsin. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package math.permutations;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.Arrays;
+
+/**
+ * <p>
+ * The state of a {@link PermutationIterator}, from which
+ * {@link RankedPermutationGenerator#iterator(PermutationCheckpoint)} creates an iterator continuing from the same
+ * permutation. The checkpoint consists of the order of the iteration, the ranks of the next and the end permutations,
+ * the classes of the current permutation, and the additional state of the order, if any. The class of an element is the
+ * index of its value among the distinct elements, sorted in ascending order. The state of each order takes at most
+ * <code>O(n)</code> integers, so the iterator is rebuilt in <code>O(n log n)</code> time, most of which is spent
+ * checking the classes against the ranks.
+ * </p>
+ * 
+ * <p>
+ * The ranks are positions within the order of the iteration. For {@link PermutationOrder#LEXICOGRAPHIC} order they
+ * are the lexicographic ranks, so a checkpoint of an iterator of some range of ranks, for example one shard of a
+ * parallel enumeration, continues within the same range.
+ * </p>
+ * 
+ * <p>
+ * Checkpoints are immutable, and can be written to and read from binary streams with
+ * {@link #writeTo(DataOutput)} and {@link #readFrom(DataInput)}.
+ * </p>
+ * 
+ * @author 2011 Stanislav Muhametsin
+ */
+public final class PermutationCheckpoint
+{
+    /**
+     * The current version of the binary format of checkpoints.
+     */
+    public static final int VERSION = 1;
+
+    /**
+     * The amount of integers allocated at once when reading arrays, before the input has proven to hold them.
+     */
+    private static final int READ_CHUNK = 1024;
+
+    private final PermutationOrder _order;
+    private final BigInteger _nextRank;
+    private final BigInteger _endRank;
+    private final boolean _started;
+    private final int[] _classes;
+    private final int[] _orderState;
+
+    /**
+     * Creates a new {@link PermutationCheckpoint}. The arrays are copied.
+     * 
+     * @param order The order of the iteration.
+     * @param nextRank The rank of the next permutation returned by the iterator.
+     * @param endRank The rank after the last permutation returned by the iterator.
+     * @param started Whether the iterator has returned any permutations. If <code>false</code>, the classes are the
+     *            classes of the next permutation. Otherwise, they are the classes of the previous permutation.
+     * @param classes The classes of the current permutation.
+     * @param orderState The additional state of the order.
+     * @exception IllegalArgumentException If the next rank is negative or greater than the end rank.
+     */
+    public PermutationCheckpoint( PermutationOrder order, BigInteger nextRank, BigInteger endRank, boolean started,
+        int[] classes, int[] orderState )
+    {
+        if( nextRank.signum() < 0 || nextRank.compareTo( endRank ) > 0 )
+        {
+            throw new IllegalArgumentException( "The next rank " + nextRank + " must be within [0, " + endRank + "]." );
+        }
+        this._order = order;
+        this._nextRank = nextRank;
+        this._endRank = endRank;
+        this._started = started;
+        this._classes = classes.clone();
+        this._orderState = orderState.clone();
+    }
+
+    /**
+     * Returns the order of the iteration.
+     * 
+     * @return The order of the iteration.
+     */
+    public PermutationOrder getOrder()
+    {
+        return this._order;
+    }
+
+    /**
+     * Returns the rank of the next permutation returned by the iterator.
+     * 
+     * @return The rank of the next permutation returned by the iterator.
+     */
+    public BigInteger getNextRank()
+    {
+        return this._nextRank;
+    }
+
+    /**
+     * Returns the rank after the last permutation returned by the iterator.
+     * 
+     * @return The rank after the last permutation returned by the iterator.
+     */
+    public BigInteger getEndRank()
+    {
+        return this._endRank;
+    }
+
+    /**
+     * Returns the amount of permutations the iterator has left.
+     * 
+     * @return The amount of permutations the iterator has left.
+     */
+    public BigInteger getPermutationsLeft()
+    {
+        return this._endRank.subtract( this._nextRank );
+    }
+
+    /**
+     * Returns whether the iterator has returned any permutations.
+     * 
+     * @return <code>true</code> if the classes are the classes of the previous permutation, <code>false</code> if they
+     *         are the classes of the next permutation.
+     */
+    public boolean isStarted()
+    {
+        return this._started;
+    }
+
+    /**
+     * Returns the classes of the current permutation.
+     * 
+     * @return The classes of the current permutation.
+     */
+    public int[] getClasses()
+    {
+        return this._classes.clone();
+    }
+
+    /**
+     * Returns the additional state of the order, which is empty for {@link PermutationOrder#LEXICOGRAPHIC} order.
+     * 
+     * @return The additional state of the order.
+     */
+    public int[] getOrderState()
+    {
+        return this._orderState.clone();
+    }
+
+    /**
+     * Writes this checkpoint into given output.
+     * 
+     * @param output The output to write to.
+     * @exception IOException If writing fails.
+     */
+    public void writeTo( DataOutput output ) throws IOException
+    {
+        output.writeByte( VERSION );
+        output.writeByte( this._order.ordinal() );
+        output.writeBoolean( this._started );
+        writeBigInteger( output, this._nextRank );
+        writeBigInteger( output, this._endRank );
+        writeInts( output, this._classes );
+        writeInts( output, this._orderState );
+    }
+
+    /**
+     * Reads a checkpoint written by {@link #writeTo(DataOutput)} from given input. The arrays of the checkpoint are
+     * allocated as they are read, so a corrupted length does not allocate more memory than the input actually holds.
+     * 
+     * @param input The input to read from.
+     * @return The checkpoint.
+     * @exception IOException If reading fails, or the input does not contain a checkpoint of supported version.
+     */
+    public static PermutationCheckpoint readFrom( DataInput input ) throws IOException
+    {
+        return readFrom( input, Integer.MAX_VALUE );
+    }
+
+    /**
+     * Reads a checkpoint written by {@link #writeTo(DataOutput)} from given input, rejecting the checkpoint before
+     * allocating its arrays if they are longer than the permutations can be. This should be used when the length of
+     * the permutations is known, for example when resuming the iteration of some permutation generator.
+     * 
+     * @param input The input to read from.
+     * @param maxLength The maximum length of the permutations.
+     * @return The checkpoint.
+     * @exception IOException If reading fails, the input does not contain a checkpoint of supported version, or the
+     *                classes of the checkpoint are longer than <code>maxLength</code>, or the state of the order longer
+     *                than <code>maxLength + 1</code>.
+     */
+    public static PermutationCheckpoint readFrom( DataInput input, int maxLength ) throws IOException
+    {
+        int version = input.readUnsignedByte();
+        if( version != VERSION )
+        {
+            throw new IOException( "Unsupported checkpoint version: " + version + "." );
+        }
+        int order = input.readUnsignedByte();
+        if( order >= PermutationOrder.values().length )
+        {
+            throw new IOException( "Unknown permutation order: " + order + "." );
+        }
+        boolean started = input.readBoolean();
+        BigInteger nextRank = readBigInteger( input );
+        BigInteger endRank = readBigInteger( input );
+        int[] classes = readInts( input, maxLength );
+        // The state of each order has at most one integer per element and one more
+        int[] orderState = readInts( input, maxLength == Integer.MAX_VALUE ? maxLength : maxLength + 1 );
+        PermutationCheckpoint result;
+        try
+        {
+            result = new PermutationCheckpoint( PermutationOrder.values()[order], nextRank, endRank, started, classes,
+                orderState );
+        }
+        catch( IllegalArgumentException iae )
+        {
+            throw new IOException( "Invalid checkpoint.", iae );
+        }
+        return result;
+    }
+
+    @Override
+    public boolean equals( Object obj )
+    {
+        boolean result = this == obj;
+        if( !result && obj instanceof PermutationCheckpoint )
+        {
+            PermutationCheckpoint other = (PermutationCheckpoint) obj;
+            result = this._order == other._order && this._started == other._started
+                && this._nextRank.equals( other._nextRank ) && this._endRank.equals( other._endRank )
+                && Arrays.equals( this._classes, other._classes )
+                && Arrays.equals( this._orderState, other._orderState );
+        }
+        return result;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return ( this._order.hashCode() * 31 + this._nextRank.hashCode() ) * 31 + Arrays.hashCode( this._classes );
+    }
+
+    @Override
+    public String toString()
+    {
+        return "[" + this._order + ", " + this._nextRank + "/" + this._endRank + ", " + Arrays.toString( this._classes )
+            + "]";
+    }
+
+    private static void writeBigInteger( DataOutput output, BigInteger value ) throws IOException
+    {
+        byte[] bytes = value.toByteArray();
+        output.writeShort( bytes.length );
+        output.write( bytes );
+    }
+
+    private static BigInteger readBigInteger( DataInput input ) throws IOException
+    {
+        byte[] bytes = new byte[input.readUnsignedShort()];
+        input.readFully( bytes );
+        return new BigInteger( bytes );
+    }
+
+    private static void writeInts( DataOutput output, int[] values ) throws IOException
+    {
+        output.writeInt( values.length );
+        for( int value : values )
+        {
+            output.writeInt( value );
+        }
+    }
+
+    private static int[] readInts( DataInput input, int maxLength ) throws IOException
+    {
+        int length = input.readInt();
+        if( length < 0 || length > maxLength )
+        {
+            throw new IOException( "Invalid array length: " + length + "." );
+        }
+        int[] result = new int[Math.min( length, READ_CHUNK )];
+        for( int idx = 0; idx < length; ++idx )
+        {
+            if( idx == result.length )
+            {
+                result = Arrays.copyOf( result, (int) Math.min( length, 2L * idx ) );
+            }
+            result[idx] = input.readInt();
+        }
+        return result;
+    }
+}
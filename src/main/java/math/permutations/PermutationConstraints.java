@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2011, Stanislav Muhametsin. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package math.permutations;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * <p>
+ * The constraints for {@link ConstrainedPermutations}. The elements are referred to by their indices in the array
+ * given to the permutation generator, and the constraint applies to the value of the element, that is, to all
+ * occurrences of equal elements. Two kinds of constraints are supported:
+ * </p>
+ * <ul>
+ * <li>forbidden positions, added with {@link #forbidPosition(int, int)}: the element may never be at given position,
+ * and</li>
+ * <li>precedence rules, added with {@link #requireBefore(int, int)}: all occurrences of the first element must be
+ * before all occurrences of the second element. The rules form a directed graph over the distinct elements, which
+ * should be acyclic; with a cycle, there are no valid permutations.</li>
+ * </ul>
+ * 
+ * <p>
+ * The methods return this object, so that the constraints can be chained.
+ * </p>
+ * 
+ * @author 2011 Stanislav Muhametsin
+ */
+public class PermutationConstraints
+{
+    private final List<int[]> _forbiddenPositions;
+    private final List<int[]> _precedences;
+
+    /**
+     * Creates a new {@link PermutationConstraints} without any constraints.
+     */
+    public PermutationConstraints()
+    {
+        this._forbiddenPositions = new ArrayList<int[]>();
+        this._precedences = new ArrayList<int[]>();
+    }
+
+    /**
+     * Forbids the element at given index of the array to be at given position of the permutations.
+     * 
+     * @param elementIndex The index of the element in the array given to the permutation generator.
+     * @param position The forbidden position.
+     * @return This object.
+     * @exception IllegalArgumentException If the index or the position is negative.
+     */
+    public PermutationConstraints forbidPosition( int elementIndex, int position )
+    {
+        if( elementIndex < 0 || position < 0 )
+        {
+            throw new IllegalArgumentException( "The element index and the position must not be negative." );
+        }
+        this._forbiddenPositions.add( new int[]
+        {
+            elementIndex,
+            position
+        } );
+        return this;
+    }
+
+    /**
+     * Requires all occurrences of the element at index <code>firstIndex</code> of the array to be before all
+     * occurrences of the element at index <code>secondIndex</code>.
+     * 
+     * @param firstIndex The index of the element, which must come first.
+     * @param secondIndex The index of the element, which must come after the first element.
+     * @return This object.
+     * @exception IllegalArgumentException If the indices are negative or equal.
+     */
+    public PermutationConstraints requireBefore( int firstIndex, int secondIndex )
+    {
+        if( firstIndex < 0 || secondIndex < 0 || firstIndex == secondIndex )
+        {
+            throw new IllegalArgumentException( "The element indices must be non-negative and different." );
+        }
+        this._precedences.add( new int[]
+        {
+            firstIndex,
+            secondIndex
+        } );
+        return this;
+    }
+
+    /**
+     * Returns the forbidden positions, each as array containing the index of the element and the position.
+     * 
+     * @return The forbidden positions.
+     */
+    public List<int[]> getForbiddenPositions()
+    {
+        return Collections.unmodifiableList( this._forbiddenPositions );
+    }
+
+    /**
+     * Returns the precedence rules, each as array containing the index of the first element and the index of the
+     * second element.
+     * 
+     * @return The precedence rules.
+     */
+    public List<int[]> getPrecedences()
+    {
+        return Collections.unmodifiableList( this._precedences );
+    }
+}
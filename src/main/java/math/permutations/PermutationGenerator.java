@@ -17,6 +17,10 @@ package math.permutations;
 import java.math.BigInteger;
 import java.util.Arrays;
 import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * <p>
@@ -63,4 +67,78 @@ public interface PermutationGenerator<T>
      * @return The total amount of permutations.
      */
     public BigInteger getTotal();
+
+    /**
+     * Returns the total amount of permutations as <code>long</code>. This is useful for the small arrays, since no
+     * {@link BigInteger} arithmetic is needed. If the amount does not fit into <code>long</code>, returns
+     * {@link Long#MAX_VALUE}, and {@link #isTotalLongExact()} returns <code>false</code>. By default, the amount is
+     * computed from {@link #getTotal()}.
+     * 
+     * @return The total amount of permutations, or {@link Long#MAX_VALUE} if it does not fit into <code>long</code>.
+     */
+    public default long getTotalAsLong()
+    {
+        return this.isTotalLongExact() ? this.getTotal().longValue() : Long.MAX_VALUE;
+    }
+
+    /**
+     * Returns whether {@link #getTotalAsLong()} is the exact amount of permutations, that is, whether the amount fits
+     * into <code>long</code>.
+     * 
+     * @return <code>true</code> if the total amount of permutations fits into <code>long</code>, <code>false</code>
+     *         otherwise.
+     */
+    public default boolean isTotalLongExact()
+    {
+        return this.getTotal().bitLength() < Long.SIZE;
+    }
+
+    /**
+     * Returns the {@link Spliterator} over all permutations. The spliterator is {@link Spliterator#SIZED} and
+     * {@link Spliterator#SUBSIZED} when {@link #getTotal()} fits into <code>long</code>. Just like with
+     * {@link #iterator()}, the working array is modified in-place, and should be copied if needs to be stored. By
+     * default, the spliterator is created from {@link #iterator()}, and thus splits by copying batches of
+     * permutations. The {@link RankedPermutationGenerator}s split by halving the range of ranks instead, and each split
+     * has its own working array.
+     * 
+     * @return The {@link Spliterator} over all permutations.
+     */
+    @Override
+    public default Spliterator<T> spliterator()
+    {
+        Spliterator<T> result;
+        if( this.isTotalLongExact() )
+        {
+            result = Spliterators.spliterator( this.iterator(), this.getTotalAsLong(), Spliterator.ORDERED );
+        }
+        else
+        {
+            result = Spliterators.spliteratorUnknownSize( this.iterator(), Spliterator.ORDERED );
+        }
+        return result;
+    }
+
+    /**
+     * Returns the sequential {@link Stream} over all permutations. The elements of the stream are the working arrays
+     * of the permutation generation, and thus should be copied if they need to be stored.
+     * 
+     * @return The sequential {@link Stream} over all permutations.
+     * @see #spliterator()
+     */
+    public default Stream<T> stream()
+    {
+        return StreamSupport.stream( this.spliterator(), false );
+    }
+
+    /**
+     * Returns the parallel {@link Stream} over all permutations. The elements of the stream are the working arrays
+     * of the permutation generation, and thus should be copied if they need to be stored.
+     * 
+     * @return The parallel {@link Stream} over all permutations.
+     * @see #spliterator()
+     */
+    public default Stream<T> parallelStream()
+    {
+        return StreamSupport.stream( this.spliterator(), true );
+    }
 }
@@ -15,31 +15,32 @@
 package math.permutations;
 
 import java.lang.reflect.Array;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.ServiceLoader;
 
-import math.permutations.impl.BytePermutationGenerator;
-import math.permutations.impl.BytePermutationGenerator.ByteArrayInfo;
-import math.permutations.impl.DoublePermutationGenerator;
-import math.permutations.impl.DoublePermutationGenerator.DoubleArrayInfo;
-import math.permutations.impl.FloatPermutationGenerator;
-import math.permutations.impl.FloatPermutationGenerator.FloatArrayInfo;
+import math.permutations.impl.AbstractPermutationGenerator;
+import math.permutations.impl.ByteBufferPermutationGenerator;
+import math.permutations.impl.ConstrainedPermutationGenerator;
+import math.permutations.impl.DerangementGenerator;
 import math.permutations.impl.GenericComparablePermutationGenerator;
 import math.permutations.impl.GenericComparablePermutationGenerator.GenericComparableArrayInfo;
 import math.permutations.impl.GenericPermutationGenerator;
 import math.permutations.impl.GenericPermutationGenerator.GenericArrayInfoImpl;
-import math.permutations.impl.IntPermutationGenerator;
-import math.permutations.impl.IntPermutationGenerator.IntArrayInfo;
-import math.permutations.impl.LongPermutationGenerator;
-import math.permutations.impl.LongPermutationGenerator.LongArrayInfo;
-import math.permutations.impl.ShortPermutationGenerator;
-import math.permutations.impl.ShortPermutationGenerator.ShortArrayInfo;
+import math.permutations.impl.KPermutationGenerator;
+import math.permutations.impl.MultisetCombinationGenerator;
+import math.permutations.impl.MultisetNecklaceGenerator;
+import math.permutations.impl.MultisetPermutationSampler;
+import math.permutations.impl.MappedPermutationGenerator;
+import math.permutations.impl.MappedPermutationGenerator.MappedArrayInfo;
 
 /**
  * This the factory class containing the static methods used to instantiate {@link PermutationGenerator}s. It will use
@@ -51,9 +52,23 @@ public final class PermutationGeneratorProvider
 {
 
     /**
-     * The mapping to hold optimized permutation generator creators.
+     * The mapping to hold optimized permutation generator creators. The map is never modified: registering a creator
+     * replaces it with a modified copy, so lookups need no locking.
      */
-    private static final Map<Class<?>, OptimizedGeneratorCreator> _optimizedGeneratorCreators;
+    private static volatile Map<Class<?>, OptimizedGeneratorCreator> _optimizedGeneratorCreators = Collections
+        .emptyMap();
+
+    /**
+     * The iterator over the {@link OptimizedGeneratorService}s not yet discovered, or <code>null</code> if the
+     * discovery has not yet started or has already finished. Guarded by the lock of this class.
+     */
+    private static Iterator<OptimizedGeneratorService> _undiscoveredServices;
+
+    /**
+     * Whether all the {@link OptimizedGeneratorService}s have been discovered, so that the lookups of the array
+     * classes without a creator do not need to lock anymore.
+     */
+    private static volatile boolean _discoveryFinished;
 
     /**
      * This is the interface through which the optimized permutation will be created.
@@ -68,71 +83,34 @@ public final class PermutationGeneratorProvider
          * @param array The array.
          * @return Optimized {@link PermutationGenerator} for the type of the given array.
          */
-        public <ArrayType> PermutationGenerator<ArrayType> createOptimizedGenerator( ArrayType array );
+        public <ArrayType> RankedPermutationGenerator<ArrayType> createOptimizedGenerator( ArrayType array );
     }
 
     /**
-     * Static constructor will initialize the creators for the optimized permutation generators.
+     * <p>
+     * The {@link OptimizedGeneratorCreator}, which is discovered with {@link ServiceLoader}. The implementations are
+     * listed in <code>META-INF/services/math.permutations.PermutationGeneratorProvider$OptimizedGeneratorService</code>
+     * files, and must have a public no-argument constructor.
+     * </p>
+     * 
+     * <p>
+     * The services are discovered lazily, one at a time, when an optimized generator is requested for an array class
+     * without a creator. Thus only the services listed before the requested one are loaded. The creators registered
+     * with {@link PermutationGeneratorProvider#registerOptimizedGeneratorCreator(Class, OptimizedGeneratorCreator)}
+     * take precedence over the discovered services.
+     * </p>
+     * 
+     * @author 2011 Stanislav Muhametsin
      */
-    static
+    public static interface OptimizedGeneratorService
+        extends OptimizedGeneratorCreator
     {
-        Map<Class<?>, OptimizedGeneratorCreator> optimizedConstructors = new HashMap<Class<?>, OptimizedGeneratorCreator>();
-
-        optimizedConstructors.put( byte[].class, new OptimizedGeneratorCreator()
-        {
-            @Override
-            public <ArrayType> PermutationGenerator<ArrayType> createOptimizedGenerator( ArrayType array )
-            {
-                return (PermutationGenerator<ArrayType>) new BytePermutationGenerator( new ByteArrayInfo(
-                    (byte[]) array ) );
-            }
-        } );
-        optimizedConstructors.put( double[].class, new OptimizedGeneratorCreator()
-        {
-            @Override
-            public <ArrayType> PermutationGenerator<ArrayType> createOptimizedGenerator( ArrayType array )
-            {
-                return (PermutationGenerator<ArrayType>) new DoublePermutationGenerator( new DoubleArrayInfo(
-                    (double[]) array ) );
-            }
-        } );
-        optimizedConstructors.put( float[].class, new OptimizedGeneratorCreator()
-        {
-            @Override
-            public <ArrayType> PermutationGenerator<ArrayType> createOptimizedGenerator( ArrayType array )
-            {
-                return (PermutationGenerator<ArrayType>) new FloatPermutationGenerator( new FloatArrayInfo(
-                    (float[]) array ) );
-            }
-        } );
-        optimizedConstructors.put( int[].class, new OptimizedGeneratorCreator()
-        {
-            @Override
-            public <ArrayType> PermutationGenerator<ArrayType> createOptimizedGenerator( ArrayType array )
-            {
-                return (PermutationGenerator<ArrayType>) new IntPermutationGenerator( new IntArrayInfo( (int[]) array ) );
-            }
-        } );
-        optimizedConstructors.put( long[].class, new OptimizedGeneratorCreator()
-        {
-            @Override
-            public <ArrayType> PermutationGenerator<ArrayType> createOptimizedGenerator( ArrayType array )
-            {
-                return (PermutationGenerator<ArrayType>) new LongPermutationGenerator( new LongArrayInfo(
-                    (long[]) array ) );
-            }
-        } );
-        optimizedConstructors.put( short[].class, new OptimizedGeneratorCreator()
-        {
-            @Override
-            public <ArrayType> PermutationGenerator<ArrayType> createOptimizedGenerator( ArrayType array )
-            {
-                return (PermutationGenerator<ArrayType>) new ShortPermutationGenerator( new ShortArrayInfo(
-                    (short[]) array ) );
-            }
-        } );
-
-        _optimizedGeneratorCreators = optimizedConstructors;
+        /**
+         * Returns the class of the arrays, for which this service creates the permutation generators.
+         * 
+         * @return The class of the arrays, for example <code>int[].class</code>.
+         */
+        public Class<?> getArrayClass();
     }
 
     /**
@@ -142,9 +120,20 @@ public final class PermutationGeneratorProvider
     {
     }
 
-    public static void registerOptimizedGeneratorCreator( Class<?> arrayClass, OptimizedGeneratorCreator creator )
+    /**
+     * Registers the creator of the optimized permutation generators for given array class, replacing the previous
+     * creator, if any. This method may be called concurrently with the creation of the generators.
+     * 
+     * @param arrayClass The class of the arrays.
+     * @param creator The {@link OptimizedGeneratorCreator}.
+     */
+    public static synchronized void registerOptimizedGeneratorCreator( Class<?> arrayClass,
+        OptimizedGeneratorCreator creator )
     {
-        _optimizedGeneratorCreators.put( arrayClass, creator );
+        Map<Class<?>, OptimizedGeneratorCreator> creators = new HashMap<Class<?>, OptimizedGeneratorCreator>(
+            _optimizedGeneratorCreators );
+        creators.put( arrayClass, creator );
+        _optimizedGeneratorCreators = Collections.unmodifiableMap( creators );
     }
 
     /**
@@ -158,9 +147,13 @@ public final class PermutationGeneratorProvider
      * @exception NoSuchOptimizedPermutationGeneratorException If the there is no optimized permutation generator for the type of
      *                the given array.
      */
-    public static <ArrayType> PermutationGenerator<ArrayType> createOptimizedGenerator( ArrayType array )
+    public static <ArrayType> RankedPermutationGenerator<ArrayType> createOptimizedGenerator( ArrayType array )
     {
         OptimizedGeneratorCreator creator = _optimizedGeneratorCreators.get( array.getClass() );
+        if( creator == null && !_discoveryFinished )
+        {
+            creator = discoverCreator( array.getClass() );
+        }
         if( creator == null )
         {
             throw new NoSuchOptimizedPermutationGeneratorException( array.getClass() );
@@ -168,6 +161,46 @@ public final class PermutationGeneratorProvider
         return creator.createOptimizedGenerator( array );
     }
 
+    /**
+     * Discovers the {@link OptimizedGeneratorService}s until finding the one for given array class. All services
+     * found on the way are registered, unless a creator is already registered for their array class. When all the
+     * services have been discovered, the iterator is released, and the lookups stop calling this method.
+     * 
+     * @param arrayClass The class of the arrays.
+     * @return The creator for given array class, or <code>null</code> if there is none.
+     */
+    private static synchronized OptimizedGeneratorCreator discoverCreator( Class<?> arrayClass )
+    {
+        OptimizedGeneratorCreator result = _optimizedGeneratorCreators.get( arrayClass );
+        if( !_discoveryFinished )
+        {
+            if( _undiscoveredServices == null )
+            {
+                _undiscoveredServices = ServiceLoader.load( OptimizedGeneratorService.class,
+                    PermutationGeneratorProvider.class.getClassLoader() ).iterator();
+            }
+            while( result == null && _undiscoveredServices.hasNext() )
+            {
+                OptimizedGeneratorService service = _undiscoveredServices.next();
+                Class<?> serviceClass = service.getArrayClass();
+                if( !_optimizedGeneratorCreators.containsKey( serviceClass ) )
+                {
+                    registerOptimizedGeneratorCreator( serviceClass, service );
+                }
+                if( serviceClass == arrayClass )
+                {
+                    result = _optimizedGeneratorCreators.get( arrayClass );
+                }
+            }
+            if( !_undiscoveredServices.hasNext() )
+            {
+                _undiscoveredServices = null;
+                _discoveryFinished = true;
+            }
+        }
+        return result;
+    }
+
     /**
      * Creates a new permutation generator for given item class. The given array will be copied using one of
      * {@link Arrays#copyOf(Object[], int)} methods. Additionally, it will be sorted using one of
@@ -176,13 +209,13 @@ public final class PermutationGeneratorProvider
      * @param items The permutation items.
      * @return The {@link PermutationGenerator} for given items.
      */
-    public static <ItemType extends Comparable<ItemType>> PermutationGenerator<ItemType[]> createGenericComparablePermutationGenerator(
+    public static <ItemType extends Comparable<ItemType>> RankedPermutationGenerator<ItemType[]> createGenericComparablePermutationGenerator(
         ItemType... items )
     {
         return createGenericComparablePermutationGenerator( true, items );
     }
 
-    private static <ItemType extends Comparable<ItemType>> PermutationGenerator<ItemType[]> createGenericComparablePermutationGenerator(
+    private static <ItemType extends Comparable<ItemType>> RankedPermutationGenerator<ItemType[]> createGenericComparablePermutationGenerator(
         boolean copyArray, ItemType... items )
     {
         return new GenericComparablePermutationGenerator<ItemType>( new GenericComparableArrayInfo<ItemType>(
@@ -200,7 +233,7 @@ public final class PermutationGeneratorProvider
      * @param items The permutation items.
      * @return The {@link PermutationGenerator} for given items.
      */
-    public static <ItemType extends Comparable<ItemType>> PermutationGenerator<ItemType[]> createGenericComparablePermutationGenerator(
+    public static <ItemType extends Comparable<ItemType>> RankedPermutationGenerator<ItemType[]> createGenericComparablePermutationGenerator(
         Class<ItemType> itemClass, Collection<? extends ItemType> items )
     {
         ItemType[] array = (ItemType[]) Array.newInstance( itemClass, items.size() );
@@ -216,7 +249,7 @@ public final class PermutationGeneratorProvider
      * @param items The permutation items.
      * @return The {@link PermutationGenerator} for given items.
      */
-    public static <ItemType extends Comparable<ItemType>> PermutationGenerator<ItemType[]> createGenericComparablePermutationGenerator(
+    public static <ItemType extends Comparable<ItemType>> RankedPermutationGenerator<ItemType[]> createGenericComparablePermutationGenerator(
         Class<ItemType> itemClass, Iterable<? extends ItemType> items )
     {
         List<ItemType> list = new ArrayList<ItemType>();
@@ -238,13 +271,13 @@ public final class PermutationGeneratorProvider
      * @param items The permutation items.
      * @return The {@link PermutationGenerator} for given items.
      */
-    public static <ItemType> PermutationGenerator<ItemType[]> createGenericPermutationGenerator(
+    public static <ItemType> RankedPermutationGenerator<ItemType[]> createGenericPermutationGenerator(
         Comparator<ItemType> comparator, ItemType... items )
     {
         return createGenericPermutationGenerator( comparator, true, items );
     }
 
-    private static <ItemType> PermutationGenerator<ItemType[]> createGenericPermutationGenerator(
+    private static <ItemType> RankedPermutationGenerator<ItemType[]> createGenericPermutationGenerator(
         Comparator<ItemType> comparator, Boolean copyArray, ItemType... items )
     {
         return new GenericPermutationGenerator<ItemType>( new GenericArrayInfoImpl<ItemType>(
@@ -263,7 +296,7 @@ public final class PermutationGeneratorProvider
      * @param items The permutation items.
      * @return The {@link PermutationGenerator} for given items.
      */
-    public static <ItemType> PermutationGenerator<ItemType[]> createGenericPermutationGenerator(
+    public static <ItemType> RankedPermutationGenerator<ItemType[]> createGenericPermutationGenerator(
         Class<ItemType> itemClass, Comparator<ItemType> comparator, Collection<? extends ItemType> items )
     {
         ItemType[] array = (ItemType[]) Array.newInstance( itemClass, items.size() );
@@ -280,7 +313,7 @@ public final class PermutationGeneratorProvider
      * @param items The permutation items.
      * @return The {@link PermutationGenerator} for given items.
      */
-    public static <ItemType> PermutationGenerator<ItemType[]> createGenericPermutationGenerator(
+    public static <ItemType> RankedPermutationGenerator<ItemType[]> createGenericPermutationGenerator(
         Class<ItemType> itemClass, Comparator<ItemType> comparator, Iterable<? extends ItemType> items )
     {
         List<ItemType> list = new ArrayList<ItemType>();
@@ -292,4 +325,189 @@ public final class PermutationGeneratorProvider
 
         return createGenericPermutationGenerator( itemClass, comparator, list );
     }
+
+    /**
+     * Creates a new permutation generator for the multiset with given distinct items and multiplicities. The
+     * permutations are read-only {@link List} views over the classes of the items, so the items do not need to be
+     * comparable, and advancing the iterator does not touch the items at all. The order of the given distinct items
+     * defines the lexicographic order of the permutations. The list of distinct items will be copied.
+     * 
+     * @param distinctItems The distinct items, in the order to use. Must not contain duplicates.
+     * @param multiplicities The multiplicity of each distinct item, in same order as the items. Will <b>NOT</b> be
+     *            copied.
+     * @return The {@link PermutationGenerator} for given multiset.
+     * @exception IllegalArgumentException If the amount of multiplicities is not the same as the amount of distinct
+     *                items, if some multiplicity is not positive, or if the distinct items contain duplicates.
+     */
+    public static <ItemType> RankedPermutationGenerator<List<ItemType>> createMappedPermutationGenerator(
+        List<? extends ItemType> distinctItems, int... multiplicities )
+    {
+        return new MappedPermutationGenerator<ItemType>( new MappedArrayInfo<ItemType>( distinctItems, multiplicities ) );
+    }
+
+    /**
+     * Creates a new permutation generator, which stores the permutations of given primitive array into
+     * {@link ByteBuffer}s. The iterators of the returned generator update a direct {@link ByteBuffer} in native byte
+     * order in-place, so the working permutation lives off-heap and can be handed to native code without copying.
+     * Blocks of permutations can be written straight into a caller-supplied buffer, starting from its position, using
+     * {@link PermutationIterator#fillBlock(Object, int, boolean)}.
+     * 
+     * @param array The primitive array. Will be copied.
+     * @return The {@link PermutationGenerator} storing permutations of the array into {@link ByteBuffer}s.
+     * @exception NoSuchOptimizedPermutationGeneratorException If the there is no optimized permutation generator for
+     *                the type of the array.
+     * @exception IllegalArgumentException If the elements of the array can not be stored into a {@link ByteBuffer}.
+     * @see ByteBufferPermutationGenerator
+     */
+    public static <ArrayType> RankedPermutationGenerator<ByteBuffer> createByteBufferGenerator( ArrayType array )
+    {
+        RankedPermutationGenerator<ArrayType> generator = createOptimizedGenerator( array );
+        if( !( generator instanceof AbstractPermutationGenerator<?> ) )
+        {
+            throw new IllegalArgumentException( "The permutations of " + array.getClass().getName()
+                + " can not be stored into a buffer." );
+        }
+        return new ByteBufferPermutationGenerator<ArrayType>( (AbstractPermutationGenerator<ArrayType>) generator );
+    }
+
+    /**
+     * Creates the permutations of given array satisfying given constraints. The constraints refer to the elements by
+     * their indices in the given array, which must be the array given to the generator, or some permutation of it.
+     * 
+     * @param generator The generator of the permutations of the array.
+     * @param array The array, to which the element indices of the constraints refer.
+     * @param constraints The {@link PermutationConstraints}. The constraints are read once, so later modifications do
+     *            not affect the returned object.
+     * @return The {@link ConstrainedPermutations} of given array.
+     * @exception IllegalArgumentException If the generator was not created by this class, if the array is not a
+     *                permutation of the multiset of the generator, or if the constraints refer to indices or positions
+     *                out of bounds, or to equal elements in a precedence rule.
+     * @see ConstrainedPermutationGenerator
+     */
+    public static <ArrayType> ConstrainedPermutations<ArrayType> createConstrainedPermutations(
+        PermutationGenerator<ArrayType> generator, ArrayType array, PermutationConstraints constraints )
+    {
+        if( !( generator instanceof AbstractPermutationGenerator<?> ) )
+        {
+            throw new IllegalArgumentException( "Can not apply constraints to " + generator.getClass().getName()
+                + "." );
+        }
+        return new ConstrainedPermutationGenerator<ArrayType>( (AbstractPermutationGenerator<ArrayType>) generator,
+            array, constraints );
+    }
+
+    /**
+     * Creates the generator of k-permutations, that is, ordered selections of <code>k</code> elements of the array of
+     * given generator. Each distinct k-permutation is produced once, in lexicographic order, and the full permutations
+     * are never generated. The returned generator supports ranking, splitting and checkpoints, but only
+     * {@link PermutationOrder#LEXICOGRAPHIC} order. Works with optimized generators of primitive arrays, and with
+     * generic generators.
+     * 
+     * @param generator The generator of the permutations of the array.
+     * @param k The length of the k-permutations.
+     * @return The {@link PermutationGenerator} of the k-permutations of the array of given generator.
+     * @exception IllegalArgumentException If the generator was not created by this class, if its permutations are not
+     *                arrays, or if <code>k</code> is negative or greater than the length of the array.
+     * @see KPermutationGenerator
+     */
+    public static <ArrayType> RankedPermutationGenerator<ArrayType> createKPermutationGenerator(
+        PermutationGenerator<ArrayType> generator, int k )
+    {
+        if( !( generator instanceof AbstractPermutationGenerator<?> ) )
+        {
+            throw new IllegalArgumentException( "Can not create k-permutations of " + generator.getClass().getName()
+                + "." );
+        }
+        return new KPermutationGenerator<ArrayType>( (AbstractPermutationGenerator<ArrayType>) generator, k );
+    }
+
+    /**
+     * Creates the generator of combinations of size <code>k</code> of the multiset of given generator. Each
+     * sub-multiset of size <code>k</code> is produced once, as a sorted array, in lexicographic order. Works with
+     * optimized generators of primitive arrays, and with generic generators.
+     * 
+     * @param generator The generator of the permutations of the array.
+     * @param k The size of the combinations.
+     * @return The {@link CombinationGenerator} of the combinations of the array of given generator.
+     * @exception IllegalArgumentException If the generator was not created by this class, if its permutations are not
+     *                arrays, or if <code>k</code> is negative or greater than the length of the array.
+     * @see MultisetCombinationGenerator
+     */
+    public static <ArrayType> CombinationGenerator<ArrayType> createCombinationGenerator(
+        PermutationGenerator<ArrayType> generator, int k )
+    {
+        if( !( generator instanceof AbstractPermutationGenerator<?> ) )
+        {
+            throw new IllegalArgumentException( "Can not create combinations of " + generator.getClass().getName()
+                + "." );
+        }
+        return new MultisetCombinationGenerator<ArrayType>( (AbstractPermutationGenerator<ArrayType>) generator, k );
+    }
+
+    /**
+     * Creates the generator of derangements of given array, that is, the permutations where no position has an
+     * element equal to the element at the same position of the given array. The derangements are generated directly,
+     * without filtering the full permutations, and their exact amount is computed without enumerating them. The
+     * returned generator supports ranking and splitting, but only {@link PermutationOrder#LEXICOGRAPHIC} order.
+     * 
+     * @param generator The generator of the permutations of the array.
+     * @param original The original array, which must be the array given to the generator, or some permutation of it.
+     * @return The {@link PermutationGenerator} of the derangements of given array.
+     * @exception IllegalArgumentException If the generator was not created by this class, or if the original array is
+     *                not a permutation of the multiset of the generator.
+     * @see DerangementGenerator
+     */
+    public static <ArrayType> RankedPermutationGenerator<ArrayType> createDerangementGenerator(
+        PermutationGenerator<ArrayType> generator, ArrayType original )
+    {
+        if( !( generator instanceof AbstractPermutationGenerator<?> ) )
+        {
+            throw new IllegalArgumentException( "Can not create derangements of " + generator.getClass().getName()
+                + "." );
+        }
+        return new DerangementGenerator<ArrayType>( (AbstractPermutationGenerator<ArrayType>) generator, original );
+    }
+
+    /**
+     * Creates the generator of necklaces or bracelets of given array, that is, the arrangements of the array on a
+     * circle, which are considered equal if they differ only by rotation, or also by reflection for bracelets. Only the
+     * lexicographically smallest representative of each necklace or bracelet is generated, in lexicographic order,
+     * and their exact amount is computed without enumerating them.
+     * 
+     * @param generator The generator of the permutations of the array.
+     * @param bracelets <code>true</code> to generate bracelets, <code>false</code> to generate necklaces.
+     * @return The {@link NecklaceGenerator} of the necklaces or bracelets of given array.
+     * @exception IllegalArgumentException If the generator was not created by this class.
+     * @see MultisetNecklaceGenerator
+     */
+    public static <ArrayType> NecklaceGenerator<ArrayType> createNecklaceGenerator(
+        PermutationGenerator<ArrayType> generator, boolean bracelets )
+    {
+        if( !( generator instanceof AbstractPermutationGenerator<?> ) )
+        {
+            throw new IllegalArgumentException( "Can not create necklaces of " + generator.getClass().getName() + "." );
+        }
+        return new MultisetNecklaceGenerator<ArrayType>( (AbstractPermutationGenerator<ArrayType>) generator,
+            bracelets );
+    }
+
+    /**
+     * Creates the sampler of uniformly random permutations of given generator. The sampler draws its randomness from
+     * {@link java.util.SplittableRandom}, and its streams are reproducible for a given seed, no matter how many threads
+     * process them.
+     * 
+     * @param generator The generator of the permutations of the array.
+     * @return The {@link PermutationSampler} of the permutations of the array of given generator.
+     * @exception IllegalArgumentException If the generator was not created by this class.
+     * @see MultisetPermutationSampler
+     */
+    public static <ArrayType> PermutationSampler<ArrayType> createSampler( PermutationGenerator<ArrayType> generator )
+    {
+        if( !( generator instanceof AbstractPermutationGenerator<?> ) )
+        {
+            throw new IllegalArgumentException( "Can not sample permutations of " + generator.getClass().getName()
+                + "." );
+        }
+        return new MultisetPermutationSampler<ArrayType>( (AbstractPermutationGenerator<ArrayType>) generator );
+    }
 }
@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2011, Stanislav Muhametsin. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package math.permutations;
+
+import java.util.Iterator;
+
+/**
+ * The {@link Iterator} over permutations, which can also write many consecutive permutations at once into one flat
+ * array. This is useful when the permutations are processed in blocks, since then there is no method call per
+ * permutation, and the processing can run over one flat array.
+ * 
+ * @author 2011 Stanislav Muhametsin
+ * @param <T> The type of the permutation array.
+ */
+public interface PermutationIterator<T>
+    extends Iterator<T>
+{
+    /**
+     * Writes at most <code>maxCount</code> next permutations into given flat array, in row-major order. That is, the
+     * element at position <code>j</code> of the <code>i</code>:th permutation is written to index
+     * <code>i * n + j</code>, where <code>n</code> is the length of the permutations. This is the same as
+     * {@link #fillBlock(Object, int, boolean)} with <code>false</code> as last parameter.
+     * 
+     * @param dest The array where to write the permutations.
+     * @param maxCount The maximum amount of permutations to write.
+     * @return The amount of permutations written, which is less than <code>maxCount</code> only when there are no
+     *         more permutations.
+     * @exception IllegalArgumentException If the array can not hold <code>maxCount</code> permutations.
+     */
+    public int fillBlock( T dest, int maxCount );
+
+    /**
+     * Writes at most <code>maxCount</code> next permutations into given flat array, in row-major or column-major
+     * order. In row-major order, the element at position <code>j</code> of the <code>i</code>:th permutation is written
+     * to index <code>i * n + j</code>, where <code>n</code> is the length of the permutations. In column-major order, it
+     * is written to index <code>j * maxCount + i</code>. The permutations written are consumed from this iterator, and
+     * the working array returned by {@link #next()} will contain the last permutation written.
+     * 
+     * @param dest The array where to write the permutations.
+     * @param maxCount The maximum amount of permutations to write.
+     * @param columnMajor Whether to write in column-major order, instead of row-major order.
+     * @return The amount of permutations written, which is less than <code>maxCount</code> only when there are no
+     *         more permutations.
+     * @exception IllegalArgumentException If the array can not hold <code>maxCount</code> permutations.
+     */
+    public int fillBlock( T dest, int maxCount, boolean columnMajor );
+
+    /**
+     * Captures the current state of this iterator, so that
+     * {@link RankedPermutationGenerator#iterator(PermutationCheckpoint)} can later create an iterator, which continues
+     * from the same position. Capturing the checkpoint does not modify this iterator.
+     * 
+     * @return The checkpoint of this iterator.
+     */
+    public PermutationCheckpoint checkpoint();
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2011, Stanislav Muhametsin. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package math.permutations;
+
+/**
+ * The order in which {@link RankedPermutationGenerator#iterator(PermutationOrder)} enumerates the permutations. All
+ * orders start from the sorted array, and produce each permutation exactly once. Only the {@link #LEXICOGRAPHIC} order
+ * is related to the ranks of the permutations. The {@link #HEAP}, {@link #JOHNSON_TROTTER} and
+ * {@link #MULTISET_TRANSPOSITION} orders are <i>minimal-change</i> orders, where each permutation differs from the
+ * previous one by exactly one transposition of two elements.
+ * 
+ * @author 2011 Stanislav Muhametsin
+ */
+public enum PermutationOrder
+{
+    /**
+     * The lexicographic order. Each step swaps two elements and reverses the suffix after the first swapped element,
+     * so one step may move <code>O(n)</code> elements, although only about <code>e</code> elements on average.
+     */
+    LEXICOGRAPHIC( false ),
+
+    /**
+     * The order of Heap's algorithm. Each step swaps two elements, which are not necessarily adjacent. Requires that
+     * all the elements are distinct.
+     */
+    HEAP( true ),
+
+    /**
+     * The order of Steinhaus-Johnson-Trotter algorithm, with Even's speedup. Each step swaps two adjacent elements.
+     * Requires that all the elements are distinct.
+     */
+    JOHNSON_TROTTER( true ),
+
+    /**
+     * The transposition order for multisets. Each step swaps two elements, which are not necessarily adjacent. Works
+     * for any multiplicities. Note that swapping only adjacent elements is not possible for all multisets: for example,
+     * the six permutations of <code>[0, 0, 1, 1]</code> are four with even and two with odd amount of inversions, and
+     * each adjacent swap changes that parity, so they can not be listed using only adjacent swaps.
+     */
+    MULTISET_TRANSPOSITION( false ),
+
+    /**
+     * The cool-lex order for multisets by Aaron Williams, where each step moves one element to the front of the
+     * permutation, that is, rotates some prefix of the permutation right by one position. The next step is computed in
+     * constant time without any loops, keeping the permutation as a linked list. Since the permutation array is
+     * updated by moving the elements of the rotated prefix, updating the array is not constant time, but the
+     * {@link PermutationChangeListener} is notified about the rotation in constant time. Updating the array takes
+     * amortised constant time when the elements are distinct, but moves about <code>n / 2</code> elements per step
+     * when all but one of the elements are equal. Works for any multiplicities.
+     */
+    COOL_LEX( false );
+
+    private final boolean _requiresDistinctElements;
+
+    private PermutationOrder( boolean requiresDistinctElements )
+    {
+        this._requiresDistinctElements = requiresDistinctElements;
+    }
+
+    /**
+     * Returns <code>true</code> if this order can only be used when all the elements are distinct.
+     * 
+     * @return <code>true</code> if this order can only be used when all the elements are distinct.
+     */
+    public boolean requiresDistinctElements()
+    {
+        return this._requiresDistinctElements;
+    }
+}
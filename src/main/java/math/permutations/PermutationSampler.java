@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2011, Stanislav Muhametsin. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package math.permutations;
+
+import java.util.Iterator;
+import java.util.SplittableRandom;
+import java.util.stream.Stream;
+
+/**
+ * <p>
+ * The sampler of uniformly random permutations of the multiset of some {@link PermutationGenerator}. This is useful
+ * when the permutations are too many to enumerate, and Monte Carlo sampling is used instead. Each distinct
+ * permutation of the multiset has the same probability, no matter how many duplicates the array has.
+ * </p>
+ * 
+ * <p>
+ * The samples are drawn from given {@link SplittableRandom}, so the single samples and blocks are reproducible for a
+ * given random. The streams divide the samples into fixed blocks of {@link #SAMPLES_PER_BLOCK} samples, and the
+ * samples of each block are drawn from a random, whose seed depends only on the seed of the stream and the index of
+ * the block. Thus the <code>i</code>:th sample of the stream is the same for a given seed, no matter whether the
+ * stream is sequential or parallel, and no matter how many threads process it.
+ * </p>
+ * 
+ * <p>
+ * A sampler has internal state, and thus should not be used by many threads at once. The streams have their own
+ * state, and can be used concurrently with the sampler.
+ * </p>
+ * 
+ * @author 2011 Stanislav Muhametsin
+ * @param <T> The type of the permutation array.
+ * @see PermutationGeneratorProvider#createSampler(PermutationGenerator)
+ */
+public interface PermutationSampler<T>
+{
+    /**
+     * The amount of samples in each block of the streams.
+     */
+    public static final int SAMPLES_PER_BLOCK = 1024;
+
+    /**
+     * Stores a uniformly random permutation into given array.
+     * 
+     * @param random The source of randomness.
+     * @param dest The array where to store the permutation. If <code>null</code>, a new array will be created.
+     * @return The array containing the permutation, that is, <code>dest</code> if it was not <code>null</code>.
+     * @exception IllegalArgumentException If the length of the given array is not the same as length of the
+     *                permutations.
+     */
+    public T sample( SplittableRandom random, T dest );
+
+    /**
+     * Stores given amount of uniformly random permutations into given flat array, in row-major order, just like
+     * {@link PermutationIterator#fillBlock(Object, int)}.
+     * 
+     * @param random The source of randomness.
+     * @param dest The array where to store the permutations.
+     * @param count The amount of permutations to store.
+     * @exception IllegalArgumentException If the array can not hold <code>count</code> permutations.
+     */
+    public void sampleBlock( SplittableRandom random, T dest, int count );
+
+    /**
+     * Stores given amount of uniformly random permutations into given flat array, in row-major or column-major order,
+     * just like {@link PermutationIterator#fillBlock(Object, int, boolean)}.
+     * 
+     * @param random The source of randomness.
+     * @param dest The array where to store the permutations.
+     * @param count The amount of permutations to store.
+     * @param columnMajor Whether to store in column-major order, instead of row-major order.
+     * @exception IllegalArgumentException If the array can not hold <code>count</code> permutations.
+     */
+    public void sampleBlock( SplittableRandom random, T dest, int count, boolean columnMajor );
+
+    /**
+     * Returns the sequential {@link Stream} of given amount of uniformly random permutations. The elements of the
+     * stream are working arrays, and thus should be copied if they need to be stored.
+     * 
+     * @param seed The seed of the stream.
+     * @param count The amount of permutations.
+     * @return The sequential {@link Stream} of random permutations.
+     * @exception IllegalArgumentException If the amount is negative.
+     */
+    public Stream<T> stream( long seed, long count );
+
+    /**
+     * Returns the parallel {@link Stream} of given amount of uniformly random permutations. The stream produces the
+     * same permutations as {@link #stream(long, long)} with the same seed. The elements of the stream are working
+     * arrays, and thus should be copied if they need to be stored.
+     * 
+     * @param seed The seed of the stream.
+     * @param count The amount of permutations.
+     * @return The parallel {@link Stream} of random permutations.
+     * @exception IllegalArgumentException If the amount is negative.
+     */
+    public Stream<T> parallelStream( long seed, long count );
+
+    /**
+     * Returns the lexicographic ranks of <code>k</code> distinct uniformly random permutations, that is, a uniformly
+     * random subset of the ranks of size <code>k</code>. The ranks are drawn at once and sorted, and the duplicates are
+     * replaced with new ranks until there are <code>k</code> distinct ranks. When <code>k</code> is more than half
+     * of {@link PermutationGenerator#getTotal()}, the ranks are selected with one pass over all ranks instead. The
+     * memory used is the returned array.
+     * 
+     * @param random The source of randomness.
+     * @param k The amount of distinct ranks.
+     * @param sorted Whether to return the ranks in ascending order, instead of uniformly random order.
+     * @return The array of <code>k</code> distinct ranks.
+     * @exception IllegalArgumentException If <code>k</code> is negative or greater than the total amount of
+     *                permutations.
+     * @exception ArithmeticException If the total amount of permutations does not fit into <code>long</code>.
+     */
+    public long[] sampleDistinctRanks( SplittableRandom random, int k, boolean sorted );
+
+    /**
+     * Returns the iterator over <code>k</code> distinct uniformly random permutations. The ranks are sampled like in
+     * {@link #sampleDistinctRanks(SplittableRandom, int, boolean)}, or as {@link java.math.BigInteger}s when the total
+     * amount of permutations does not fit into <code>long</code>, and each permutation is computed from its rank when
+     * the iterator reaches it. Just like with {@link PermutationGenerator#iterator()}, the iterator modifies the same
+     * array in-place, and the array should be copied if it needs to be stored.
+     * 
+     * @param random The source of randomness.
+     * @param k The amount of distinct permutations.
+     * @param lexicographic Whether to return the permutations in lexicographic order, instead of uniformly random
+     *            order.
+     * @return The iterator over <code>k</code> distinct random permutations.
+     * @exception IllegalArgumentException If <code>k</code> is negative or greater than the total amount of
+     *                permutations.
+     */
+    public Iterator<T> sampleDistinct( SplittableRandom random, int k, boolean lexicographic );
+}
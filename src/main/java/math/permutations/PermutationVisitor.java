@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2011, Stanislav Muhametsin. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package math.permutations;
+
+/**
+ * <p>
+ * The visitor of the tree of permutation prefixes, used by
+ * {@link RankedPermutationGenerator#visit(PermutationVisitor)}. The nodes at depth <code>d</code> of the tree are the
+ * distinct prefixes of length <code>d + 1</code>, and the leaves at depth <code>n - 1</code> are the permutations. The
+ * tree is traversed depth-first, and the children of each node are visited in ascending order of the chosen element, so
+ * the leaves are visited in lexicographic order. Since each distinct element is chosen at most once at each node, no
+ * prefix is visited twice even when the array contains duplicates.
+ * </p>
+ * 
+ * <p>
+ * The prefix is given as the permutation array, which is modified in-place during the traversal. When a node at depth
+ * <code>d</code> is entered or left, the positions from <code>0</code> to <code>d</code> contain the prefix, the
+ * element chosen at the node is at position <code>d</code>, and the contents of the positions after <code>d</code> are
+ * undefined. Thus the visitor can access the elements of primitive arrays without boxing, and cache computations for
+ * each depth, updating them in {@link #enter(Object, int)} and undoing them in {@link #leave(Object, int)}.
+ * </p>
+ * 
+ * @author 2011 Stanislav Muhametsin
+ * @param <T> The type of the permutation array.
+ * @see VisitResult
+ */
+public interface PermutationVisitor<T>
+{
+    /**
+     * Invoked when a node of the prefix tree is entered, that is, when the element at given depth has been chosen.
+     * Returning {@link VisitResult#SKIP_SUBTREE} skips all permutations starting with the current prefix, and
+     * returning {@link VisitResult#TERMINATE} stops the traversal immediately, without invoking
+     * {@link #leave(Object, int)} for the nodes being visited.
+     * 
+     * @param prefix The permutation array containing the prefix at positions from <code>0</code> to
+     *            <code>depth</code>.
+     * @param depth The depth of the node, that is, the position of the chosen element.
+     * @return How to continue the traversal.
+     */
+    public VisitResult enter( T prefix, int depth );
+
+    /**
+     * Invoked when a node of the prefix tree is left, after all its children have been visited or skipped. The prefix
+     * is the same as when the node was entered.
+     * 
+     * @param prefix The permutation array containing the prefix at positions from <code>0</code> to
+     *            <code>depth</code>.
+     * @param depth The depth of the node, that is, the position of the chosen element.
+     */
+    public void leave( T prefix, int depth );
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright (c) 2011, Stanislav Muhametsin. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package math.permutations;
+
+import java.math.BigInteger;
+
+/**
+ * <p>
+ * The {@link PermutationGenerator}, whose permutations are numbered by their lexicographic rank. Such generators can
+ * start from any rank, iterate over a range of ranks, rank and unrank single permutations, produce the permutations in
+ * other orders, continue from checkpoints, and visit the tree of permutation prefixes. All the permutation generators
+ * created by {@link PermutationGeneratorProvider} implement this interface.
+ * </p>
+ * 
+ * <p>
+ * The plain {@link PermutationGenerator} only needs to be able to iterate over its permutations, so it can be easily
+ * implemented outside of this library.
+ * </p>
+ * 
+ * @author 2011 Stanislav Muhametsin
+ * @param <T> The type of the permutation array.
+ * @see PermutationGeneratorProvider
+ */
+public interface RankedPermutationGenerator<T>
+    extends PermutationGenerator<T>
+{
+    /**
+     * Returns the iterator over all permutations in lexicographic order. This is the same iterator as the one returned
+     * by {@link #iterator()}, typed as {@link PermutationIterator}, so that blocks of permutations can be filled, and
+     * checkpoints can be captured.
+     * 
+     * @return The iterator over all permutations.
+     * @see PermutationIterator
+     */
+    public PermutationIterator<T> permutationIterator();
+
+    /**
+     * Returns the iterator, which starts from the permutation with given lexicographic rank, instead of the first
+     * permutation. The first permutation (the sorted array) has rank zero, and the last permutation has rank
+     * {@link #getTotal()} - 1. The returned iterator will produce exactly the same permutations as the ones produced
+     * by {@link #iterator()} after skipping <code>fromRank</code> permutations. The permutation at given rank is
+     * computed directly, without iterating over the permutations before it.
+     * 
+     * @param fromRank The rank of the first permutation to return. May be equal to {@link #getTotal()}, in which case
+     *            the returned iterator will not return any permutations.
+     * @return The iterator starting from given permutation.
+     * @exception IllegalArgumentException If the rank is negative, or greater than {@link #getTotal()}.
+     */
+    public default PermutationIterator<T> iterator( BigInteger fromRank )
+    {
+        return this.iterator( fromRank, this.getTotal() );
+    }
+
+    /**
+     * Stores the permutation with given lexicographic rank into given array. The first permutation (the sorted array)
+     * has rank zero, and the last permutation has rank {@link #getTotal()} - 1.
+     * 
+     * @param rank The rank of the permutation.
+     * @param dest The array where to store the permutation. If <code>null</code>, a new array will be created.
+     * @return The array containing the permutation, that is, <code>dest</code> if it was not <code>null</code>.
+     * @exception IllegalArgumentException If the rank is negative, or not less than {@link #getTotal()}, or if the
+     *                length of the given array is not the same as length of the permutations.
+     */
+    public T permutationAt( BigInteger rank, T dest );
+
+    /**
+     * Computes the lexicographic rank of given permutation. This is the inverse of
+     * {@link #permutationAt(BigInteger, Object)}. The rank is computed in <code>O(n log n)</code> time.
+     * 
+     * @param permutation The permutation of the array given to this permutation generator.
+     * @return The lexicographic rank of the permutation.
+     * @exception IllegalArgumentException If the given array is not a permutation of the array given to this
+     *                permutation generator.
+     */
+    public BigInteger getRank( T permutation );
+
+    /**
+     * Computes the lexicographic rank of given permutation as <code>long</code>. This is the same as
+     * {@link #getRank(Object)}, but without allocating a {@link BigInteger}. By default, the rank is computed with
+     * {@link #getRank(Object)}.
+     * 
+     * @param permutation The permutation of the array given to this permutation generator.
+     * @return The lexicographic rank of the permutation.
+     * @exception IllegalArgumentException If the given array is not a permutation of the array given to this
+     *                permutation generator.
+     * @exception ArithmeticException If {@link #getTotal()} does not fit into <code>long</code>.
+     */
+    public default long getRankAsLong( T permutation )
+    {
+        if( !this.isTotalLongExact() )
+        {
+            throw new ArithmeticException( "The total amount of permutations " + this.getTotal()
+                + " does not fit into long." );
+        }
+        return this.getRank( permutation ).longValue();
+    }
+
+    /**
+     * Computes the lexicographic ranks of many permutations at once. The permutations are given in one flat array,
+     * one permutation after another. That is, the <code>i</code>:th permutation starts at index
+     * <code>i * n</code>, where <code>n</code> is the length of the permutations.
+     * 
+     * @param permutations The flat array containing the permutations.
+     * @param count The amount of permutations in the array.
+     * @param ranks The array where to store the ranks of the permutations, in same order as the permutations.
+     * @exception IllegalArgumentException If either of the arrays is too small to hold <code>count</code>
+     *                permutations, or if some permutation is not a permutation of the array given to this
+     *                permutation generator.
+     * @exception ArithmeticException If {@link #getTotal()} does not fit into <code>long</code>.
+     */
+    public void getRanks( T permutations, int count, long[] ranks );
+
+    /**
+     * Returns the iterator over permutations with lexicographic ranks from <code>fromRank</code> (inclusive) to
+     * <code>toRank</code> (exclusive). This is useful when splitting the iteration to many threads or machines.
+     * 
+     * @param fromRank The rank of the first permutation to return.
+     * @param toRank The rank after the last permutation to return.
+     * @return The iterator over given range of permutations.
+     * @exception IllegalArgumentException If <code>fromRank</code> is negative, <code>toRank</code> is less than
+     *                <code>fromRank</code>, or <code>toRank</code> is greater than {@link #getTotal()}.
+     */
+    public PermutationIterator<T> iterator( BigInteger fromRank, BigInteger toRank );
+
+    /**
+     * Returns the iterator over all permutations in given order. The iterator starts from the sorted array, and
+     * modifies the same array in-place, just like {@link #iterator()}.
+     * 
+     * @param order The order of the permutations.
+     * @return The iterator over all permutations in given order.
+     * @exception IllegalArgumentException If the order requires distinct elements, but the array given to this
+     *                permutation generator contains duplicates.
+     * @see PermutationOrder
+     */
+    public default PermutationIterator<T> iterator( PermutationOrder order )
+    {
+        return this.iterator( order, null );
+    }
+
+    /**
+     * Returns the iterator over all permutations in given order, which notifies given listener about the positions
+     * changed on each step.
+     * 
+     * @param order The order of the permutations.
+     * @param listener The {@link PermutationChangeListener} to notify. May be <code>null</code>.
+     * @return The iterator over all permutations in given order.
+     * @exception IllegalArgumentException If the order requires distinct elements, but the array given to this
+     *                permutation generator contains duplicates.
+     * @exception UnsupportedOperationException If this permutation generator does not support given order or
+     *                listener.
+     * @see PermutationChangeListener
+     */
+    public PermutationIterator<T> iterator( PermutationOrder order, PermutationChangeListener listener );
+
+    /**
+     * Returns the iterator, which continues from given checkpoint captured with
+     * {@link PermutationIterator#checkpoint()} from an iterator of this permutation generator, or of another
+     * permutation generator of the same array. The iterator is created in <code>O(n log n)</code> time, and returns
+     * the same permutations as the original iterator would have returned after the checkpoint.
+     * 
+     * @param checkpoint The checkpoint.
+     * @return The iterator continuing from given checkpoint.
+     * @exception IllegalArgumentException If the classes or the state of the checkpoint are not valid for this
+     *                permutation generator.
+     * @see PermutationCheckpoint
+     */
+    public PermutationIterator<T> iterator( PermutationCheckpoint checkpoint );
+
+    /**
+     * Traverses the tree of permutation prefixes depth-first with given visitor, allowing whole subtrees to be skipped.
+     * The leaves of the tree are the permutations, in lexicographic order. Entering a node sets exactly one position of
+     * the permutation array, so computations over the prefix can be updated incrementally.
+     * 
+     * @param visitor The {@link PermutationVisitor}.
+     * @return <code>true</code> if the traversal completed, <code>false</code> if the visitor returned
+     *         {@link VisitResult#TERMINATE}.
+     * @see PermutationVisitor
+     */
+    public boolean visit( PermutationVisitor<T> visitor );
+}
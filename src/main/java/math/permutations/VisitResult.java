@@ -12,21 +12,29 @@
  *
  */
 
-package math.permutations.impl;
-
-import java.math.BigInteger;
-import java.util.Arrays;
+package math.permutations;
 
 /**
+ * The result of {@link PermutationVisitor#enter(Object, int)}, which tells how to continue the traversal of the tree of
+ * permutation prefixes.
  * 
  * @author 2011 Stanislav Muhametsin
  */
-public abstract class AbstractGenericPermutationIterator<T> extends AbstractPermutationIterator<T[]>
+public enum VisitResult
 {
+    /**
+     * Continue to the children of the current node.
+     */
+    CONTINUE,
 
-    public AbstractGenericPermutationIterator( T[] array, BigInteger total )
-    {
-        super( Arrays.copyOf( array, array.length ), total );
-    }
+    /**
+     * Skip the children of the current node, and continue with the next sibling. For leaves, this is the same as
+     * {@link #CONTINUE}.
+     */
+    SKIP_SUBTREE,
 
+    /**
+     * Stop the traversal.
+     */
+    TERMINATE;
 }
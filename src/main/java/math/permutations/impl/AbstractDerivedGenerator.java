@@ -0,0 +1,347 @@
+/*
+ * Copyright (c) 2011, Stanislav Muhametsin. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package math.permutations.impl;
+
+import java.math.BigInteger;
+
+import math.permutations.PermutationChangeListener;
+import math.permutations.PermutationCheckpoint;
+import math.permutations.PermutationIterator;
+import math.permutations.PermutationOrder;
+
+/**
+ * The base class for generators of arrays derived from the multiset of another permutation generator, such as
+ * k-permutations, combinations and derangements. The arrays are computed as arrays of classes, and the underlying
+ * generator maps the classes into the elements. Subclasses only need to rank and unrank the arrays of classes, and
+ * to create the iterators. Only {@link PermutationOrder#LEXICOGRAPHIC} order is supported, and the iterators do not
+ * support {@link PermutationChangeListener}s.
+ * 
+ * @author 2011 Stanislav Muhametsin
+ * @param <T> The type of the arrays.
+ */
+public abstract class AbstractDerivedGenerator<T> extends AbstractRankRangeGenerator<T>
+{
+    private final AbstractPermutationGenerator<T> _generator;
+    private final int _length;
+
+    /**
+     * The component type of the arrays, or <code>null</code> if the arrays of the underlying generator are not Java
+     * arrays.
+     */
+    private final Class<?> _componentType;
+
+    /**
+     * Creates a new generator of the arrays derived from the multiset of given generator.
+     * 
+     * @param generator The underlying generator.
+     * @param length The length of the derived arrays.
+     */
+    protected AbstractDerivedGenerator( AbstractPermutationGenerator<T> generator, int length )
+    {
+        Class<?> arrayClass = generator.copyArray().getClass();
+        this._generator = generator;
+        this._length = length;
+        this._componentType = arrayClass.getComponentType();
+    }
+
+    /**
+     * Returns the length of the arrays of this generator.
+     * 
+     * @return The length of the arrays of this generator.
+     */
+    public int getArrayLength()
+    {
+        return this._length;
+    }
+
+    @Override
+    public PermutationIterator<T> iterator( BigInteger fromRank, BigInteger toRank )
+    {
+        this.checkRange( fromRank, toRank );
+        IndexPermutation classes = this.createFirstClasses();
+        if( fromRank.signum() > 0 && fromRank.compareTo( toRank ) < 0 )
+        {
+            this.unrank( fromRank, classes );
+        }
+        return this.createIterator( classes, toRank.subtract( fromRank ) );
+    }
+
+    /**
+     * Returns the iterator over all arrays, in given order.
+     * 
+     * @param order The order.
+     * @return The iterator over all arrays.
+     * @exception UnsupportedOperationException If the order is not {@link PermutationOrder#LEXICOGRAPHIC}.
+     */
+    public PermutationIterator<T> iterator( PermutationOrder order )
+    {
+        return this.iterator( order, null );
+    }
+
+    /**
+     * Returns the iterator over all arrays, in given order.
+     * 
+     * @param order The order.
+     * @param listener The listener, must be <code>null</code>.
+     * @return The iterator over all arrays.
+     * @exception UnsupportedOperationException If the order is not {@link PermutationOrder#LEXICOGRAPHIC}, or the
+     *                listener is not <code>null</code>.
+     */
+    public PermutationIterator<T> iterator( PermutationOrder order, PermutationChangeListener listener )
+    {
+        if( order != PermutationOrder.LEXICOGRAPHIC )
+        {
+            throw new UnsupportedOperationException( "The order " + order + " is not supported by "
+                + this.getClass().getSimpleName() + ", only lexicographic order." );
+        }
+        if( listener != null )
+        {
+            throw new UnsupportedOperationException( "The iterators of " + this.getClass().getSimpleName()
+                + " do not support change listeners." );
+        }
+        return this.iterator();
+    }
+
+    /**
+     * Returns the iterator, which continues from given checkpoint captured from an iterator of this generator.
+     * 
+     * @param checkpoint The checkpoint.
+     * @return The iterator continuing from given checkpoint.
+     * @exception IllegalArgumentException If the checkpoint is not valid for this generator.
+     */
+    public PermutationIterator<T> iterator( PermutationCheckpoint checkpoint )
+    {
+        checkOrder( checkpoint.getOrder() );
+        int[] checkpointClasses = checkpoint.getClasses();
+        if( checkpointClasses.length != this._length )
+        {
+            throw new IllegalArgumentException( "The length of the checkpoint classes must be " + this._length + "." );
+        }
+
+        IndexPermutation classes = this.createClasses();
+        for( int idx = 0; idx < this._length; ++idx )
+        {
+            classes.set( idx, checkpointClasses[idx] );
+        }
+        // Validates the classes
+        this.checkCheckpointRanks( checkpoint, this.rank( classes ) );
+
+        AbstractPermutationIterator<T> result = this.createIterator( classes, checkpoint.getPermutationsLeft() );
+        result.restore( checkpoint );
+        return result;
+    }
+
+    /**
+     * Computes the lexicographic rank of given array.
+     * 
+     * @param array The array.
+     * @return The lexicographic rank of the array.
+     * @exception IllegalArgumentException If the given array is not an array of this generator.
+     */
+    public BigInteger getRank( T array )
+    {
+        return this.rank( this.getClasses( array ) );
+    }
+
+    /**
+     * Computes the lexicographic rank of given array as <code>long</code>.
+     * 
+     * @param array The array.
+     * @return The lexicographic rank of the array.
+     * @exception IllegalArgumentException If the given array is not an array of this generator.
+     * @exception ArithmeticException If {@link #getTotal()} does not fit into <code>long</code>.
+     */
+    public long getRankAsLong( T array )
+    {
+        return this.rankAsLong( this.getClasses( array ) );
+    }
+
+    /**
+     * Computes the lexicographic ranks of the arrays stored consecutively in given flat array.
+     * 
+     * @param arrays The flat array containing the arrays.
+     * @param count The amount of arrays.
+     * @param ranks The array where to store the ranks.
+     * @exception IllegalArgumentException If the arrays are too small, or if some array is not an array of this
+     *                generator.
+     * @exception ArithmeticException If {@link #getTotal()} does not fit into <code>long</code>.
+     */
+    public void getRanks( T arrays, int count, long[] ranks )
+    {
+        if( count < 0 || ranks.length < count || this._generator.getLength( arrays ) < (long) count * this._length )
+        {
+            throw new IllegalArgumentException( "The arrays are too small for " + count + " arrays." );
+        }
+
+        IndexPermutation classes = this.createClasses();
+        for( int idx = 0; idx < count; ++idx )
+        {
+            this._generator.getClasses( arrays, idx * this._length, classes );
+            ranks[idx] = this.rankAsLong( classes );
+        }
+    }
+
+    /**
+     * Stores the array with given lexicographic rank into given array.
+     * 
+     * @param rank The rank of the array.
+     * @param dest The array where to store the array. If <code>null</code>, a new array will be created.
+     * @return The array containing the array with given rank, that is, <code>dest</code> if it was not
+     *         <code>null</code>.
+     * @exception IllegalArgumentException If the rank is out of bounds, or if the length of the given array is not the
+     *                length of the arrays of this generator.
+     */
+    protected T arrayAt( BigInteger rank, T dest )
+    {
+        if( dest != null )
+        {
+            this.checkArrayLength( dest );
+        }
+        IndexPermutation classes = this.createClasses();
+        this.unrank( rank, classes );
+        T result;
+        if( dest == null )
+        {
+            result = this.createArray( classes );
+        }
+        else
+        {
+            this._generator.setClasses( classes, 0, this._length, dest );
+            result = dest;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the underlying generator.
+     * 
+     * @return The underlying generator.
+     */
+    protected AbstractPermutationGenerator<T> getGenerator()
+    {
+        return this._generator;
+    }
+
+    /**
+     * Creates a new {@link IndexPermutation}, which can hold the classes of the arrays of this generator.
+     * 
+     * @return The new {@link IndexPermutation}.
+     */
+    protected IndexPermutation createClasses()
+    {
+        return IndexPermutation.create( this._length, this._generator.getMultiplicities().length );
+    }
+
+    /**
+     * Creates a new {@link IndexPermutation} containing the classes of the first array. By default, the classes are
+     * the smallest classes of the multiset in ascending order.
+     * 
+     * @return The classes of the first array.
+     */
+    protected IndexPermutation createFirstClasses()
+    {
+        return IndexPermutation.createFirst( this._generator.getMultiplicities(), this._length );
+    }
+
+    /**
+     * Creates a new array containing the elements with given classes. When the arrays of the underlying generator are
+     * not Java arrays, the length of the arrays of this generator must be the length of the arrays of the underlying
+     * generator.
+     * 
+     * @param classes The classes of the elements.
+     * @return The new array.
+     */
+    protected T createArray( IndexPermutation classes )
+    {
+        T result;
+        if( this._componentType == null )
+        {
+            result = this._generator.copyArray();
+        }
+        else
+        {
+            result = newArray( this._componentType, this._length );
+        }
+        this._generator.setClasses( classes, 0, this._length, result );
+        return result;
+    }
+
+    /**
+     * Checks that the length of given array is the length of the arrays of this generator.
+     * 
+     * @param array The array.
+     * @exception IllegalArgumentException If the length of the array is not correct.
+     */
+    protected void checkArrayLength( T array )
+    {
+        if( this._generator.getLength( array ) != this._length )
+        {
+            throw new IllegalArgumentException( "The length of the array must be " + this._length + "." );
+        }
+    }
+
+    /**
+     * Stores the classes of the array with given lexicographic rank into given {@link IndexPermutation}.
+     * 
+     * @param rank The rank of the array.
+     * @param classes The {@link IndexPermutation} where to store the classes.
+     * @exception IllegalArgumentException If the rank is negative, or not less than {@link #getTotal()}.
+     */
+    protected abstract void unrank( BigInteger rank, IndexPermutation classes );
+
+    /**
+     * Computes the lexicographic rank of the array with given classes.
+     * 
+     * @param classes The classes of the array.
+     * @return The rank of the array.
+     * @exception IllegalArgumentException If the classes are not an array of this generator.
+     */
+    protected abstract BigInteger rank( IndexPermutation classes );
+
+    /**
+     * Computes the lexicographic rank of the array with given classes as <code>long</code>.
+     * 
+     * @param classes The classes of the array.
+     * @return The rank of the array.
+     * @exception IllegalArgumentException If the classes are not an array of this generator.
+     * @exception ArithmeticException If {@link #getTotal()} does not fit into <code>long</code>.
+     */
+    protected abstract long rankAsLong( IndexPermutation classes );
+
+    /**
+     * Creates the iterator starting from the array with given classes.
+     * 
+     * @param classes The classes of the first array. Will be modified by the iterator.
+     * @param left The amount of arrays to iterate.
+     * @return The new iterator.
+     */
+    protected abstract AbstractPermutationIterator<T> createIterator( IndexPermutation classes, BigInteger left );
+
+    private IndexPermutation getClasses( T array )
+    {
+        this.checkArrayLength( array );
+        IndexPermutation result = this.createClasses();
+        this._generator.getClasses( array, 0, result );
+        return result;
+    }
+
+    private static void checkOrder( PermutationOrder order )
+    {
+        if( order != PermutationOrder.LEXICOGRAPHIC )
+        {
+            throw new IllegalArgumentException( "The order " + order + " is not supported, only lexicographic order." );
+        }
+    }
+}
@@ -16,22 +16,64 @@ package math.permutations.impl;
 
 import java.util.Arrays;
 import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.Map;
 
 /**
- * 
+ * The base class for generators of permutations of object arrays. Each element is assigned a dense integer id, its
+ * class, when the array info is created, and after that the comparison of the elements is never needed for iteration.
+ * When computing ranks, the classes of the elements are first looked up by identity, and only the elements not present
+ * in the original array are searched using the comparison of the elements.
  * 
  * @author 2011 Stanislav Muhametsin
- * @param <T>
+ * @param <T> The common type of the elements of the permutation array.
  */
 public abstract class AbstractGenericPermutationGenerator<T> extends AbstractPermutationGenerator<T[]>
 {
 
     private final T[] _array;
 
+    /**
+     * The distinct elements of the array, in ascending order.
+     */
+    private final T[] _distinctElements;
+
+    /**
+     * The classes of all the elements of the original array, by identity.
+     */
+    private final Map<T, Integer> _classesByIdentity;
+
+    /**
+     * Whether all the elements of each class are the same object. If not, the k-th occurrence of a class in a
+     * permutation is mapped to the k-th element of that class in the sorted array, so that every permutation contains
+     * exactly the objects of the original array, even when the comparator is not consistent with equals.
+     */
+    private final boolean _oneObjectPerClass;
+
     public static interface GenericArrayInfo<ElementType>
         extends ArrayInfo
     {
         public ElementType[] getArray();
+
+        /**
+         * Returns the class of each element of the sorted array, that is, the index of the element among the distinct
+         * elements. By default, the classes are computed from {@link #getMultiplicities()}, since equal elements are
+         * adjacent in the sorted array.
+         * 
+         * @return The class of each element of the sorted array.
+         */
+        public default int[] getElementIDs()
+        {
+            int[] multiplicities = this.getMultiplicities();
+            int[] ids = new int[this.getArrayLength()];
+            int idx = 0;
+            for( int clazz = 0; clazz < multiplicities.length; ++clazz )
+            {
+                Arrays.fill( ids, idx, idx + multiplicities[clazz], clazz );
+                idx += multiplicities[clazz];
+            }
+            return ids;
+        }
     }
 
     protected static interface DistinctElementCounter<U>
@@ -43,10 +85,159 @@ public abstract class AbstractGenericPermutationGenerator<T> extends AbstractPer
     {
         super( arrayInfo );
         this._array = arrayInfo.getArray();
+        int[] offsets = this.getClassOffsets();
+        this._distinctElements = Arrays.copyOf( this._array, offsets.length );
+        for( int idx = 0; idx < offsets.length; ++idx )
+        {
+            this._distinctElements[idx] = this._array[offsets[idx]];
+        }
+
+        int[] ids = arrayInfo.getElementIDs();
+        this._classesByIdentity = new IdentityHashMap<T, Integer>( this._array.length );
+        boolean oneObjectPerClass = true;
+        for( int idx = 0; idx < this._array.length; ++idx )
+        {
+            this._classesByIdentity.put( this._array[idx], ids[idx] );
+            oneObjectPerClass = oneObjectPerClass && this._array[idx] == this._distinctElements[ids[idx]];
+        }
+        this._oneObjectPerClass = oneObjectPerClass;
     }
 
     public T[] getArray()
     {
         return this._array;
     }
+
+    /**
+     * Returns the distinct elements of the array, in ascending order. The returned array should not be modified.
+     * 
+     * @return The distinct elements of the array.
+     */
+    protected T[] getDistinctElements()
+    {
+        return this._distinctElements;
+    }
+
+    @Override
+    protected T[] copyArray()
+    {
+        return Arrays.copyOf( this._array, this._array.length );
+    }
+
+    @Override
+    protected void setClasses( IndexPermutation classes, int from, int to, T[] dest )
+    {
+        for( int idx = from; idx < to; ++idx )
+        {
+            dest[idx] = this.getElement( classes, idx );
+        }
+    }
+
+    @Override
+    protected void storeClasses( IndexPermutation classes, T[] dest, int offset, int stride )
+    {
+        for( int idx = 0, destIdx = offset; idx < classes.length(); ++idx, destIdx += stride )
+        {
+            dest[destIdx] = this.getElement( classes, idx );
+        }
+    }
+
+    /**
+     * Returns the element of the original array, which is at given position of the permutation of the classes. When
+     * a class has several different objects, the occurrences of the class before given position are counted, and the
+     * object with that index among the objects of the class is returned.
+     * 
+     * @param classes The permutation of the classes.
+     * @param index The position.
+     * @return The element at given position.
+     */
+    private T getElement( IndexPermutation classes, int index )
+    {
+        int clazz = classes.get( index );
+        T result;
+        if( this._oneObjectPerClass )
+        {
+            result = this._distinctElements[clazz];
+        }
+        else
+        {
+            int occurrence = 0;
+            for( int idx = 0; idx < index; ++idx )
+            {
+                if( classes.get( idx ) == clazz )
+                {
+                    ++occurrence;
+                }
+            }
+            result = this._array[this.getClassOffsets()[clazz] + occurrence];
+        }
+        return result;
+    }
+
+    @Override
+    protected boolean canStoreArray()
+    {
+        return true;
+    }
+
+    @Override
+    protected void storeArray( T[] array, T[] dest, int offset, int stride )
+    {
+        if( stride == 1 )
+        {
+            System.arraycopy( array, 0, dest, offset, array.length );
+        }
+        else
+        {
+            for( int idx = 0, destIdx = offset; idx < array.length; ++idx, destIdx += stride )
+            {
+                dest[destIdx] = array[idx];
+            }
+        }
+    }
+
+    @Override
+    protected void getClasses( T[] array, int offset, IndexPermutation classes )
+    {
+        for( int idx = 0; idx < classes.length(); ++idx )
+        {
+            T element = array[offset + idx];
+            Integer clazz = this._classesByIdentity.get( element );
+            classes.set( idx, clazz == null ? checkClass( this.searchClass( element ) ) : clazz );
+        }
+    }
+
+    /**
+     * Searches the class of the element, which is not any of the elements of the original array, using the comparison
+     * of the elements.
+     * 
+     * @param element The element.
+     * @return The class of the element, or negative value if the element is not equal to any of the distinct elements.
+     */
+    protected abstract int searchClass( T element );
+
+    /**
+     * Computes the multiplicities and the classes of the elements of the sorted array, comparing each pair of adjacent
+     * elements only once.
+     * 
+     * @param sorted The sorted array.
+     * @param comparator The comparator used to sort the array.
+     * @param ids The array where to store the class of each element. Must be at least as long as the sorted array.
+     * @return The multiplicities of the distinct elements.
+     */
+    protected static <U> int[] computeMultiplicities( U[] sorted, Comparator<? super U> comparator, int[] ids )
+    {
+        int[] multiplicities = new int[sorted.length];
+        int clazz = 0;
+        for( int idx = 0; idx < sorted.length; ++idx )
+        {
+            if( idx > 0 && comparator.compare( sorted[idx - 1], sorted[idx] ) != 0 )
+            {
+                ++clazz;
+            }
+            ids[idx] = clazz;
+            ++multiplicities[clazz];
+        }
+        return Arrays.copyOf( multiplicities, sorted.length == 0 ? 0 : clazz + 1 );
+    }
 }
@@ -14,17 +14,27 @@
 
 package math.permutations.impl;
 
+import java.lang.reflect.Array;
 import java.math.BigInteger;
-import java.util.Iterator;
+import java.nio.ByteBuffer;
 
-import math.permutations.PermutationGenerator;
+import math.permutations.PermutationChangeListener;
+import math.permutations.PermutationCheckpoint;
+import math.permutations.PermutationIterator;
+import math.permutations.PermutationOrder;
+import math.permutations.PermutationVisitor;
+import math.permutations.RankedPermutationGenerator;
+import math.permutations.VisitResult;
 
 /**
+ * The base class for all permutation generators. The permutations are generated as permutations of the classes of
+ * the elements, using {@link IndexPermutation}, and subclasses only need to map the classes to the actual elements of
+ * the permutation array, and back.
  * 
  * @author 2011 Stanislav Muhametsin
  */
-public abstract class AbstractPermutationGenerator<T>
-    implements PermutationGenerator<T>
+public abstract class AbstractPermutationGenerator<T> extends AbstractRankRangeGenerator<T>
+    implements RankedPermutationGenerator<T>
 {
     public static interface ArrayInfo
     {
@@ -35,6 +45,19 @@ public abstract class AbstractPermutationGenerator<T>
 
     private final BigInteger _total;
 
+    private final long _totalAsLong;
+
+    private final int _arrayLength;
+
+    private final int[] _multiplicities;
+
+    /**
+     * The index of the first occurrence of each distinct element in the sorted array.
+     */
+    private final int[] _classOffsets;
+
+    private final MultisetRanking _ranking;
+
     public AbstractPermutationGenerator( ArrayInfo arrayInfo )
     {
         // Retrieved from http://en.wikipedia.org/wiki/Permutation on 26.07.2011
@@ -45,48 +68,483 @@ public abstract class AbstractPermutationGenerator<T>
         //
         // Where n is the size of the multiset, s is a amount of distinct elements, and m_i is multiplicity of i:th distinct element.
 
-        BigInteger upper = getFactorial( arrayInfo.getArrayLength() );
-        BigInteger lower = BigInteger.ONE;
-        for( int multiplicity : arrayInfo.getMultiplicities() )
+        this._total = Combinatorics.multinomial( arrayInfo.getMultiplicities() );
+        this._totalAsLong = Combinatorics.toSaturatedLong( this._total );
+
+        this._multiplicities = arrayInfo.getMultiplicities();
+        this._arrayLength = arrayInfo.getArrayLength();
+        this._classOffsets = new int[this._multiplicities.length];
+        for( int idx = 1; idx < this._multiplicities.length; ++idx )
+        {
+            this._classOffsets[idx] = this._classOffsets[idx - 1] + this._multiplicities[idx - 1];
+        }
+        this._ranking = new MultisetRanking( this._multiplicities, this._arrayLength, this._total );
+    }
+
+    @Override
+    public BigInteger getTotal()
+    {
+        return this._total;
+    }
+
+    @Override
+    public long getTotalAsLong()
+    {
+        return this._totalAsLong;
+    }
+
+    @Override
+    public boolean isTotalLongExact()
+    {
+        return this._total.bitLength() < Long.SIZE;
+    }
+
+    @Override
+    public PermutationIterator<T> iterator( BigInteger fromRank, BigInteger toRank )
+    {
+        this.checkRange( fromRank, toRank );
+        IndexPermutation classes = this.createFirstClasses();
+        T array = this.createWorkingArray( classes );
+        if( fromRank.signum() > 0 && fromRank.compareTo( toRank ) < 0 )
         {
-            BigInteger f = getFactorial( multiplicity );
-            if( f != BigInteger.ONE )
+            this._ranking.unrank( fromRank, classes );
+            this.setClasses( classes, 0, this._arrayLength, array );
+        }
+        return new IndexPermutationIterator<T>( this, array, classes, toRank.subtract( fromRank ) );
+    }
+
+    @Override
+    public PermutationIterator<T> iterator( PermutationOrder order )
+    {
+        return this.iterator( order, null );
+    }
+
+    @Override
+    public PermutationIterator<T> iterator( PermutationOrder order, PermutationChangeListener listener )
+    {
+        if( order.requiresDistinctElements() && this._multiplicities.length < this._arrayLength )
+        {
+            throw new IllegalArgumentException( "The order " + order + " requires all elements to be distinct." );
+        }
+
+        IndexPermutation classes = this.createFirstClasses();
+        return this.createIterator( order, this.createWorkingArray( classes ), classes, this._total, listener );
+    }
+
+    @Override
+    public PermutationIterator<T> iterator( PermutationCheckpoint checkpoint )
+    {
+        int[] checkpointClasses = checkpoint.getClasses();
+        if( checkpointClasses.length != this._arrayLength )
+        {
+            throw new IllegalArgumentException( "The length of the checkpoint classes must be " + this._arrayLength
+                + "." );
+        }
+        if( checkpoint.getOrder().requiresDistinctElements() && this._multiplicities.length < this._arrayLength )
+        {
+            throw new IllegalArgumentException( "The order " + checkpoint.getOrder()
+                + " requires all elements to be distinct." );
+        }
+
+        // The classes must be a permutation of the multiset
+        int[] counts = new int[this._multiplicities.length];
+        IndexPermutation classes = this.createClasses();
+        for( int idx = 0; idx < this._arrayLength; ++idx )
+        {
+            int clazz = checkpointClasses[idx];
+            if( clazz < 0 || clazz >= counts.length || ++counts[clazz] > this._multiplicities[clazz] )
             {
-                lower = lower.multiply( f );
+                throw new IllegalArgumentException( "The checkpoint classes are not a permutation of this multiset." );
             }
+            classes.set( idx, clazz );
         }
-        if( lower != BigInteger.ONE )
+        this.checkCheckpointRanks( checkpoint,
+            checkpoint.getOrder() == PermutationOrder.LEXICOGRAPHIC ? this._ranking.rank( classes ) : null );
+
+        T array = this.createWorkingArray( classes );
+        this.setClasses( classes, 0, this._arrayLength, array );
+        AbstractPermutationIterator<T> result = this.createIterator( checkpoint.getOrder(), array, classes,
+            checkpoint.getPermutationsLeft(), null );
+        result.restore( checkpoint );
+        return result;
+    }
+
+    @Override
+    public boolean visit( PermutationVisitor<T> visitor )
+    {
+        IndexPermutation classes = this.createFirstClasses();
+        return this.visitPrefixes( visitor, classes, this.createWorkingArray( classes ) );
+    }
+
+    /**
+     * Traverses the tree of prefixes of the permutations of this multiset down to the length of given classes. This
+     * way, the same traversal is used for the k-permutations.
+     * 
+     * @param visitor The visitor.
+     * @param classes The classes of the prefix, which also define the depth of the tree.
+     * @param prefix The array holding the prefix, with the same length as the classes.
+     * @return <code>true</code> if the traversal completed, <code>false</code> if it was terminated.
+     */
+    boolean visitPrefixes( PermutationVisitor<T> visitor, IndexPermutation classes, T prefix )
+    {
+        int length = classes.length();
+        int distinct = this._multiplicities.length;
+        int[] counts = this._multiplicities.clone();
+        int[] chosen = new int[length];
+
+        boolean terminated = false;
+        int depth = length > 0 ? 0 : -1;
+        int candidate = 0;
+        while( depth >= 0 && !terminated )
+        {
+            while( candidate < distinct && counts[candidate] == 0 )
+            {
+                ++candidate;
+            }
+
+            if( candidate < distinct )
+            {
+                --counts[candidate];
+                chosen[depth] = candidate;
+                classes.set( depth, candidate );
+                this.setClasses( classes, depth, depth + 1, prefix );
+                VisitResult result = visitor.enter( prefix, depth );
+                if( result == VisitResult.TERMINATE )
+                {
+                    terminated = true;
+                }
+                else if( result == VisitResult.CONTINUE && depth < length - 1 )
+                {
+                    ++depth;
+                    candidate = 0;
+                }
+                else
+                {
+                    visitor.leave( prefix, depth );
+                    ++counts[candidate];
+                    ++candidate;
+                }
+            }
+            else
+            {
+                // All children of the parent have been visited
+                --depth;
+                if( depth >= 0 )
+                {
+                    candidate = chosen[depth];
+                    visitor.leave( prefix, depth );
+                    ++counts[candidate];
+                    ++candidate;
+                }
+            }
+        }
+        return !terminated;
+    }
+
+    @Override
+    public T permutationAt( BigInteger rank, T dest )
+    {
+        if( dest == null )
         {
-            this._total = upper.divide( lower );
+            dest = this.copyArray();
         }
         else
         {
-            this._total = upper;
+            this.checkArrayLength( dest );
         }
+
+        IndexPermutation classes = this.createClasses();
+        this._ranking.unrank( rank, classes );
+        this.setClasses( classes, 0, this._arrayLength, dest );
+        return dest;
     }
 
     @Override
-    public BigInteger getTotal()
+    public BigInteger getRank( T permutation )
     {
-        return this._total;
+        this.checkArrayLength( permutation );
+        IndexPermutation classes = this.createClasses();
+        this.getClasses( permutation, 0, classes );
+        return this._ranking.rank( classes );
     }
 
     @Override
-    public Iterator<T> iterator()
+    public long getRankAsLong( T permutation )
     {
-        return this.createIterator();
+        this.checkArrayLength( permutation );
+        IndexPermutation classes = this.createClasses();
+        this.getClasses( permutation, 0, classes );
+        return this._ranking.rankAsLong( classes );
     }
 
-    protected abstract Iterator<T> createIterator();
+    @Override
+    public void getRanks( T permutations, int count, long[] ranks )
+    {
+        if( count < 0 || ranks.length < count || this.getLength( permutations ) < (long) count * this._arrayLength )
+        {
+            throw new IllegalArgumentException( "The arrays are too small for " + count + " permutations." );
+        }
+
+        int distinct = this._multiplicities.length;
+        IndexPermutation classes = this.createClasses();
+        int[] counts = new int[distinct];
+        int[] tree = new int[distinct + 1];
+        for( int idx = 0; idx < count; ++idx )
+        {
+            this.getClasses( permutations, idx * this._arrayLength, classes );
+            ranks[idx] = this._ranking.rankAsLong( classes, counts, tree );
+        }
+    }
+
+    /**
+     * Returns the ranking of the permutations of this generator.
+     */
+    MultisetRanking getRanking()
+    {
+        return this._ranking;
+    }
 
-    private static BigInteger getFactorial( int n )
+    private AbstractPermutationIterator<T> createIterator( PermutationOrder order, T array, IndexPermutation classes,
+        BigInteger total, PermutationChangeListener listener )
     {
-        BigInteger fact = BigInteger.ONE;
-        for( int i = n; i > 1; i-- )
+        AbstractPermutationIterator<T> result;
+        switch( order )
         {
-            fact = fact.multiply( BigInteger.valueOf( i ) );
+        case HEAP:
+            result = new HeapPermutationIterator<T>( this, array, classes, total, listener );
+            break;
+        case JOHNSON_TROTTER:
+            result = new JohnsonTrotterPermutationIterator<T>( this, array, classes, total, listener );
+            break;
+        case MULTISET_TRANSPOSITION:
+            result = new MultisetTranspositionIterator<T>( this, array, classes, total, listener );
+            break;
+        case COOL_LEX:
+            result = new CoolLexPermutationIterator<T>( this, array, classes, total, listener );
+            break;
+        default:
+            result = new IndexPermutationIterator<T>( this, array, classes, total, listener );
+            break;
         }
-        return fact;
+        return result;
     }
 
+    /**
+     * Returns the length of the permutation arrays.
+     * 
+     * @return The length of the permutation arrays.
+     */
+    public int getArrayLength()
+    {
+        return this._arrayLength;
+    }
+
+    /**
+     * Returns the multiplicities of the distinct elements, in ascending order of the elements. The returned array
+     * should not be modified.
+     * 
+     * @return The multiplicities of the distinct elements.
+     */
+    public int[] getMultiplicities()
+    {
+        return this._multiplicities;
+    }
+
+    /**
+     * Returns the index of the first occurrence of each distinct element in the sorted array. The returned array
+     * should not be modified.
+     * 
+     * @return The index of the first occurrence of each distinct element in the sorted array.
+     */
+    protected int[] getClassOffsets()
+    {
+        return this._classOffsets;
+    }
+
+    /**
+     * Creates a new {@link IndexPermutation} suitable for the classes of this generator. The contents of the
+     * permutation are undefined.
+     * 
+     * @return The new {@link IndexPermutation}.
+     */
+    protected IndexPermutation createClasses()
+    {
+        return IndexPermutation.create( this._arrayLength, this._multiplicities.length );
+    }
+
+    /**
+     * Creates a new {@link IndexPermutation} containing the classes of the first permutation.
+     * 
+     * @return The new {@link IndexPermutation} containing the classes of the first permutation.
+     */
+    protected IndexPermutation createFirstClasses()
+    {
+        return IndexPermutation.createFirst( this._multiplicities, this._arrayLength );
+    }
+
+    /**
+     * Returns the length of given permutation array. By default, uses {@link Array#getLength(Object)}.
+     * 
+     * @param array The permutation array.
+     * @return The length of the permutation array.
+     */
+    protected int getLength( T array )
+    {
+        return Array.getLength( array );
+    }
+
+    private void checkArrayLength( T array )
+    {
+        if( this.getLength( array ) != this._arrayLength )
+        {
+            throw new IllegalArgumentException( "The length of the array must be " + this._arrayLength + "." );
+        }
+    }
+
+    /**
+     * Checks the class found by binary search.
+     * 
+     * @param clazz The result of the binary search.
+     * @return The class, if it is not negative.
+     * @exception IllegalArgumentException If the class is negative, that is, the element was not found.
+     */
+    protected static int checkClass( int clazz )
+    {
+        if( clazz < 0 )
+        {
+            throw new IllegalArgumentException( "The given array contains an element not present in this multiset." );
+        }
+        return clazz;
+    }
+
+    /**
+     * Creates a copy of the sorted array, that is, the first permutation.
+     * 
+     * @return A copy of the sorted array.
+     */
+    protected abstract T copyArray();
+
+    /**
+     * Creates the array, which the iterators modify in-place, for given classes of the first permutation. By default,
+     * uses {@link #copyArray()}. Subclasses creating views over the classes may return the view instead, so that the
+     * classes do not need to be mapped on each step.
+     * 
+     * @param classes The classes of the first permutation, which will be advanced by the iterator.
+     * @return The working array of the iterator.
+     */
+    protected T createWorkingArray( IndexPermutation classes )
+    {
+        return this.copyArray();
+    }
+
+    /**
+     * Returns whether this generator can store the elements of a working array into a flat array directly with
+     * {@link #storeArray(Object, Object, int, int)}, without mapping the classes of the permutation into elements
+     * again. By default, returns <code>false</code>.
+     * 
+     * @return <code>true</code> if {@link #storeArray(Object, Object, int, int)} is supported, <code>false</code>
+     *         otherwise.
+     */
+    protected boolean canStoreArray()
+    {
+        return false;
+    }
+
+    /**
+     * Stores all the elements of given working array into given flat array. The element at position <code>j</code>
+     * is stored to index <code>offset + j * stride</code>. Called only when {@link #canStoreArray()} returns
+     * <code>true</code>. By default, throws {@link UnsupportedOperationException}.
+     * 
+     * @param array The working array.
+     * @param dest The flat array where to store the elements.
+     * @param offset The index where to store the first element.
+     * @param stride The distance between indices of consecutive elements.
+     */
+    protected void storeArray( T array, T dest, int offset, int stride )
+    {
+        throw new UnsupportedOperationException( "The elements must be stored through the classes." );
+    }
+
+    /**
+     * Sets the elements of given array at given range to the distinct elements with the classes at same positions of
+     * given {@link IndexPermutation}.
+     * 
+     * @param classes The classes of the elements.
+     * @param from The first position to set.
+     * @param to The position after the last position to set.
+     * @param dest The array where to store elements.
+     */
+    protected abstract void setClasses( IndexPermutation classes, int from, int to, T dest );
+
+    /**
+     * Stores the elements with all the classes of given {@link IndexPermutation} into given flat array. The element at
+     * position <code>j</code> is stored to index <code>offset + j * stride</code>.
+     * 
+     * @param classes The classes of the elements.
+     * @param dest The flat array where to store the elements.
+     * @param offset The index where to store the first element.
+     * @param stride The distance between indices of consecutive elements.
+     */
+    protected abstract void storeClasses( IndexPermutation classes, T dest, int offset, int stride );
+
+    /**
+     * Returns the amount of bytes each element takes when stored into a {@link ByteBuffer}, or <code>-1</code> if the
+     * elements can not be stored into a {@link ByteBuffer}. By default, returns <code>-1</code>.
+     * 
+     * @return The amount of bytes each element takes, or <code>-1</code>.
+     */
+    protected int getElementBytes()
+    {
+        return -1;
+    }
+
+    /**
+     * Stores the elements with the classes at given range of given {@link IndexPermutation} into given
+     * {@link ByteBuffer}, using absolute indices and the byte order of the buffer. The element at position
+     * <code>j</code> is stored to index <code>offset + j * stride</code>. By default, throws
+     * {@link UnsupportedOperationException}.
+     * 
+     * @param classes The classes of the elements.
+     * @param from The first position to store.
+     * @param to The position after the last position to store.
+     * @param dest The buffer where to store the elements.
+     * @param offset The byte index where the element at position zero would be stored.
+     * @param stride The distance in bytes between indices of consecutive elements.
+     * @exception UnsupportedOperationException If the elements can not be stored into a {@link ByteBuffer}.
+     */
+    protected void storeClasses( IndexPermutation classes, int from, int to, ByteBuffer dest, int offset, int stride )
+    {
+        throw new UnsupportedOperationException( "The elements of " + this.getClass().getName()
+            + " can not be stored into a buffer." );
+    }
+
+    /**
+     * Stores the classes of the elements of given {@link ByteBuffer} into given {@link IndexPermutation}, using
+     * absolute indices and the byte order of the buffer. The element at position <code>j</code> is read from index
+     * <code>offset + j * stride</code>. By default, throws {@link UnsupportedOperationException}.
+     * 
+     * @param src The buffer containing the elements.
+     * @param offset The byte index of the first element.
+     * @param stride The distance in bytes between indices of consecutive elements.
+     * @param classes The {@link IndexPermutation} where to store the classes.
+     * @exception IllegalArgumentException If some element is not present in this multiset.
+     * @exception UnsupportedOperationException If the elements can not be read from a {@link ByteBuffer}.
+     */
+    protected void loadClasses( ByteBuffer src, int offset, int stride, IndexPermutation classes )
+    {
+        throw new UnsupportedOperationException( "The elements of " + this.getClass().getName()
+            + " can not be read from a buffer." );
+    }
+
+    /**
+     * Stores the classes of the elements of given array into given {@link IndexPermutation}. The elements are read
+     * starting from given offset, and the amount of elements read is the length of the permutation.
+     * 
+     * @param array The array containing elements.
+     * @param offset The index of the first element to read.
+     * @param classes The {@link IndexPermutation} where to store the classes.
+     * @exception IllegalArgumentException If some element is not present in this multiset.
+     */
+    protected abstract void getClasses( T array, int offset, IndexPermutation classes );
+
 }
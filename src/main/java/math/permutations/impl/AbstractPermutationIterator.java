@@ -15,51 +15,245 @@
 package math.permutations.impl;
 
 import java.math.BigInteger;
-import java.util.Iterator;
 import java.util.NoSuchElementException;
 
+import math.permutations.PermutationCheckpoint;
+import math.permutations.PermutationIterator;
+import math.permutations.PermutationOrder;
+
 /**
+ * The base class for permutation iterators. The amount of permutations left is kept in a <code>long</code>, so that
+ * iterating does not allocate anything. Only when the total amount of permutations does not fit into 63 bits, the
+ * amount of full 2<sup>63</sup> blocks left is kept in a {@link BigInteger}, which is touched once per 2<sup>63</sup>
+ * permutations. The permutation is kept as {@link IndexPermutation}, which the subclasses advance, and the
+ * generator maps the classes into the elements of the permutation array.
  * 
  * @author 2011 Stanislav Muhametsin
  */
 public abstract class AbstractPermutationIterator<T>
-    implements Iterator<T>
+    implements PermutationIterator<T>
 {
+    private final AbstractPermutationGenerator<T> _generator;
+
+    private final IndexPermutation _classes;
+
     private final T _array;
-    private final BigInteger _total;
-    private BigInteger _permutationsLeft;
 
-    public AbstractPermutationIterator( T array, BigInteger total )
+    /**
+     * The amount of permutations left, modulo 2<sup>63</sup>.
+     */
+    private long _permutationsLeft;
+
+    /**
+     * The amount of full 2<sup>63</sup> blocks of permutations left. Is {@link BigInteger#ZERO} when the total fits
+     * into 63 bits.
+     */
+    private BigInteger _blocksLeft;
+
+    private boolean _isFirst;
+
+    /**
+     * Whether the blocks are filled by copying the permutation array, instead of mapping the classes again.
+     */
+    private final boolean _storesArray;
+
+    public AbstractPermutationIterator( AbstractPermutationGenerator<T> generator, T array, IndexPermutation classes,
+        BigInteger total )
     {
+        this._generator = generator;
+        this._classes = classes;
         this._array = array;
-        this._total = total;
-        this._permutationsLeft = total;
+        this._isFirst = true;
+        this._storesArray = generator.canStoreArray();
+        if( total.bitLength() < Long.SIZE )
+        {
+            this._permutationsLeft = total.longValue();
+            this._blocksLeft = BigInteger.ZERO;
+        }
+        else
+        {
+            this._permutationsLeft = total.longValue() & Long.MAX_VALUE;
+            this._blocksLeft = total.shiftRight( Long.SIZE - 1 );
+        }
     }
 
     @Override
     public boolean hasNext()
     {
-        return this._permutationsLeft.compareTo( BigInteger.ZERO ) == 1;
+        return this._permutationsLeft > 0L || this._blocksLeft.signum() > 0;
     }
 
     @Override
     public T next()
     {
-        if( this._permutationsLeft.compareTo( BigInteger.ZERO ) <= 0 )
+        if( this._permutationsLeft > 0L )
+        {
+            --this._permutationsLeft;
+        }
+        else if( this._blocksLeft.signum() > 0 )
+        {
+            // Borrow one full block, and consume one permutation of it
+            this._blocksLeft = this._blocksLeft.subtract( BigInteger.ONE );
+            this._permutationsLeft = Long.MAX_VALUE;
+        }
+        else
         {
             throw new NoSuchElementException( "No more permutations available." );
         }
 
-        if( !this._permutationsLeft.equals( this._total ) )
+        if( this._isFirst )
+        {
+            this._isFirst = false;
+        }
+        else
         {
             this.makeNextPermutation( this._array );
         }
 
-        this._permutationsLeft = this._permutationsLeft.subtract( BigInteger.ONE );
-
         return this._array;
     }
 
+    @Override
+    public int fillBlock( T dest, int maxCount )
+    {
+        return this.fillBlock( dest, maxCount, false );
+    }
+
+    @Override
+    public int fillBlock( T dest, int maxCount, boolean columnMajor )
+    {
+        int length = this._classes.length();
+        if( maxCount < 0 || (long) maxCount * length > this._generator.getLength( dest ) )
+        {
+            throw new IllegalArgumentException( "The array is too small for " + maxCount + " permutations." );
+        }
+
+        int stride = columnMajor ? maxCount : 1;
+        int rowStride = columnMajor ? 1 : length;
+        int count = 0;
+        while( count < maxCount && this.hasNext() )
+        {
+            T array = this.next();
+            if( this._storesArray )
+            {
+                this._generator.storeArray( array, dest, count * rowStride, stride );
+            }
+            else
+            {
+                this._generator.storeClasses( this.getClasses(), dest, count * rowStride, stride );
+            }
+            ++count;
+        }
+        return count;
+    }
+
+    /**
+     * Returns the generator of this iterator.
+     * 
+     * @return The generator of this iterator.
+     */
+    protected AbstractPermutationGenerator<T> getGenerator()
+    {
+        return this._generator;
+    }
+
+    /**
+     * Returns the classes of the current permutation.
+     * 
+     * @return The classes of the current permutation.
+     */
+    protected IndexPermutation getClasses()
+    {
+        return this._classes;
+    }
+
+    @Override
+    public PermutationCheckpoint checkpoint()
+    {
+        BigInteger left = this._blocksLeft.shiftLeft( Long.SIZE - 1 ).add(
+            BigInteger.valueOf( this._permutationsLeft ) );
+        BigInteger nextRank = this.getNextRank( left, !this._isFirst );
+        IndexPermutation current = this.getClasses();
+        int length = current.length();
+        int[] classes = new int[length];
+        for( int idx = 0; idx < length; ++idx )
+        {
+            classes[idx] = current.get( idx );
+        }
+        return new PermutationCheckpoint( this.getOrder(), nextRank, nextRank.add( left ), !this._isFirst, classes,
+            this.getOrderState() );
+    }
+
+    /**
+     * Restores the state of this iterator from given checkpoint. The classes and the amount of permutations left have
+     * already been given to the constructor.
+     * 
+     * @param checkpoint The checkpoint.
+     */
+    void restore( PermutationCheckpoint checkpoint )
+    {
+        this._isFirst = !checkpoint.isStarted();
+        this.setOrderState( checkpoint.getOrderState() );
+    }
+
+    /**
+     * Returns the rank of the next permutation, within the order of this iterator. By default, the iterator is assumed
+     * to iterate over all permutations, so the rank is computed from the total amount of permutations.
+     * 
+     * @param permutationsLeft The amount of permutations left.
+     * @param started Whether this iterator has returned any permutations.
+     * @return The rank of the next permutation.
+     */
+    protected BigInteger getNextRank( BigInteger permutationsLeft, boolean started )
+    {
+        return this._generator.getTotal().subtract( permutationsLeft );
+    }
+
+    /**
+     * Returns the additional state of the order of this iterator, which is stored in checkpoints. By default, returns
+     * an empty array.
+     * 
+     * @return The additional state of the order.
+     */
+    protected int[] getOrderState()
+    {
+        return new int[0];
+    }
+
+    /**
+     * Restores the additional state returned by {@link #getOrderState()}. By default, only checks that the state is
+     * empty.
+     * 
+     * @param state The additional state of the order.
+     * @exception IllegalArgumentException If the state is not valid for this iterator.
+     */
+    protected void setOrderState( int[] state )
+    {
+        checkOrderState( state, 0 );
+    }
+
+    /**
+     * Checks that the additional state of the order has given length.
+     * 
+     * @param state The additional state of the order.
+     * @param length The required length.
+     * @exception IllegalArgumentException If the length of the state is not the required length.
+     */
+    protected static void checkOrderState( int[] state, int length )
+    {
+        if( state.length != length )
+        {
+            throw new IllegalArgumentException( "The order state must have length " + length + "." );
+        }
+    }
+
+    /**
+     * Returns the order of this iterator.
+     * 
+     * @return The order of this iterator.
+     */
+    protected abstract PermutationOrder getOrder();
+
     protected abstract void makeNextPermutation( T array );
 
     /**
@@ -72,4 +266,4 @@ public abstract class AbstractPermutationIterator<T>
     {
         throw new UnsupportedOperationException( "Can not remove permutation." );
     }
-}
\ No newline at end of file
+}
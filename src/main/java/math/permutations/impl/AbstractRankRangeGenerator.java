@@ -0,0 +1,168 @@
+/*
+ * Copyright (c) 2011, Stanislav Muhametsin. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package math.permutations.impl;
+
+import java.lang.reflect.Array;
+import java.math.BigInteger;
+import java.util.Spliterator;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import math.permutations.PermutationCheckpoint;
+import math.permutations.PermutationIterator;
+import math.permutations.PermutationOrder;
+
+/**
+ * The base class for generators, whose arrays can be iterated starting from any lexicographic rank. The iterators
+ * over all arrays, the spliterators and the streams are all built on top of
+ * {@link #iterator(BigInteger, BigInteger)}.
+ * 
+ * @author 2011 Stanislav Muhametsin
+ * @param <T> The type of the arrays.
+ */
+public abstract class AbstractRankRangeGenerator<T>
+    implements PermutationSpliterator.RankRange<T>
+{
+    @Override
+    public abstract BigInteger getTotal();
+
+    @Override
+    public abstract PermutationIterator<T> iterator( BigInteger fromRank, BigInteger toRank );
+
+    /**
+     * Returns the iterator over all arrays, in lexicographic order.
+     * 
+     * @return The iterator over all arrays.
+     */
+    public PermutationIterator<T> iterator()
+    {
+        return this.iterator( BigInteger.ZERO, this.getTotal() );
+    }
+
+    /**
+     * Returns the iterator over all arrays, in lexicographic order. This is the same as {@link #iterator()}.
+     * 
+     * @return The iterator over all arrays.
+     */
+    public PermutationIterator<T> permutationIterator()
+    {
+        return this.iterator();
+    }
+
+    /**
+     * Returns the iterator, which starts from the array with given lexicographic rank.
+     * 
+     * @param fromRank The rank of the first array to return.
+     * @return The iterator starting from given array.
+     */
+    public PermutationIterator<T> iterator( BigInteger fromRank )
+    {
+        return this.iterator( fromRank, this.getTotal() );
+    }
+
+    /**
+     * Returns the {@link Spliterator} over all arrays, which splits by halving the range of ranks.
+     * 
+     * @return The {@link Spliterator} over all arrays.
+     */
+    public Spliterator<T> spliterator()
+    {
+        return new PermutationSpliterator<T>( this, BigInteger.ZERO, this.getTotal() );
+    }
+
+    /**
+     * Returns the sequential {@link Stream} over all arrays.
+     * 
+     * @return The sequential {@link Stream} over all arrays.
+     */
+    public Stream<T> stream()
+    {
+        return StreamSupport.stream( this.spliterator(), false );
+    }
+
+    /**
+     * Returns the parallel {@link Stream} over all arrays.
+     * 
+     * @return The parallel {@link Stream} over all arrays.
+     */
+    public Stream<T> parallelStream()
+    {
+        return StreamSupport.stream( this.spliterator(), true );
+    }
+
+    /**
+     * Checks that given range of ranks is within the ranks of all arrays.
+     * 
+     * @param fromRank The rank of the first array of the range.
+     * @param toRank The rank after the last array of the range.
+     * @exception IllegalArgumentException If <code>fromRank</code> is negative, <code>toRank</code> is less than
+     *                <code>fromRank</code>, or <code>toRank</code> is greater than {@link #getTotal()}.
+     */
+    protected void checkRange( BigInteger fromRank, BigInteger toRank )
+    {
+        BigInteger total = this.getTotal();
+        if( fromRank.signum() < 0 || toRank.compareTo( fromRank ) < 0 || toRank.compareTo( total ) > 0 )
+        {
+            throw new IllegalArgumentException( "The range [" + fromRank + ", " + toRank + ") must be within [0, "
+                + total + ")." );
+        }
+    }
+
+    /**
+     * Checks that the ranks of given checkpoint are consistent with the arrays of this generator. The lexicographic
+     * iteration may end at any rank up to {@link #getTotal()}, and the classes of the checkpoint must have the rank
+     * right before the next rank if the iteration has started, and the next rank itself otherwise. The iteration in
+     * other orders always ends at the last array.
+     * 
+     * @param checkpoint The checkpoint.
+     * @param classesRank The lexicographic rank of the classes of the checkpoint. Only used for
+     *            {@link PermutationOrder#LEXICOGRAPHIC} order.
+     * @exception IllegalArgumentException If the ranks of the checkpoint are not valid for this generator.
+     */
+    protected void checkCheckpointRanks( PermutationCheckpoint checkpoint, BigInteger classesRank )
+    {
+        BigInteger total = this.getTotal();
+        BigInteger endRank = checkpoint.getEndRank();
+        boolean isLexicographic = checkpoint.getOrder() == PermutationOrder.LEXICOGRAPHIC;
+        if( isLexicographic ? endRank.compareTo( total ) > 0 : !endRank.equals( total ) )
+        {
+            throw new IllegalArgumentException( "The end rank " + endRank + " of the checkpoint must be "
+                + ( isLexicographic ? "at most " : "" ) + total + "." );
+        }
+        if( isLexicographic )
+        {
+            BigInteger expected = checkpoint.isStarted() ? classesRank.add( BigInteger.ONE ) : classesRank;
+            if( !expected.equals( checkpoint.getNextRank() ) )
+            {
+                throw new IllegalArgumentException( "The checkpoint classes do not match the next rank "
+                    + checkpoint.getNextRank() + "." );
+            }
+        }
+    }
+
+    /**
+     * Creates a new Java array with given component type and length. This is the only place where the created array
+     * is cast to the type of the arrays of the generators.
+     * 
+     * @param componentType The component type of the array.
+     * @param length The length of the array.
+     * @return The new array.
+     */
+    @SuppressWarnings( "unchecked" )
+    protected static <T> T newArray( Class<?> componentType, int length )
+    {
+        return (T) Array.newInstance( componentType, length );
+    }
+}
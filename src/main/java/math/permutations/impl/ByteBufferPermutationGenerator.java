@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2011, Stanislav Muhametsin. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package math.permutations.impl;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import math.permutations.PermutationGenerator;
+
+/**
+ * <p>
+ * This is the implementation of {@link PermutationGenerator}, where the permutations are stored in {@link ByteBuffer}s,
+ * using the element type of a generator of primitive arrays. The working permutation of the iterators is a direct
+ * buffer in native byte order, which is updated in-place, so that only the changed positions are written on each step,
+ * and the permutation can be handed over to native code without copying.
+ * </p>
+ * 
+ * <p>
+ * The permutation stored in a {@link ByteBuffer} starts at the position of the buffer, and extends to the limit of the
+ * buffer. The elements are accessed using absolute indices and the byte order of the buffer, so the position and limit
+ * of the buffer are never modified. Thus, for example, the permutations can be written into some specific offset of
+ * a caller-supplied buffer by setting the position of the buffer before calling
+ * {@link math.permutations.PermutationIterator#fillBlock(Object, int)}.
+ * </p>
+ * 
+ * @author 2011 Stanislav Muhametsin
+ * @param <T> The type of the permutation array of the generator, which defines the element type.
+ */
+public class ByteBufferPermutationGenerator<T> extends AbstractPermutationGenerator<ByteBuffer>
+{
+    private final AbstractPermutationGenerator<T> _elementGenerator;
+
+    private final int _elementBytes;
+
+    /**
+     * Creates a new {@link ByteBufferPermutationGenerator}, which stores the elements of given generator.
+     * 
+     * @param elementGenerator The generator of primitive arrays.
+     * @exception IllegalArgumentException If the elements of the given generator can not be stored into a
+     *                {@link ByteBuffer}.
+     */
+    public ByteBufferPermutationGenerator( final AbstractPermutationGenerator<T> elementGenerator )
+    {
+        super( new ArrayInfo()
+        {
+            @Override
+            public int getArrayLength()
+            {
+                return elementGenerator.getArrayLength();
+            }
+
+            @Override
+            public int[] getMultiplicities()
+            {
+                return elementGenerator.getMultiplicities();
+            }
+        } );
+        this._elementGenerator = elementGenerator;
+        this._elementBytes = elementGenerator.getElementBytes();
+        if( this._elementBytes <= 0 )
+        {
+            throw new IllegalArgumentException( "The elements of " + elementGenerator.getClass().getName()
+                + " can not be stored into a buffer." );
+        }
+    }
+
+    @Override
+    protected ByteBuffer copyArray()
+    {
+        ByteBuffer result = ByteBuffer.allocateDirect( this.getArrayLength() * this._elementBytes ).order(
+            ByteOrder.nativeOrder() );
+        this._elementGenerator.storeClasses( this.createFirstClasses(), 0, this.getArrayLength(), result, 0,
+            this._elementBytes );
+        return result;
+    }
+
+    @Override
+    protected int getLength( ByteBuffer array )
+    {
+        return array.remaining() / this._elementBytes;
+    }
+
+    @Override
+    protected void setClasses( IndexPermutation classes, int from, int to, ByteBuffer dest )
+    {
+        this._elementGenerator.storeClasses( classes, from, to, dest, dest.position(), this._elementBytes );
+    }
+
+    @Override
+    protected void storeClasses( IndexPermutation classes, ByteBuffer dest, int offset, int stride )
+    {
+        this._elementGenerator.storeClasses( classes, 0, classes.length(), dest, dest.position() + offset
+            * this._elementBytes, stride * this._elementBytes );
+    }
+
+    @Override
+    protected void getClasses( ByteBuffer array, int offset, IndexPermutation classes )
+    {
+        this._elementGenerator.loadClasses( array, array.position() + offset * this._elementBytes,
+            this._elementBytes, classes );
+    }
+}
@@ -14,8 +14,11 @@
 
 package math.permutations.impl;
 
+import java.nio.ByteBuffer;
 import java.util.Arrays;
-import java.util.Iterator;
+
+import math.permutations.PermutationGeneratorProvider.OptimizedGeneratorService;
+import math.permutations.RankedPermutationGenerator;
 
 /**
  * 
@@ -26,6 +29,31 @@ public class BytePermutationGenerator extends AbstractPermutationGenerator<byte[
 
     private final byte[] _array;
 
+    /**
+     * The distinct elements of the array, in ascending order.
+     */
+    private final byte[] _distinctElements;
+
+    /**
+     * The {@link OptimizedGeneratorService} creating the permutation generators for <code>byte[]</code> arrays.
+     */
+    public static class ByteGeneratorService
+        implements OptimizedGeneratorService
+    {
+        @Override
+        public Class<?> getArrayClass()
+        {
+            return byte[].class;
+        }
+
+        @Override
+        public <ArrayType> RankedPermutationGenerator<ArrayType> createOptimizedGenerator( ArrayType array )
+        {
+            return (RankedPermutationGenerator<ArrayType>) new BytePermutationGenerator( new ByteArrayInfo(
+                (byte[]) array ) );
+        }
+    }
+
     public static class ByteArrayInfo
         implements ArrayInfo
     {
@@ -84,52 +112,91 @@ public class BytePermutationGenerator extends AbstractPermutationGenerator<byte[
         super( array );
 
         this._array = array.getArray();
+        int[] offsets = this.getClassOffsets();
+        this._distinctElements = new byte[offsets.length];
+        for( int idx = 0; idx < offsets.length; ++idx )
+        {
+            this._distinctElements[idx] = this._array[offsets[idx]];
+        }
+    }
+
+    @Override
+    protected byte[] copyArray()
+    {
+        return Arrays.copyOf( this._array, this._array.length );
     }
 
     @Override
-    protected Iterator<byte[]> createIterator()
+    protected void setClasses( IndexPermutation classes, int from, int to, byte[] dest )
     {
-        return new AbstractPermutationIterator<byte[]>( Arrays.copyOf( this._array, this._array.length ),
-            this.getTotal() )
+        for( int idx = from; idx < to; ++idx )
         {
-            @Override
-            protected void makeNextPermutation( byte[] array )
-            {
-                byte temp = 0;
+            dest[idx] = this._distinctElements[classes.get( idx )];
+        }
+    }
 
-                // Find largest index j with a[j] < a[j+1]
-                int j = array.length - 2;
-                while( array[j] >= array[j + 1] )
-                {
-                    j--;
-                }
+    @Override
+    protected void storeClasses( IndexPermutation classes, byte[] dest, int offset, int stride )
+    {
+        for( int idx = 0, destIdx = offset; idx < classes.length(); ++idx, destIdx += stride )
+        {
+            dest[destIdx] = this._distinctElements[classes.get( idx )];
+        }
+    }
 
-                // Find index k such that a[k] is smallest integer
-                // greater than a[j] to the right of a[j]
-                int k = array.length - 1;
-                while( array[j] >= array[k] )
-                {
-                    k--;
-                }
+    @Override
+    protected boolean canStoreArray()
+    {
+        return true;
+    }
 
-                // Interchange a[j] and a[k]
-                temp = array[k];
-                array[k] = array[j];
-                array[j] = temp;
+    @Override
+    protected void storeArray( byte[] array, byte[] dest, int offset, int stride )
+    {
+        if( stride == 1 )
+        {
+            System.arraycopy( array, 0, dest, offset, array.length );
+        }
+        else
+        {
+            for( int idx = 0, destIdx = offset; idx < array.length; ++idx, destIdx += stride )
+            {
+                dest[destIdx] = array[idx];
+            }
+        }
+    }
 
-                // Put tail end of permutation after jth position in increasing order
-                int r = array.length - 1;
-                int s = j + 1;
+    @Override
+    protected void getClasses( byte[] array, int offset, IndexPermutation classes )
+    {
+        for( int idx = 0; idx < classes.length(); ++idx )
+        {
+            classes.set( idx, checkClass( Arrays.binarySearch( this._distinctElements, array[offset + idx] ) ) );
+        }
+    }
 
-                while( r > s )
-                {
-                    temp = array[s];
-                    array[s] = array[r];
-                    array[r] = temp;
-                    r--;
-                    s++;
-                }
-            }
-        };
+    @Override
+    protected int getElementBytes()
+    {
+        return Byte.BYTES;
+    }
+
+    @Override
+    protected void storeClasses( IndexPermutation classes, int from, int to, ByteBuffer dest, int offset, int stride )
+    {
+        for( int idx = from; idx < to; ++idx )
+        {
+            dest.put( offset + idx * stride, this._distinctElements[classes.get( idx )] );
+        }
+    }
+
+    @Override
+    protected void loadClasses( ByteBuffer src, int offset, int stride, IndexPermutation classes )
+    {
+        for( int idx = 0; idx < classes.length(); ++idx )
+        {
+            int clazz = Arrays.binarySearch( this._distinctElements, src.get( offset + idx * stride ) );
+            classes.set( idx, checkClass( clazz ) );
+        }
     }
 }
@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2011, Stanislav Muhametsin. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package math.permutations.impl;
+
+import java.math.BigInteger;
+
+import math.permutations.PermutationOrder;
+
+/**
+ * The iterator over combinations of a multiset in lexicographic order. On each step, the last position, which can be
+ * increased so that the rest of the combination can still be filled with greater classes, is increased by one class.
+ * Then the rest of the positions are filled with the smallest possible classes. The amount of elements with class at
+ * least <code>c</code> is precomputed for each class, so each step takes <code>O(k)</code> time and allocates nothing.
+ * 
+ * @author 2011 Stanislav Muhametsin
+ * @param <T> The type of the combination array.
+ */
+public class CombinationIterator<T> extends AbstractPermutationIterator<T>
+{
+    private final CombinationRanking _ranking;
+    private final int _length;
+
+    /**
+     * The amount of elements of the multiset with class at least <code>c</code>, for each class <code>c</code>.
+     */
+    private final int[] _capacities;
+
+    public CombinationIterator( AbstractPermutationGenerator<T> generator, CombinationRanking ranking, T array,
+        IndexPermutation classes, BigInteger combinationsLeft )
+    {
+        super( generator, array, classes, combinationsLeft );
+        this._ranking = ranking;
+        this._length = classes.length();
+        int[] multiplicities = generator.getMultiplicities();
+        this._capacities = new int[multiplicities.length + 1];
+        for( int idx = multiplicities.length - 1; idx >= 0; --idx )
+        {
+            this._capacities[idx] = this._capacities[idx + 1] + multiplicities[idx];
+        }
+    }
+
+    @Override
+    protected PermutationOrder getOrder()
+    {
+        return PermutationOrder.LEXICOGRAPHIC;
+    }
+
+    @Override
+    protected BigInteger getNextRank( BigInteger permutationsLeft, boolean started )
+    {
+        BigInteger result = this._ranking.rank( this.getClasses() );
+        if( started )
+        {
+            result = result.add( BigInteger.ONE );
+        }
+        return result;
+    }
+
+    @Override
+    protected void makeNextPermutation( T array )
+    {
+        IndexPermutation classes = this.getClasses();
+        int distinct = this._capacities.length - 1;
+
+        // The last combination is never advanced, so some position can always be increased
+        int pos = this._length - 1;
+        int clazz = classes.get( pos ) + 1;
+        while( clazz == distinct || this._capacities[clazz] < this._length - pos )
+        {
+            --pos;
+            clazz = classes.get( pos ) + 1;
+        }
+
+        int[] multiplicities = this.getGenerator().getMultiplicities();
+        int idx = pos;
+        while( idx < this._length )
+        {
+            int end = Math.min( idx + multiplicities[clazz], this._length );
+            while( idx < end )
+            {
+                classes.set( idx, clazz );
+                ++idx;
+            }
+            ++clazz;
+        }
+        this.getGenerator().setClasses( classes, pos, this._length, array );
+    }
+}
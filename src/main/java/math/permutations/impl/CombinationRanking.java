@@ -0,0 +1,273 @@
+/*
+ * Copyright (c) 2011, Stanislav Muhametsin. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package math.permutations.impl;
+
+import java.math.BigInteger;
+
+/**
+ * <p>
+ * This class maps lexicographic ranks of the combinations of a multiset, that is, sub-multisets of <code>k</code>
+ * elements, to the combinations themselves, and back. The combinations are expressed as non-decreasing arrays of
+ * classes of the elements. Thus the combinations of size 2 of multiset with multiplicities <code>[2, 1, 1]</code> are
+ * <code>[0, 0]</code>, <code>[0, 1]</code>, <code>[0, 2]</code> and <code>[1, 2]</code>.
+ * </p>
+ * 
+ * <p>
+ * The amount of combinations of size <code>r</code> from the distinct elements starting from class <code>c</code> is
+ * precomputed into a table of <code>(s + 1) * (k + 1)</code> entries, where <code>s</code> is the amount of distinct
+ * elements: it is the sum of the amounts of combinations of size <code>r - t</code> starting from class
+ * <code>c + 1</code>, for each possible count <code>t</code> of class <code>c</code>. When the total amount of
+ * combinations fits into <code>long</code>, the ranking uses only <code>long</code>s.
+ * </p>
+ * 
+ * <p>
+ * The instances of this class are immutable and thus thread-safe.
+ * </p>
+ * 
+ * @author 2011 Stanislav Muhametsin
+ */
+public final class CombinationRanking
+{
+    private final int[] _multiplicities;
+    private final int _length;
+    private final BigInteger _total;
+    private final boolean _isTotalLong;
+
+    /**
+     * The amounts of combinations as <code>long</code>s, saturated to {@link Long#MAX_VALUE}, or <code>null</code>
+     * if the total does not fit into <code>long</code>. The saturated values are never needed, since the ranking only
+     * needs amounts of combinations with some valid prefix, which are not greater than the total.
+     */
+    private final long[][] _counts;
+
+    /**
+     * The amounts of combinations, or <code>null</code> if the total fits into <code>long</code>.
+     */
+    private final BigInteger[][] _bigCounts;
+
+    /**
+     * Creates a new ranking for combinations of multiset with given multiplicities.
+     * 
+     * @param multiplicities The multiplicities of each distinct element, in ascending order of the elements. Will
+     *            <b>NOT</b> be copied.
+     * @param length The size of the combinations, that is, <code>k</code>.
+     */
+    public CombinationRanking( int[] multiplicities, int length )
+    {
+        int distinct = multiplicities.length;
+        BigInteger[][] counts = new BigInteger[distinct + 1][length + 1];
+        for( int r = 0; r <= length; ++r )
+        {
+            counts[distinct][r] = r == 0 ? BigInteger.ONE : BigInteger.ZERO;
+        }
+        for( int c = distinct - 1; c >= 0; --c )
+        {
+            // Sliding window over the amounts of combinations of the following classes
+            BigInteger window = BigInteger.ZERO;
+            int multiplicity = multiplicities[c];
+            for( int r = 0; r <= length; ++r )
+            {
+                window = window.add( counts[c + 1][r] );
+                if( r > multiplicity )
+                {
+                    window = window.subtract( counts[c + 1][r - multiplicity - 1] );
+                }
+                counts[c][r] = window;
+            }
+        }
+
+        this._multiplicities = multiplicities;
+        this._length = length;
+        this._total = counts[0][length];
+        this._isTotalLong = this._total.bitLength() < Long.SIZE;
+        if( this._isTotalLong )
+        {
+            this._counts = new long[distinct + 1][length + 1];
+            for( int c = 0; c <= distinct; ++c )
+            {
+                for( int r = 0; r <= length; ++r )
+                {
+                    BigInteger count = counts[c][r];
+                    this._counts[c][r] = count.bitLength() < Long.SIZE ? count.longValue() : Long.MAX_VALUE;
+                }
+            }
+            this._bigCounts = null;
+        }
+        else
+        {
+            this._counts = null;
+            this._bigCounts = counts;
+        }
+    }
+
+    /**
+     * Returns the amount of combinations of the multiset.
+     * 
+     * @return The amount of combinations of the multiset.
+     */
+    public BigInteger getTotal()
+    {
+        return this._total;
+    }
+
+    /**
+     * Stores the classes of the combination with given rank into given array.
+     * 
+     * @param rank The lexicographic rank of the combination, starting from zero.
+     * @param classes The permutation of length <code>k</code> where to store the classes of the combination.
+     * @exception IllegalArgumentException If the rank is negative, or not less than the total amount of combinations.
+     */
+    public void unrank( BigInteger rank, IndexPermutation classes )
+    {
+        if( rank.signum() < 0 || rank.compareTo( this._total ) >= 0 )
+        {
+            throw new IllegalArgumentException( "The rank " + rank + " must be at least zero and less than "
+                + this._total + "." );
+        }
+
+        long longRank = rank.longValue();
+        int pos = 0;
+        for( int clazz = 0; pos < this._length; ++clazz )
+        {
+            int remaining = this._length - pos;
+            // The combinations with more elements of this class come first
+            int count = Math.min( this._multiplicities[clazz], remaining );
+            while( true )
+            {
+                if( this._isTotalLong )
+                {
+                    long withCount = this._counts[clazz + 1][remaining - count];
+                    if( longRank < withCount )
+                    {
+                        break;
+                    }
+                    longRank -= withCount;
+                }
+                else
+                {
+                    BigInteger withCount = this._bigCounts[clazz + 1][remaining - count];
+                    if( rank.compareTo( withCount ) < 0 )
+                    {
+                        break;
+                    }
+                    rank = rank.subtract( withCount );
+                }
+                --count;
+            }
+            for( int idx = 0; idx < count; ++idx )
+            {
+                classes.set( pos, clazz );
+                ++pos;
+            }
+        }
+    }
+
+    /**
+     * Computes the lexicographic rank of the combination with given classes.
+     * 
+     * @param classes The classes of the combination.
+     * @return The lexicographic rank of the combination.
+     * @exception IllegalArgumentException If the given classes are not a non-decreasing combination of the multiset.
+     */
+    public BigInteger rank( IndexPermutation classes )
+    {
+        BigInteger result;
+        if( this._isTotalLong )
+        {
+            result = BigInteger.valueOf( this.doRank( classes ) );
+        }
+        else
+        {
+            result = BigInteger.ZERO;
+            int pos = 0;
+            int clazz = 0;
+            while( pos < this._length )
+            {
+                int count = this.countClass( classes, pos, clazz );
+                int remaining = this._length - pos;
+                for( int more = Math.min( this._multiplicities[clazz], remaining ); more > count; --more )
+                {
+                    result = result.add( this._bigCounts[clazz + 1][remaining - more] );
+                }
+                pos += count;
+                ++clazz;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Computes the lexicographic rank of the combination with given classes as <code>long</code>.
+     * 
+     * @param classes The classes of the combination.
+     * @return The lexicographic rank of the combination.
+     * @exception IllegalArgumentException If the given classes are not a non-decreasing combination of the multiset.
+     * @exception ArithmeticException If the total amount of combinations does not fit into <code>long</code>.
+     */
+    public long rankAsLong( IndexPermutation classes )
+    {
+        if( !this._isTotalLong )
+        {
+            throw new ArithmeticException( "The total amount of combinations " + this._total
+                + " does not fit into long." );
+        }
+        return this.doRank( classes );
+    }
+
+    private long doRank( IndexPermutation classes )
+    {
+        long rank = 0L;
+        int pos = 0;
+        int clazz = 0;
+        while( pos < this._length )
+        {
+            int count = this.countClass( classes, pos, clazz );
+            int remaining = this._length - pos;
+            for( int more = Math.min( this._multiplicities[clazz], remaining ); more > count; --more )
+            {
+                rank += this._counts[clazz + 1][remaining - more];
+            }
+            pos += count;
+            ++clazz;
+        }
+        return rank;
+    }
+
+    /**
+     * Returns the amount of elements of given class starting from given position, checking that the classes are
+     * non-decreasing and within the multiplicities.
+     */
+    private int countClass( IndexPermutation classes, int pos, int clazz )
+    {
+        int first = classes.get( pos );
+        if( first < clazz || first >= this._multiplicities.length )
+        {
+            throw new IllegalArgumentException( "The given array is not a sorted combination of the multiset." );
+        }
+        int count = 0;
+        if( first == clazz )
+        {
+            while( pos + count < this._length && classes.get( pos + count ) == clazz )
+            {
+                ++count;
+            }
+            if( count > this._multiplicities[clazz] )
+            {
+                throw new IllegalArgumentException( "The given array is not a sorted combination of the multiset." );
+            }
+        }
+        return count;
+    }
+}
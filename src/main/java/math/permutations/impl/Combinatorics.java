@@ -0,0 +1,253 @@
+/*
+ * Copyright (c) 2011, Stanislav Muhametsin. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package math.permutations.impl;
+
+import java.math.BigInteger;
+
+/**
+ * <p>
+ * The shared computations of factorials and multinomial coefficients. The multinomial coefficient
+ * <code>n! / (m_1! m_2! ... m_s!)</code> is first computed as a product of binomial coefficients in <code>long</code>,
+ * starting from the largest multiplicity, so that each intermediate value is an integer not greater than the result.
+ * Thus the overflow is detected exactly: the computation overflows if and only if the result does not fit into
+ * <code>long</code>. Only then the result is computed with {@link BigInteger}s, by dividing the product of the range
+ * <code>(m_max, n]</code> by the factorials of the other multiplicities. The products are computed by binary
+ * splitting, which keeps the multiplied numbers of similar size.
+ * </p>
+ * 
+ * <p>
+ * The factorials up to {@link #CACHE_LIMIT} are cached. The cache grows on demand, is replaced as a whole when it
+ * grows, and is thus safe to read without locking.
+ * </p>
+ * 
+ * @author 2011 Stanislav Muhametsin
+ */
+public final class Combinatorics
+{
+    /**
+     * The largest <code>n</code>, for which <code>n!</code> is cached.
+     */
+    public static final int CACHE_LIMIT = 512;
+
+    /**
+     * The largest <code>n</code>, for which <code>n!</code> fits into <code>long</code>.
+     */
+    private static final int MAX_LONG_FACTORIAL = 20;
+
+    private static final long[] LONG_FACTORIALS = createLongFactorials();
+
+    private static volatile BigInteger[] _factorialCache = new BigInteger[]
+    {
+        BigInteger.ONE
+    };
+
+    private Combinatorics()
+    {
+    }
+
+    /**
+     * Returns <code>n!</code>.
+     * 
+     * @param n The number.
+     * @return The factorial of the number.
+     * @exception IllegalArgumentException If the number is negative.
+     */
+    public static BigInteger factorial( int n )
+    {
+        if( n < 0 )
+        {
+            throw new IllegalArgumentException( "The factorial of negative number " + n + " is undefined." );
+        }
+        BigInteger result;
+        if( n <= MAX_LONG_FACTORIAL )
+        {
+            result = BigInteger.valueOf( LONG_FACTORIALS[n] );
+        }
+        else if( n <= CACHE_LIMIT )
+        {
+            BigInteger[] cache = _factorialCache;
+            result = n < cache.length ? cache[n] : growCache( n )[n];
+        }
+        else
+        {
+            result = factorial( CACHE_LIMIT ).multiply( product( CACHE_LIMIT + 1, n ) );
+        }
+        return result;
+    }
+
+    /**
+     * Computes the multinomial coefficient <code>n! / (m_1! m_2! ... m_s!)</code> as <code>long</code>, where
+     * <code>n</code> is the sum of the multiplicities.
+     * 
+     * @param multiplicities The multiplicities <code>m_i</code>. Must not be negative.
+     * @return The multinomial coefficient, or <code>-1</code> if it does not fit into <code>long</code>.
+     */
+    public static long multinomialAsLong( int[] multiplicities )
+    {
+        int largest = indexOfLargest( multiplicities );
+        long result = 1L;
+        int sum = largest < 0 ? 0 : multiplicities[largest];
+        for( int clazz = 0; result > 0L && clazz < multiplicities.length; ++clazz )
+        {
+            if( clazz != largest )
+            {
+                // Multiply by C(sum + m, m) one factor at a time
+                int multiplicity = multiplicities[clazz];
+                for( int idx = 1; result > 0L && idx <= multiplicity; ++idx )
+                {
+                    ++sum;
+                    int gcd = gcd( sum, idx );
+                    long multiplier = sum / gcd;
+                    result /= idx / gcd;
+                    result = result > Long.MAX_VALUE / multiplier ? -1L : result * multiplier;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Computes the multinomial coefficient <code>n! / (m_1! m_2! ... m_s!)</code>, where <code>n</code> is the sum of
+     * the multiplicities. This is the amount of permutations of the multiset with given multiplicities.
+     * 
+     * @param multiplicities The multiplicities <code>m_i</code>. Must not be negative.
+     * @return The multinomial coefficient.
+     */
+    public static BigInteger multinomial( int[] multiplicities )
+    {
+        long small = multinomialAsLong( multiplicities );
+        BigInteger result;
+        if( small >= 0L )
+        {
+            result = BigInteger.valueOf( small );
+        }
+        else
+        {
+            int largest = indexOfLargest( multiplicities );
+            int sum = 0;
+            BigInteger lower = BigInteger.ONE;
+            for( int clazz = 0; clazz < multiplicities.length; ++clazz )
+            {
+                sum += multiplicities[clazz];
+                if( clazz != largest && multiplicities[clazz] > 1 )
+                {
+                    lower = lower.multiply( factorial( multiplicities[clazz] ) );
+                }
+            }
+            result = product( multiplicities[largest] + 1, sum ).divide( lower );
+        }
+        return result;
+    }
+
+    /**
+     * Returns the value of given {@link BigInteger} as <code>long</code>, or {@link Long#MAX_VALUE} if the value does
+     * not fit into <code>long</code>.
+     * 
+     * @param value The non-negative value.
+     * @return The value as <code>long</code>, saturated to {@link Long#MAX_VALUE}.
+     */
+    public static long toSaturatedLong( BigInteger value )
+    {
+        return value.bitLength() < Long.SIZE ? value.longValue() : Long.MAX_VALUE;
+    }
+
+    /**
+     * Computes the product of the numbers from <code>from</code> to <code>to</code>, both inclusive, by binary
+     * splitting.
+     */
+    private static BigInteger product( int from, int to )
+    {
+        BigInteger result;
+        int count = to - from + 1;
+        if( count <= 0 )
+        {
+            result = BigInteger.ONE;
+        }
+        else if( count <= 16 )
+        {
+            // Accumulate into long until it would overflow
+            long partial = 1L;
+            result = BigInteger.ONE;
+            for( int idx = from; idx <= to; ++idx )
+            {
+                if( partial > Long.MAX_VALUE / idx )
+                {
+                    result = result.multiply( BigInteger.valueOf( partial ) );
+                    partial = 1L;
+                }
+                partial *= idx;
+            }
+            result = result.multiply( BigInteger.valueOf( partial ) );
+        }
+        else
+        {
+            int middle = ( from + to ) >>> 1;
+            result = product( from, middle ).multiply( product( middle + 1, to ) );
+        }
+        return result;
+    }
+
+    private static synchronized BigInteger[] growCache( int n )
+    {
+        BigInteger[] cache = _factorialCache;
+        if( n >= cache.length )
+        {
+            BigInteger[] grown = new BigInteger[Math.min( CACHE_LIMIT + 1, Math.max( n + 1, cache.length * 2 ) )];
+            System.arraycopy( cache, 0, grown, 0, cache.length );
+            for( int idx = cache.length; idx < grown.length; ++idx )
+            {
+                grown[idx] = grown[idx - 1].multiply( BigInteger.valueOf( idx ) );
+            }
+            _factorialCache = grown;
+            cache = grown;
+        }
+        return cache;
+    }
+
+    private static long[] createLongFactorials()
+    {
+        long[] result = new long[MAX_LONG_FACTORIAL + 1];
+        result[0] = 1L;
+        for( int idx = 1; idx < result.length; ++idx )
+        {
+            result[idx] = result[idx - 1] * idx;
+        }
+        return result;
+    }
+
+    private static int indexOfLargest( int[] multiplicities )
+    {
+        int result = -1;
+        for( int clazz = 0; clazz < multiplicities.length; ++clazz )
+        {
+            if( result < 0 || multiplicities[clazz] > multiplicities[result] )
+            {
+                result = clazz;
+            }
+        }
+        return result;
+    }
+
+    private static int gcd( int a, int b )
+    {
+        while( b != 0 )
+        {
+            int temp = a % b;
+            a = b;
+            b = temp;
+        }
+        return a;
+    }
+}
@@ -0,0 +1,545 @@
+/*
+ * Copyright (c) 2011, Stanislav Muhametsin. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package math.permutations.impl;
+
+import java.math.BigInteger;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import math.permutations.ConstrainedPermutations;
+import math.permutations.PermutationConstraints;
+import math.permutations.PermutationVisitor;
+import math.permutations.VisitResult;
+
+/**
+ * <p>
+ * The implementation of {@link ConstrainedPermutations}, which builds the permutations of the classes one position at
+ * a time, choosing at each position only the classes allowed by the constraints. A class is allowed at a position if
+ * the position is not forbidden for the class, and all the classes which must precede it have already been placed
+ * completely.
+ * </p>
+ * 
+ * <p>
+ * The state of the search is the amount of remaining elements of each class, and there are
+ * <code>(m<sub>1</sub> + 1) * ... * (m<sub>s</sub> + 1)</code> such states, where <code>m<sub>i</sub></code> is the
+ * multiplicity of the <code>i</code>:th class. The position is determined by the state. If there are at most
+ * {@link #MAX_EXACT_STATES} states, the amount of valid completions of each state is computed with dynamic programming
+ * over the states, which are numbered in mixed radix. Then the count is exact, and the search never enters a state
+ * without valid completions. Otherwise, the count is an upper bound computed from the single constraint which allows
+ * the smallest fraction of all permutations.
+ * </p>
+ * 
+ * @author 2011 Stanislav Muhametsin
+ * @param <T> The type of the permutation array.
+ */
+public class ConstrainedPermutationGenerator<T>
+    implements ConstrainedPermutations<T>
+{
+    /**
+     * The maximum amount of states, for which the completions are counted exactly.
+     */
+    public static final int MAX_EXACT_STATES = 1 << 20;
+
+    private final AbstractPermutationGenerator<T> _generator;
+    private final int _length;
+    private final int[] _multiplicities;
+
+    /**
+     * The forbidden positions of each class.
+     */
+    private final BitSet[] _forbidden;
+
+    /**
+     * The classes, which must be placed completely before each class.
+     */
+    private final int[][] _predecessors;
+
+    /**
+     * The place value of each class in the mixed-radix state number.
+     */
+    private final int[] _radices;
+
+    /**
+     * The amount of valid completions of each state, or <code>null</code> if there are too many states.
+     */
+    private final long[] _completions;
+
+    private final BigInteger _count;
+
+    /**
+     * Creates a new {@link ConstrainedPermutationGenerator}.
+     * 
+     * @param generator The generator of the permutations.
+     * @param array The array given to the generator, to which the element indices of the constraints refer.
+     * @param constraints The constraints.
+     * @exception IllegalArgumentException If the array is not a permutation of the multiset of the generator, if some
+     *                element index or position is out of bounds, or if some precedence rule refers to two equal
+     *                elements.
+     */
+    public ConstrainedPermutationGenerator( AbstractPermutationGenerator<T> generator, T array,
+        PermutationConstraints constraints )
+    {
+        this._generator = generator;
+        this._length = generator.getArrayLength();
+        this._multiplicities = generator.getMultiplicities();
+        int distinct = this._multiplicities.length;
+        if( generator.getLength( array ) != this._length )
+        {
+            throw new IllegalArgumentException( "The length of the array must be " + this._length + "." );
+        }
+        IndexPermutation arrayClasses = generator.createClasses();
+        generator.getClasses( array, 0, arrayClasses );
+        int[] counts = new int[distinct];
+        for( int idx = 0; idx < this._length; ++idx )
+        {
+            int clazz = arrayClasses.get( idx );
+            if( ++counts[clazz] > this._multiplicities[clazz] )
+            {
+                throw new IllegalArgumentException( "The array is not a permutation of the multiset." );
+            }
+        }
+
+        this._forbidden = new BitSet[distinct];
+        for( int clazz = 0; clazz < distinct; ++clazz )
+        {
+            this._forbidden[clazz] = new BitSet( this._length );
+        }
+        for( int[] forbidden : constraints.getForbiddenPositions() )
+        {
+            this.checkIndex( forbidden[0] );
+            this.checkIndex( forbidden[1] );
+            this._forbidden[arrayClasses.get( forbidden[0] )].set( forbidden[1] );
+        }
+
+        BitSet[] predecessors = new BitSet[distinct];
+        for( int clazz = 0; clazz < distinct; ++clazz )
+        {
+            predecessors[clazz] = new BitSet( distinct );
+        }
+        for( int[] precedence : constraints.getPrecedences() )
+        {
+            this.checkIndex( precedence[0] );
+            this.checkIndex( precedence[1] );
+            int first = arrayClasses.get( precedence[0] );
+            int second = arrayClasses.get( precedence[1] );
+            if( first == second )
+            {
+                throw new IllegalArgumentException( "The elements at indices " + precedence[0] + " and "
+                    + precedence[1] + " are equal, so one can not precede the other." );
+            }
+            predecessors[second].set( first );
+        }
+        this._predecessors = new int[distinct][];
+        for( int clazz = 0; clazz < distinct; ++clazz )
+        {
+            this._predecessors[clazz] = predecessors[clazz].stream().toArray();
+        }
+
+        this._radices = new int[distinct];
+        long states = 1L;
+        for( int clazz = 0; clazz < distinct && states <= MAX_EXACT_STATES; ++clazz )
+        {
+            this._radices[clazz] = (int) states;
+            states *= this._multiplicities[clazz] + 1;
+        }
+        if( states <= MAX_EXACT_STATES && generator.getTotal().bitLength() < Long.SIZE )
+        {
+            this._completions = this.countCompletions( (int) states );
+            this._count = BigInteger.valueOf( this._completions[(int) states - 1] );
+        }
+        else
+        {
+            this._completions = null;
+            this._count = this.computeUpperBound();
+        }
+    }
+
+    @Override
+    public BigInteger getUnconstrainedTotal()
+    {
+        return this._generator.getTotal();
+    }
+
+    @Override
+    public BigInteger getCount()
+    {
+        return this._count;
+    }
+
+    @Override
+    public boolean isCountExact()
+    {
+        return this._completions != null;
+    }
+
+    @Override
+    public Iterator<T> iterator()
+    {
+        return new ConstrainedIterator();
+    }
+
+    @Override
+    public boolean visit( PermutationVisitor<T> visitor )
+    {
+        int length = this._length;
+        int distinct = this._multiplicities.length;
+        int[] counts = this._multiplicities.clone();
+        int[] chosen = new int[length];
+        IndexPermutation classes = this._generator.createFirstClasses();
+        T prefix = this._generator.createWorkingArray( classes );
+        int state = this.getFullState();
+
+        boolean terminated = false;
+        int depth = length > 0 && this.hasCompletions( state ) ? 0 : -1;
+        int candidate = 0;
+        while( depth >= 0 && !terminated )
+        {
+            candidate = this.findAllowed( candidate, depth, counts, state );
+            if( candidate < distinct )
+            {
+                --counts[candidate];
+                state -= this._radices[candidate];
+                chosen[depth] = candidate;
+                classes.set( depth, candidate );
+                this._generator.setClasses( classes, depth, depth + 1, prefix );
+                VisitResult result = visitor.enter( prefix, depth );
+                if( result == VisitResult.TERMINATE )
+                {
+                    terminated = true;
+                }
+                else if( result == VisitResult.CONTINUE && depth < length - 1 )
+                {
+                    ++depth;
+                    candidate = 0;
+                }
+                else
+                {
+                    visitor.leave( prefix, depth );
+                    ++counts[candidate];
+                    state += this._radices[candidate];
+                    ++candidate;
+                }
+            }
+            else
+            {
+                --depth;
+                if( depth >= 0 )
+                {
+                    candidate = chosen[depth];
+                    visitor.leave( prefix, depth );
+                    ++counts[candidate];
+                    state += this._radices[candidate];
+                    ++candidate;
+                }
+            }
+        }
+        return !terminated;
+    }
+
+    /**
+     * Finds the first class starting from given class, which can be placed at given position.
+     * 
+     * @return The found class, or the amount of distinct classes if there is no such class.
+     */
+    private int findAllowed( int candidate, int position, int[] counts, int state )
+    {
+        int distinct = counts.length;
+        while( candidate < distinct && !this.isAllowed( candidate, position, counts, state ) )
+        {
+            ++candidate;
+        }
+        return candidate;
+    }
+
+    private boolean isAllowed( int clazz, int position, int[] counts, int state )
+    {
+        boolean result = counts[clazz] > 0 && !this._forbidden[clazz].get( position );
+        int[] predecessors = this._predecessors[clazz];
+        for( int idx = 0; result && idx < predecessors.length; ++idx )
+        {
+            result = counts[predecessors[idx]] == 0;
+        }
+        return result && this.hasCompletions( state - this._radices[clazz] );
+    }
+
+    private boolean hasCompletions( int state )
+    {
+        return this._completions == null || this._completions[state] > 0L;
+    }
+
+    /**
+     * Returns the number of the state where no elements have been placed.
+     */
+    private int getFullState()
+    {
+        int result = 0;
+        if( this._completions != null )
+        {
+            for( int clazz = 0; clazz < this._multiplicities.length; ++clazz )
+            {
+                result += this._multiplicities[clazz] * this._radices[clazz];
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Counts the valid completions of each state. The state number decreases when an element is placed, so the states
+     * are processed in ascending order of their numbers, keeping the remaining counts like an odometer.
+     */
+    private long[] countCompletions( int states )
+    {
+        int distinct = this._multiplicities.length;
+        long[] result = new long[states];
+        int[] counts = new int[distinct];
+        int remaining = 0;
+        result[0] = 1L;
+        for( int state = 1; state < states; ++state )
+        {
+            int clazz = 0;
+            while( counts[clazz] == this._multiplicities[clazz] )
+            {
+                remaining -= counts[clazz];
+                counts[clazz] = 0;
+                ++clazz;
+            }
+            ++counts[clazz];
+            ++remaining;
+
+            int position = this._length - remaining;
+            long completions = 0L;
+            for( int candidate = 0; candidate < distinct; ++candidate )
+            {
+                if( counts[candidate] > 0 && !this._forbidden[candidate].get( position )
+                    && this.arePredecessorsPlaced( candidate, counts ) )
+                {
+                    completions += result[state - this._radices[candidate]];
+                }
+            }
+            result[state] = completions;
+        }
+        return result;
+    }
+
+    private boolean arePredecessorsPlaced( int clazz, int[] counts )
+    {
+        boolean result = true;
+        int[] predecessors = this._predecessors[clazz];
+        for( int idx = 0; result && idx < predecessors.length; ++idx )
+        {
+            result = counts[predecessors[idx]] == 0;
+        }
+        return result;
+    }
+
+    /**
+     * Computes an upper bound from the single constraint allowing the smallest fraction of all permutations. For a
+     * precedence rule between classes with multiplicities <code>a</code> and <code>b</code>, the fraction is
+     * <code>1 / C(a + b, a)</code>. For a position, the fraction is the amount of elements allowed at the position
+     * divided by the length of the permutations.
+     */
+    private BigInteger computeUpperBound()
+    {
+        int distinct = this._multiplicities.length;
+        BigInteger numerator = BigInteger.ONE;
+        BigInteger denominator = BigInteger.ONE;
+        for( int clazz = 0; clazz < distinct; ++clazz )
+        {
+            for( int predecessor : this._predecessors[clazz] )
+            {
+                BigInteger binomial = binomial( this._multiplicities[clazz] + this._multiplicities[predecessor],
+                    this._multiplicities[clazz] );
+                if( denominator.compareTo( numerator.multiply( binomial ) ) < 0 )
+                {
+                    numerator = BigInteger.ONE;
+                    denominator = binomial;
+                }
+            }
+        }
+        for( int position = 0; position < this._length; ++position )
+        {
+            long allowed = 0L;
+            for( int clazz = 0; clazz < distinct; ++clazz )
+            {
+                if( !this._forbidden[clazz].get( position ) )
+                {
+                    allowed += this._multiplicities[clazz];
+                }
+            }
+            BigInteger allowedBig = BigInteger.valueOf( allowed );
+            BigInteger lengthBig = BigInteger.valueOf( this._length );
+            if( allowedBig.multiply( denominator ).compareTo( numerator.multiply( lengthBig ) ) < 0 )
+            {
+                numerator = allowedBig;
+                denominator = lengthBig;
+            }
+        }
+        return this._generator.getTotal().multiply( numerator ).divide( denominator );
+    }
+
+    private static BigInteger binomial( int n, int k )
+    {
+        BigInteger result = BigInteger.ONE;
+        for( int idx = 1; idx <= k; ++idx )
+        {
+            result = result.multiply( BigInteger.valueOf( n - k + idx ) ).divide( BigInteger.valueOf( idx ) );
+        }
+        return result;
+    }
+
+    private void checkIndex( int index )
+    {
+        if( index >= this._length )
+        {
+            throw new IllegalArgumentException( "The index " + index + " must be less than " + this._length + "." );
+        }
+    }
+
+    /**
+     * The iterator doing the same search as {@link ConstrainedPermutationGenerator#visit(PermutationVisitor)}, but
+     * stopping at each leaf. The next leaf is searched lazily in {@link #hasNext()}, since the search modifies the
+     * working array returned by the previous call to {@link #next()}.
+     */
+    private final class ConstrainedIterator
+        implements Iterator<T>
+    {
+        private final int[] _counts;
+        private final int[] _chosen;
+        private final IndexPermutation _classes;
+        private final T _array;
+        private int _state;
+        private int _depth;
+        private boolean _isFirst;
+        private boolean _isReady;
+        private boolean _hasNext;
+
+        private ConstrainedIterator()
+        {
+            ConstrainedPermutationGenerator<T> outer = ConstrainedPermutationGenerator.this;
+            this._counts = outer._multiplicities.clone();
+            this._chosen = new int[outer._length];
+            this._classes = outer._generator.createFirstClasses();
+            this._array = outer._generator.createWorkingArray( this._classes );
+            this._state = outer.getFullState();
+            this._depth = 0;
+            this._isFirst = true;
+            this._isReady = false;
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            if( !this._isReady )
+            {
+                this._hasNext = this.findNext();
+                this._isReady = true;
+            }
+            return this._hasNext;
+        }
+
+        @Override
+        public T next()
+        {
+            if( !this.hasNext() )
+            {
+                throw new NoSuchElementException( "No more permutations available." );
+            }
+            this._isReady = false;
+            return this._array;
+        }
+
+        /**
+         * Always throws {@link UnsupportedOperationException}.
+         * 
+         * @exception UnsupportedOperationException Always.
+         */
+        @Override
+        public void remove()
+        {
+            throw new UnsupportedOperationException( "Can not remove permutation." );
+        }
+
+        private boolean findNext()
+        {
+            ConstrainedPermutationGenerator<T> outer = ConstrainedPermutationGenerator.this;
+            int length = outer._length;
+            int distinct = this._counts.length;
+            int candidate = 0;
+            boolean result = false;
+            if( this._isFirst )
+            {
+                this._isFirst = false;
+                this._depth = outer.hasCompletions( this._state ) ? 0 : -1;
+
+                // The empty permutation satisfies all constraints
+                result = length == 0;
+            }
+            else if( length > 0 )
+            {
+                // Backtrack from the previous leaf
+                this._depth = length - 1;
+                candidate = this.unplace();
+            }
+            else
+            {
+                this._depth = -1;
+            }
+
+            while( !result && this._depth >= 0 && length > 0 )
+            {
+                int depth = this._depth;
+                candidate = outer.findAllowed( candidate, depth, this._counts, this._state );
+                if( candidate < distinct )
+                {
+                    --this._counts[candidate];
+                    this._state -= outer._radices[candidate];
+                    this._chosen[depth] = candidate;
+                    this._classes.set( depth, candidate );
+                    outer._generator.setClasses( this._classes, depth, depth + 1, this._array );
+                    if( depth == length - 1 )
+                    {
+                        result = true;
+                    }
+                    else
+                    {
+                        ++this._depth;
+                        candidate = 0;
+                    }
+                }
+                else
+                {
+                    --this._depth;
+                    if( this._depth >= 0 )
+                    {
+                        candidate = this.unplace();
+                    }
+                }
+            }
+            return result;
+        }
+
+        /**
+         * Removes the class chosen at current depth, and returns the next candidate for the depth.
+         */
+        private int unplace()
+        {
+            int clazz = this._chosen[this._depth];
+            ++this._counts[clazz];
+            this._state += ConstrainedPermutationGenerator.this._radices[clazz];
+            return clazz + 1;
+        }
+    }
+}
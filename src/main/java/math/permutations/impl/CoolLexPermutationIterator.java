@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) 2011, Stanislav Muhametsin. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package math.permutations.impl;
+
+import java.math.BigInteger;
+
+import math.permutations.PermutationChangeListener;
+import math.permutations.PermutationOrder;
+
+/**
+ * <p>
+ * The iterator producing permutations of a multiset in cool-lex order, as described by Aaron Williams in
+ * <i>Loopless Generation of Multiset Permutations using a Constant Number of Variables by Prefix Shifts</i> (SODA
+ * 2009). The permutation is kept as a singly linked list, and each step moves one node to the head of the list, using
+ * only constant amount of work without any loops.
+ * </p>
+ * 
+ * <p>
+ * The step is applied to the {@link IndexPermutation} and to the permutation array as a rotation of a prefix, which
+ * moves all the elements of the prefix. Thus updating the array is <b>not</b> constant time. The rotated prefix is at
+ * most two positions longer than the non-decreasing prefix of the previous permutation. When the elements are
+ * distinct, only <code>1 / k!</code> of the permutations start with <code>k</code> sorted elements, so the array is
+ * updated in amortised constant time, moving less than three elements per step on average. For multisets the average
+ * grows with the skew of the multiplicities, up to about <code>n / 2</code> elements per step when all but one of the
+ * elements are equal.
+ * </p>
+ * 
+ * <p>
+ * The original algorithm starts from the elements in non-increasing order. Here the comparisons of the classes are
+ * reversed, so that the iteration starts from the sorted array, like all other orders. The position of the moved node
+ * is tracked along with the nodes of the algorithm, so that the step can be applied to the {@link IndexPermutation} as
+ * a rotation of a prefix.
+ * </p>
+ * 
+ * @author 2011 Stanislav Muhametsin
+ * @param <T> The type of the permutation array.
+ */
+public class CoolLexPermutationIterator<T> extends AbstractPermutationIterator<T>
+{
+    private static final int NONE = -1;
+
+    private final PermutationChangeListener _listener;
+
+    /**
+     * The class of each node. The nodes are numbered by their initial positions.
+     */
+    private final int[] _nodeClasses;
+
+    /**
+     * The next node of each node, or {@link #NONE} for the last node.
+     */
+    private final int[] _next;
+
+    private int _head;
+    private int _i;
+    private int _iPosition;
+
+    public CoolLexPermutationIterator( AbstractPermutationGenerator<T> generator, T array, IndexPermutation classes,
+        BigInteger total, PermutationChangeListener listener )
+    {
+        super( generator, array, classes, total );
+        this._listener = listener;
+
+        int length = classes.length();
+        this._nodeClasses = new int[length];
+        this._next = new int[length];
+        for( int idx = 0; idx < length; ++idx )
+        {
+            this._nodeClasses[idx] = classes.get( idx );
+            this._next[idx] = idx + 1 < length ? idx + 1 : NONE;
+        }
+        this._head = 0;
+        this._i = length - 2;
+        this._iPosition = length - 2;
+    }
+
+    @Override
+    protected PermutationOrder getOrder()
+    {
+        return PermutationOrder.COOL_LEX;
+    }
+
+    /**
+     * The linked list is in the same order as the classes, so when the nodes are renumbered by their current
+     * positions, the list is rebuilt from the classes, and only the position of node <code>i</code> is stored.
+     */
+    @Override
+    protected int[] getOrderState()
+    {
+        return new int[]
+        {
+            this._iPosition
+        };
+    }
+
+    @Override
+    protected void setOrderState( int[] state )
+    {
+        checkOrderState( state, 1 );
+        int length = this._nodeClasses.length;
+        if( length > 1 && ( state[0] < 0 || state[0] > length - 2 ) )
+        {
+            throw new IllegalArgumentException( "Invalid position of node: " + state[0] + "." );
+        }
+        this._i = state[0];
+        this._iPosition = state[0];
+    }
+
+    @Override
+    protected void makeNextPermutation( T array )
+    {
+        int[] nodeClasses = this._nodeClasses;
+        int[] next = this._next;
+        int head = this._head;
+        int i = this._i;
+        int j = next[i];
+
+        int s;
+        int sPosition;
+        if( next[j] != NONE && nodeClasses[i] <= nodeClasses[next[j]] )
+        {
+            s = j;
+            sPosition = this._iPosition + 1;
+        }
+        else
+        {
+            s = i;
+            sPosition = this._iPosition;
+        }
+
+        // Move the node after s to the head
+        int t = next[s];
+        next[s] = next[t];
+        next[t] = head;
+        if( nodeClasses[t] > nodeClasses[head] )
+        {
+            this._i = t;
+            this._iPosition = 0;
+        }
+        else
+        {
+            ++this._iPosition;
+        }
+        this._head = t;
+
+        int to = sPosition + 2;
+        this.getClasses().rotate( 0, to );
+        this.getGenerator().setClasses( this.getClasses(), 0, to, array );
+        if( this._listener != null )
+        {
+            this._listener.onRotate( 0, to );
+        }
+    }
+}
@@ -0,0 +1,270 @@
+/*
+ * Copyright (c) 2011, Stanislav Muhametsin. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package math.permutations.impl;
+
+import java.math.BigInteger;
+
+import math.permutations.PermutationChangeListener;
+import math.permutations.PermutationOrder;
+import math.permutations.PermutationVisitor;
+import math.permutations.RankedPermutationGenerator;
+import math.permutations.VisitResult;
+
+/**
+ * <p>
+ * The generator of derangements of some array, that is, the permutations where no position has an element equal to
+ * the element at the same position of the original array. This works for both distinct elements and multisets. The
+ * derangements are generated directly in lexicographic order, and prefixes which can not be completed into a
+ * derangement are never tried, as described in {@link DerangementState}.
+ * </p>
+ * 
+ * <p>
+ * The exact amount of derangements, and the amount of derangements starting with given prefix, are computed by
+ * inclusion-exclusion in polynomial time. Thus the derangements can be ranked and unranked, and iterated and split
+ * by ranges of ranks just like full permutations. Only {@link PermutationOrder#LEXICOGRAPHIC} order is supported, and
+ * the iterators do not support {@link PermutationChangeListener}s.
+ * </p>
+ * 
+ * @author 2011 Stanislav Muhametsin
+ * @param <T> The type of the permutation array.
+ */
+public class DerangementGenerator<T> extends AbstractDerivedGenerator<T>
+    implements RankedPermutationGenerator<T>
+{
+    /**
+     * The class of the original element at each position.
+     */
+    private final int[] _forbidden;
+
+    private final BigInteger[] _factorials;
+
+    private final BigInteger _total;
+
+    /**
+     * Creates a new generator of the derangements of given array.
+     * 
+     * @param generator The generator of the permutations of the array.
+     * @param original The original array, whose elements must not stay in their positions. Must be some permutation
+     *            of the array given to the generator.
+     * @exception IllegalArgumentException If the original array is not a permutation of the multiset of the
+     *                generator.
+     */
+    public DerangementGenerator( AbstractPermutationGenerator<T> generator, T original )
+    {
+        super( generator, generator.getArrayLength() );
+        int length = generator.getArrayLength();
+        this.checkArrayLength( original );
+
+        int[] multiplicities = generator.getMultiplicities();
+        IndexPermutation classes = generator.createClasses();
+        generator.getClasses( original, 0, classes );
+        int[] counts = new int[multiplicities.length];
+        this._forbidden = new int[length];
+        for( int idx = 0; idx < length; ++idx )
+        {
+            int clazz = classes.get( idx );
+            if( ++counts[clazz] > multiplicities[clazz] )
+            {
+                throw new IllegalArgumentException( "The original array is not a permutation of the multiset." );
+            }
+            this._forbidden[idx] = clazz;
+        }
+
+        this._factorials = new BigInteger[length + 1];
+        for( int idx = 0; idx <= length; ++idx )
+        {
+            this._factorials[idx] = Combinatorics.factorial( idx );
+        }
+        this._total = this.createState().countCompletions( this._factorials );
+    }
+
+    @Override
+    public BigInteger getTotal()
+    {
+        return this._total;
+    }
+
+    /**
+     * {@inheritDoc} Only the prefixes, which can be completed into a derangement, are visited.
+     */
+    @Override
+    public boolean visit( PermutationVisitor<T> visitor )
+    {
+        int length = this.getArrayLength();
+        AbstractPermutationGenerator<T> generator = this.getGenerator();
+        int distinct = generator.getMultiplicities().length;
+        int[] chosen = new int[length];
+        DerangementState state = this.createState();
+        IndexPermutation classes = generator.createFirstClasses();
+        T prefix = generator.createWorkingArray( classes );
+
+        boolean terminated = false;
+        int depth = length > 0 && this._total.signum() > 0 ? 0 : -1;
+        int candidate = 0;
+        while( depth >= 0 && !terminated )
+        {
+            candidate = state.findAllowed( depth, candidate );
+            if( candidate < distinct )
+            {
+                state.place( depth, candidate );
+                chosen[depth] = candidate;
+                classes.set( depth, candidate );
+                generator.setClasses( classes, depth, depth + 1, prefix );
+                VisitResult result = visitor.enter( prefix, depth );
+                if( result == VisitResult.TERMINATE )
+                {
+                    terminated = true;
+                }
+                else if( result == VisitResult.CONTINUE && depth < length - 1 )
+                {
+                    ++depth;
+                    candidate = 0;
+                }
+                else
+                {
+                    visitor.leave( prefix, depth );
+                    state.release( depth, candidate );
+                    ++candidate;
+                }
+            }
+            else
+            {
+                --depth;
+                if( depth >= 0 )
+                {
+                    candidate = chosen[depth];
+                    visitor.leave( prefix, depth );
+                    state.release( depth, candidate );
+                    ++candidate;
+                }
+            }
+        }
+        return !terminated;
+    }
+
+    @Override
+    public T permutationAt( BigInteger rank, T dest )
+    {
+        return this.arrayAt( rank, dest );
+    }
+
+    /**
+     * Creates the state of building a derangement, where all positions are free.
+     * 
+     * @return The new state.
+     */
+    DerangementState createState()
+    {
+        return new DerangementState( this.getGenerator().getMultiplicities(), this._forbidden );
+    }
+
+    /**
+     * Computes the lexicographic rank of the derangement with given classes, among the derangements.
+     * 
+     * @param classes The classes of the derangement.
+     * @return The rank of the derangement.
+     * @exception IllegalArgumentException If the classes are not a derangement of the multiset.
+     */
+    @Override
+    protected BigInteger rank( IndexPermutation classes )
+    {
+        int length = this.getArrayLength();
+        DerangementState state = this.createState();
+        BigInteger result = BigInteger.ZERO;
+        for( int pos = 0; pos < length; ++pos )
+        {
+            int clazz = classes.get( pos );
+            if( this._total.signum() == 0 || !state.isAllowed( pos, clazz ) )
+            {
+                throw new IllegalArgumentException( "The given array is not a derangement of the original array." );
+            }
+            for( int smaller = state.findAllowed( pos, 0 ); smaller < clazz; smaller = state.findAllowed( pos,
+                smaller + 1 ) )
+            {
+                state.place( pos, smaller );
+                result = result.add( state.countCompletions( this._factorials ) );
+                state.release( pos, smaller );
+            }
+            state.place( pos, clazz );
+        }
+        return result;
+    }
+
+    @Override
+    protected long rankAsLong( IndexPermutation classes )
+    {
+        this.checkTotalIsLong();
+        return this.rank( classes ).longValue();
+    }
+
+    @Override
+    protected void unrank( BigInteger rank, IndexPermutation classes )
+    {
+        if( rank.signum() < 0 || rank.compareTo( this._total ) >= 0 )
+        {
+            throw new IllegalArgumentException( "The rank " + rank + " must be at least zero and less than "
+                + this._total + "." );
+        }
+
+        int length = this.getArrayLength();
+        DerangementState state = this.createState();
+        for( int pos = 0; pos < length; ++pos )
+        {
+            int clazz = state.findAllowed( pos, 0 );
+            while( true )
+            {
+                state.place( pos, clazz );
+                BigInteger withClass = state.countCompletions( this._factorials );
+                if( rank.compareTo( withClass ) < 0 )
+                {
+                    break;
+                }
+                rank = rank.subtract( withClass );
+                state.release( pos, clazz );
+                clazz = state.findAllowed( pos, clazz + 1 );
+            }
+            classes.set( pos, clazz );
+        }
+    }
+
+    @Override
+    protected IndexPermutation createFirstClasses()
+    {
+        IndexPermutation result = super.createFirstClasses();
+        if( this._total.signum() > 0 )
+        {
+            DerangementIterator.fillFirst( this.createState(), result, 0 );
+        }
+        return result;
+    }
+
+    @Override
+    protected AbstractPermutationIterator<T> createIterator( IndexPermutation classes, BigInteger left )
+    {
+        AbstractPermutationGenerator<T> generator = this.getGenerator();
+        T array = generator.createWorkingArray( classes );
+        generator.setClasses( classes, 0, this.getArrayLength(), array );
+        return new DerangementIterator<T>( this, generator, array, classes, left );
+    }
+
+    private void checkTotalIsLong()
+    {
+        if( this._total.bitLength() >= Long.SIZE )
+        {
+            throw new ArithmeticException( "The total amount of derangements " + this._total
+                + " does not fit into long." );
+        }
+    }
+}
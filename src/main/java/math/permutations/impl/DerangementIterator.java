@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2011, Stanislav Muhametsin. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package math.permutations.impl;
+
+import java.math.BigInteger;
+
+import math.permutations.PermutationOrder;
+
+/**
+ * The iterator over derangements in lexicographic order. On each step, the positions are freed from the end until
+ * some position can be increased to a greater class, which keeps the rest of the positions fillable without fixed
+ * points. Then the rest of the positions are filled with the smallest such classes. Thanks to
+ * {@link DerangementState}, no prefix without completions is ever tried, and nothing is allocated.
+ * 
+ * @author 2011 Stanislav Muhametsin
+ * @param <T> The type of the permutation array.
+ */
+public class DerangementIterator<T> extends AbstractPermutationIterator<T>
+{
+    private final DerangementGenerator<T> _derangements;
+    private final DerangementState _state;
+    private final int _length;
+
+    DerangementIterator( DerangementGenerator<T> derangements, AbstractPermutationGenerator<T> generator, T array,
+        IndexPermutation classes, BigInteger permutationsLeft )
+    {
+        super( generator, array, classes, permutationsLeft );
+        this._derangements = derangements;
+        this._length = classes.length();
+        this._state = derangements.createState();
+        for( int idx = 0; idx < this._length; ++idx )
+        {
+            this._state.place( idx, classes.get( idx ) );
+        }
+    }
+
+    @Override
+    protected PermutationOrder getOrder()
+    {
+        return PermutationOrder.LEXICOGRAPHIC;
+    }
+
+    @Override
+    protected BigInteger getNextRank( BigInteger permutationsLeft, boolean started )
+    {
+        BigInteger result = this._derangements.rank( this.getClasses() );
+        if( started )
+        {
+            result = result.add( BigInteger.ONE );
+        }
+        return result;
+    }
+
+    @Override
+    protected void makeNextPermutation( T array )
+    {
+        IndexPermutation classes = this.getClasses();
+        DerangementState state = this._state;
+        int distinct = this.getGenerator().getMultiplicities().length;
+
+        // The last derangement is never advanced, so some position will always be increased
+        int pos = this._length;
+        int clazz = distinct;
+        while( clazz == distinct )
+        {
+            --pos;
+            int previous = classes.get( pos );
+            state.release( pos, previous );
+            clazz = state.findAllowed( pos, previous + 1 );
+        }
+        state.place( pos, clazz );
+        classes.set( pos, clazz );
+        fillFirst( state, classes, pos + 1 );
+        this.getGenerator().setClasses( classes, pos, this._length, array );
+    }
+
+    /**
+     * Fills the positions starting from given position with the smallest classes, which keep the rest of the positions
+     * fillable.
+     * 
+     * @param state The feasible state, where the positions starting from given position are free.
+     * @param classes The classes where to store the classes.
+     * @param from The first position to fill.
+     */
+    static void fillFirst( DerangementState state, IndexPermutation classes, int from )
+    {
+        for( int idx = from; idx < classes.length(); ++idx )
+        {
+            int clazz = state.findAllowed( idx, 0 );
+            state.place( idx, clazz );
+            classes.set( idx, clazz );
+        }
+    }
+}
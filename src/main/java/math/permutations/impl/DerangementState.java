@@ -0,0 +1,226 @@
+/*
+ * Copyright (c) 2011, Stanislav Muhametsin. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package math.permutations.impl;
+
+import java.math.BigInteger;
+
+/**
+ * <p>
+ * The state of building a derangement of a multiset one position at a time. Each position forbids the class of the
+ * element at that position in the original array. The state holds the remaining amount of each class, the amount of
+ * free positions forbidding each class, and the total amount of free positions.
+ * </p>
+ * 
+ * <p>
+ * The free positions can be filled without fixed points if and only if, for each class <code>c</code>, the amount of
+ * remaining elements of <code>c</code> plus the amount of free positions forbidding <code>c</code> is at most the
+ * amount of free positions. This is Hall's condition: any two classes together can use all free positions, since each
+ * position forbids only one class. Since these sums add up to twice the amount of free positions, at most two classes
+ * can be tight, that is, reach the bound. Placing a class keeps the condition if and only if all the tight classes are
+ * either the placed class or the class forbidden at the position, so each prefix is checked in <code>O(s)</code>
+ * time, where <code>s</code> is the amount of distinct elements, and generation never enters a prefix without
+ * completions.
+ * </p>
+ * 
+ * <p>
+ * The amount of completions is computed by inclusion-exclusion over the amount <code>j_c</code> of positions
+ * forbidding class <code>c</code> which nevertheless get class <code>c</code>:
+ * <code>&sum; (-1)<sup>J</sup> (N - J)! &prod; C(p_c, j_c) / (r_c - j_c)!</code>, where <code>N</code> is the amount
+ * of free positions, <code>J</code> is the sum of <code>j_c</code>, <code>p_c</code> is the amount of free positions
+ * forbidding <code>c</code>, and <code>r_c</code> is the remaining amount of <code>c</code>. The sum is computed as a
+ * polynomial in <code>J</code>, one class at a time.
+ * </p>
+ * 
+ * @author 2011 Stanislav Muhametsin
+ */
+final class DerangementState
+{
+    private final int[] _forbidden;
+    private final int[] _remaining;
+    private final int[] _positions;
+    private int _free;
+
+    /**
+     * Creates the state where all positions are free.
+     * 
+     * @param multiplicities The multiplicities of the distinct elements.
+     * @param forbidden The class forbidden at each position, that is, the class of the original element.
+     */
+    DerangementState( int[] multiplicities, int[] forbidden )
+    {
+        this._forbidden = forbidden;
+        this._remaining = multiplicities.clone();
+        this._positions = new int[multiplicities.length];
+        for( int clazz : forbidden )
+        {
+            ++this._positions[clazz];
+        }
+        this._free = forbidden.length;
+    }
+
+    /**
+     * Returns whether the free positions can be filled without fixed points.
+     * 
+     * @return <code>true</code> if the free positions can be filled without fixed points.
+     */
+    boolean isFeasible()
+    {
+        boolean result = true;
+        for( int clazz = 0; result && clazz < this._remaining.length; ++clazz )
+        {
+            result = this._remaining[clazz] + this._positions[clazz] <= this._free;
+        }
+        return result;
+    }
+
+    /**
+     * Finds the smallest class starting from given class, which can be placed at given position so that the rest of
+     * the free positions can still be filled. The state must be feasible.
+     * 
+     * @param position The position, which must be the first free position.
+     * @param from The smallest class to consider.
+     * @return The found class, or the amount of distinct classes if there is no such class.
+     */
+    int findAllowed( int position, int from )
+    {
+        int distinct = this._remaining.length;
+        int forbidden = this._forbidden[position];
+
+        // The tight class other than the forbidden one must be placed here
+        int required = -1;
+        boolean possible = true;
+        for( int clazz = 0; possible && clazz < distinct; ++clazz )
+        {
+            if( clazz != forbidden && this._remaining[clazz] + this._positions[clazz] == this._free )
+            {
+                possible = required < 0;
+                required = clazz;
+            }
+        }
+
+        int result = distinct;
+        if( possible && required >= 0 )
+        {
+            if( required >= from && this._remaining[required] > 0 )
+            {
+                result = required;
+            }
+        }
+        else if( possible )
+        {
+            result = from;
+            while( result < distinct && ( result == forbidden || this._remaining[result] == 0 ) )
+            {
+                ++result;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns whether given class can be placed at given position so that the rest of the free positions can still be
+     * filled.
+     * 
+     * @param position The position, which must be the first free position.
+     * @param clazz The class.
+     * @return <code>true</code> if the class can be placed.
+     */
+    boolean isAllowed( int position, int clazz )
+    {
+        return clazz >= 0 && clazz < this._remaining.length && this.findAllowed( position, clazz ) == clazz;
+    }
+
+    /**
+     * Places given class at given free position.
+     * 
+     * @param position The position.
+     * @param clazz The class.
+     */
+    void place( int position, int clazz )
+    {
+        --this._remaining[clazz];
+        --this._positions[this._forbidden[position]];
+        --this._free;
+    }
+
+    /**
+     * Frees given position, which had given class.
+     * 
+     * @param position The position.
+     * @param clazz The class.
+     */
+    void release( int position, int clazz )
+    {
+        ++this._remaining[clazz];
+        ++this._positions[this._forbidden[position]];
+        ++this._free;
+    }
+
+    /**
+     * Computes the amount of ways to fill the free positions without fixed points.
+     * 
+     * @param factorials The factorials at least up to the amount of free positions.
+     * @return The amount of ways to fill the free positions.
+     */
+    BigInteger countCompletions( BigInteger[] factorials )
+    {
+        int free = this._free;
+        BigInteger[] ways = new BigInteger[free + 1];
+        ways[0] = BigInteger.ONE;
+        for( int idx = 1; idx <= free; ++idx )
+        {
+            ways[idx] = BigInteger.ZERO;
+        }
+
+        // ways[J] is the sum over the j_c of the classes so far, scaled by the product of r_c!
+        BigInteger scale = BigInteger.ONE;
+        int reach = 0;
+        for( int clazz = 0; clazz < this._remaining.length; ++clazz )
+        {
+            int remaining = this._remaining[clazz];
+            int positions = this._positions[clazz];
+            int max = Math.min( remaining, positions );
+            scale = scale.multiply( factorials[remaining] );
+            if( max > 0 )
+            {
+                // term(j) = (-1)^j C(p_c, j) r_c! / (r_c - j)!
+                BigInteger[] terms = new BigInteger[max + 1];
+                terms[0] = BigInteger.ONE;
+                for( int j = 1; j <= max; ++j )
+                {
+                    terms[j] = terms[j - 1].multiply( BigInteger.valueOf( (long) ( positions - j + 1 )
+                        * ( remaining - j + 1 ) ) ).divide( BigInteger.valueOf( j ) ).negate();
+                }
+                for( int total = Math.min( reach + max, free ); total >= 0; --total )
+                {
+                    BigInteger sum = BigInteger.ZERO;
+                    for( int j = Math.max( 0, total - reach ); j <= Math.min( max, total ); ++j )
+                    {
+                        sum = sum.add( ways[total - j].multiply( terms[j] ) );
+                    }
+                    ways[total] = sum;
+                }
+                reach = Math.min( reach + max, free );
+            }
+        }
+
+        BigInteger result = BigInteger.ZERO;
+        for( int total = 0; total <= reach; ++total )
+        {
+            result = result.add( factorials[free - total].multiply( ways[total] ) );
+        }
+        return result.divide( scale );
+    }
+}
@@ -14,8 +14,11 @@
 
 package math.permutations.impl;
 
+import java.nio.ByteBuffer;
 import java.util.Arrays;
-import java.util.Iterator;
+
+import math.permutations.PermutationGeneratorProvider.OptimizedGeneratorService;
+import math.permutations.RankedPermutationGenerator;
 
 /**
  * 
@@ -76,59 +79,123 @@ public class FloatPermutationGenerator extends AbstractPermutationGenerator<floa
 
     }
 
+    /**
+     * The {@link OptimizedGeneratorService} creating the permutation generators for <code>float[]</code> arrays.
+     */
+    public static class FloatGeneratorService
+        implements OptimizedGeneratorService
+    {
+        @Override
+        public Class<?> getArrayClass()
+        {
+            return float[].class;
+        }
+
+        @Override
+        public <ArrayType> RankedPermutationGenerator<ArrayType> createOptimizedGenerator( ArrayType array )
+        {
+            return (RankedPermutationGenerator<ArrayType>) new FloatPermutationGenerator( new FloatArrayInfo(
+                (float[]) array ) );
+        }
+    }
+
     private final float[] _array;
 
+    /**
+     * The distinct elements of the array, in ascending order.
+     */
+    private final float[] _distinctElements;
+
     public FloatPermutationGenerator( FloatArrayInfo array )
     {
         super( array );
 
         this._array = array.getArray();
+        int[] offsets = this.getClassOffsets();
+        this._distinctElements = new float[offsets.length];
+        for( int idx = 0; idx < offsets.length; ++idx )
+        {
+            this._distinctElements[idx] = this._array[offsets[idx]];
+        }
+    }
+
+    @Override
+    protected float[] copyArray()
+    {
+        return Arrays.copyOf( this._array, this._array.length );
     }
 
     @Override
-    protected Iterator<float[]> createIterator()
+    protected void setClasses( IndexPermutation classes, int from, int to, float[] dest )
     {
-        return new AbstractPermutationIterator<float[]>( Arrays.copyOf( this._array, this._array.length ),
-            this.getTotal() )
+        for( int idx = from; idx < to; ++idx )
         {
-            @Override
-            protected void makeNextPermutation( float[] array )
-            {
-                float temp = 0.0f;
+            dest[idx] = this._distinctElements[classes.get( idx )];
+        }
+    }
 
-                // Find largest index j with a[j] < a[j+1]
-                int j = array.length - 2;
-                while( Float.compare( array[j], array[j + 1] ) >= 0 )
-                {
-                    j--;
-                }
+    @Override
+    protected void storeClasses( IndexPermutation classes, float[] dest, int offset, int stride )
+    {
+        for( int idx = 0, destIdx = offset; idx < classes.length(); ++idx, destIdx += stride )
+        {
+            dest[destIdx] = this._distinctElements[classes.get( idx )];
+        }
+    }
 
-                // Find index k such that a[k] is smallest integer
-                // greater than a[j] to the right of a[j]
-                int k = array.length - 1;
-                while( Float.compare( array[j], array[k] ) >= 0 )
-                {
-                    k--;
-                }
+    @Override
+    protected boolean canStoreArray()
+    {
+        return true;
+    }
 
-                // Interchange a[j] and a[k]
-                temp = array[k];
-                array[k] = array[j];
-                array[j] = temp;
+    @Override
+    protected void storeArray( float[] array, float[] dest, int offset, int stride )
+    {
+        if( stride == 1 )
+        {
+            System.arraycopy( array, 0, dest, offset, array.length );
+        }
+        else
+        {
+            for( int idx = 0, destIdx = offset; idx < array.length; ++idx, destIdx += stride )
+            {
+                dest[destIdx] = array[idx];
+            }
+        }
+    }
 
-                // Put tail end of permutation after jth position in increasing order
-                int r = array.length - 1;
-                int s = j + 1;
+    @Override
+    protected void getClasses( float[] array, int offset, IndexPermutation classes )
+    {
+        for( int idx = 0; idx < classes.length(); ++idx )
+        {
+            classes.set( idx, checkClass( Arrays.binarySearch( this._distinctElements, array[offset + idx] ) ) );
+        }
+    }
 
-                while( r > s )
-                {
-                    temp = array[s];
-                    array[s] = array[r];
-                    array[r] = temp;
-                    r--;
-                    s++;
-                }
-            }
-        };
+    @Override
+    protected int getElementBytes()
+    {
+        return Float.BYTES;
+    }
+
+    @Override
+    protected void storeClasses( IndexPermutation classes, int from, int to, ByteBuffer dest, int offset, int stride )
+    {
+        for( int idx = from; idx < to; ++idx )
+        {
+            dest.putFloat( offset + idx * stride, this._distinctElements[classes.get( idx )] );
+        }
+    }
+
+    @Override
+    protected void loadClasses( ByteBuffer src, int offset, int stride, IndexPermutation classes )
+    {
+        for( int idx = 0; idx < classes.length(); ++idx )
+        {
+            int clazz = Arrays.binarySearch( this._distinctElements, src.getFloat( offset + idx * stride ) );
+            classes.set( idx, checkClass( clazz ) );
+        }
     }
 }
@@ -15,7 +15,7 @@
 package math.permutations.impl;
 
 import java.util.Arrays;
-import java.util.Iterator;
+import java.util.Comparator;
 
 import math.permutations.PermutationGenerator;
 
@@ -35,32 +35,15 @@ public class GenericComparablePermutationGenerator<T extends Comparable<T>> exte
     {
         private final ElementType[] _array;
         private final int[] _multiplicities;
+        private final int[] _elementIDs;
 
         public GenericComparableArrayInfo( ElementType[] array )
         {
             Arrays.sort( array );
             this._array = array;
-
-            int distinctElements = this._array.length;
-            for( int idx = 0; idx < this._array.length - 1; ++idx )
-            {
-                if( this._array[idx].compareTo( this._array[idx + 1] ) == 0 )
-                {
-                    --distinctElements;
-                }
-            }
-            this._multiplicities = new int[distinctElements];
-            Arrays.fill( this._multiplicities, 0 );
-            int mulIndex = 0;
-            for( int idx = 0; idx < this._array.length; ++idx )
-            {
-                ++this._multiplicities[mulIndex];
-                if( idx < this._array.length - 1 && this._array[idx].compareTo( this._array[idx + 1] ) != 0 )
-                {
-                    ++mulIndex;
-                }
-            }
-
+            this._elementIDs = new int[array.length];
+            this._multiplicities = computeMultiplicities( array, Comparator.<ElementType> naturalOrder(),
+                this._elementIDs );
         }
 
         @Override
@@ -69,6 +52,12 @@ public class GenericComparablePermutationGenerator<T extends Comparable<T>> exte
             return this._array;
         }
 
+        @Override
+        public int[] getElementIDs()
+        {
+            return this._elementIDs;
+        }
+
         @Override
         public int getArrayLength()
         {
@@ -88,48 +77,8 @@ public class GenericComparablePermutationGenerator<T extends Comparable<T>> exte
     }
 
     @Override
-    protected Iterator<T[]> createIterator()
+    protected int searchClass( T element )
     {
-        return new AbstractGenericPermutationIterator<T>( this.getArray(), this.getTotal() )
-        {
-            @Override
-            protected void makeNextPermutation( T[] a )
-            {
-                T temp = null;
-
-                // Find largest index j with a[j] < a[j+1]
-                int j = a.length - 2;
-                while( a[j].compareTo( a[j + 1] ) >= 0 )
-                {
-                    j--;
-                }
-
-                // Find index k such that a[k] is smallest integer
-                // greater than a[j] to the right of a[j]
-                int k = a.length - 1;
-                while( a[j].compareTo( a[k] ) >= 0 )
-                {
-                    k--;
-                }
-
-                // Interchange a[j] and a[k]
-                temp = a[k];
-                a[k] = a[j];
-                a[j] = temp;
-
-                // Put tail end of permutation after jth position in increasing order
-                int r = a.length - 1;
-                int s = j + 1;
-
-                while( r > s )
-                {
-                    temp = a[s];
-                    a[s] = a[r];
-                    a[r] = temp;
-                    r--;
-                    s++;
-                }
-            }
-        };
+        return Arrays.binarySearch( this.getDistinctElements(), element );
     }
-}
\ No newline at end of file
+}
@@ -16,7 +16,6 @@ package math.permutations.impl;
 
 import java.util.Arrays;
 import java.util.Comparator;
-import java.util.Iterator;
 
 import math.permutations.PermutationGenerator;
 
@@ -35,6 +34,7 @@ public class GenericPermutationGenerator<T> extends AbstractGenericPermutationGe
     {
         private final ElementType[] _array;
         private final int[] _multiplicities;
+        private final int[] _elementIDs;
         private final Comparator<ElementType> _comparator;
 
         public GenericArrayInfoImpl( ElementType[] array, Comparator<ElementType> comparator )
@@ -42,27 +42,8 @@ public class GenericPermutationGenerator<T> extends AbstractGenericPermutationGe
             Arrays.sort( array, comparator );
             this._array = array;
             this._comparator = comparator;
-
-            int distinctElements = this._array.length;
-            for( int idx = 0; idx < this._array.length - 1; ++idx )
-            {
-                if( comparator.compare( this._array[idx], this._array[idx + 1] ) == 0 )
-                {
-                    --distinctElements;
-                }
-            }
-            this._multiplicities = new int[distinctElements];
-            Arrays.fill( this._multiplicities, 0 );
-            int mulIndex = 0;
-            for( int idx = 0; idx < this._array.length; ++idx )
-            {
-                ++this._multiplicities[mulIndex];
-                if( idx < this._array.length - 1 && comparator.compare( this._array[idx], this._array[idx + 1] ) != 0 )
-                {
-                    ++mulIndex;
-                }
-            }
-
+            this._elementIDs = new int[array.length];
+            this._multiplicities = computeMultiplicities( array, comparator, this._elementIDs );
         }
 
         public Comparator<ElementType> getComparator()
@@ -76,6 +57,12 @@ public class GenericPermutationGenerator<T> extends AbstractGenericPermutationGe
             return this._array;
         }
 
+        @Override
+        public int[] getElementIDs()
+        {
+            return this._elementIDs;
+        }
+
         @Override
         public int getArrayLength()
         {
@@ -98,48 +85,8 @@ public class GenericPermutationGenerator<T> extends AbstractGenericPermutationGe
     }
 
     @Override
-    protected Iterator<T[]> createIterator()
+    protected int searchClass( T element )
     {
-        return new AbstractGenericPermutationIterator<T>( this.getArray(), this.getTotal() )
-        {
-            @Override
-            protected void makeNextPermutation( T[] array )
-            {
-                T temp = null;
-
-                // Find largest index j with a[j] < a[j+1]
-                int j = array.length - 2;
-                while( _comparator.compare( array[j], array[j + 1] ) >= 0 )
-                {
-                    j--;
-                }
-
-                // Find index k such that a[k] is smallest integer
-                // greater than a[j] to the right of a[j]
-                int k = array.length - 1;
-                while( _comparator.compare( array[j], array[k] ) >= 0 )
-                {
-                    k--;
-                }
-
-                // Interchange a[j] and a[k]
-                temp = array[k];
-                array[k] = array[j];
-                array[j] = temp;
-
-                // Put tail end of permutation after jth position in increasing order
-                int r = array.length - 1;
-                int s = j + 1;
-
-                while( r > s )
-                {
-                    temp = array[s];
-                    array[s] = array[r];
-                    array[r] = temp;
-                    r--;
-                    s++;
-                }
-            }
-        };
+        return Arrays.binarySearch( this.getDistinctElements(), element, this._comparator );
     }
 }
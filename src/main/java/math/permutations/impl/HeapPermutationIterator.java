@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2011, Stanislav Muhametsin. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package math.permutations.impl;
+
+import java.math.BigInteger;
+
+import math.permutations.PermutationChangeListener;
+import math.permutations.PermutationOrder;
+
+/**
+ * The iterator producing permutations in the order of Heap's algorithm (the non-recursive version by Sedgewick). The
+ * elements must be distinct.
+ * 
+ * @author 2011 Stanislav Muhametsin
+ * @param <T> The type of the permutation array.
+ */
+public class HeapPermutationIterator<T> extends TranspositionPermutationIterator<T>
+{
+    /**
+     * The loop counters of the recursive version of the algorithm.
+     */
+    private final int[] _counters;
+
+    public HeapPermutationIterator( AbstractPermutationGenerator<T> generator, T array, IndexPermutation classes,
+        BigInteger total, PermutationChangeListener listener )
+    {
+        super( generator, array, classes, total, listener );
+        this._counters = new int[classes.length()];
+    }
+
+    @Override
+    protected PermutationOrder getOrder()
+    {
+        return PermutationOrder.HEAP;
+    }
+
+    @Override
+    protected int[] getOrderState()
+    {
+        return this._counters.clone();
+    }
+
+    @Override
+    protected void setOrderState( int[] state )
+    {
+        checkOrderState( state, this._counters.length );
+        System.arraycopy( state, 0, this._counters, 0, state.length );
+    }
+
+    @Override
+    protected void makeNextPermutation( T array )
+    {
+        int[] counters = this._counters;
+        int level = 1;
+        while( counters[level] >= level )
+        {
+            counters[level] = 0;
+            ++level;
+        }
+
+        this.swap( ( level & 1 ) == 0 ? 0 : counters[level], level, array );
+        ++counters[level];
+    }
+}
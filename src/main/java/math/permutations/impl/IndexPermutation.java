@@ -0,0 +1,389 @@
+/*
+ * Copyright (c) 2011, Stanislav Muhametsin. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package math.permutations.impl;
+
+import java.util.Arrays;
+
+/**
+ * <p>
+ * This is the core of all permutation generators: the permutation of the <i>classes</i> of the elements. The class of
+ * an element is the index of its value among the distinct values of the multiset, sorted in ascending order. Since the
+ * classes are dense and small, they are stored in a <code>byte[]</code> when there are at most
+ * {@value #MAX_BYTE_CLASSES} distinct elements, in a <code>short[]</code> when there are at most
+ * {@value #MAX_SHORT_CLASSES} distinct elements, and in an <code>int[]</code> otherwise.
+ * </p>
+ * 
+ * <p>
+ * The successor step of lexicographic order is implemented here, once for all element types. Thus the step compares
+ * only small integers, no matter how expensive the comparison of the actual elements is. The generators then map the
+ * changed positions to actual elements.
+ * </p>
+ * 
+ * @author 2011 Stanislav Muhametsin
+ */
+public abstract class IndexPermutation
+{
+    /**
+     * The maximum amount of distinct elements, for which the classes are stored in a <code>byte[]</code>.
+     */
+    public static final int MAX_BYTE_CLASSES = Byte.MAX_VALUE + 1;
+
+    /**
+     * The maximum amount of distinct elements, for which the classes are stored in a <code>short[]</code>.
+     */
+    public static final int MAX_SHORT_CLASSES = Short.MAX_VALUE + 1;
+
+    /**
+     * Creates a new {@link IndexPermutation} with the first permutation of the multiset with given multiplicities,
+     * that is, with classes in ascending order.
+     * 
+     * @param multiplicities The multiplicities of the distinct elements, in ascending order of the elements.
+     * @param length The size of the multiset, that is, sum of the multiplicities. If less than the size of the
+     *            multiset, only the smallest classes are included.
+     * @return The new {@link IndexPermutation}.
+     */
+    public static IndexPermutation createFirst( int[] multiplicities, int length )
+    {
+        IndexPermutation result = create( length, multiplicities.length );
+        int idx = 0;
+        for( int clazz = 0; clazz < multiplicities.length && idx < length; ++clazz )
+        {
+            for( int count = 0; count < multiplicities[clazz] && idx < length; ++count )
+            {
+                result.set( idx, clazz );
+                ++idx;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Creates a new {@link IndexPermutation} with all classes set to zero.
+     * 
+     * @param length The length of the permutation.
+     * @param distinctCount The amount of distinct classes.
+     * @return The new {@link IndexPermutation}.
+     */
+    public static IndexPermutation create( int length, int distinctCount )
+    {
+        IndexPermutation result;
+        if( distinctCount <= MAX_BYTE_CLASSES )
+        {
+            result = new ByteIndexPermutation( new byte[length] );
+        }
+        else if( distinctCount <= MAX_SHORT_CLASSES )
+        {
+            result = new ShortIndexPermutation( new short[length] );
+        }
+        else
+        {
+            result = new IntIndexPermutation( new int[length] );
+        }
+        return result;
+    }
+
+    /**
+     * Returns the length of this permutation.
+     * 
+     * @return The length of this permutation.
+     */
+    public abstract int length();
+
+    /**
+     * Returns the class at given position.
+     * 
+     * @param index The position.
+     * @return The class at given position.
+     */
+    public abstract int get( int index );
+
+    /**
+     * Sets the class at given position.
+     * 
+     * @param index The position.
+     * @param clazz The class.
+     */
+    public abstract void set( int index, int clazz );
+
+    /**
+     * Swaps the classes at given positions.
+     * 
+     * @param first The first position.
+     * @param second The second position.
+     */
+    public abstract void swap( int first, int second );
+
+    /**
+     * Modifies this permutation into its lexicographic successor.
+     * 
+     * @return The index of the first position that was changed, or <code>-1</code> if this was the last permutation,
+     *         in which case this permutation is not modified.
+     */
+    public int next()
+    {
+        int j = this.findPivot();
+        if( j >= 0 )
+        {
+            this.swap( j, this.findSuccessor( j ) );
+            this.reverse( j + 1, this.length() );
+        }
+        return j;
+    }
+
+    /**
+     * Returns the pivot of the lexicographic successor step, that is, the largest position <code>j</code> with
+     * <code>a[j] &lt; a[j + 1]</code>. The step done by {@link #next()} is equivalent to swapping the pivot with
+     * {@link #findSuccessor(int)}, and then reversing the range after the pivot.
+     * 
+     * @return The pivot, or <code>-1</code> if this is the last permutation.
+     */
+    public int findPivot()
+    {
+        int j = this.length() - 2;
+        while( j >= 0 && this.get( j ) >= this.get( j + 1 ) )
+        {
+            --j;
+        }
+        return j;
+    }
+
+    /**
+     * Returns the position, which is swapped with the pivot in the lexicographic successor step, that is, the largest
+     * position <code>k</code> with <code>a[k] &gt; a[pivot]</code>.
+     * 
+     * @param pivot The pivot, as returned by {@link #findPivot()}.
+     * @return The position to swap with the pivot.
+     */
+    public int findSuccessor( int pivot )
+    {
+        int clazz = this.get( pivot );
+        int k = this.length() - 1;
+        while( clazz >= this.get( k ) )
+        {
+            --k;
+        }
+        return k;
+    }
+
+    /**
+     * Reverses the classes at given range.
+     * 
+     * @param from The first position of the range.
+     * @param to The position after the last position of the range.
+     */
+    public void reverse( int from, int to )
+    {
+        for( int s = from, r = to - 1; s < r; ++s, --r )
+        {
+            this.swap( s, r );
+        }
+    }
+
+    /**
+     * Rotates the classes at given range right by one position, so that the class at position <code>to - 1</code>
+     * moves to position <code>from</code>.
+     * 
+     * @param from The first position of the range.
+     * @param to The position after the last position of the range.
+     */
+    public abstract void rotate( int from, int to );
+
+    /**
+     * Creates a copy of this permutation.
+     * 
+     * @return The copy of this permutation.
+     */
+    public abstract IndexPermutation copy();
+
+    /**
+     * Copies classes at given range from given permutation into same positions of this permutation.
+     * 
+     * @param other The permutation to copy classes from.
+     * @param from The first position to copy.
+     * @param to The position after the last position to copy.
+     */
+    public void copyFrom( IndexPermutation other, int from, int to )
+    {
+        for( int idx = from; idx < to; ++idx )
+        {
+            this.set( idx, other.get( idx ) );
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        StringBuilder result = new StringBuilder( "[" );
+        for( int idx = 0; idx < this.length(); ++idx )
+        {
+            if( idx > 0 )
+            {
+                result.append( ", " );
+            }
+            result.append( this.get( idx ) );
+        }
+        return result.append( "]" ).toString();
+    }
+
+    private static final class ByteIndexPermutation extends IndexPermutation
+    {
+        private final byte[] _classes;
+
+        private ByteIndexPermutation( byte[] classes )
+        {
+            this._classes = classes;
+        }
+
+        @Override
+        public int length()
+        {
+            return this._classes.length;
+        }
+
+        @Override
+        public int get( int index )
+        {
+            return this._classes[index];
+        }
+
+        @Override
+        public void set( int index, int clazz )
+        {
+            this._classes[index] = (byte) clazz;
+        }
+
+        @Override
+        public void swap( int first, int second )
+        {
+            byte temp = this._classes[first];
+            this._classes[first] = this._classes[second];
+            this._classes[second] = temp;
+        }
+
+        @Override
+        public IndexPermutation copy()
+        {
+            return new ByteIndexPermutation( Arrays.copyOf( this._classes, this._classes.length ) );
+        }
+
+        @Override
+        public void rotate( int from, int to )
+        {
+            byte last = this._classes[to - 1];
+            System.arraycopy( this._classes, from, this._classes, from + 1, to - from - 1 );
+            this._classes[from] = last;
+        }
+    }
+
+    private static final class ShortIndexPermutation extends IndexPermutation
+    {
+        private final short[] _classes;
+
+        private ShortIndexPermutation( short[] classes )
+        {
+            this._classes = classes;
+        }
+
+        @Override
+        public int length()
+        {
+            return this._classes.length;
+        }
+
+        @Override
+        public int get( int index )
+        {
+            return this._classes[index];
+        }
+
+        @Override
+        public void set( int index, int clazz )
+        {
+            this._classes[index] = (short) clazz;
+        }
+
+        @Override
+        public void swap( int first, int second )
+        {
+            short temp = this._classes[first];
+            this._classes[first] = this._classes[second];
+            this._classes[second] = temp;
+        }
+
+        @Override
+        public IndexPermutation copy()
+        {
+            return new ShortIndexPermutation( Arrays.copyOf( this._classes, this._classes.length ) );
+        }
+
+        @Override
+        public void rotate( int from, int to )
+        {
+            short last = this._classes[to - 1];
+            System.arraycopy( this._classes, from, this._classes, from + 1, to - from - 1 );
+            this._classes[from] = last;
+        }
+    }
+
+    private static final class IntIndexPermutation extends IndexPermutation
+    {
+        private final int[] _classes;
+
+        private IntIndexPermutation( int[] classes )
+        {
+            this._classes = classes;
+        }
+
+        @Override
+        public int length()
+        {
+            return this._classes.length;
+        }
+
+        @Override
+        public int get( int index )
+        {
+            return this._classes[index];
+        }
+
+        @Override
+        public void set( int index, int clazz )
+        {
+            this._classes[index] = clazz;
+        }
+
+        @Override
+        public void swap( int first, int second )
+        {
+            int temp = this._classes[first];
+            this._classes[first] = this._classes[second];
+            this._classes[second] = temp;
+        }
+
+        @Override
+        public IndexPermutation copy()
+        {
+            return new IntIndexPermutation( Arrays.copyOf( this._classes, this._classes.length ) );
+        }
+
+        @Override
+        public void rotate( int from, int to )
+        {
+            int last = this._classes[to - 1];
+            System.arraycopy( this._classes, from, this._classes, from + 1, to - from - 1 );
+            this._classes[from] = last;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2011, Stanislav Muhametsin. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package math.permutations.impl;
+
+import java.math.BigInteger;
+
+import math.permutations.PermutationChangeListener;
+import math.permutations.PermutationOrder;
+
+/**
+ * The iterator, which advances the {@link IndexPermutation} in lexicographic order, and then lets the generator map
+ * the changed positions into the elements of the permutation array. When a {@link PermutationChangeListener} is given,
+ * the swap and the reversal of each step are done separately, so that they can be reported to the listener.
+ * 
+ * @author 2011 Stanislav Muhametsin
+ * @param <T> The type of the permutation array.
+ */
+public class IndexPermutationIterator<T> extends AbstractPermutationIterator<T>
+{
+    private final int _length;
+    private final PermutationChangeListener _listener;
+
+    public IndexPermutationIterator( AbstractPermutationGenerator<T> generator, T array, IndexPermutation classes,
+        BigInteger permutationsLeft )
+    {
+        this( generator, array, classes, permutationsLeft, null );
+    }
+
+    public IndexPermutationIterator( AbstractPermutationGenerator<T> generator, T array, IndexPermutation classes,
+        BigInteger permutationsLeft, PermutationChangeListener listener )
+    {
+        super( generator, array, classes, permutationsLeft );
+        this._length = classes.length();
+        this._listener = listener;
+    }
+
+    @Override
+    protected PermutationOrder getOrder()
+    {
+        return PermutationOrder.LEXICOGRAPHIC;
+    }
+
+    /**
+     * Computes the lexicographic rank from the current permutation, so that the ranks are correct also for iterators
+     * of a range of ranks.
+     */
+    @Override
+    protected BigInteger getNextRank( BigInteger permutationsLeft, boolean started )
+    {
+        BigInteger result = this.getGenerator().getRanking().rank( this.getClasses() );
+        if( started )
+        {
+            result = result.add( BigInteger.ONE );
+        }
+        return result;
+    }
+
+    @Override
+    protected void makeNextPermutation( T array )
+    {
+        IndexPermutation classes = this.getClasses();
+        if( this._listener == null )
+        {
+            int pivot = classes.next();
+            this.getGenerator().setClasses( classes, pivot, this._length, array );
+        }
+        else
+        {
+            int pivot = classes.findPivot();
+            int successor = classes.findSuccessor( pivot );
+            classes.swap( pivot, successor );
+            classes.reverse( pivot + 1, this._length );
+            this.getGenerator().setClasses( classes, pivot, this._length, array );
+            this._listener.onSwap( pivot, successor );
+            this._listener.onReverse( pivot + 1, this._length );
+        }
+    }
+}
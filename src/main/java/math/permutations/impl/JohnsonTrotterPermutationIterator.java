@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2011, Stanislav Muhametsin. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package math.permutations.impl;
+
+import java.math.BigInteger;
+
+import math.permutations.PermutationChangeListener;
+import math.permutations.PermutationOrder;
+
+/**
+ * The iterator producing permutations in the order of Steinhaus-Johnson-Trotter algorithm, with Even's speedup. Each
+ * class has a direction, and on each step the largest class, which is smaller than its neighbour in its direction, is
+ * swapped with that neighbour. Then the directions of all larger classes are reversed. The elements must be distinct,
+ * so that the classes of the first permutation are <code>0, 1, ..., n - 1</code>.
+ * 
+ * @author 2011 Stanislav Muhametsin
+ * @param <T> The type of the permutation array.
+ */
+public class JohnsonTrotterPermutationIterator<T> extends TranspositionPermutationIterator<T>
+{
+    /**
+     * The position of each class.
+     */
+    private final int[] _positions;
+
+    /**
+     * The direction of each class, either <code>-1</code> or <code>1</code>.
+     */
+    private final int[] _directions;
+
+    public JohnsonTrotterPermutationIterator( AbstractPermutationGenerator<T> generator, T array,
+        IndexPermutation classes, BigInteger total, PermutationChangeListener listener )
+    {
+        super( generator, array, classes, total, listener );
+        int length = classes.length();
+        this._positions = new int[length];
+        this._directions = new int[length];
+        for( int idx = 0; idx < length; ++idx )
+        {
+            this._positions[classes.get( idx )] = idx;
+            this._directions[idx] = -1;
+        }
+    }
+
+    @Override
+    protected PermutationOrder getOrder()
+    {
+        return PermutationOrder.JOHNSON_TROTTER;
+    }
+
+    /**
+     * The positions of the classes are computed from the classes, so only the directions are stored.
+     */
+    @Override
+    protected int[] getOrderState()
+    {
+        return this._directions.clone();
+    }
+
+    @Override
+    protected void setOrderState( int[] state )
+    {
+        checkOrderState( state, this._directions.length );
+        System.arraycopy( state, 0, this._directions, 0, state.length );
+    }
+
+    @Override
+    protected void makeNextPermutation( T array )
+    {
+        IndexPermutation classes = this.getClasses();
+        int[] positions = this._positions;
+        int[] directions = this._directions;
+        int length = positions.length;
+
+        // Find the largest mobile class
+        int clazz = length - 1;
+        int position = 0;
+        int neighbour = 0;
+        while( clazz > 0 )
+        {
+            position = positions[clazz];
+            neighbour = position + directions[clazz];
+            if( neighbour >= 0 && neighbour < length && classes.get( neighbour ) < clazz )
+            {
+                break;
+            }
+            --clazz;
+        }
+
+        positions[classes.get( neighbour )] = position;
+        positions[clazz] = neighbour;
+        this.swap( position, neighbour, array );
+
+        // Reverse the directions of all larger classes
+        for( int larger = clazz + 1; larger < length; ++larger )
+        {
+            directions[larger] = -directions[larger];
+        }
+    }
+}
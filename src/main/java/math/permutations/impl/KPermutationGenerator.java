@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2011, Stanislav Muhametsin. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package math.permutations.impl;
+
+import java.math.BigInteger;
+
+import math.permutations.PermutationChangeListener;
+import math.permutations.PermutationOrder;
+import math.permutations.PermutationVisitor;
+import math.permutations.RankedPermutationGenerator;
+
+/**
+ * <p>
+ * The generator of k-permutations, that is, ordered selections of <code>k</code> elements of the multiset of another
+ * permutation generator. Each distinct k-permutation is produced exactly once, in lexicographic order, without
+ * generating the full permutations. The permutation arrays have length <code>k</code>, and the elements are mapped by
+ * the underlying generator, so this works for all array types supported by {@link AbstractPermutationGenerator}.
+ * </p>
+ * 
+ * <p>
+ * Only {@link PermutationOrder#LEXICOGRAPHIC} order is supported, and the iterators do not support
+ * {@link PermutationChangeListener}s. Otherwise, the k-permutations can be iterated, ranked, split and checkpointed
+ * just like the full permutations. When <code>k</code> is the length of the array, the k-permutations are the same as
+ * the full permutations.
+ * </p>
+ * 
+ * @author 2011 Stanislav Muhametsin
+ * @param <T> The type of the permutation array.
+ * @see KPermutationRanking
+ */
+public class KPermutationGenerator<T> extends AbstractDerivedGenerator<T>
+    implements RankedPermutationGenerator<T>
+{
+    private final KPermutationRanking _ranking;
+
+    /**
+     * Creates a new generator for the k-permutations of the multiset of given generator.
+     * 
+     * @param generator The generator of the full permutations. Its permutation arrays must be Java arrays.
+     * @param length The length of the k-permutations, that is, <code>k</code>.
+     * @exception IllegalArgumentException If the length is negative or greater than the length of the array of the
+     *                generator, or if the permutations of the generator are not Java arrays.
+     */
+    public KPermutationGenerator( AbstractPermutationGenerator<T> generator, int length )
+    {
+        super( generator, length );
+        if( length < 0 || length > generator.getArrayLength() )
+        {
+            throw new IllegalArgumentException( "The length of the k-permutations must be between 0 and "
+                + generator.getArrayLength() + "." );
+        }
+        Class<?> arrayClass = generator.copyArray().getClass();
+        if( !arrayClass.isArray() )
+        {
+            throw new IllegalArgumentException( "The k-permutations of " + arrayClass.getName()
+                + " are not supported." );
+        }
+        this._ranking = new KPermutationRanking( generator.getMultiplicities(), length );
+    }
+
+    @Override
+    public BigInteger getTotal()
+    {
+        return this._ranking.getTotal();
+    }
+
+    @Override
+    public boolean visit( PermutationVisitor<T> visitor )
+    {
+        IndexPermutation classes = this.createFirstClasses();
+        return this.getGenerator().visitPrefixes( visitor, classes, this.createArray( classes ) );
+    }
+
+    @Override
+    public T permutationAt( BigInteger rank, T dest )
+    {
+        return this.arrayAt( rank, dest );
+    }
+
+    @Override
+    protected void unrank( BigInteger rank, IndexPermutation classes )
+    {
+        this._ranking.unrank( rank, classes );
+    }
+
+    @Override
+    protected BigInteger rank( IndexPermutation classes )
+    {
+        return this._ranking.rank( classes );
+    }
+
+    @Override
+    protected long rankAsLong( IndexPermutation classes )
+    {
+        return this._ranking.rankAsLong( classes );
+    }
+
+    @Override
+    protected AbstractPermutationIterator<T> createIterator( IndexPermutation classes, BigInteger left )
+    {
+        return new KPermutationIterator<T>( this.getGenerator(), this._ranking, this.createArray( classes ), classes,
+            left );
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2011, Stanislav Muhametsin. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package math.permutations.impl;
+
+import java.math.BigInteger;
+
+import math.permutations.PermutationOrder;
+
+/**
+ * The iterator over k-permutations in lexicographic order. Along with the classes of the current k-permutation, the
+ * amount of remaining elements of each class is kept. On each step, the classes are released from the end of the
+ * k-permutation until some position can be increased to the smallest remaining greater class, after which the rest of
+ * the positions are filled with the smallest remaining classes in ascending order.
+ * 
+ * @author 2011 Stanislav Muhametsin
+ * @param <T> The type of the permutation array.
+ */
+public class KPermutationIterator<T> extends AbstractPermutationIterator<T>
+{
+    private final KPermutationRanking _ranking;
+    private final int _length;
+
+    /**
+     * The amount of elements of each class, which are not in the current k-permutation.
+     */
+    private final int[] _remaining;
+
+    public KPermutationIterator( AbstractPermutationGenerator<T> generator, KPermutationRanking ranking, T array,
+        IndexPermutation classes, BigInteger permutationsLeft )
+    {
+        super( generator, array, classes, permutationsLeft );
+        this._ranking = ranking;
+        this._length = classes.length();
+        this._remaining = generator.getMultiplicities().clone();
+        for( int idx = 0; idx < this._length; ++idx )
+        {
+            --this._remaining[classes.get( idx )];
+        }
+    }
+
+    @Override
+    protected PermutationOrder getOrder()
+    {
+        return PermutationOrder.LEXICOGRAPHIC;
+    }
+
+    @Override
+    protected BigInteger getNextRank( BigInteger permutationsLeft, boolean started )
+    {
+        BigInteger result = this._ranking.rank( this.getClasses() );
+        if( started )
+        {
+            result = result.add( BigInteger.ONE );
+        }
+        return result;
+    }
+
+    @Override
+    protected void makeNextPermutation( T array )
+    {
+        IndexPermutation classes = this.getClasses();
+        int[] remaining = this._remaining;
+        int distinct = remaining.length;
+        int pos = this._length - 1;
+        int clazz = distinct;
+        while( clazz == distinct )
+        {
+            // The last k-permutation is never advanced, so some position will always be increased
+            clazz = classes.get( pos );
+            ++remaining[clazz];
+            ++clazz;
+            while( clazz < distinct && remaining[clazz] == 0 )
+            {
+                ++clazz;
+            }
+            if( clazz == distinct )
+            {
+                --pos;
+            }
+        }
+        --remaining[clazz];
+        classes.set( pos, clazz );
+
+        clazz = 0;
+        for( int idx = pos + 1; idx < this._length; ++idx )
+        {
+            while( remaining[clazz] == 0 )
+            {
+                ++clazz;
+            }
+            --remaining[clazz];
+            classes.set( idx, clazz );
+        }
+        this.getGenerator().setClasses( classes, pos, this._length, array );
+    }
+}
@@ -0,0 +1,334 @@
+/*
+ * Copyright (c) 2011, Stanislav Muhametsin. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package math.permutations.impl;
+
+import java.math.BigInteger;
+
+/**
+ * <p>
+ * This class maps lexicographic ranks of the <i>k-permutations</i> of a multiset, that is, the ordered selections of
+ * <code>k</code> elements of the multiset, to the k-permutations themselves, and back. Just like with
+ * {@link MultisetRanking}, the k-permutations are expressed as arrays of classes of the elements.
+ * </p>
+ * 
+ * <p>
+ * The amount of k-permutations is the coefficient of <code>x<sup>k</sup></code> in the polynomial
+ * <code>k! &prod; (1 + x/1! + x<sup>2</sup>/2! + ... + x<sup>m_i</sup>/m_i!)</code>, where <code>m_i</code> is the
+ * multiplicity of <code>i</code>:th distinct element. It is computed one distinct element at a time without fractions:
+ * if there are <code>W(j)</code> sequences of length <code>j</code> using the previous distinct elements, then there
+ * are <code>&sum; W(j - t) C(j, t)</code> sequences of length <code>j</code> after adding the <code>t</code> copies of
+ * the next element to any <code>t</code> positions. The same computation over the remaining multiset gives the amount
+ * of k-permutations starting with given prefix, which is used for ranking. All intermediate values are bounded by the
+ * total amount of k-permutations, so when the total fits into <code>long</code>, the computation is done using
+ * <code>long</code>s only.
+ * </p>
+ * 
+ * <p>
+ * The instances of this class are immutable and thus thread-safe.
+ * </p>
+ * 
+ * @author 2011 Stanislav Muhametsin
+ */
+public final class KPermutationRanking
+{
+    private final int[] _multiplicities;
+    private final int _length;
+    private final BigInteger _total;
+    private final boolean _isTotalLong;
+
+    /**
+     * The binomial coefficients <code>C(j, t)</code> for <code>j &lt;= k</code>. The values not fitting into
+     * <code>long</code> are saturated to {@link Long#MAX_VALUE}, since they are only needed when the total fits into
+     * <code>long</code>, and then the saturated values are always multiplied by zero.
+     */
+    private final long[][] _binomials;
+
+    /**
+     * The binomial coefficients <code>C(j, t)</code> for <code>j &lt;= k</code>, when the total does not fit into
+     * <code>long</code>. Otherwise <code>null</code>.
+     */
+    private final BigInteger[][] _bigBinomials;
+
+    /**
+     * Creates a new ranking for k-permutations of multiset with given multiplicities.
+     * 
+     * @param multiplicities The multiplicities of each distinct element, in ascending order of the elements. Will
+     *            <b>NOT</b> be copied.
+     * @param length The length of the k-permutations, that is, <code>k</code>.
+     */
+    public KPermutationRanking( int[] multiplicities, int length )
+    {
+        this._multiplicities = multiplicities;
+        this._length = length;
+        this._total = countArrangements( multiplicities, length );
+        this._isTotalLong = this._total.bitLength() < Long.SIZE;
+        this._bigBinomials = this._isTotalLong ? null : createBinomials( length );
+
+        this._binomials = new long[length + 1][];
+        for( int j = 0; j <= length; ++j )
+        {
+            this._binomials[j] = new long[j + 1];
+            this._binomials[j][0] = 1L;
+            this._binomials[j][j] = 1L;
+            for( int t = 1; t < j; ++t )
+            {
+                long sum = this._binomials[j - 1][t - 1] + this._binomials[j - 1][t];
+                this._binomials[j][t] = sum < 0L ? Long.MAX_VALUE : sum;
+            }
+        }
+    }
+
+    /**
+     * Returns the amount of k-permutations of the multiset.
+     * 
+     * @return The amount of k-permutations of the multiset.
+     */
+    public BigInteger getTotal()
+    {
+        return this._total;
+    }
+
+    /**
+     * Computes the amount of sequences of given length, which can be formed from the multiset with given
+     * multiplicities.
+     * 
+     * @param multiplicities The multiplicities of each distinct element.
+     * @param length The length of the sequences.
+     * @return The amount of sequences of given length.
+     */
+    public static BigInteger countArrangements( int[] multiplicities, int length )
+    {
+        return count( multiplicities, length, createBinomials( length ) );
+    }
+
+    private static BigInteger[][] createBinomials( int length )
+    {
+        BigInteger[][] binomials = new BigInteger[length + 1][];
+        for( int j = 0; j <= length; ++j )
+        {
+            binomials[j] = new BigInteger[j + 1];
+            binomials[j][0] = BigInteger.ONE;
+            binomials[j][j] = BigInteger.ONE;
+            for( int t = 1; t < j; ++t )
+            {
+                binomials[j][t] = binomials[j - 1][t - 1].add( binomials[j - 1][t] );
+            }
+        }
+        return binomials;
+    }
+
+    private static BigInteger count( int[] multiplicities, int length, BigInteger[][] binomials )
+    {
+        BigInteger[] ways = new BigInteger[length + 1];
+        ways[0] = BigInteger.ONE;
+        for( int j = 1; j <= length; ++j )
+        {
+            ways[j] = BigInteger.ZERO;
+        }
+        int reach = 0;
+        for( int multiplicity : multiplicities )
+        {
+            int max = Math.min( multiplicity, length );
+            reach = Math.min( reach + max, length );
+            // Descending order, so that ways[j - t] still refers to the previous distinct elements
+            for( int j = reach; j > 0; --j )
+            {
+                BigInteger sum = ways[j];
+                for( int t = 1; t <= Math.min( max, j ); ++t )
+                {
+                    if( ways[j - t].signum() > 0 )
+                    {
+                        sum = sum.add( ways[j - t].multiply( binomials[j][t] ) );
+                    }
+                }
+                ways[j] = sum;
+            }
+        }
+        return ways[length];
+    }
+
+    /**
+     * Stores the classes of the k-permutation with given rank into given array.
+     * 
+     * @param rank The lexicographic rank of the k-permutation, starting from zero.
+     * @param classes The permutation of length <code>k</code> where to store the classes of the k-permutation.
+     * @exception IllegalArgumentException If the rank is negative, or not less than the total amount of
+     *                k-permutations.
+     */
+    public void unrank( BigInteger rank, IndexPermutation classes )
+    {
+        if( rank.signum() < 0 || rank.compareTo( this._total ) >= 0 )
+        {
+            throw new IllegalArgumentException( "The rank " + rank + " must be at least zero and less than "
+                + this._total + "." );
+        }
+
+        int[] counts = this._multiplicities.clone();
+        long longRank = rank.longValue();
+        for( int pos = 0; pos < this._length; ++pos )
+        {
+            int remaining = this._length - pos - 1;
+            int clazz = 0;
+            while( true )
+            {
+                if( counts[clazz] > 0 )
+                {
+                    --counts[clazz];
+                    if( this._isTotalLong )
+                    {
+                        long withClass = this.countLong( counts, remaining );
+                        if( longRank < withClass )
+                        {
+                            break;
+                        }
+                        longRank -= withClass;
+                    }
+                    else
+                    {
+                        BigInteger withClass = this.count( counts, remaining );
+                        if( rank.compareTo( withClass ) < 0 )
+                        {
+                            break;
+                        }
+                        rank = rank.subtract( withClass );
+                    }
+                    ++counts[clazz];
+                }
+                ++clazz;
+            }
+            classes.set( pos, clazz );
+        }
+    }
+
+    /**
+     * Computes the lexicographic rank of the k-permutation with given classes.
+     * 
+     * @param classes The classes of the k-permutation.
+     * @return The lexicographic rank of the k-permutation.
+     * @exception IllegalArgumentException If the given classes are not a k-permutation of the multiset.
+     */
+    public BigInteger rank( IndexPermutation classes )
+    {
+        BigInteger result;
+        if( this._isTotalLong )
+        {
+            result = BigInteger.valueOf( this.doRank( classes ) );
+        }
+        else
+        {
+            int[] counts = this._multiplicities.clone();
+            result = BigInteger.ZERO;
+            for( int pos = 0; pos < this._length; ++pos )
+            {
+                int clazz = checkClass( classes.get( pos ), counts );
+                int remaining = this._length - pos - 1;
+                for( int smaller = 0; smaller < clazz; ++smaller )
+                {
+                    if( counts[smaller] > 0 )
+                    {
+                        --counts[smaller];
+                        result = result.add( this.count( counts, remaining ) );
+                        ++counts[smaller];
+                    }
+                }
+                --counts[clazz];
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Computes the lexicographic rank of the k-permutation with given classes as <code>long</code>.
+     * 
+     * @param classes The classes of the k-permutation.
+     * @return The lexicographic rank of the k-permutation.
+     * @exception IllegalArgumentException If the given classes are not a k-permutation of the multiset.
+     * @exception ArithmeticException If the total amount of k-permutations does not fit into <code>long</code>.
+     */
+    public long rankAsLong( IndexPermutation classes )
+    {
+        if( !this._isTotalLong )
+        {
+            throw new ArithmeticException( "The total amount of permutations " + this._total
+                + " does not fit into long." );
+        }
+        return this.doRank( classes );
+    }
+
+    private long doRank( IndexPermutation classes )
+    {
+        int[] counts = this._multiplicities.clone();
+        long rank = 0L;
+        for( int pos = 0; pos < this._length; ++pos )
+        {
+            int clazz = checkClass( classes.get( pos ), counts );
+            int remaining = this._length - pos - 1;
+            for( int smaller = 0; smaller < clazz; ++smaller )
+            {
+                if( counts[smaller] > 0 )
+                {
+                    --counts[smaller];
+                    rank += this.countLong( counts, remaining );
+                    ++counts[smaller];
+                }
+            }
+            --counts[clazz];
+        }
+        return rank;
+    }
+
+    private static int checkClass( int clazz, int[] counts )
+    {
+        if( clazz < 0 || clazz >= counts.length || counts[clazz] == 0 )
+        {
+            throw new IllegalArgumentException( "The given array is not a k-permutation of the multiset." );
+        }
+        return clazz;
+    }
+
+    /**
+     * Computes the amount of sequences of given length from the remaining multiset using <code>long</code>s.
+     */
+    private long countLong( int[] counts, int length )
+    {
+        long[] ways = new long[length + 1];
+        ways[0] = 1L;
+        int reach = 0;
+        for( int idx = 0; idx < counts.length; ++idx )
+        {
+            int max = Math.min( counts[idx], length );
+            reach = Math.min( reach + max, length );
+            for( int j = reach; j > 0; --j )
+            {
+                long sum = ways[j];
+                long[] binomials = this._binomials[j];
+                for( int t = 1; t <= Math.min( max, j ); ++t )
+                {
+                    if( ways[j - t] > 0L )
+                    {
+                        sum += ways[j - t] * binomials[t];
+                    }
+                }
+                ways[j] = sum;
+            }
+        }
+        return ways[length];
+    }
+
+    private BigInteger count( int[] counts, int length )
+    {
+        return count( counts, length, this._bigBinomials );
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2011, Stanislav Muhametsin. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package math.permutations.impl;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * The read-only {@link List} view of a permutation, backed by the {@link IndexPermutation} of the classes of the
+ * elements. The elements are looked up from the distinct elements only when requested, so advancing the permutation
+ * touches only the classes.
+ * 
+ * @author 2011 Stanislav Muhametsin
+ * @param <E> The type of the elements.
+ */
+public final class MappedPermutation<E> extends AbstractList<E>
+    implements RandomAccess
+{
+    private final List<? extends E> _distinctElements;
+    private final IndexPermutation _classes;
+
+    MappedPermutation( List<? extends E> distinctElements, IndexPermutation classes )
+    {
+        this._distinctElements = distinctElements;
+        this._classes = classes;
+    }
+
+    @Override
+    public E get( int index )
+    {
+        return this._distinctElements.get( this._classes.get( index ) );
+    }
+
+    @Override
+    public int size()
+    {
+        return this._classes.length();
+    }
+
+    /**
+     * Returns the class of the element at given position, that is, the index of the element in the list of distinct
+     * elements given to the generator.
+     * 
+     * @param index The position.
+     * @return The class of the element at given position.
+     */
+    public int getClassIndex( int index )
+    {
+        return this._classes.get( index );
+    }
+
+    List<? extends E> getDistinctElements()
+    {
+        return this._distinctElements;
+    }
+
+    IndexPermutation getClasses()
+    {
+        return this._classes;
+    }
+}
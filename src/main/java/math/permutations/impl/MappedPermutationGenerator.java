@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 2011, Stanislav Muhametsin. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package math.permutations.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import math.permutations.PermutationGenerator;
+
+/**
+ * This is the implementation of {@link PermutationGenerator}, where the permutations are {@link List}s, which are
+ * mapped views over the classes of the elements. The distinct elements and their multiplicities are given explicitly,
+ * so the elements do not need to be comparable at all: the order of the distinct elements defines the lexicographic
+ * order of the permutations. Advancing the iterator touches only the classes, and the elements are looked up only when
+ * accessed via {@link List#get(int)}.
+ * 
+ * @author 2011 Stanislav Muhametsin
+ * @param <E> The type of the elements.
+ * @see MappedPermutation
+ */
+public class MappedPermutationGenerator<E> extends AbstractPermutationGenerator<List<E>>
+{
+
+    public static class MappedArrayInfo<ElementType>
+        implements ArrayInfo
+    {
+        private final List<? extends ElementType> _distinctElements;
+        private final int[] _multiplicities;
+        private final int _length;
+
+        public MappedArrayInfo( List<? extends ElementType> distinctElements, int[] multiplicities )
+        {
+            if( distinctElements.size() != multiplicities.length )
+            {
+                throw new IllegalArgumentException(
+                    "There must be as many multiplicities as there are distinct elements." );
+            }
+
+            int length = 0;
+            for( int multiplicity : multiplicities )
+            {
+                if( multiplicity <= 0 )
+                {
+                    throw new IllegalArgumentException( "The multiplicities must be positive." );
+                }
+                length += multiplicity;
+            }
+            this._distinctElements = Collections.unmodifiableList( new ArrayList<ElementType>( distinctElements ) );
+            this._multiplicities = multiplicities;
+            this._length = length;
+        }
+
+        public List<? extends ElementType> getDistinctElements()
+        {
+            return this._distinctElements;
+        }
+
+        @Override
+        public int getArrayLength()
+        {
+            return this._length;
+        }
+
+        @Override
+        public int[] getMultiplicities()
+        {
+            return this._multiplicities;
+        }
+    }
+
+    private final List<? extends E> _distinctElements;
+
+    /**
+     * The classes of the distinct elements, used when computing the classes of lists other than the views created by
+     * this generator.
+     */
+    private final Map<Object, Integer> _classesByElement;
+
+    public MappedPermutationGenerator( MappedArrayInfo<E> arrayInfo )
+    {
+        super( arrayInfo );
+        this._distinctElements = arrayInfo.getDistinctElements();
+        this._classesByElement = new HashMap<Object, Integer>();
+        for( int idx = 0; idx < this._distinctElements.size(); ++idx )
+        {
+            if( this._classesByElement.put( this._distinctElements.get( idx ), idx ) != null )
+            {
+                throw new IllegalArgumentException( "The distinct elements must not contain duplicates." );
+            }
+        }
+    }
+
+    @Override
+    protected List<E> copyArray()
+    {
+        return new MappedPermutation<E>( this._distinctElements, this.createFirstClasses() );
+    }
+
+    @Override
+    protected List<E> createWorkingArray( IndexPermutation classes )
+    {
+        return new MappedPermutation<E>( this._distinctElements, classes );
+    }
+
+    @Override
+    protected int getLength( List<E> array )
+    {
+        return array.size();
+    }
+
+    @Override
+    protected void setClasses( IndexPermutation classes, int from, int to, List<E> dest )
+    {
+        MappedPermutation<E> view = this.asOwnView( dest );
+        if( view == null )
+        {
+            for( int idx = from; idx < to; ++idx )
+            {
+                dest.set( idx, this._distinctElements.get( classes.get( idx ) ) );
+            }
+        }
+        else if( view.getClasses() != classes )
+        {
+            view.getClasses().copyFrom( classes, from, to );
+        }
+    }
+
+    @Override
+    protected void storeClasses( IndexPermutation classes, List<E> dest, int offset, int stride )
+    {
+        for( int idx = 0, destIdx = offset; idx < classes.length(); ++idx, destIdx += stride )
+        {
+            dest.set( destIdx, this._distinctElements.get( classes.get( idx ) ) );
+        }
+    }
+
+    @Override
+    protected void getClasses( List<E> array, int offset, IndexPermutation classes )
+    {
+        MappedPermutation<E> view = this.asOwnView( array );
+        for( int idx = 0; idx < classes.length(); ++idx )
+        {
+            int clazz;
+            if( view == null )
+            {
+                Integer found = this._classesByElement.get( array.get( offset + idx ) );
+                clazz = checkClass( found == null ? -1 : found );
+            }
+            else
+            {
+                clazz = view.getClassIndex( offset + idx );
+            }
+            classes.set( idx, clazz );
+        }
+    }
+
+    private MappedPermutation<E> asOwnView( List<E> list )
+    {
+        MappedPermutation<E> result = null;
+        if( list instanceof MappedPermutation<?>
+            && ( (MappedPermutation<E>) list ).getDistinctElements() == this._distinctElements )
+        {
+            result = (MappedPermutation<E>) list;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2011, Stanislav Muhametsin. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package math.permutations.impl;
+
+import java.math.BigInteger;
+
+import math.permutations.CombinationGenerator;
+
+/**
+ * The generator of combinations of the multiset of some permutation generator. The combinations are computed as
+ * non-decreasing arrays of classes, using the multiplicities of the permutation generator, and the permutation
+ * generator maps the classes into the elements of the combination array. Thus this works for all array types supported
+ * by {@link AbstractPermutationGenerator}.
+ * 
+ * @author 2011 Stanislav Muhametsin
+ * @param <T> The type of the combination array.
+ * @see CombinationRanking
+ */
+public class MultisetCombinationGenerator<T> extends AbstractDerivedGenerator<T>
+    implements CombinationGenerator<T>
+{
+    private final CombinationRanking _ranking;
+
+    /**
+     * Creates a new generator for the combinations of the multiset of given generator.
+     * 
+     * @param generator The generator of the permutations. Its permutation arrays must be Java arrays.
+     * @param length The size of the combinations, that is, <code>k</code>.
+     * @exception IllegalArgumentException If the size is negative or greater than the length of the array of the
+     *                generator, or if the permutations of the generator are not Java arrays.
+     */
+    public MultisetCombinationGenerator( AbstractPermutationGenerator<T> generator, int length )
+    {
+        super( generator, length );
+        if( length < 0 || length > generator.getArrayLength() )
+        {
+            throw new IllegalArgumentException( "The size of the combinations must be between 0 and "
+                + generator.getArrayLength() + "." );
+        }
+        Class<?> arrayClass = generator.copyArray().getClass();
+        if( !arrayClass.isArray() )
+        {
+            throw new IllegalArgumentException( "The combinations of " + arrayClass.getName() + " are not supported." );
+        }
+        this._ranking = new CombinationRanking( generator.getMultiplicities(), length );
+    }
+
+    @Override
+    public BigInteger getTotal()
+    {
+        return this._ranking.getTotal();
+    }
+
+    @Override
+    public T combinationAt( BigInteger rank, T dest )
+    {
+        return this.arrayAt( rank, dest );
+    }
+
+    @Override
+    protected void unrank( BigInteger rank, IndexPermutation classes )
+    {
+        this._ranking.unrank( rank, classes );
+    }
+
+    @Override
+    protected BigInteger rank( IndexPermutation classes )
+    {
+        return this._ranking.rank( classes );
+    }
+
+    @Override
+    protected long rankAsLong( IndexPermutation classes )
+    {
+        return this._ranking.rankAsLong( classes );
+    }
+
+    @Override
+    protected AbstractPermutationIterator<T> createIterator( IndexPermutation classes, BigInteger left )
+    {
+        return new CombinationIterator<T>( this.getGenerator(), this._ranking, this.createArray( classes ), classes,
+            left );
+    }
+}
@@ -0,0 +1,514 @@
+/*
+ * Copyright (c) 2011, Stanislav Muhametsin. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package math.permutations.impl;
+
+import java.math.BigInteger;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import math.permutations.NecklaceGenerator;
+
+/**
+ * <p>
+ * The generator of necklaces and bracelets of the multiset of some permutation generator. The necklaces are generated
+ * with Sawada's algorithm for necklaces with fixed content, which extends prenecklaces one position at a time, keeping
+ * track of the length of the longest Lyndon prefix. The first position always has the smallest class, and two
+ * shortcuts keep the generation in constant amortized time: when only the smallest class remains, the prefix can not
+ * be completed into a necklace, and when only the largest class remains, the rest of the positions are filled
+ * directly and checked at once.
+ * </p>
+ * 
+ * <p>
+ * For bracelets, each necklace is additionally compared against the smallest rotation of its reversal, which takes
+ * <code>O(n)</code> time and no allocations, using the two-pointer minimal rotation algorithm.
+ * </p>
+ * 
+ * <p>
+ * The amounts of necklaces and bracelets are computed with Burnside's lemma. The amount of necklaces is
+ * <code>(1/n) &sum; &phi;(e) (n/e)! / &prod; (m_i/e)!</code>, where the sum is over the divisors <code>e</code> of the
+ * greatest common divisor of the multiplicities <code>m_i</code>. The amount of bracelets adds the arrangements fixed
+ * by the reflections to the amount of necklaces, and halves the sum.
+ * </p>
+ * 
+ * @author 2011 Stanislav Muhametsin
+ * @param <T> The type of the permutation array.
+ */
+public class MultisetNecklaceGenerator<T>
+    implements NecklaceGenerator<T>
+{
+    private final AbstractPermutationGenerator<T> _generator;
+    private final int _length;
+    private final int[] _multiplicities;
+    private final boolean _bracelets;
+    private final BigInteger _total;
+
+    /**
+     * Creates a new generator of the necklaces or bracelets of the multiset of given generator.
+     * 
+     * @param generator The generator of the permutations of the array.
+     * @param bracelets Whether to generate bracelets instead of necklaces.
+     */
+    public MultisetNecklaceGenerator( AbstractPermutationGenerator<T> generator, boolean bracelets )
+    {
+        this._generator = generator;
+        this._length = generator.getArrayLength();
+        this._multiplicities = generator.getMultiplicities();
+        this._bracelets = bracelets;
+        this._total = bracelets ? countBracelets( this._multiplicities, this._length ) : countNecklaces(
+            this._multiplicities, this._length );
+    }
+
+    @Override
+    public BigInteger getTotal()
+    {
+        return this._total;
+    }
+
+    @Override
+    public boolean isBracelets()
+    {
+        return this._bracelets;
+    }
+
+    @Override
+    public Iterator<T> iterator()
+    {
+        return new NecklaceIterator();
+    }
+
+    /**
+     * Computes the amount of necklaces of the multiset with given multiplicities.
+     * 
+     * @param multiplicities The multiplicities of the distinct elements.
+     * @param length The size of the multiset.
+     * @return The amount of necklaces.
+     */
+    public static BigInteger countNecklaces( int[] multiplicities, int length )
+    {
+        BigInteger result = BigInteger.ONE;
+        if( length > 0 )
+        {
+            int gcd = 0;
+            for( int multiplicity : multiplicities )
+            {
+                gcd = gcd( gcd, multiplicity );
+            }
+
+            // Each rotation by a multiple of n/e fixes the arrangements with period n/e
+            result = BigInteger.ZERO;
+            int[] parts = new int[multiplicities.length];
+            for( int e = 1; e <= gcd; ++e )
+            {
+                if( gcd % e == 0 )
+                {
+                    for( int idx = 0; idx < parts.length; ++idx )
+                    {
+                        parts[idx] = multiplicities[idx] / e;
+                    }
+                    result = result.add( BigInteger.valueOf( totient( e ) ).multiply( Combinatorics
+                        .multinomial( parts ) ) );
+                }
+            }
+            result = result.divide( BigInteger.valueOf( length ) );
+        }
+        return result;
+    }
+
+    /**
+     * Computes the amount of bracelets of the multiset with given multiplicities.
+     * 
+     * @param multiplicities The multiplicities of the distinct elements.
+     * @param length The size of the multiset.
+     * @return The amount of bracelets.
+     */
+    public static BigInteger countBracelets( int[] multiplicities, int length )
+    {
+        BigInteger result = BigInteger.ONE;
+        if( length > 0 )
+        {
+            int odd = 0;
+            int[] halves = new int[multiplicities.length];
+            for( int idx = 0; idx < multiplicities.length; ++idx )
+            {
+                odd += multiplicities[idx] % 2;
+                halves[idx] = multiplicities[idx] / 2;
+            }
+
+            // The sum of arrangements fixed by all n reflections
+            BigInteger reflections = BigInteger.ZERO;
+            if( length % 2 == 1 )
+            {
+                // Each reflection fixes one position, which must have the only class with odd multiplicity
+                if( odd == 1 )
+                {
+                    reflections = Combinatorics.multinomial( halves ).multiply( BigInteger.valueOf( length ) );
+                }
+            }
+            else
+            {
+                BigInteger fixed = BigInteger.ZERO;
+                if( odd == 0 )
+                {
+                    // Reflections through edges fix no positions
+                    fixed = Combinatorics.multinomial( halves );
+
+                    // Reflections through vertices fix two positions, both with the same class
+                    for( int idx = 0; idx < halves.length; ++idx )
+                    {
+                        if( halves[idx] > 0 )
+                        {
+                            --halves[idx];
+                            fixed = fixed.add( Combinatorics.multinomial( halves ) );
+                            ++halves[idx];
+                        }
+                    }
+                }
+                else if( odd == 2 )
+                {
+                    // Reflections through vertices fix two positions, with the two classes of odd multiplicity
+                    fixed = Combinatorics.multinomial( halves ).shiftLeft( 1 );
+                }
+                reflections = fixed.multiply( BigInteger.valueOf( length / 2 ) );
+            }
+            result = countNecklaces( multiplicities, length ).multiply( BigInteger.valueOf( length ) ).add(
+                reflections ).divide( BigInteger.valueOf( 2L * length ) );
+        }
+        return result;
+    }
+
+    private static int totient( int n )
+    {
+        int result = n;
+        int rest = n;
+        for( int prime = 2; prime * prime <= rest; ++prime )
+        {
+            if( rest % prime == 0 )
+            {
+                while( rest % prime == 0 )
+                {
+                    rest /= prime;
+                }
+                result -= result / prime;
+            }
+        }
+        if( rest > 1 )
+        {
+            result -= result / rest;
+        }
+        return result;
+    }
+
+    private static int gcd( int a, int b )
+    {
+        while( b != 0 )
+        {
+            int temp = a % b;
+            a = b;
+            b = temp;
+        }
+        return a;
+    }
+
+    /**
+     * The iterator over the necklaces. The state is the prefix of placed classes, the length of the longest Lyndon
+     * prefix for each prefix length, and the remaining amount of each class. After a necklace has been returned, the
+     * iterator backtracks from the position where the last filled run of the largest class starts.
+     */
+    private final class NecklaceIterator
+        implements Iterator<T>
+    {
+        private final int[] _counts;
+        private final int[] _periods;
+        private final int[] _reversed;
+        private final IndexPermutation _classes;
+        private final T _array;
+
+        /**
+         * The position, where the run of the largest class filled directly starts, or the length if there is no such
+         * run. Is <code>-1</code> when there are no more necklaces.
+         */
+        private int _depth;
+
+        /**
+         * The first position, which has changed since the previous necklace.
+         */
+        private int _changedFrom;
+
+        private boolean _isFirst;
+        private boolean _isReady;
+        private boolean _hasNext;
+
+        private NecklaceIterator()
+        {
+            MultisetNecklaceGenerator<T> outer = MultisetNecklaceGenerator.this;
+            this._counts = outer._multiplicities.clone();
+            this._periods = new int[outer._length + 1];
+            this._reversed = outer._bracelets ? new int[outer._length] : null;
+            this._classes = outer._generator.createFirstClasses();
+            this._array = outer._generator.createWorkingArray( this._classes );
+            this._changedFrom = 0;
+            this._isFirst = true;
+            this._isReady = false;
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            if( !this._isReady )
+            {
+                this._hasNext = this.findNext();
+                this._isReady = true;
+            }
+            return this._hasNext;
+        }
+
+        @Override
+        public T next()
+        {
+            if( !this.hasNext() )
+            {
+                throw new NoSuchElementException( "No more necklaces available." );
+            }
+            this._isReady = false;
+            return this._array;
+        }
+
+        /**
+         * Always throws {@link UnsupportedOperationException}.
+         * 
+         * @exception UnsupportedOperationException Always.
+         */
+        @Override
+        public void remove()
+        {
+            throw new UnsupportedOperationException( "Can not remove necklace." );
+        }
+
+        private boolean findNext()
+        {
+            int length = MultisetNecklaceGenerator.this._length;
+            int largest = this._counts.length - 1;
+            IndexPermutation classes = this._classes;
+            boolean result = false;
+            boolean descend = true;
+            int depth;
+            if( this._isFirst )
+            {
+                this._isFirst = false;
+                if( length == 0 )
+                {
+                    result = true;
+                    depth = 0;
+                }
+                else
+                {
+                    // The smallest rotation always starts with the smallest class
+                    this._periods[0] = 1;
+                    this.place( 0, 0 );
+                    depth = 1;
+                }
+            }
+            else if( this._depth > 0 )
+            {
+                depth = this._depth;
+                this._counts[largest] += length - depth;
+                descend = false;
+            }
+            else
+            {
+                depth = 0;
+            }
+
+            while( !result && depth > 0 )
+            {
+                if( descend )
+                {
+                    int period = this._periods[depth];
+                    if( depth == length )
+                    {
+                        result = length % period == 0 && this.isCanonical();
+                        descend = result;
+                    }
+                    else if( this._counts[largest] == length - depth )
+                    {
+                        this.fillLargest( depth, largest );
+                        result = this.isNecklace( depth, period, largest ) && this.isCanonical();
+                        if( !result )
+                        {
+                            this._counts[largest] += length - depth;
+                            descend = false;
+                        }
+                    }
+                    else if( this._counts[0] == length - depth )
+                    {
+                        // A necklace can not end with the smallest class, unless it has only one class
+                        descend = false;
+                    }
+                    else
+                    {
+                        int clazz = this.findAvailable( classes.get( depth - period ) );
+                        if( clazz <= largest )
+                        {
+                            this.place( depth, clazz );
+                            ++depth;
+                        }
+                        else
+                        {
+                            descend = false;
+                        }
+                    }
+                }
+                else
+                {
+                    int position = depth - 1;
+                    if( position == 0 )
+                    {
+                        depth = 0;
+                    }
+                    else
+                    {
+                        int previous = classes.get( position );
+                        ++this._counts[previous];
+                        int clazz = this.findAvailable( previous + 1 );
+                        if( clazz <= largest )
+                        {
+                            this.place( position, clazz );
+                            descend = true;
+                        }
+                        else
+                        {
+                            depth = position;
+                        }
+                    }
+                }
+            }
+
+            this._depth = result ? depth : -1;
+            if( result && this._changedFrom < length )
+            {
+                MultisetNecklaceGenerator.this._generator.setClasses( classes, this._changedFrom, length, this._array );
+                this._changedFrom = length;
+            }
+            return result;
+        }
+
+        /**
+         * Places given class at given position, and computes the length of the longest Lyndon prefix of the prefix
+         * ending at the position.
+         */
+        private void place( int position, int clazz )
+        {
+            int period = this._periods[position];
+            --this._counts[clazz];
+            this._periods[position + 1] = position > 0 && clazz == this._classes.get( position - period ) ? period
+                : position + 1;
+            this._classes.set( position, clazz );
+            this._changedFrom = Math.min( this._changedFrom, position );
+        }
+
+        private int findAvailable( int from )
+        {
+            int result = from;
+            while( result < this._counts.length && this._counts[result] == 0 )
+            {
+                ++result;
+            }
+            return result;
+        }
+
+        private void fillLargest( int from, int largest )
+        {
+            int length = MultisetNecklaceGenerator.this._length;
+            for( int idx = from; idx < length; ++idx )
+            {
+                this._classes.set( idx, largest );
+            }
+            this._counts[largest] = 0;
+            this._changedFrom = Math.min( this._changedFrom, from );
+        }
+
+        /**
+         * Checks whether the prenecklace with given period, followed by the run of the largest class starting from
+         * given position, is a necklace. The period stays the same as long as the run matches the classes one period
+         * before, and once the largest class is greater than the class one period before, the rest is a Lyndon word.
+         */
+        private boolean isNecklace( int from, int period, int largest )
+        {
+            int length = MultisetNecklaceGenerator.this._length;
+            int position = from;
+            while( position < length && this._classes.get( position - period ) == largest )
+            {
+                ++position;
+            }
+            return position < length || length % period == 0;
+        }
+
+        /**
+         * For bracelets, checks that the necklace is not greater than the smallest rotation of its reversal.
+         */
+        private boolean isCanonical()
+        {
+            boolean result = true;
+            int[] reversed = this._reversed;
+            if( reversed != null )
+            {
+                int length = reversed.length;
+                for( int idx = 0; idx < length; ++idx )
+                {
+                    reversed[idx] = this._classes.get( length - 1 - idx );
+                }
+
+                // The two-pointer minimal rotation algorithm
+                int first = 0;
+                int second = 1;
+                int matched = 0;
+                while( first < length && second < length && matched < length )
+                {
+                    int a = reversed[( first + matched ) % length];
+                    int b = reversed[( second + matched ) % length];
+                    if( a == b )
+                    {
+                        ++matched;
+                    }
+                    else
+                    {
+                        if( a > b )
+                        {
+                            first += matched + 1;
+                        }
+                        else
+                        {
+                            second += matched + 1;
+                        }
+                        if( first == second )
+                        {
+                            ++second;
+                        }
+                        matched = 0;
+                    }
+                }
+                int start = Math.min( first, second );
+
+                int diff = 0;
+                for( int idx = 0; diff == 0 && idx < length; ++idx )
+                {
+                    diff = this._classes.get( idx ) - reversed[( start + idx ) % length];
+                }
+                result = diff <= 0;
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,359 @@
+/*
+ * Copyright (c) 2011, Stanislav Muhametsin. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package math.permutations.impl;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.SplittableRandom;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import math.permutations.PermutationSampler;
+
+/**
+ * <p>
+ * The {@link PermutationSampler} for the multiset of some permutation generator. Each sample is drawn with
+ * Fisher-Yates shuffle over the classes of the first permutation, which makes each distinct permutation of the
+ * multiset equally probable, since each of them is produced by the same amount of permutations of the positions. The
+ * shuffle uses <code>n - 1</code> random integers and no allocations, and then the classes are stored into the
+ * destination array.
+ * </p>
+ * 
+ * <p>
+ * The streams use {@link SampleSpliterator}, which seeds the random of each block of
+ * {@link PermutationSampler#SAMPLES_PER_BLOCK} samples separately, and splits only at the boundaries of the blocks.
+ * </p>
+ * 
+ * <p>
+ * The distinct permutations are sampled by their ranks. Sorting the drawn ranks makes the duplicates adjacent, so
+ * they are removed in one pass and replaced by new ranks, and since the expected amount of duplicates is about
+ * <code>k<sup>2</sup> / 2N</code>, only few rounds are needed when <code>k</code> is much smaller than the total
+ * amount <code>N</code>. When <code>k</code> is more than <code>N / 2</code>, the ranks are selected with Knuth's
+ * selection sampling instead, which takes <code>O(N)</code>, that is, <code>O(k)</code> time.
+ * </p>
+ * 
+ * @author 2011 Stanislav Muhametsin
+ * @param <T> The type of the permutation array.
+ */
+public class MultisetPermutationSampler<T>
+    implements PermutationSampler<T>
+{
+    private final AbstractPermutationGenerator<T> _generator;
+    private final IndexPermutation _first;
+    private final IndexPermutation _classes;
+
+    /**
+     * Creates a new sampler of the permutations of the multiset of given generator.
+     * 
+     * @param generator The generator of the permutations of the array.
+     */
+    public MultisetPermutationSampler( AbstractPermutationGenerator<T> generator )
+    {
+        this._generator = generator;
+        this._first = generator.createFirstClasses();
+        this._classes = generator.createFirstClasses();
+    }
+
+    @Override
+    public T sample( SplittableRandom random, T dest )
+    {
+        if( dest == null )
+        {
+            dest = this._generator.copyArray();
+        }
+        else if( this._generator.getLength( dest ) != this._classes.length() )
+        {
+            throw new IllegalArgumentException( "The length of the array must be " + this._classes.length() + "." );
+        }
+
+        this.shuffle( random );
+        this._generator.setClasses( this._classes, 0, this._classes.length(), dest );
+        return dest;
+    }
+
+    @Override
+    public void sampleBlock( SplittableRandom random, T dest, int count )
+    {
+        this.sampleBlock( random, dest, count, false );
+    }
+
+    @Override
+    public void sampleBlock( SplittableRandom random, T dest, int count, boolean columnMajor )
+    {
+        int length = this._classes.length();
+        if( count < 0 || (long) count * length > this._generator.getLength( dest ) )
+        {
+            throw new IllegalArgumentException( "The array is too small for " + count + " permutations." );
+        }
+
+        int stride = columnMajor ? count : 1;
+        int rowStride = columnMajor ? 1 : length;
+        for( int idx = 0; idx < count; ++idx )
+        {
+            this.shuffle( random );
+            this._generator.storeClasses( this._classes, dest, idx * rowStride, stride );
+        }
+    }
+
+    @Override
+    public Stream<T> stream( long seed, long count )
+    {
+        return StreamSupport.stream( this.createSpliterator( seed, count ), false );
+    }
+
+    @Override
+    public Stream<T> parallelStream( long seed, long count )
+    {
+        return StreamSupport.stream( this.createSpliterator( seed, count ), true );
+    }
+
+    private SampleSpliterator<T> createSpliterator( long seed, long count )
+    {
+        if( count < 0L )
+        {
+            throw new IllegalArgumentException( "The amount of samples must not be negative." );
+        }
+        return new SampleSpliterator<T>( this._generator, seed, 0L, count );
+    }
+
+    @Override
+    public long[] sampleDistinctRanks( SplittableRandom random, int k, boolean sorted )
+    {
+        BigInteger bigTotal = this._generator.getTotal();
+        if( bigTotal.bitLength() >= Long.SIZE )
+        {
+            throw new ArithmeticException( "The total amount of permutations " + bigTotal
+                + " does not fit into long." );
+        }
+        checkDistinctCount( k, bigTotal );
+
+        long total = bigTotal.longValue();
+        long[] result = new long[k];
+        if( 2L * k > total )
+        {
+            // Selection sampling: select each rank with probability (needed / remaining)
+            int needed = k;
+            for( long rank = 0L; needed > 0; ++rank )
+            {
+                if( random.nextLong( total - rank ) < needed )
+                {
+                    result[k - needed] = rank;
+                    --needed;
+                }
+            }
+        }
+        else
+        {
+            int distinct = 0;
+            while( distinct < k )
+            {
+                for( int idx = distinct; idx < k; ++idx )
+                {
+                    result[idx] = random.nextLong( total );
+                }
+                Arrays.sort( result );
+                distinct = 1;
+                for( int idx = 1; idx < k; ++idx )
+                {
+                    if( result[idx] != result[distinct - 1] )
+                    {
+                        result[distinct] = result[idx];
+                        ++distinct;
+                    }
+                }
+            }
+        }
+
+        if( !sorted )
+        {
+            for( int idx = k - 1; idx > 0; --idx )
+            {
+                int other = random.nextInt( idx + 1 );
+                long temp = result[idx];
+                result[idx] = result[other];
+                result[other] = temp;
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Iterator<T> sampleDistinct( SplittableRandom random, int k, boolean lexicographic )
+    {
+        BigInteger total = this._generator.getTotal();
+        Iterator<T> result;
+        if( total.bitLength() < Long.SIZE )
+        {
+            result = new DistinctIterator( this.sampleDistinctRanks( random, k, lexicographic ), null );
+        }
+        else
+        {
+            checkDistinctCount( k, total );
+            result = new DistinctIterator( null, sampleDistinctBigRanks( random, k, lexicographic, total ) );
+        }
+        return result;
+    }
+
+    private static BigInteger[] sampleDistinctBigRanks( SplittableRandom random, int k, boolean sorted,
+        BigInteger total )
+    {
+        // k is always less than half of the total here, since the total does not fit into long
+        BigInteger[] result = new BigInteger[k];
+        int distinct = 0;
+        while( distinct < k )
+        {
+            for( int idx = distinct; idx < k; ++idx )
+            {
+                result[idx] = randomBelow( random, total );
+            }
+            Arrays.sort( result );
+            distinct = 1;
+            for( int idx = 1; idx < k; ++idx )
+            {
+                if( !result[idx].equals( result[distinct - 1] ) )
+                {
+                    result[distinct] = result[idx];
+                    ++distinct;
+                }
+            }
+        }
+
+        if( !sorted )
+        {
+            for( int idx = k - 1; idx > 0; --idx )
+            {
+                int other = random.nextInt( idx + 1 );
+                BigInteger temp = result[idx];
+                result[idx] = result[other];
+                result[other] = temp;
+            }
+        }
+        return result;
+    }
+
+    private static BigInteger randomBelow( SplittableRandom random, BigInteger bound )
+    {
+        int bits = bound.bitLength();
+        byte[] bytes = new byte[( bits + 7 ) / 8];
+        BigInteger result;
+        do
+        {
+            long word = 0L;
+            for( int idx = 0; idx < bytes.length; ++idx )
+            {
+                if( idx % 8 == 0 )
+                {
+                    word = random.nextLong();
+                }
+                bytes[idx] = (byte) word;
+                word >>>= 8;
+            }
+
+            // Mask the excess bits of the most significant byte, so that each try succeeds with probability over 1/2
+            bytes[0] &= (byte) ( 0xFF >>> ( bytes.length * 8 - bits ) );
+            result = new BigInteger( 1, bytes );
+        } while( result.compareTo( bound ) >= 0 );
+        return result;
+    }
+
+    private static void checkDistinctCount( int k, BigInteger total )
+    {
+        if( k < 0 || BigInteger.valueOf( k ).compareTo( total ) > 0 )
+        {
+            throw new IllegalArgumentException( "The amount of distinct permutations must be at least zero and at most "
+                + total + "." );
+        }
+    }
+
+    private void shuffle( SplittableRandom random )
+    {
+        IndexPermutation classes = this._classes;
+        int length = classes.length();
+        classes.copyFrom( this._first, 0, length );
+        for( int idx = length - 1; idx > 0; --idx )
+        {
+            classes.swap( idx, random.nextInt( idx + 1 ) );
+        }
+    }
+
+    /**
+     * The iterator over the permutations with given ranks, which are computed when the iterator reaches them.
+     */
+    private final class DistinctIterator
+        implements Iterator<T>
+    {
+        private final long[] _ranks;
+        private final BigInteger[] _bigRanks;
+        private final int _count;
+        private final IndexPermutation _rankClasses;
+        private T _array;
+        private int _index;
+
+        private DistinctIterator( long[] ranks, BigInteger[] bigRanks )
+        {
+            this._ranks = ranks;
+            this._bigRanks = bigRanks;
+            this._count = ranks == null ? bigRanks.length : ranks.length;
+            this._rankClasses = MultisetPermutationSampler.this._generator.createClasses();
+            this._array = null;
+            this._index = 0;
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            return this._index < this._count;
+        }
+
+        @Override
+        public T next()
+        {
+            if( !this.hasNext() )
+            {
+                throw new NoSuchElementException( "No more permutations available." );
+            }
+
+            AbstractPermutationGenerator<T> generator = MultisetPermutationSampler.this._generator;
+            if( this._array == null )
+            {
+                this._array = generator.copyArray();
+            }
+            if( this._ranks == null )
+            {
+                generator.getRanking().unrank( this._bigRanks[this._index], this._rankClasses );
+            }
+            else
+            {
+                generator.getRanking().unrank( this._ranks[this._index], this._rankClasses );
+            }
+            generator.setClasses( this._rankClasses, 0, this._rankClasses.length(), this._array );
+            ++this._index;
+            return this._array;
+        }
+
+        /**
+         * Always throws {@link UnsupportedOperationException}.
+         * 
+         * @exception UnsupportedOperationException Always.
+         */
+        @Override
+        public void remove()
+        {
+            throw new UnsupportedOperationException( "Can not remove permutation." );
+        }
+    }
+}
@@ -0,0 +1,341 @@
+/*
+ * Copyright (c) 2011, Stanislav Muhametsin. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package math.permutations.impl;
+
+import java.math.BigInteger;
+
+/**
+ * <p>
+ * This class maps lexicographic ranks of the permutations of a multiset to the permutations themselves, and back. The
+ * permutations are expressed as arrays of <i>classes</i>: the class of an element is the index of its value among the
+ * distinct values of the multiset, sorted in ascending order. Thus the first permutation of multiset with
+ * multiplicities <code>[2, 1]</code> is <code>[0, 0, 1]</code>, and the last one is <code>[1, 0, 0]</code>.
+ * </p>
+ * 
+ * <p>
+ * The amount of permutations of the remaining multiset is updated one position at a time: if there are
+ * <code>P</code> permutations of <code>r</code> remaining elements, then exactly <code>P * m_c / r</code> of them
+ * start with class <code>c</code>, where <code>m_c</code> is the remaining multiplicity of <code>c</code>. When the
+ * total amount of permutations fits into <code>long</code>, the computation is done using <code>long</code>s only.
+ * When computing the rank of a permutation, the amount of remaining elements with smaller class than the current one
+ * is queried from a Fenwick tree over remaining multiplicities, so the rank is computed in <code>O(n log s)</code>
+ * time, where <code>s</code> is the amount of distinct elements.
+ * </p>
+ * 
+ * <p>
+ * The instances of this class are immutable and thus thread-safe.
+ * </p>
+ * 
+ * @author 2011 Stanislav Muhametsin
+ */
+public final class MultisetRanking
+{
+    private final int[] _multiplicities;
+    private final int _length;
+    private final BigInteger _total;
+    private final boolean _isTotalLong;
+
+    /**
+     * Creates a new ranking for multiset with given multiplicities.
+     * 
+     * @param multiplicities The multiplicities of each distinct element, in ascending order of the elements. Will
+     *            <b>NOT</b> be copied.
+     * @param length The size of the multiset, that is, the sum of the multiplicities.
+     * @param total The amount of permutations of the multiset.
+     */
+    public MultisetRanking( int[] multiplicities, int length, BigInteger total )
+    {
+        this._multiplicities = multiplicities;
+        this._length = length;
+        this._total = total;
+        this._isTotalLong = total.bitLength() < Long.SIZE;
+    }
+
+    /**
+     * Returns the amount of permutations of the multiset.
+     * 
+     * @return The amount of permutations of the multiset.
+     */
+    public BigInteger getTotal()
+    {
+        return this._total;
+    }
+
+    /**
+     * Stores the classes of the permutation with given rank into given array.
+     * 
+     * @param rank The lexicographic rank of the permutation, starting from zero.
+     * @param classes The permutation where to store the classes of the permutation.
+     * @exception IllegalArgumentException If the rank is negative, or not less than the total amount of permutations.
+     */
+    public void unrank( BigInteger rank, IndexPermutation classes )
+    {
+        this.checkRank( rank );
+        if( this._isTotalLong )
+        {
+            this.doUnrank( rank.longValue(), classes );
+        }
+        else
+        {
+            this.doUnrank( rank, classes );
+        }
+    }
+
+    /**
+     * Stores the classes of the permutation with given rank into given array, without allocating a
+     * {@link BigInteger}.
+     * 
+     * @param rank The lexicographic rank of the permutation, starting from zero.
+     * @param classes The permutation where to store the classes of the permutation.
+     * @exception IllegalArgumentException If the rank is negative, or not less than the total amount of permutations.
+     * @exception ArithmeticException If the total amount of permutations does not fit into <code>long</code>.
+     */
+    public void unrank( long rank, IndexPermutation classes )
+    {
+        this.checkTotalIsLong();
+        if( rank < 0L || rank >= this._total.longValue() )
+        {
+            throw new IllegalArgumentException( "The rank " + rank + " must be at least zero and less than "
+                + this._total + "." );
+        }
+        this.doUnrank( rank, classes );
+    }
+
+    /**
+     * Checks that given rank is between zero (inclusive) and total amount of permutations (exclusive).
+     * 
+     * @param rank The rank to check.
+     * @exception IllegalArgumentException If the rank is out of bounds.
+     */
+    public void checkRank( BigInteger rank )
+    {
+        if( rank.signum() < 0 || rank.compareTo( this._total ) >= 0 )
+        {
+            throw new IllegalArgumentException( "The rank " + rank + " must be at least zero and less than "
+                + this._total + "." );
+        }
+    }
+
+    /**
+     * Computes the lexicographic rank of the permutation with given classes.
+     * 
+     * @param classes The classes of the permutation.
+     * @return The lexicographic rank of the permutation.
+     * @exception IllegalArgumentException If the given classes are not a permutation of the multiset.
+     */
+    public BigInteger rank( IndexPermutation classes )
+    {
+        int[] counts = new int[this._multiplicities.length];
+        int[] tree = new int[this._multiplicities.length + 1];
+        return this._isTotalLong ? BigInteger.valueOf( this.doRank( classes, counts, tree ) ) : this.doRank( classes,
+            counts, tree, this._total );
+    }
+
+    /**
+     * Computes the lexicographic rank of the permutation with given classes as <code>long</code>.
+     * 
+     * @param classes The classes of the permutation.
+     * @return The lexicographic rank of the permutation.
+     * @exception IllegalArgumentException If the given classes are not a permutation of the multiset.
+     * @exception ArithmeticException If the total amount of permutations does not fit into <code>long</code>.
+     */
+    public long rankAsLong( IndexPermutation classes )
+    {
+        this.checkTotalIsLong();
+        return this.doRank( classes, new int[this._multiplicities.length], new int[this._multiplicities.length + 1] );
+    }
+
+    /**
+     * Computes the lexicographic rank of the permutation with given classes as <code>long</code>, using given
+     * temporary arrays. This is useful when ranking many permutations at once.
+     * 
+     * @param classes The classes of the permutation.
+     * @param counts The temporary array, with the length of at least the amount of distinct elements.
+     * @param tree The temporary array, with the length of at least the amount of distinct elements plus one.
+     * @return The lexicographic rank of the permutation.
+     * @exception IllegalArgumentException If the given classes are not a permutation of the multiset.
+     * @exception ArithmeticException If the total amount of permutations does not fit into <code>long</code>.
+     */
+    public long rankAsLong( IndexPermutation classes, int[] counts, int[] tree )
+    {
+        this.checkTotalIsLong();
+        return this.doRank( classes, counts, tree );
+    }
+
+    private void checkTotalIsLong()
+    {
+        if( !this._isTotalLong )
+        {
+            throw new ArithmeticException( "The total amount of permutations " + this._total
+                + " does not fit into long." );
+        }
+    }
+
+    private void initRemaining( int[] counts, int[] tree )
+    {
+        int distinct = this._multiplicities.length;
+        System.arraycopy( this._multiplicities, 0, counts, 0, distinct );
+        System.arraycopy( this._multiplicities, 0, tree, 1, distinct );
+        tree[0] = 0;
+        for( int idx = 1; idx <= distinct; ++idx )
+        {
+            int parent = idx + ( idx & -idx );
+            if( parent <= distinct )
+            {
+                tree[parent] += tree[idx];
+            }
+        }
+    }
+
+    /**
+     * Returns the amount of remaining elements, which have smaller class than the given one, and removes one element
+     * of given class from the remaining elements.
+     */
+    private int removeClass( int clazz, int[] counts, int[] tree )
+    {
+        if( clazz < 0 || clazz >= counts.length || counts[clazz] == 0 )
+        {
+            throw new IllegalArgumentException( "The given array is not a permutation of the multiset." );
+        }
+        --counts[clazz];
+
+        int smaller = 0;
+        for( int idx = clazz; idx > 0; idx -= idx & -idx )
+        {
+            smaller += tree[idx];
+        }
+        for( int idx = clazz + 1; idx < tree.length; idx += idx & -idx )
+        {
+            --tree[idx];
+        }
+        return smaller;
+    }
+
+    private long doRank( IndexPermutation classes, int[] counts, int[] tree )
+    {
+        this.initRemaining( counts, tree );
+        long perms = this._total.longValue();
+        long rank = 0L;
+        for( int pos = 0; pos < this._length; ++pos )
+        {
+            int remaining = this._length - pos;
+            int clazz = classes.get( pos );
+            int smaller = this.removeClass( clazz, counts, tree );
+            if( smaller > 0 )
+            {
+                rank += multiplyDivide( perms, smaller, remaining );
+            }
+            perms = multiplyDivide( perms, counts[clazz] + 1, remaining );
+        }
+        return rank;
+    }
+
+    private BigInteger doRank( IndexPermutation classes, int[] counts, int[] tree, BigInteger total )
+    {
+        this.initRemaining( counts, tree );
+        BigInteger perms = total;
+        BigInteger rank = BigInteger.ZERO;
+        for( int pos = 0; pos < this._length; ++pos )
+        {
+            BigInteger remaining = BigInteger.valueOf( this._length - pos );
+            int clazz = classes.get( pos );
+            int smaller = this.removeClass( clazz, counts, tree );
+            if( smaller > 0 )
+            {
+                rank = rank.add( perms.multiply( BigInteger.valueOf( smaller ) ).divide( remaining ) );
+            }
+            perms = perms.multiply( BigInteger.valueOf( counts[clazz] + 1 ) ).divide( remaining );
+        }
+        return rank;
+    }
+
+    private void doUnrank( long rank, IndexPermutation classes )
+    {
+        int[] counts = this._multiplicities.clone();
+        long perms = this._total.longValue();
+        for( int pos = 0; pos < this._length; ++pos )
+        {
+            int remaining = this._length - pos;
+            int clazz = 0;
+            while( true )
+            {
+                int count = counts[clazz];
+                if( count > 0 )
+                {
+                    long withClass = multiplyDivide( perms, count, remaining );
+                    if( rank < withClass )
+                    {
+                        perms = withClass;
+                        break;
+                    }
+                    rank -= withClass;
+                }
+                ++clazz;
+            }
+            --counts[clazz];
+            classes.set( pos, clazz );
+        }
+    }
+
+    private void doUnrank( BigInteger rank, IndexPermutation classes )
+    {
+        int[] counts = this._multiplicities.clone();
+        BigInteger perms = this._total;
+        for( int pos = 0; pos < this._length; ++pos )
+        {
+            BigInteger remaining = BigInteger.valueOf( this._length - pos );
+            int clazz = 0;
+            while( true )
+            {
+                int count = counts[clazz];
+                if( count > 0 )
+                {
+                    BigInteger withClass = perms.multiply( BigInteger.valueOf( count ) ).divide( remaining );
+                    if( rank.compareTo( withClass ) < 0 )
+                    {
+                        perms = withClass;
+                        break;
+                    }
+                    rank = rank.subtract( withClass );
+                }
+                ++clazz;
+            }
+            --counts[clazz];
+            classes.set( pos, clazz );
+        }
+    }
+
+    /**
+     * Computes <code>value * multiplier / divisor</code> without overflowing, when the result is known to be an
+     * integer not greater than <code>value</code>. Since <code>divisor / gcd</code> and <code>multiplier / gcd</code>
+     * are co-prime, <code>divisor / gcd</code> must divide <code>value</code>.
+     */
+    static long multiplyDivide( long value, int multiplier, int divisor )
+    {
+        int gcd = gcd( multiplier, divisor );
+        return ( value / ( divisor / gcd ) ) * ( multiplier / gcd );
+    }
+
+    private static int gcd( int a, int b )
+    {
+        while( b != 0 )
+        {
+            int temp = a % b;
+            a = b;
+            b = temp;
+        }
+        return a;
+    }
+}
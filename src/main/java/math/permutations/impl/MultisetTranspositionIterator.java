@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2011, Stanislav Muhametsin. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package math.permutations.impl;
+
+import java.math.BigInteger;
+
+import math.permutations.PermutationChangeListener;
+import math.permutations.PermutationOrder;
+
+/**
+ * <p>
+ * The iterator producing permutations of a multiset, where each step swaps exactly two elements. The order is the
+ * iterative version of the following recursion: to list all permutations of the first <code>k</code> positions, put
+ * each distinct class at position <code>k - 1</code> in turn, and for each of them list all permutations of the first
+ * <code>k - 1</code> positions. The next class is always brought to position <code>k - 1</code> by swapping it with
+ * some position among the first <code>k - 1</code> positions.
+ * </p>
+ * 
+ * <p>
+ * Since the elements of the first <code>k</code> positions stay the same while their permutations are listed, every
+ * class not yet put to position <code>k - 1</code> is always found among the first <code>k - 1</code> positions. The
+ * classes are put to position <code>k - 1</code> in ascending order, cyclically starting from the class that was there
+ * when the listing started.
+ * </p>
+ * 
+ * @author 2011 Stanislav Muhametsin
+ * @param <T> The type of the permutation array.
+ */
+public class MultisetTranspositionIterator<T> extends TranspositionPermutationIterator<T>
+{
+    private final int _distinctCount;
+
+    /**
+     * For each <code>k</code>, the class that was at position <code>k - 1</code> when the listing of the permutations
+     * of the first <code>k</code> positions started.
+     */
+    private final int[] _firstClasses;
+
+    public MultisetTranspositionIterator( AbstractPermutationGenerator<T> generator, T array,
+        IndexPermutation classes, BigInteger total, PermutationChangeListener listener )
+    {
+        super( generator, array, classes, total, listener );
+        this._distinctCount = generator.getMultiplicities().length;
+        this._firstClasses = new int[classes.length() + 1];
+        this.restartLevels( classes.length() + 1 );
+    }
+
+    @Override
+    protected PermutationOrder getOrder()
+    {
+        return PermutationOrder.MULTISET_TRANSPOSITION;
+    }
+
+    @Override
+    protected int[] getOrderState()
+    {
+        return this._firstClasses.clone();
+    }
+
+    @Override
+    protected void setOrderState( int[] state )
+    {
+        checkOrderState( state, this._firstClasses.length );
+        System.arraycopy( state, 0, this._firstClasses, 0, state.length );
+    }
+
+    @Override
+    protected void makeNextPermutation( T array )
+    {
+        IndexPermutation classes = this.getClasses();
+        int distinct = this._distinctCount;
+        for( int level = 2; level <= classes.length(); ++level )
+        {
+            int first = this._firstClasses[level];
+            int currentKey = ( classes.get( level - 1 ) - first + distinct ) % distinct;
+
+            // Find the position of the class with smallest key greater than key of current class
+            int bestKey = distinct;
+            int bestPosition = -1;
+            for( int position = 0; position < level - 1; ++position )
+            {
+                int key = ( classes.get( position ) - first + distinct ) % distinct;
+                if( key > currentKey && key < bestKey )
+                {
+                    bestKey = key;
+                    bestPosition = position;
+                }
+            }
+
+            if( bestPosition >= 0 )
+            {
+                this.swap( bestPosition, level - 1, array );
+                this.restartLevels( level );
+                break;
+            }
+        }
+    }
+
+    private void restartLevels( int level )
+    {
+        IndexPermutation classes = this.getClasses();
+        for( int idx = 2; idx < level; ++idx )
+        {
+            this._firstClasses[idx] = classes.get( idx - 1 );
+        }
+    }
+}
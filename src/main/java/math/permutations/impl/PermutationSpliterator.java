@@ -0,0 +1,193 @@
+/*
+ * Copyright (c) 2011, Stanislav Muhametsin. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package math.permutations.impl;
+
+import java.math.BigInteger;
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+import math.permutations.PermutationGenerator;
+import math.permutations.RankedPermutationGenerator;
+
+/**
+ * <p>
+ * The {@link Spliterator} over a range of lexicographic ranks of some {@link PermutationGenerator}, or of some other
+ * {@link RankRange}. Splitting happens by halving the remaining range of ranks, and the permutation at the middle rank
+ * is computed directly using {@link RankedPermutationGenerator#iterator(BigInteger, BigInteger)}. Each spliterator has
+ * its own working array, which is created lazily when the first permutation is requested.
+ * </p>
+ * 
+ * <p>
+ * Just like with iterators, the permutation given to action is the working array of this spliterator, which will be
+ * modified when the next permutation is given. The array should be copied if it needs to be stored.
+ * </p>
+ * 
+ * @author 2011 Stanislav Muhametsin
+ * @param <T> The type of the permutation array.
+ */
+public class PermutationSpliterator<T>
+    implements Spliterator<T>
+{
+    /**
+     * The sequence of arrays, which can be iterated starting from any rank.
+     * 
+     * @param <T> The type of the arrays.
+     */
+    public static interface RankRange<T>
+    {
+        /**
+         * Returns the total amount of arrays.
+         * 
+         * @return The total amount of arrays.
+         */
+        public BigInteger getTotal();
+
+        /**
+         * Returns the iterator over the arrays with ranks from <code>fromRank</code> (inclusive) to
+         * <code>toRank</code> (exclusive).
+         * 
+         * @param fromRank The rank of the first array to return.
+         * @param toRank The rank after the last array to return.
+         * @return The iterator over given range of arrays.
+         */
+        public Iterator<T> iterator( BigInteger fromRank, BigInteger toRank );
+    }
+
+    private static final BigInteger TWO = BigInteger.valueOf( 2L );
+
+    private final RankRange<T> _source;
+
+    private final int _characteristics;
+
+    /**
+     * The rank, where the current iterator starts, or will start.
+     */
+    private BigInteger _from;
+
+    /**
+     * The rank after the last permutation of this spliterator.
+     */
+    private final BigInteger _to;
+
+    /**
+     * The iterator over range <code>[_from, _to)</code>, or <code>null</code> if it has not been yet created.
+     */
+    private Iterator<T> _iterator;
+
+    /**
+     * The amount of permutations consumed from current iterator.
+     */
+    private long _consumed;
+
+    public PermutationSpliterator( final RankedPermutationGenerator<T> generator, BigInteger from, BigInteger to )
+    {
+        this( new RankRange<T>()
+        {
+            @Override
+            public BigInteger getTotal()
+            {
+                return generator.getTotal();
+            }
+
+            @Override
+            public Iterator<T> iterator( BigInteger fromRank, BigInteger toRank )
+            {
+                return generator.iterator( fromRank, toRank );
+            }
+        }, from, to );
+    }
+
+    public PermutationSpliterator( RankRange<T> source, BigInteger from, BigInteger to )
+    {
+        this._source = source;
+        this._from = from;
+        this._to = to;
+        this._characteristics = ORDERED | NONNULL | IMMUTABLE
+            | ( source.getTotal().bitLength() < Long.SIZE ? SIZED | SUBSIZED : 0 );
+    }
+
+    @Override
+    public boolean tryAdvance( Consumer<? super T> action )
+    {
+        Iterator<T> iter = this.getIterator();
+        boolean result = iter.hasNext();
+        if( result )
+        {
+            action.accept( iter.next() );
+            ++this._consumed;
+        }
+        return result;
+    }
+
+    @Override
+    public void forEachRemaining( Consumer<? super T> action )
+    {
+        Iterator<T> iter = this.getIterator();
+        long consumed = this._consumed;
+        while( iter.hasNext() )
+        {
+            action.accept( iter.next() );
+            ++consumed;
+        }
+        this._consumed = consumed;
+    }
+
+    @Override
+    public Spliterator<T> trySplit()
+    {
+        BigInteger current = this.getCurrent();
+        BigInteger size = this._to.subtract( current );
+        Spliterator<T> result = null;
+        if( size.compareTo( TWO ) >= 0 )
+        {
+            BigInteger middle = current.add( size.shiftRight( 1 ) );
+            result = new PermutationSpliterator<T>( this._source, current, middle );
+            this._from = middle;
+            this._iterator = null;
+            this._consumed = 0L;
+        }
+        return result;
+    }
+
+    @Override
+    public long estimateSize()
+    {
+        BigInteger size = this._to.subtract( this.getCurrent() );
+        return size.bitLength() < Long.SIZE ? size.longValue() : Long.MAX_VALUE;
+    }
+
+    @Override
+    public int characteristics()
+    {
+        return this._characteristics;
+    }
+
+    private BigInteger getCurrent()
+    {
+        return this._consumed == 0L ? this._from : this._from.add( BigInteger.valueOf( this._consumed ) );
+    }
+
+    private Iterator<T> getIterator()
+    {
+        Iterator<T> result = this._iterator;
+        if( result == null )
+        {
+            result = this._source.iterator( this._from, this._to );
+            this._iterator = result;
+        }
+        return result;
+    }
+}
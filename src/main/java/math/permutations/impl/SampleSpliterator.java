@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) 2011, Stanislav Muhametsin. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package math.permutations.impl;
+
+import java.util.SplittableRandom;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+import math.permutations.PermutationSampler;
+
+/**
+ * <p>
+ * The {@link Spliterator} over a range of the samples of {@link MultisetPermutationSampler}. The samples are divided
+ * into blocks of {@link PermutationSampler#SAMPLES_PER_BLOCK} samples, and the samples of each block are drawn from
+ * a {@link SplittableRandom}, whose seed is computed from the seed of the stream and the index of the block. Splitting
+ * happens only at the boundaries of the blocks, by halving the remaining blocks, so each sample is the same no matter
+ * how the range is split.
+ * </p>
+ * 
+ * <p>
+ * When splitting in the middle of a block, the returned spliterator continues the current block with the current
+ * random and working array, and this spliterator starts from the next boundary with its own random and working array.
+ * </p>
+ * 
+ * @author 2011 Stanislav Muhametsin
+ * @param <T> The type of the permutation array.
+ */
+public class SampleSpliterator<T>
+    implements Spliterator<T>
+{
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    private final AbstractPermutationGenerator<T> _generator;
+    private final long _seed;
+
+    /**
+     * The index of the next sample.
+     */
+    private long _index;
+
+    /**
+     * The index after the last sample of this spliterator.
+     */
+    private final long _to;
+
+    /**
+     * The sampler, or <code>null</code> if it has not been yet created.
+     */
+    private MultisetPermutationSampler<T> _sampler;
+
+    /**
+     * The random of the current block, or <code>null</code> if the next sample starts a new block.
+     */
+    private SplittableRandom _random;
+
+    /**
+     * The working array, or <code>null</code> if it has not been yet created.
+     */
+    private T _array;
+
+    public SampleSpliterator( AbstractPermutationGenerator<T> generator, long seed, long from, long to )
+    {
+        this( generator, seed, from, to, null, null, null );
+    }
+
+    private SampleSpliterator( AbstractPermutationGenerator<T> generator, long seed, long from, long to,
+        MultisetPermutationSampler<T> sampler, SplittableRandom random, T array )
+    {
+        this._generator = generator;
+        this._seed = seed;
+        this._index = from;
+        this._to = to;
+        this._sampler = sampler;
+        this._random = random;
+        this._array = array;
+    }
+
+    /**
+     * Creates the random for given block of samples. The seed of the block is computed like the seeds of the
+     * {@link SplittableRandom} instances, by mixing the seed of the stream advanced by the index of the block.
+     * 
+     * @param seed The seed of the stream.
+     * @param block The index of the block.
+     * @return The random for the samples of given block.
+     */
+    public static SplittableRandom createBlockRandom( long seed, long block )
+    {
+        long z = seed + ( block + 1L ) * GOLDEN_GAMMA;
+        z = ( z ^ ( z >>> 30 ) ) * 0xBF58476D1CE4E5B9L;
+        z = ( z ^ ( z >>> 27 ) ) * 0x94D049BB133111EBL;
+        return new SplittableRandom( z ^ ( z >>> 31 ) );
+    }
+
+    @Override
+    public boolean tryAdvance( Consumer<? super T> action )
+    {
+        boolean result = this._index < this._to;
+        if( result )
+        {
+            action.accept( this.sampleNext() );
+        }
+        return result;
+    }
+
+    @Override
+    public void forEachRemaining( Consumer<? super T> action )
+    {
+        while( this._index < this._to )
+        {
+            action.accept( this.sampleNext() );
+        }
+    }
+
+    @Override
+    public Spliterator<T> trySplit()
+    {
+        long firstBlock = this._index / PermutationSampler.SAMPLES_PER_BLOCK;
+        long lastBlock = ( this._to - 1L ) / PermutationSampler.SAMPLES_PER_BLOCK;
+        Spliterator<T> result = null;
+        if( this._index < this._to && lastBlock > firstBlock )
+        {
+            long middle = ( firstBlock + ( lastBlock - firstBlock + 1L ) / 2L ) * PermutationSampler.SAMPLES_PER_BLOCK;
+            result = new SampleSpliterator<T>( this._generator, this._seed, this._index, middle, this._sampler,
+                this._random, this._array );
+            this._index = middle;
+            this._sampler = null;
+            this._random = null;
+            this._array = null;
+        }
+        return result;
+    }
+
+    @Override
+    public long estimateSize()
+    {
+        return this._to - this._index;
+    }
+
+    @Override
+    public int characteristics()
+    {
+        return ORDERED | NONNULL | IMMUTABLE | SIZED | SUBSIZED;
+    }
+
+    private T sampleNext()
+    {
+        long index = this._index;
+        if( this._random == null || index % PermutationSampler.SAMPLES_PER_BLOCK == 0L )
+        {
+            this._random = createBlockRandom( this._seed, index / PermutationSampler.SAMPLES_PER_BLOCK );
+        }
+        if( this._sampler == null )
+        {
+            this._sampler = new MultisetPermutationSampler<T>( this._generator );
+        }
+        this._array = this._sampler.sample( this._random, this._array );
+        this._index = index + 1L;
+        return this._array;
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2011, Stanislav Muhametsin. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package math.permutations.impl;
+
+import java.math.BigInteger;
+
+import math.permutations.PermutationChangeListener;
+
+/**
+ * The base class for iterators of minimal-change orders, where each step swaps exactly two elements. The swap is done
+ * to the {@link IndexPermutation}, and only the two swapped positions are mapped to the elements of the permutation
+ * array.
+ * 
+ * @author 2011 Stanislav Muhametsin
+ * @param <T> The type of the permutation array.
+ */
+public abstract class TranspositionPermutationIterator<T> extends AbstractPermutationIterator<T>
+{
+    private final PermutationChangeListener _listener;
+
+    protected TranspositionPermutationIterator( AbstractPermutationGenerator<T> generator, T array,
+        IndexPermutation classes, BigInteger total, PermutationChangeListener listener )
+    {
+        super( generator, array, classes, total );
+        this._listener = listener;
+    }
+
+    /**
+     * Swaps the elements at given positions of the classes and of the permutation array, and notifies the listener, if
+     * there is one.
+     * 
+     * @param first The first position.
+     * @param second The second position.
+     * @param array The permutation array.
+     */
+    protected void swap( int first, int second, T array )
+    {
+        IndexPermutation classes = this.getClasses();
+        classes.swap( first, second );
+        this.getGenerator().setClasses( classes, first, first + 1, array );
+        this.getGenerator().setClasses( classes, second, second + 1, array );
+        if( this._listener != null )
+        {
+            this._listener.onSwap( Math.min( first, second ), Math.max( first, second ) );
+        }
+    }
+}
@@ -0,0 +1,282 @@
+/*
+ * Copyright (c) 2011, Stanislav Muhametsin. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package math.permutations.io;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+import math.permutations.PermutationCheckpoint;
+import math.permutations.PermutationGenerator;
+import math.permutations.PermutationIterator;
+import math.permutations.RankedPermutationGenerator;
+
+/**
+ * <p>
+ * The {@link PermutationIterator}, which periodically writes the {@link PermutationCheckpoint} of another iterator
+ * into a file, so that a long-running enumeration can be resumed after a crash or a restart using
+ * {@link #resume(PermutationGenerator, BigInteger, BigInteger, Path, long)}. The checkpoint is written before
+ * advancing the iterator, so it never skips the permutation returned last, which may still be under processing.
+ * Thus, after resuming, at most the permutations returned after the last checkpoint are processed again. The last
+ * checkpoint is written when the iterator is found to be exhausted, so resuming a completed enumeration produces no
+ * permutations.
+ * </p>
+ * 
+ * <p>
+ * The file is written atomically: the checkpoint is first written and synced to a temporary file in the same
+ * directory, which then replaces the checkpoint file using an atomic move. Thus the checkpoint file always contains
+ * either the previous or the new checkpoint, even if the process crashes while writing.
+ * </p>
+ * 
+ * <p>
+ * For parallel enumerations, the ranks should be split into shards, and each shard should be enumerated with its own
+ * iterator and its own checkpoint file, since the checkpoint of a lexicographic iterator of a range of ranks contains
+ * the end of the range.
+ * </p>
+ * 
+ * @author 2011 Stanislav Muhametsin
+ * @param <T> The type of the permutation array.
+ */
+public class CheckpointingIterator<T>
+    implements PermutationIterator<T>
+{
+    private final PermutationIterator<T> _iterator;
+    private final Path _path;
+    private final long _interval;
+    private long _sinceCheckpoint;
+    private boolean _exhaustedSaved;
+
+    /**
+     * Creates a new {@link CheckpointingIterator}.
+     * 
+     * @param iterator The iterator to checkpoint.
+     * @param path The path of the checkpoint file.
+     * @param interval The amount of permutations between two checkpoints.
+     * @exception IllegalArgumentException If the interval is not positive.
+     */
+    public CheckpointingIterator( PermutationIterator<T> iterator, Path path, long interval )
+    {
+        if( interval <= 0L )
+        {
+            throw new IllegalArgumentException( "The checkpoint interval must be positive." );
+        }
+        this._iterator = iterator;
+        this._path = path;
+        this._interval = interval;
+        this._sinceCheckpoint = 0L;
+        this._exhaustedSaved = false;
+    }
+
+    /**
+     * Creates an iterator over given range of lexicographic ranks, which writes checkpoints into given file. If the
+     * file exists, the iterator continues from the checkpoint in the file, instead of starting from the beginning of
+     * the range.
+     * 
+     * @param generator The permutation generator.
+     * @param fromRank The rank of the first permutation, when starting from the beginning.
+     * @param toRank The rank after the last permutation, when starting from the beginning.
+     * @param path The path of the checkpoint file.
+     * @param interval The amount of permutations between two checkpoints.
+     * @return The iterator writing checkpoints into given file.
+     * @exception IOException If the checkpoint file exists, but can not be read.
+     * @exception IllegalArgumentException If the range is not valid, the checkpoint in the file is not valid for the
+     *                given generator, or the interval is not positive.
+     */
+    public static <T> CheckpointingIterator<T> resume( RankedPermutationGenerator<T> generator, BigInteger fromRank,
+        BigInteger toRank, Path path, long interval ) throws IOException
+    {
+        PermutationIterator<T> iterator;
+        if( Files.exists( path ) )
+        {
+            iterator = generator.iterator( load( path ) );
+        }
+        else
+        {
+            iterator = generator.iterator( fromRank, toRank );
+        }
+        return new CheckpointingIterator<T>( iterator, path, interval );
+    }
+
+    /**
+     * Writes given checkpoint atomically into given file.
+     * 
+     * @param checkpoint The checkpoint.
+     * @param path The path of the checkpoint file.
+     * @exception IOException If writing the file fails.
+     */
+    public static void save( PermutationCheckpoint checkpoint, Path path ) throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream( bytes );
+        checkpoint.writeTo( output );
+        output.flush();
+
+        Path temporary = path.resolveSibling( path.getFileName() + ".tmp" );
+        FileChannel channel = FileChannel.open( temporary, StandardOpenOption.CREATE,
+            StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE );
+        try
+        {
+            ByteBuffer buffer = ByteBuffer.wrap( bytes.toByteArray() );
+            while( buffer.hasRemaining() )
+            {
+                channel.write( buffer );
+            }
+            channel.force( true );
+        }
+        finally
+        {
+            channel.close();
+        }
+        Files.move( temporary, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING );
+    }
+
+    /**
+     * Reads the checkpoint from given file.
+     * 
+     * @param path The path of the checkpoint file.
+     * @return The checkpoint.
+     * @exception IOException If reading the file fails, or the file does not contain a checkpoint.
+     */
+    public static PermutationCheckpoint load( Path path ) throws IOException
+    {
+        // The arrays of the checkpoint can not hold more integers than the file does
+        int maxLength = (int) Math.min( Integer.MAX_VALUE, Files.size( path ) / Integer.BYTES );
+        InputStream input = Files.newInputStream( path );
+        PermutationCheckpoint result;
+        try
+        {
+            result = PermutationCheckpoint.readFrom( new DataInputStream( input ), maxLength );
+        }
+        finally
+        {
+            input.close();
+        }
+        return result;
+    }
+
+    /**
+     * Writes the checkpoint of the underlying iterator into the checkpoint file immediately.
+     * 
+     * @exception IOException If writing the file fails.
+     */
+    public void saveCheckpoint() throws IOException
+    {
+        save( this._iterator.checkpoint(), this._path );
+        this._sinceCheckpoint = 0L;
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @exception UncheckedIOException If writing the last checkpoint fails.
+     */
+    @Override
+    public boolean hasNext()
+    {
+        boolean result = this._iterator.hasNext();
+        if( !result && !this._exhaustedSaved )
+        {
+            this.saveUnchecked();
+            this._exhaustedSaved = true;
+        }
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @exception UncheckedIOException If writing the checkpoint fails.
+     */
+    @Override
+    public T next()
+    {
+        this.checkpointIfDue();
+        T result = this._iterator.next();
+        ++this._sinceCheckpoint;
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @exception UncheckedIOException If writing the checkpoint fails.
+     */
+    @Override
+    public int fillBlock( T dest, int maxCount )
+    {
+        return this.fillBlock( dest, maxCount, false );
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @exception UncheckedIOException If writing the checkpoint fails.
+     */
+    @Override
+    public int fillBlock( T dest, int maxCount, boolean columnMajor )
+    {
+        this.checkpointIfDue();
+        int result = this._iterator.fillBlock( dest, maxCount, columnMajor );
+        this._sinceCheckpoint += result;
+        return result;
+    }
+
+    @Override
+    public PermutationCheckpoint checkpoint()
+    {
+        return this._iterator.checkpoint();
+    }
+
+    /**
+     * Always throws {@link UnsupportedOperationException}.
+     * 
+     * @exception UnsupportedOperationException Always.
+     */
+    @Override
+    public void remove()
+    {
+        throw new UnsupportedOperationException( "Can not remove permutation." );
+    }
+
+    private void checkpointIfDue()
+    {
+        if( this._sinceCheckpoint >= this._interval )
+        {
+            this.saveUnchecked();
+        }
+    }
+
+    private void saveUnchecked()
+    {
+        try
+        {
+            this.saveCheckpoint();
+        }
+        catch( IOException ioe )
+        {
+            throw new UncheckedIOException( ioe );
+        }
+    }
+}
@@ -0,0 +1,353 @@
+/*
+ * Copyright (c) 2011, Stanislav Muhametsin. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package math.permutations.io;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Array;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * <p>
+ * The reader of the delta format written by {@link DeltaPermutationWriter}. The permutations are decoded one block at
+ * a time, so only the current block is kept in memory. The permutation arrays produced by this reader are the same,
+ * and in the same order, as those produced by the iterator of the generator of the written array.
+ * </p>
+ * 
+ * <p>
+ * Just like with iterators of the generators, the array returned by {@link #next()} is the working array of this
+ * reader, and is modified by next call to {@link #next()}. Each call writes only the suffix starting at the pivot into
+ * the array.
+ * </p>
+ * 
+ * @author 2011 Stanislav Muhametsin
+ * @param <ArrayType> The type of the permutation array.
+ */
+public class DeltaPermutationReader<ArrayType>
+    implements Iterator<ArrayType>
+{
+    /**
+     * The magic number at the start of delta streams.
+     */
+    public static final int MAGIC = 0x5045524C;
+
+    /**
+     * The current version of the delta format.
+     */
+    public static final int VERSION = 1;
+
+    /**
+     * The size of the fixed part of the header, before the multiplicities.
+     */
+    static final int FIXED_HEADER_SIZE = 32;
+
+    private final ReadableByteChannel _channel;
+    private final ElementType _elementType;
+    private final int[] _multiplicities;
+    private final Object _distinctElements;
+    private final int _keyframeInterval;
+    private final long _total;
+
+    /**
+     * The largest size of a block a valid stream can contain, in bytes.
+     */
+    private final int _maxBlockSize;
+    private final ArrayType _array;
+
+    /**
+     * The classes of the current permutation, decoded before the elements are stored into the permutation array.
+     */
+    private final int[] _classes;
+    private final ByteBuffer _blockSize;
+    private ByteBuffer _block;
+    private long _nextRank;
+
+    private DeltaPermutationReader( ReadableByteChannel channel, Class<ArrayType> arrayClass ) throws IOException
+    {
+        this._channel = channel;
+        ByteBuffer fixed = ByteBuffer.allocate( FIXED_HEADER_SIZE );
+        this.readFully( fixed );
+        if( fixed.getInt( 0 ) != MAGIC || fixed.getInt( 4 ) != VERSION )
+        {
+            throw new IOException( "Not a delta permutation stream, or unsupported version." );
+        }
+        this._elementType = ElementType.forOrdinal( fixed.get( 8 ) );
+        if( !this._elementType.getPrimitiveClass().equals( arrayClass.getComponentType() ) )
+        {
+            throw new IllegalArgumentException( "The stream contains elements of type " + this._elementType
+                + ", which can not be read into " + arrayClass.getName() + "." );
+        }
+        int length = fixed.getInt( 12 );
+        int distinct = fixed.getInt( 16 );
+        this._keyframeInterval = fixed.getInt( 20 );
+        this._total = fixed.getLong( 24 );
+        long maxBlockSize = DeltaPermutationWriter.getMaxBlockSize( this._keyframeInterval, length );
+        if( length < 0 || distinct < 0 || distinct > length || this._keyframeInterval <= 0 || this._total < 0L
+            || maxBlockSize > Integer.MAX_VALUE )
+        {
+            throw new IOException( "Invalid header: length " + length + ", distinct elements " + distinct
+                + ", keyframe interval " + this._keyframeInterval + ", total " + this._total + "." );
+        }
+
+        ByteBuffer variable = ByteBuffer.allocate( distinct * ( 4 + this._elementType.getBytes() ) );
+        this.readFully( variable );
+        this._maxBlockSize = (int) maxBlockSize;
+        this._multiplicities = new int[distinct];
+        variable.asIntBuffer().get( this._multiplicities );
+        variable.position( distinct * 4 );
+        this._distinctElements = this._elementType.readArray( variable, distinct );
+
+        this._array = arrayClass.cast( Array.newInstance( arrayClass.getComponentType(), length ) );
+        this._classes = new int[length];
+        this._blockSize = ByteBuffer.allocate( 4 );
+        this._block = ByteBuffer.allocate( 0 );
+        this._nextRank = 0L;
+    }
+
+    /**
+     * Reads the header of the delta stream from given channel, and creates a reader for the permutations following
+     * the header. The channel is not closed by the reader.
+     * 
+     * @param channel The channel to read from.
+     * @param arrayClass The class of the permutation arrays, for example <code>int[].class</code>.
+     * @return The reader for the permutations in the channel.
+     * @exception IOException If reading the channel fails, or if the channel does not contain a delta stream.
+     * @exception IllegalArgumentException If the element type of the stream does not match the given array class.
+     */
+    public static <ArrayType> DeltaPermutationReader<ArrayType> open( ReadableByteChannel channel,
+        Class<ArrayType> arrayClass ) throws IOException
+    {
+        return new DeltaPermutationReader<ArrayType>( channel, arrayClass );
+    }
+
+    @Override
+    public boolean hasNext()
+    {
+        return this._nextRank < this._total;
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @exception UncheckedIOException If reading the channel fails.
+     */
+    @Override
+    public ArrayType next()
+    {
+        if( !this.hasNext() )
+        {
+            throw new NoSuchElementException( "No more permutations available." );
+        }
+        try
+        {
+            int pivot = 0;
+            if( this._nextRank % this._keyframeInterval == 0L )
+            {
+                this.readBlock();
+            }
+            else
+            {
+                pivot = this.getVarInt();
+            }
+            int[] classes = this._classes;
+            if( pivot < 0 || pivot > classes.length )
+            {
+                throw new IOException( "Invalid pivot " + pivot + " in delta stream." );
+            }
+            int distinct = this._multiplicities.length;
+            for( int idx = pivot; idx < classes.length; ++idx )
+            {
+                int clazz = this.getVarInt();
+                if( clazz < 0 || clazz >= distinct )
+                {
+                    throw new IOException( "Invalid class " + clazz + " in delta stream." );
+                }
+                classes[idx] = clazz;
+            }
+            this._elementType.setElements( this._distinctElements, classes, pivot, classes.length, this._array );
+        }
+        catch( IOException ioe )
+        {
+            throw new UncheckedIOException( ioe );
+        }
+        ++this._nextRank;
+        return this._array;
+    }
+
+    @Override
+    public void remove()
+    {
+        throw new UnsupportedOperationException( "Can not remove permutation." );
+    }
+
+    /**
+     * Moves forward in the stream, so that next call to {@link #next()} returns the permutation with given
+     * lexicographic rank. The blocks before the block of the given rank are skipped without decoding them, using
+     * {@link SeekableByteChannel#position(long)} if the channel supports it. Then the permutations of the block are
+     * decoded starting from the keyframe of the block.
+     * 
+     * @param rank The rank of the next permutation.
+     * @exception IOException If reading the channel fails.
+     * @exception IllegalArgumentException If the rank is before the next permutation of this reader, or greater than
+     *                {@link #getTotal()}.
+     */
+    public void seek( long rank ) throws IOException
+    {
+        if( rank < this._nextRank || rank > this._total )
+        {
+            throw new IllegalArgumentException( "The rank " + rank + " must be at least " + this._nextRank
+                + " and at most " + this._total + "." );
+        }
+        long interval = this._keyframeInterval;
+        long blocksRead = ( this._nextRank + interval - 1L ) / interval;
+        long targetBlock = rank / interval;
+        if( targetBlock >= blocksRead )
+        {
+            for( long block = blocksRead; block < targetBlock; ++block )
+            {
+                this.skipBlock();
+            }
+            this._nextRank = targetBlock * interval;
+        }
+        while( this._nextRank < rank )
+        {
+            this.next();
+        }
+    }
+
+    /**
+     * Returns the type of the elements.
+     * 
+     * @return The type of the elements.
+     */
+    public ElementType getElementType()
+    {
+        return this._elementType;
+    }
+
+    /**
+     * Returns the multiplicities of the distinct elements, in ascending order of the elements.
+     * 
+     * @return The multiplicities of the distinct elements.
+     */
+    public int[] getMultiplicities()
+    {
+        return this._multiplicities.clone();
+    }
+
+    /**
+     * Returns the amount of permutations between two keyframes.
+     * 
+     * @return The amount of permutations between two keyframes.
+     */
+    public int getKeyframeInterval()
+    {
+        return this._keyframeInterval;
+    }
+
+    /**
+     * Returns the total amount of permutations in the stream.
+     * 
+     * @return The total amount of permutations in the stream.
+     */
+    public long getTotal()
+    {
+        return this._total;
+    }
+
+    private void readBlock() throws IOException
+    {
+        int size = this.readBlockSize();
+        if( this._block.capacity() < size )
+        {
+            this._block = ByteBuffer.allocate( size );
+        }
+        this._block.clear();
+        this._block.limit( size );
+        this.readFully( this._block );
+    }
+
+    private void skipBlock() throws IOException
+    {
+        int size = this.readBlockSize();
+        if( this._channel instanceof SeekableByteChannel )
+        {
+            SeekableByteChannel seekable = (SeekableByteChannel) this._channel;
+            seekable.position( seekable.position() + size );
+        }
+        else
+        {
+            ByteBuffer discard = ByteBuffer.allocate( Math.min( size, 1 << 16 ) );
+            while( size > 0 )
+            {
+                discard.clear();
+                discard.limit( Math.min( size, discard.capacity() ) );
+                this.readFully( discard );
+                size -= discard.limit();
+            }
+        }
+    }
+
+    private int readBlockSize() throws IOException
+    {
+        this._blockSize.clear();
+        this.readFully( this._blockSize );
+        int result = this._blockSize.getInt( 0 );
+        if( result < 0 || result > this._maxBlockSize )
+        {
+            throw new IOException( "Invalid block size: " + result + "." );
+        }
+        return result;
+    }
+
+    /**
+     * Fills the remaining part of given buffer from the channel, and flips the buffer.
+     */
+    private void readFully( ByteBuffer buffer ) throws IOException
+    {
+        while( buffer.hasRemaining() )
+        {
+            if( this._channel.read( buffer ) < 0 )
+            {
+                throw new EOFException( "Unexpected end of delta stream." );
+            }
+        }
+        buffer.flip();
+    }
+
+    private int getVarInt() throws IOException
+    {
+        ByteBuffer block = this._block;
+        int result = 0;
+        int shift = 0;
+        byte current;
+        do
+        {
+            if( !block.hasRemaining() )
+            {
+                throw new EOFException( "Unexpected end of block." );
+            }
+            current = block.get();
+            result |= ( current & 0x7F ) << shift;
+            shift += 7;
+        } while( current < 0 );
+        return result;
+    }
+}
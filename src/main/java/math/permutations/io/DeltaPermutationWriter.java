@@ -0,0 +1,222 @@
+/*
+ * Copyright (c) 2011, Stanislav Muhametsin. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package math.permutations.io;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+import math.permutations.PermutationGenerator;
+import math.permutations.PermutationGeneratorProvider;
+import math.permutations.impl.AbstractPermutationGenerator;
+import math.permutations.impl.IndexPermutation;
+
+/**
+ * <p>
+ * Writes all permutations of a primitive array into a channel using a compact delta format, which can then be read
+ * with {@link DeltaPermutationReader}. Consecutive permutations in lexicographic order share a prefix, which ends just
+ * before the pivot of the successor step. Thus each permutation is stored as the pivot and the suffix starting at the
+ * pivot. The suffix is stored as classes of the elements, that is, indices of the elements among the distinct elements.
+ * All numbers in the records are stored as unsigned variable-length integers, seven bits per byte, the least
+ * significant group first.
+ * </p>
+ * 
+ * <p>
+ * The permutations are grouped into blocks of {@link #DEFAULT_KEYFRAME_INTERVAL} permutations, unless specified
+ * otherwise. The first permutation of each block is a keyframe, stored as classes of all elements without the pivot.
+ * Each block is prefixed with its size in bytes, so the reader can skip whole blocks without decoding them.
+ * </p>
+ * 
+ * <p>
+ * The stream starts with a header, in big-endian byte order:
+ * </p>
+ * <ol>
+ * <li>magic number {@value DeltaPermutationReader#MAGIC} (<code>int</code>),</li>
+ * <li>format version {@value DeltaPermutationReader#VERSION} (<code>int</code>),</li>
+ * <li>the ordinal of the {@link ElementType} (<code>byte</code>),</li>
+ * <li>three reserved bytes,</li>
+ * <li>the length of the permutations (<code>int</code>),</li>
+ * <li>the amount of distinct elements (<code>int</code>),</li>
+ * <li>the amount of permutations in each block (<code>int</code>),</li>
+ * <li>the total amount of permutations (<code>long</code>),</li>
+ * <li>the multiplicities of the distinct elements (<code>int</code> each), and</li>
+ * <li>the distinct elements in ascending order.</li>
+ * </ol>
+ * 
+ * @author 2011 Stanislav Muhametsin
+ */
+public final class DeltaPermutationWriter
+{
+    /**
+     * The default amount of permutations between two keyframes.
+     */
+    public static final int DEFAULT_KEYFRAME_INTERVAL = 1024;
+
+    /**
+     * The maximum size of one variable-length integer, in bytes.
+     */
+    private static final int MAX_VAR_INT_BYTES = 5;
+
+    private DeltaPermutationWriter()
+    {
+    }
+
+    /**
+     * Writes all permutations of given primitive array into given channel, with a keyframe every
+     * {@link #DEFAULT_KEYFRAME_INTERVAL} permutations. The channel is not closed.
+     * 
+     * @param array The primitive array.
+     * @param channel The channel to write to.
+     * @exception IOException If writing to the channel fails.
+     * @exception IllegalArgumentException If the array is not a supported primitive array, or if the total amount of
+     *                permutations does not fit into a <code>long</code>.
+     * @see #write(Object, WritableByteChannel, int)
+     */
+    public static <ArrayType> void write( ArrayType array, WritableByteChannel channel ) throws IOException
+    {
+        write( array, channel, DEFAULT_KEYFRAME_INTERVAL );
+    }
+
+    /**
+     * Writes all permutations of given primitive array into given channel. The channel is not closed.
+     * 
+     * @param array The primitive array.
+     * @param channel The channel to write to.
+     * @param keyframeInterval The amount of permutations between two keyframes, that is, the amount of permutations in
+     *            each block.
+     * @exception IOException If writing to the channel fails.
+     * @exception IllegalArgumentException If the array is not a supported primitive array, if the total amount of
+     *                permutations does not fit into a <code>long</code>, or if the keyframe interval is not positive or
+     *                is too large for the length of the array.
+     */
+    public static <ArrayType> void write( ArrayType array, WritableByteChannel channel, int keyframeInterval )
+        throws IOException
+    {
+        ElementType elementType = ElementType.forArray( array );
+        PermutationGenerator<ByteBuffer> created = PermutationGeneratorProvider.createByteBufferGenerator( array );
+        AbstractPermutationGenerator<ByteBuffer> generator = (AbstractPermutationGenerator<ByteBuffer>) created;
+        int[] multiplicities = generator.getMultiplicities();
+        int length = generator.getArrayLength();
+        long blockCapacity = getMaxBlockSize( keyframeInterval, length );
+        if( keyframeInterval <= 0 || blockCapacity > Integer.MAX_VALUE )
+        {
+            throw new IllegalArgumentException( "The keyframe interval " + keyframeInterval
+                + " must be positive and small enough to fit the block into memory." );
+        }
+        BigInteger bigTotal = generator.getTotal();
+        if( bigTotal.bitLength() >= Long.SIZE )
+        {
+            throw new IllegalArgumentException( "Too many permutations to write: " + bigTotal + "." );
+        }
+        long total = bigTotal.longValue();
+
+        // The first permutation is the sorted array, so the distinct elements are at the offsets of the classes
+        int elementBytes = elementType.getBytes();
+        ByteBuffer sorted = generator.permutationAt( BigInteger.ZERO, ByteBuffer.allocate( length * elementBytes ) );
+        ByteBuffer header = ByteBuffer.allocate( DeltaPermutationReader.FIXED_HEADER_SIZE + multiplicities.length
+            * ( 4 + elementBytes ) );
+        header.putInt( DeltaPermutationReader.MAGIC ).putInt( DeltaPermutationReader.VERSION );
+        header.put( (byte) elementType.ordinal() ).put( (byte) 0 ).putShort( (short) 0 );
+        header.putInt( length ).putInt( multiplicities.length ).putInt( keyframeInterval ).putLong( total );
+        for( int multiplicity : multiplicities )
+        {
+            header.putInt( multiplicity );
+        }
+        int offset = 0;
+        for( int multiplicity : multiplicities )
+        {
+            ByteBuffer element = sorted.duplicate();
+            element.position( offset * elementBytes );
+            element.limit( ( offset + 1 ) * elementBytes );
+            header.put( element );
+            offset += multiplicity;
+        }
+        header.flip();
+        writeFully( channel, header );
+
+        ByteBuffer block = ByteBuffer.allocate( 4 + (int) blockCapacity );
+        IndexPermutation classes = IndexPermutation.createFirst( multiplicities, length );
+        int pivot = 0;
+        for( long rank = 0L; rank < total; ++rank )
+        {
+            if( rank % keyframeInterval == 0L )
+            {
+                flushBlock( channel, block );
+                for( int idx = 0; idx < length; ++idx )
+                {
+                    putVarInt( block, classes.get( idx ) );
+                }
+            }
+            else
+            {
+                putVarInt( block, pivot );
+                for( int idx = pivot; idx < length; ++idx )
+                {
+                    putVarInt( block, classes.get( idx ) );
+                }
+            }
+            pivot = classes.next();
+        }
+        flushBlock( channel, block );
+    }
+
+    /**
+     * Returns the largest possible size of one block in bytes, without the size prefix. Each permutation of the block
+     * takes at most one variable-length integer per element, and one for the pivot.
+     * 
+     * @param keyframeInterval The amount of permutations in each block.
+     * @param length The length of the permutations.
+     * @return The largest possible size of one block in bytes.
+     */
+    static long getMaxBlockSize( int keyframeInterval, int length )
+    {
+        return (long) keyframeInterval * ( length + 1 ) * MAX_VAR_INT_BYTES;
+    }
+
+    /**
+     * Writes the block with its size prefix, if it contains anything, and clears it for the next block. The first four
+     * bytes of the buffer are reserved for the size.
+     */
+    private static void flushBlock( WritableByteChannel channel, ByteBuffer block ) throws IOException
+    {
+        if( block.position() > 4 )
+        {
+            block.putInt( 0, block.position() - 4 );
+            block.flip();
+            writeFully( channel, block );
+        }
+        block.clear();
+        block.position( 4 );
+    }
+
+    private static void writeFully( WritableByteChannel channel, ByteBuffer buffer ) throws IOException
+    {
+        while( buffer.hasRemaining() )
+        {
+            channel.write( buffer );
+        }
+    }
+
+    private static void putVarInt( ByteBuffer dest, int value )
+    {
+        while( ( value & ~0x7F ) != 0 )
+        {
+            dest.put( (byte) ( ( value & 0x7F ) | 0x80 ) );
+            value >>>= 7;
+        }
+        dest.put( (byte) value );
+    }
+}
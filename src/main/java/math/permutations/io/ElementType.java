@@ -0,0 +1,211 @@
+/*
+ * Copyright (c) 2011, Stanislav Muhametsin. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package math.permutations.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * The primitive element types of permutations stored in binary files.
+ * 
+ * @author 2011 Stanislav Muhametsin
+ */
+public enum ElementType
+{
+    BYTE( Byte.TYPE, Byte.BYTES ),
+
+    SHORT( Short.TYPE, Short.BYTES ),
+
+    INT( Integer.TYPE, Integer.BYTES ),
+
+    LONG( Long.TYPE, Long.BYTES ),
+
+    FLOAT( Float.TYPE, Float.BYTES ),
+
+    DOUBLE( Double.TYPE, Double.BYTES );
+
+    private final Class<?> _primitiveClass;
+    private final int _bytes;
+
+    private ElementType( Class<?> primitiveClass, int bytes )
+    {
+        this._primitiveClass = primitiveClass;
+        this._bytes = bytes;
+    }
+
+    /**
+     * Returns the primitive class of the elements, for example {@link Integer#TYPE}.
+     * 
+     * @return The primitive class of the elements.
+     */
+    public Class<?> getPrimitiveClass()
+    {
+        return this._primitiveClass;
+    }
+
+    /**
+     * Returns the amount of bytes each element takes.
+     * 
+     * @return The amount of bytes each element takes.
+     */
+    public int getBytes()
+    {
+        return this._bytes;
+    }
+
+    /**
+     * Returns the element type of given primitive array.
+     * 
+     * @param array The primitive array.
+     * @return The element type of given array.
+     * @exception IllegalArgumentException If the given object is not an array of a primitive type supported by this
+     *                enum.
+     */
+    public static ElementType forArray( Object array )
+    {
+        Class<?> component = array.getClass().getComponentType();
+        ElementType result = null;
+        for( ElementType type : values() )
+        {
+            if( type._primitiveClass.equals( component ) )
+            {
+                result = type;
+            }
+        }
+        if( result == null )
+        {
+            throw new IllegalArgumentException( "Unsupported array type: " + array.getClass().getName() + "." );
+        }
+        return result;
+    }
+
+    /**
+     * Returns the element type with given ordinal, as stored in the headers of binary files.
+     * 
+     * @exception IOException If there is no element type with given ordinal.
+     */
+    static ElementType forOrdinal( int ordinal ) throws IOException
+    {
+        ElementType[] types = values();
+        if( ordinal < 0 || ordinal >= types.length )
+        {
+            throw new IOException( "Unknown element type: " + ordinal + "." );
+        }
+        return types[ordinal];
+    }
+
+    /**
+     * Reads given amount of elements of this type from the current position of given buffer, using the byte order of
+     * the buffer.
+     */
+    Object readArray( ByteBuffer src, int count )
+    {
+        Object result;
+        switch( this )
+        {
+        case BYTE:
+            byte[] bytes = new byte[count];
+            src.duplicate().get( bytes );
+            result = bytes;
+            break;
+        case SHORT:
+            short[] shorts = new short[count];
+            src.asShortBuffer().get( shorts );
+            result = shorts;
+            break;
+        case INT:
+            int[] ints = new int[count];
+            src.asIntBuffer().get( ints );
+            result = ints;
+            break;
+        case LONG:
+            long[] longs = new long[count];
+            src.asLongBuffer().get( longs );
+            result = longs;
+            break;
+        case FLOAT:
+            float[] floats = new float[count];
+            src.asFloatBuffer().get( floats );
+            result = floats;
+            break;
+        default:
+            double[] doubles = new double[count];
+            src.asDoubleBuffer().get( doubles );
+            result = doubles;
+            break;
+        }
+        src.position( src.position() + count * this._bytes );
+        return result;
+    }
+
+    /**
+     * Stores the distinct elements with the classes at given range of given array into the same range of given
+     * permutation array. Both arrays must be arrays of this type.
+     */
+    void setElements( Object distinctElements, int[] classes, int from, int to, Object dest )
+    {
+        switch( this )
+        {
+        case BYTE:
+            byte[] distinctBytes = (byte[]) distinctElements;
+            byte[] bytes = (byte[]) dest;
+            for( int idx = from; idx < to; ++idx )
+            {
+                bytes[idx] = distinctBytes[classes[idx]];
+            }
+            break;
+        case SHORT:
+            short[] distinctShorts = (short[]) distinctElements;
+            short[] shorts = (short[]) dest;
+            for( int idx = from; idx < to; ++idx )
+            {
+                shorts[idx] = distinctShorts[classes[idx]];
+            }
+            break;
+        case INT:
+            int[] distinctInts = (int[]) distinctElements;
+            int[] ints = (int[]) dest;
+            for( int idx = from; idx < to; ++idx )
+            {
+                ints[idx] = distinctInts[classes[idx]];
+            }
+            break;
+        case LONG:
+            long[] distinctLongs = (long[]) distinctElements;
+            long[] longs = (long[]) dest;
+            for( int idx = from; idx < to; ++idx )
+            {
+                longs[idx] = distinctLongs[classes[idx]];
+            }
+            break;
+        case FLOAT:
+            float[] distinctFloats = (float[]) distinctElements;
+            float[] floats = (float[]) dest;
+            for( int idx = from; idx < to; ++idx )
+            {
+                floats[idx] = distinctFloats[classes[idx]];
+            }
+            break;
+        default:
+            double[] distinctDoubles = (double[]) distinctElements;
+            double[] doubles = (double[]) dest;
+            for( int idx = from; idx < to; ++idx )
+            {
+                doubles[idx] = distinctDoubles[classes[idx]];
+            }
+            break;
+        }
+    }
+}
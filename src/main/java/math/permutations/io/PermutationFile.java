@@ -0,0 +1,285 @@
+/*
+ * Copyright (c) 2011, Stanislav Muhametsin. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package math.permutations.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * <p>
+ * The reader of the binary files written by {@link PermutationFileWriter}. The file is memory-mapped, and the
+ * permutation at any rank is returned as a read-only view of the mapped file, without copying anything.
+ * </p>
+ * 
+ * <p>
+ * The file starts with a header, in big-endian byte order:
+ * </p>
+ * <ol>
+ * <li>magic number {@value #MAGIC} (<code>int</code>),</li>
+ * <li>format version {@value #VERSION} (<code>int</code>),</li>
+ * <li>the ordinal of the {@link ElementType} (<code>byte</code>),</li>
+ * <li>the byte order of the elements, <code>0</code> for big-endian and <code>1</code> for little-endian (
+ * <code>byte</code>),</li>
+ * <li>two reserved bytes,</li>
+ * <li>the length of the permutations (<code>int</code>),</li>
+ * <li>the amount of distinct elements (<code>int</code>),</li>
+ * <li>the total amount of permutations (<code>long</code>),</li>
+ * <li>the offset of the permutation data (<code>int</code>), and</li>
+ * <li>the multiplicities of the distinct elements (<code>int</code> each).</li>
+ * </ol>
+ * <p>
+ * The data starts at the offset given in the header, which is aligned to 8 bytes. The permutations are stored one
+ * after another in lexicographic order, each taking exactly <code>length * elementBytes</code> bytes.
+ * </p>
+ * 
+ * @author 2011 Stanislav Muhametsin
+ */
+public class PermutationFile
+    implements Closeable
+{
+    /**
+     * The magic number at the start of permutation files.
+     */
+    public static final int MAGIC = 0x5045524D;
+
+    /**
+     * The current version of the file format.
+     */
+    public static final int VERSION = 1;
+
+    /**
+     * The size of the fixed part of the header, before the multiplicities.
+     */
+    static final int FIXED_HEADER_SIZE = 32;
+
+    /**
+     * The maximum size of one mapped region.
+     */
+    static final int MAX_REGION_BYTES = Integer.MAX_VALUE;
+
+    private final FileChannel _channel;
+    private final ElementType _elementType;
+    private final ByteOrder _byteOrder;
+    private final int _length;
+    private final int[] _multiplicities;
+    private final long _total;
+    private final int _stride;
+
+    /**
+     * The mapped regions, each containing the same amount of whole permutations.
+     */
+    private final MappedByteBuffer[] _regions;
+
+    private final long _permutationsPerRegion;
+
+    private PermutationFile( FileChannel channel ) throws IOException
+    {
+        this._channel = channel;
+        long fileSize = channel.size();
+        if( fileSize < FIXED_HEADER_SIZE )
+        {
+            throw new IOException( "The file is too short to be a permutation file." );
+        }
+        ByteBuffer fixed = channel.map( MapMode.READ_ONLY, 0L, FIXED_HEADER_SIZE );
+        if( fixed.getInt( 0 ) != MAGIC || fixed.getInt( 4 ) != VERSION )
+        {
+            throw new IOException( "Not a permutation file, or unsupported version." );
+        }
+        this._elementType = ElementType.forOrdinal( fixed.get( 8 ) );
+        byte byteOrder = fixed.get( 9 );
+        if( byteOrder != 0 && byteOrder != 1 )
+        {
+            throw new IOException( "Unknown byte order: " + byteOrder + "." );
+        }
+        this._byteOrder = byteOrder == 0 ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN;
+        this._length = fixed.getInt( 12 );
+        int distinct = fixed.getInt( 16 );
+        this._total = fixed.getLong( 20 );
+        int dataOffset = fixed.getInt( 28 );
+        long stride = (long) this._length * this._elementType.getBytes();
+        if( this._length < 0 || distinct < 0 || distinct > this._length || this._total < 0L
+            || dataOffset < FIXED_HEADER_SIZE + 4L * distinct || stride > MAX_REGION_BYTES )
+        {
+            throw new IOException( "Invalid header: length " + this._length + ", distinct elements " + distinct
+                + ", total " + this._total + ", data offset " + dataOffset + "." );
+        }
+        if( stride > 0L && this._total > ( fileSize - dataOffset ) / stride
+            || fileSize != dataOffset + this._total * stride )
+        {
+            throw new IOException( "The size of the file " + fileSize + " does not match the header." );
+        }
+
+        ByteBuffer multiplicities = channel.map( MapMode.READ_ONLY, FIXED_HEADER_SIZE, distinct * 4 );
+        this._multiplicities = new int[distinct];
+        multiplicities.asIntBuffer().get( this._multiplicities );
+        long multiplicitySum = 0L;
+        for( int multiplicity : this._multiplicities )
+        {
+            if( multiplicity <= 0 )
+            {
+                throw new IOException( "Invalid multiplicity: " + multiplicity + "." );
+            }
+            multiplicitySum += multiplicity;
+        }
+        if( multiplicitySum != this._length )
+        {
+            throw new IOException( "The multiplicities do not sum up to the length " + this._length + "." );
+        }
+
+        this._stride = (int) stride;
+        this._permutationsPerRegion = getPermutationsPerRegion( this._stride, MAX_REGION_BYTES );
+        int regionCount = (int) ( ( this._total + this._permutationsPerRegion - 1 ) / this._permutationsPerRegion );
+        this._regions = new MappedByteBuffer[regionCount];
+        for( int idx = 0; idx < regionCount; ++idx )
+        {
+            long first = idx * this._permutationsPerRegion;
+            long count = Math.min( this._permutationsPerRegion, this._total - first );
+            this._regions[idx] = channel.map( MapMode.READ_ONLY, dataOffset + first * this._stride, count
+                * this._stride );
+        }
+    }
+
+    /**
+     * Opens the permutation file at given path, and maps it into memory.
+     * 
+     * @param path The path of the file.
+     * @return The opened {@link PermutationFile}.
+     * @exception IOException If the file can not be read, is not a permutation file, or if its header is invalid or
+     *                does not match the size of the file.
+     */
+    public static PermutationFile open( Path path ) throws IOException
+    {
+        FileChannel channel = FileChannel.open( path, StandardOpenOption.READ );
+        PermutationFile result = null;
+        try
+        {
+            result = new PermutationFile( channel );
+        }
+        finally
+        {
+            if( result == null )
+            {
+                channel.close();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the read-only view of the permutation with given lexicographic rank. The position of the returned buffer
+     * is zero, and its limit is the size of the permutation in bytes. The byte order of the returned buffer is the
+     * byte order of the file.
+     * 
+     * @param rank The rank of the permutation.
+     * @return The view of the permutation.
+     * @exception IllegalArgumentException If the rank is negative, or not less than {@link #getTotal()}.
+     */
+    public ByteBuffer getPermutation( long rank )
+    {
+        if( rank < 0L || rank >= this._total )
+        {
+            throw new IllegalArgumentException( "The rank " + rank + " must be at least zero and less than "
+                + this._total + "." );
+        }
+        ByteBuffer region = this._regions[(int) ( rank / this._permutationsPerRegion )].duplicate();
+        int start = (int) ( rank % this._permutationsPerRegion ) * this._stride;
+        region.position( start );
+        region.limit( start + this._stride );
+        return region.slice().asReadOnlyBuffer().order( this._byteOrder );
+    }
+
+    /**
+     * Returns the type of the elements.
+     * 
+     * @return The type of the elements.
+     */
+    public ElementType getElementType()
+    {
+        return this._elementType;
+    }
+
+    /**
+     * Returns the byte order of the elements.
+     * 
+     * @return The byte order of the elements.
+     */
+    public ByteOrder getByteOrder()
+    {
+        return this._byteOrder;
+    }
+
+    /**
+     * Returns the length of the permutations.
+     * 
+     * @return The length of the permutations.
+     */
+    public int getLength()
+    {
+        return this._length;
+    }
+
+    /**
+     * Returns the multiplicities of the distinct elements, in ascending order of the elements.
+     * 
+     * @return The multiplicities of the distinct elements.
+     */
+    public int[] getMultiplicities()
+    {
+        return this._multiplicities.clone();
+    }
+
+    /**
+     * Returns the total amount of permutations in the file.
+     * 
+     * @return The total amount of permutations in the file.
+     */
+    public long getTotal()
+    {
+        return this._total;
+    }
+
+    /**
+     * Closes the file. The views returned by {@link #getPermutation(long)} remain valid until they are garbage
+     * collected.
+     */
+    @Override
+    public void close() throws IOException
+    {
+        this._channel.close();
+    }
+
+    /**
+     * Computes the offset of the permutation data for given amount of distinct elements.
+     */
+    static int getDataOffset( int distinct )
+    {
+        return ( FIXED_HEADER_SIZE + distinct * 4 + 7 ) & ~7;
+    }
+
+    /**
+     * Computes how many whole permutations fit into a region of given size.
+     */
+    static long getPermutationsPerRegion( int stride, int maxRegionBytes )
+    {
+        return stride == 0 ? Long.MAX_VALUE : Math.max( 1, maxRegionBytes / stride );
+    }
+}
@@ -0,0 +1,274 @@
+/*
+ * Copyright (c) 2011, Stanislav Muhametsin. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package math.permutations.io;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import math.permutations.PermutationGenerator;
+import math.permutations.PermutationGeneratorProvider;
+import math.permutations.RankedPermutationGenerator;
+import math.permutations.impl.AbstractPermutationGenerator;
+
+/**
+ * <p>
+ * Writes all permutations of a primitive array into a binary file, which can then be read with
+ * {@link PermutationFile}. The permutations are stored in lexicographic order with fixed stride, so the permutation at
+ * any rank can be located directly. See {@link PermutationFile} for the layout of the file.
+ * </p>
+ * 
+ * <p>
+ * The data part of the file is split into regions, each holding a whole amount of permutations and at most
+ * {@link Integer#MAX_VALUE} bytes. The regions are memory-mapped and filled in parallel using the common
+ * {@link ForkJoinPool}, each region by its own iterator starting at the first rank of the region. By default, there
+ * are {@value #REGIONS_PER_THREAD} regions per thread of the pool, unless that would make the regions smaller than
+ * {@value #MIN_REGION_BYTES} bytes. Each region is forced to the storage device before the writing is reported
+ * successful.
+ * </p>
+ * 
+ * @author 2011 Stanislav Muhametsin
+ */
+public final class PermutationFileWriter
+{
+    /**
+     * The amount of regions per thread of the pool, when the size of the regions is not given.
+     */
+    static final int REGIONS_PER_THREAD = 4;
+
+    /**
+     * The minimum size of a region, when the size of the regions is not given.
+     */
+    static final int MIN_REGION_BYTES = 1 << 20;
+
+    private PermutationFileWriter()
+    {
+    }
+
+    /**
+     * Writes all permutations of given primitive array into the file at given path, using native byte order. If the
+     * file exists, it is overwritten.
+     * 
+     * @param array The primitive array.
+     * @param path The path of the file.
+     * @exception IOException If writing the file fails.
+     * @exception IllegalArgumentException If the array is not a supported primitive array, or if the total amount of
+     *                permutations does not fit into a file.
+     * @see #write(Object, Path, ByteOrder)
+     */
+    public static <ArrayType> void write( ArrayType array, Path path ) throws IOException
+    {
+        write( array, path, ByteOrder.nativeOrder() );
+    }
+
+    /**
+     * Writes all permutations of given primitive array into the file at given path, deriving the amount of regions
+     * from the parallelism of the common {@link ForkJoinPool}. If the file exists, it is overwritten.
+     * 
+     * @param array The primitive array.
+     * @param path The path of the file.
+     * @param byteOrder The byte order of the elements in the file.
+     * @exception IOException If writing the file fails.
+     * @exception IllegalArgumentException If the array is not a supported primitive array, or if the total amount of
+     *                permutations does not fit into a file.
+     * @see #write(Object, Path, ByteOrder, long)
+     */
+    public static <ArrayType> void write( ArrayType array, Path path, ByteOrder byteOrder ) throws IOException
+    {
+        doWrite( array, path, byteOrder, -1L );
+    }
+
+    /**
+     * Writes all permutations of given primitive array into the file at given path. If the file exists, it is
+     * overwritten.
+     * 
+     * @param array The primitive array.
+     * @param path The path of the file.
+     * @param byteOrder The byte order of the elements in the file.
+     * @param permutationsPerRegion The maximum amount of permutations written by one task. The actual amount is
+     *            further limited so that each region is at most {@link Integer#MAX_VALUE} bytes.
+     * @exception IOException If writing the file fails.
+     * @exception IllegalArgumentException If the array is not a supported primitive array, if the permutations do
+     *                not fit into a file, or if <code>permutationsPerRegion</code> is
+     *                not positive.
+     */
+    public static <ArrayType> void write( ArrayType array, Path path, ByteOrder byteOrder, long permutationsPerRegion )
+        throws IOException
+    {
+        if( permutationsPerRegion <= 0L )
+        {
+            throw new IllegalArgumentException( "The amount of permutations per region must be positive." );
+        }
+        doWrite( array, path, byteOrder, permutationsPerRegion );
+    }
+
+    /**
+     * Writes the file, deriving the amount of permutations per region when the given amount is not positive.
+     */
+    private static <ArrayType> void doWrite( ArrayType array, Path path, ByteOrder byteOrder,
+        long permutationsPerRegion ) throws IOException
+    {
+        ElementType elementType = ElementType.forArray( array );
+        PermutationGenerator<ByteBuffer> created = PermutationGeneratorProvider.createByteBufferGenerator( array );
+        AbstractPermutationGenerator<ByteBuffer> generator = (AbstractPermutationGenerator<ByteBuffer>) created;
+        int[] multiplicities = generator.getMultiplicities();
+        int length = generator.getArrayLength();
+        int stride = length * elementType.getBytes();
+        BigInteger bigTotal = generator.getTotal();
+        if( bigTotal.multiply( BigInteger.valueOf( stride ) ).bitLength() >= Long.SIZE )
+        {
+            throw new IllegalArgumentException( "Too many permutations to write into a file: " + bigTotal + "." );
+        }
+        long total = bigTotal.longValue();
+        int dataOffset = PermutationFile.getDataOffset( multiplicities.length );
+        long perTask = permutationsPerRegion > 0L ? permutationsPerRegion : getDefaultPermutationsPerRegion( total,
+            stride, ForkJoinPool.getCommonPoolParallelism() );
+        long perRegion = Math.min( perTask, PermutationFile.getPermutationsPerRegion( stride,
+            PermutationFile.MAX_REGION_BYTES ) );
+
+        ByteBuffer header = ByteBuffer.allocate( dataOffset );
+        header.putInt( PermutationFile.MAGIC ).putInt( PermutationFile.VERSION );
+        header.put( (byte) elementType.ordinal() ).put( (byte) ( ByteOrder.BIG_ENDIAN.equals( byteOrder ) ? 0 : 1 ) );
+        header.putShort( (short) 0 );
+        header.putInt( length ).putInt( multiplicities.length ).putLong( total ).putInt( dataOffset );
+        for( int multiplicity : multiplicities )
+        {
+            header.putInt( multiplicity );
+        }
+        header.clear();
+
+        FileChannel channel = FileChannel.open( path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+            StandardOpenOption.READ, StandardOpenOption.WRITE );
+        try
+        {
+            while( header.hasRemaining() )
+            {
+                channel.write( header, header.position() );
+            }
+            long dataSize = total * stride;
+            if( dataSize > 0L )
+            {
+                // Grow the file once, so that the concurrent mappings never need to extend it
+                channel.write( ByteBuffer.allocate( 1 ), dataOffset + dataSize - 1L );
+            }
+            long regionCount = ( total + perRegion - 1L ) / perRegion;
+            ForkJoinPool.commonPool().invoke(
+                new RegionWriteTask( generator, channel, byteOrder, dataOffset, stride, total, perRegion, 0L,
+                    regionCount ) );
+            channel.force( true );
+        }
+        catch( UncheckedIOException uioe )
+        {
+            throw uioe.getCause();
+        }
+        finally
+        {
+            channel.close();
+        }
+    }
+
+    /**
+     * Computes the amount of permutations per region, so that there are {@link #REGIONS_PER_THREAD} regions for each
+     * thread, but the regions are not smaller than {@link #MIN_REGION_BYTES} bytes.
+     */
+    static long getDefaultPermutationsPerRegion( long total, int stride, int parallelism )
+    {
+        long regions = (long) Math.max( 1, parallelism ) * REGIONS_PER_THREAD;
+        long result = Math.max( 1L, ( total + regions - 1L ) / regions );
+        if( stride > 0 )
+        {
+            result = Math.max( result, MIN_REGION_BYTES / stride );
+        }
+        return result;
+    }
+
+    private static final class RegionWriteTask extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final RankedPermutationGenerator<ByteBuffer> _generator;
+        private final FileChannel _channel;
+        private final ByteOrder _byteOrder;
+        private final long _dataOffset;
+        private final int _stride;
+        private final long _total;
+        private final long _perRegion;
+        private final long _fromRegion;
+        private final long _toRegion;
+
+        private RegionWriteTask( RankedPermutationGenerator<ByteBuffer> generator, FileChannel channel,
+            ByteOrder byteOrder, long dataOffset, int stride, long total, long perRegion, long fromRegion,
+            long toRegion )
+        {
+            this._generator = generator;
+            this._channel = channel;
+            this._byteOrder = byteOrder;
+            this._dataOffset = dataOffset;
+            this._stride = stride;
+            this._total = total;
+            this._perRegion = perRegion;
+            this._fromRegion = fromRegion;
+            this._toRegion = toRegion;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if( this._toRegion - this._fromRegion <= 1L )
+            {
+                for( long region = this._fromRegion; region < this._toRegion; ++region )
+                {
+                    this.writeRegion( region );
+                }
+            }
+            else
+            {
+                long middle = this._fromRegion + ( ( this._toRegion - this._fromRegion ) >>> 1 );
+                invokeAll( new RegionWriteTask( this._generator, this._channel, this._byteOrder, this._dataOffset,
+                    this._stride, this._total, this._perRegion, this._fromRegion, middle ), new RegionWriteTask(
+                    this._generator, this._channel, this._byteOrder, this._dataOffset, this._stride, this._total,
+                    this._perRegion, middle, this._toRegion ) );
+            }
+        }
+
+        private void writeRegion( long region )
+        {
+            long first = region * this._perRegion;
+            int count = (int) Math.min( this._perRegion, this._total - first );
+            try
+            {
+                MappedByteBuffer buffer = this._channel.map( MapMode.READ_WRITE, this._dataOffset + first
+                    * this._stride, (long) count * this._stride );
+                buffer.order( this._byteOrder );
+                this._generator.iterator( BigInteger.valueOf( first ), BigInteger.valueOf( first + count ) )
+                    .fillBlock( buffer, count );
+                buffer.force();
+            }
+            catch( IOException ioe )
+            {
+                throw new UncheckedIOException( ioe );
+            }
+        }
+    }
+}
@@ -353,8 +353,8 @@ public class AbstractPermutationTest
         }
     };
 
-    protected <ArrayType> void verifyPermutations( PermutationGenerator<ArrayType> generator, ArrayType[] permutations,
-        EqualityTester eqTester )
+    protected <ArrayType> void verifyPermutations( RankedPermutationGenerator<ArrayType> generator,
+        ArrayType[] permutations, EqualityTester eqTester )
     {
         Iterator<ArrayType> iter = generator.iterator();
         int sequenceIndex = 0;
@@ -397,19 +397,19 @@ public class AbstractPermutationTest
         return result.toString();
     }
 
-    protected <T extends Comparable<T>> PermutationGenerator<T[]> createGenericComparableGenerator1( T... items )
+    protected <T extends Comparable<T>> RankedPermutationGenerator<T[]> createGenericComparableGenerator1( T... items )
     {
         return PermutationGeneratorProvider.createGenericComparablePermutationGenerator( items );
     }
 
-    protected <T extends Comparable<T>> PermutationGenerator<T[]> createGenericComparableGenerator2(
+    protected <T extends Comparable<T>> RankedPermutationGenerator<T[]> createGenericComparableGenerator2(
         Class<T> itemClass, T... items )
     {
         return PermutationGeneratorProvider.createGenericComparablePermutationGenerator( itemClass,
             Arrays.asList( items ) );
     }
 
-    protected <T extends Comparable<T>> PermutationGenerator<T[]> createGenericComparableGenerator3(
+    protected <T extends Comparable<T>> RankedPermutationGenerator<T[]> createGenericComparableGenerator3(
         Class<T> itemClass, final T... items )
     {
         return PermutationGeneratorProvider.createGenericComparablePermutationGenerator( itemClass, new Iterable<T>()
@@ -422,19 +422,19 @@ public class AbstractPermutationTest
         } );
     }
 
-    protected <T> PermutationGenerator<T[]> createGenericGenerator1( Comparator<T> comparator, T... items )
+    protected <T> RankedPermutationGenerator<T[]> createGenericGenerator1( Comparator<T> comparator, T... items )
     {
         return PermutationGeneratorProvider.createGenericPermutationGenerator( comparator, items );
     }
 
-    protected <T> PermutationGenerator<T[]> createGenericGenerator2( Class<T> itemClass, Comparator<T> comparator,
+    protected <T> RankedPermutationGenerator<T[]> createGenericGenerator2( Class<T> itemClass, Comparator<T> comparator,
         T... items )
     {
         return PermutationGeneratorProvider.createGenericPermutationGenerator( itemClass, comparator,
             Arrays.asList( items ) );
     }
 
-    protected <T> PermutationGenerator<T[]> createGenericGenerator3( Class<T> itemClass, Comparator<T> comparator,
+    protected <T> RankedPermutationGenerator<T[]> createGenericGenerator3( Class<T> itemClass, Comparator<T> comparator,
         final T... items )
     {
         return PermutationGeneratorProvider.createGenericPermutationGenerator( itemClass, comparator, new Iterable<T>()
@@ -447,14 +447,14 @@ public class AbstractPermutationTest
         } );
     }
 
-    protected <T> PermutationGenerator<T> createOptimizedGenerator( T array )
+    protected <T> RankedPermutationGenerator<T> createOptimizedGenerator( T array )
     {
         return PermutationGeneratorProvider.createOptimizedGenerator( array );
     }
 
     protected <T extends Comparable<T>> void runGenericComparableTest1( T[][] correctPermutations, T... items )
     {
-        PermutationGenerator<T[]> generator = this.createGenericComparableGenerator1( items );
+        RankedPermutationGenerator<T[]> generator = this.createGenericComparableGenerator1( items );
 
         this.verifyPermutations( generator, correctPermutations, new ComparableEqualityTester<T>() );
     }
@@ -462,7 +462,7 @@ public class AbstractPermutationTest
     protected <T extends Comparable<T>> void runGenericComparableTest2( T[][] correctPermutations, Class<T> itemClass,
         T... items )
     {
-        PermutationGenerator<T[]> generator = this.createGenericComparableGenerator2( itemClass, items );
+        RankedPermutationGenerator<T[]> generator = this.createGenericComparableGenerator2( itemClass, items );
 
         this.verifyPermutations( generator, correctPermutations, new ComparableEqualityTester<T>() );
     }
@@ -470,14 +470,14 @@ public class AbstractPermutationTest
     protected <T extends Comparable<T>> void runGenericComparableTest3( T[][] correctPermutations, Class<T> itemClass,
         T... items )
     {
-        PermutationGenerator<T[]> generator = this.createGenericComparableGenerator3( itemClass, items );
+        RankedPermutationGenerator<T[]> generator = this.createGenericComparableGenerator3( itemClass, items );
 
         this.verifyPermutations( generator, correctPermutations, new ComparableEqualityTester<T>() );
     }
 
     protected <T> void runGenericTest1( T[][] correctPermutations, Comparator<T> comparator, T... items )
     {
-        PermutationGenerator<T[]> generator = this.createGenericGenerator1( comparator, items );
+        RankedPermutationGenerator<T[]> generator = this.createGenericGenerator1( comparator, items );
 
         this.verifyPermutations( generator, correctPermutations, new ComparatorEqualityTester<T>( comparator ) );
     }
@@ -485,7 +485,7 @@ public class AbstractPermutationTest
     protected <T> void runGenericTest2( T[][] correctPermutations, Class<T> itemClass, Comparator<T> comparator,
         T... items )
     {
-        PermutationGenerator<T[]> generator = this.createGenericGenerator2( itemClass, comparator, items );
+        RankedPermutationGenerator<T[]> generator = this.createGenericGenerator2( itemClass, comparator, items );
 
         this.verifyPermutations( generator, correctPermutations, new ComparatorEqualityTester<T>( comparator ) );
     }
@@ -493,14 +493,14 @@ public class AbstractPermutationTest
     protected <T> void runGenericTest3( T[][] correctPermutations, Class<T> itemClass, Comparator<T> comparator,
         T... items )
     {
-        PermutationGenerator<T[]> generator = this.createGenericGenerator3( itemClass, comparator, items );
+        RankedPermutationGenerator<T[]> generator = this.createGenericGenerator3( itemClass, comparator, items );
 
         this.verifyPermutations( generator, correctPermutations, new ComparatorEqualityTester<T>( comparator ) );
     }
 
     protected <T> void runOptimizedTest( T[] correctPermutations, T array )
     {
-        PermutationGenerator<T> generator = this.createOptimizedGenerator( array );
+        RankedPermutationGenerator<T> generator = this.createOptimizedGenerator( array );
 
         this.verifyPermutations( generator, correctPermutations, EqualsMethodTester.INSTANCE );
     }
@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2011, Stanislav Muhametsin. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package math.permutations;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for writing permutations in blocks using {@link PermutationIterator#fillBlock(Object, int, boolean)}.
+ * 
+ * @author 2011 Stanislav Muhametsin
+ */
+public class BlockTest extends AbstractPermutationTest
+{
+    @Test
+    public void testIntRowMajor()
+    {
+        this.runBlockTest( this.createOptimizedGenerator( new int[]
+        {
+            4, 1, 2, 2, 3
+        } ), new int[7 * 5], 7, false );
+    }
+
+    @Test
+    public void testDoubleColumnMajor()
+    {
+        this.runBlockTest( this.createOptimizedGenerator( new double[]
+        {
+            4.0, 1.0, 2.0, 3.0
+        } ), new double[5 * 4], 5, true );
+    }
+
+    @Test
+    public void testByteFullBlock()
+    {
+        this.runBlockTest( this.createOptimizedGenerator( new byte[]
+        {
+            1, 2, 3
+        } ), new byte[6 * 3], 6, true );
+    }
+
+    @Test
+    public void testGenericBlocks()
+    {
+        this.runBlockTest( this.createGenericComparableGenerator1( "c", "a", "b", "a" ), new String[4 * 4], 4, false );
+        this.runBlockTest( this.createGenericGenerator1( WRAPPER_COMPARATOR, INT_WRAPPER1, INT_WRAPPER2,
+            INT_WRAPPER3 ), new IntWrapper[4 * 3], 4, true );
+    }
+
+    @Test
+    public void testOrderedBlocks()
+    {
+        for( PermutationOrder order : PermutationOrder.values() )
+        {
+            RankedPermutationGenerator<int[]> generator = this.createOptimizedGenerator( new int[]
+            {
+                3, 1, 2, 4
+            } );
+            int[] block = new int[5 * 4];
+            PermutationIterator<int[]> expected = generator.iterator( order );
+            PermutationIterator<int[]> iter = generator.iterator( order );
+            int seen = 0;
+            while( iter.hasNext() )
+            {
+                int count = iter.fillBlock( block, 5, true );
+                for( int row = 0; row < count; ++row )
+                {
+                    int[] permutation = expected.next();
+                    for( int idx = 0; idx < permutation.length; ++idx )
+                    {
+                        Assert.assertEquals( "Block must contain the permutations in " + order + " order.",
+                            permutation[idx], block[idx * 5 + row] );
+                    }
+                }
+                seen += count;
+            }
+            Assert.assertEquals( "Blocks must contain all permutations in " + order + " order.", 24, seen );
+        }
+    }
+
+    @Test
+    public void testMappedBlock()
+    {
+        RankedPermutationGenerator<List<String>> generator = PermutationGeneratorProvider
+            .createMappedPermutationGenerator( Arrays.asList( "x", "y" ), 2, 1 );
+        List<String> block = new ArrayList<String>( Collections.nCopies( 2 * 3, (String) null ) );
+        PermutationIterator<List<String>> iter = generator.permutationIterator();
+        Assert.assertEquals( "Block must be full.", 2, iter.fillBlock( block, 2 ) );
+        Assert.assertEquals( "Block must contain the permutations.", Arrays.asList( "x", "x", "y", "x", "y", "x" ),
+            block );
+        Assert.assertEquals( "Last block must contain remaining permutations.", 1, iter.fillBlock( block, 2 ) );
+        Assert.assertEquals( "Last block must contain the last permutation.", Arrays.asList( "y", "x", "x" ),
+            block.subList( 0, 3 ) );
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTooSmallBlock()
+    {
+        this.createOptimizedGenerator( new int[]
+        {
+            1, 2, 3
+        } ).permutationIterator().fillBlock( new int[8], 3 );
+    }
+
+    private <T> void runBlockTest( RankedPermutationGenerator<T> generator, T block, int blockSize,
+        boolean columnMajor )
+    {
+        Iterator<T> expected = generator.iterator();
+        PermutationIterator<T> iter = generator.permutationIterator();
+        int total = generator.getTotal().intValue();
+        int seen = 0;
+        while( seen < total )
+        {
+            int count = iter.fillBlock( block, blockSize, columnMajor );
+            Assert.assertEquals( "Block must be full unless there are no more permutations.",
+                Math.min( blockSize, total - seen ), count );
+            for( int row = 0; row < count; ++row )
+            {
+                T permutation = expected.next();
+                int length = Array.getLength( permutation );
+                for( int idx = 0; idx < length; ++idx )
+                {
+                    int blockIdx = columnMajor ? idx * blockSize + row : row * length + idx;
+                    Assert.assertEquals( "Block must contain the permutations in order.", Array.get( permutation, idx ),
+                        Array.get( block, blockIdx ) );
+                }
+            }
+            seen += count;
+        }
+        Assert.assertFalse( "Iterator must be exhausted.", iter.hasNext() );
+        Assert.assertEquals( "Exhausted iterator must not write anything.", 0, iter.fillBlock( block, blockSize,
+            columnMajor ) );
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2011, Stanislav Muhametsin. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package math.permutations;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Iterator;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for storing permutations into {@link ByteBuffer}s.
+ * 
+ * @author 2011 Stanislav Muhametsin
+ */
+public class ByteBufferTest extends AbstractPermutationTest
+{
+    private static final int[] INTS = new int[]
+    {
+        -5, 3, 3, 1000000, 7
+    };
+
+    @Test
+    public void testOffHeapWorkingPermutation()
+    {
+        RankedPermutationGenerator<ByteBuffer> generator = PermutationGeneratorProvider.createByteBufferGenerator(
+            INTS );
+        RankedPermutationGenerator<int[]> expected = this.createOptimizedGenerator( INTS );
+        Assert.assertEquals( "Totals must match.", expected.getTotal(), generator.getTotal() );
+
+        Iterator<int[]> expectedIter = expected.iterator();
+        ByteBuffer working = null;
+        long rank = 0L;
+        for( ByteBuffer buffer : generator )
+        {
+            if( working == null )
+            {
+                working = buffer;
+                Assert.assertTrue( "Working permutation must be off-heap.", buffer.isDirect() );
+                Assert.assertEquals( "Working permutation must be in native order.", ByteOrder.nativeOrder(),
+                    buffer.order() );
+            }
+            Assert.assertSame( "Working permutation must be updated in-place.", working, buffer );
+
+            int[] permutation = expectedIter.next();
+            for( int idx = 0; idx < permutation.length; ++idx )
+            {
+                Assert.assertEquals( "Buffer must contain the permutation.", permutation[idx],
+                    buffer.getInt( idx * Integer.BYTES ) );
+            }
+            Assert.assertEquals( "Rank of buffer must be correct.", rank, generator.getRankAsLong( buffer ) );
+            ++rank;
+        }
+        Assert.assertFalse( "Both must iterate same amount of permutations.", expectedIter.hasNext() );
+    }
+
+    @Test
+    public void testBlockIntoCallerBuffer()
+    {
+        double[] doubles = new double[]
+        {
+            2.5, -1.0, 2.5, 0.0
+        };
+        int offset = 3;
+        int blockSize = 5;
+        RankedPermutationGenerator<ByteBuffer> generator = PermutationGeneratorProvider.createByteBufferGenerator(
+            doubles );
+        ByteBuffer dest = ByteBuffer.allocateDirect( offset + blockSize * doubles.length * Double.BYTES ).order(
+            ByteOrder.BIG_ENDIAN );
+        dest.position( offset );
+
+        Iterator<double[]> expectedIter = this.createOptimizedGenerator( doubles ).iterator();
+        PermutationIterator<ByteBuffer> iter = generator.permutationIterator();
+        while( iter.hasNext() )
+        {
+            int count = iter.fillBlock( dest, blockSize, true );
+            Assert.assertEquals( "Position of the buffer must not change.", offset, dest.position() );
+            for( int row = 0; row < count; ++row )
+            {
+                double[] permutation = expectedIter.next();
+                for( int idx = 0; idx < permutation.length; ++idx )
+                {
+                    Assert.assertEquals( "Block must contain the permutation.", permutation[idx],
+                        dest.getDouble( offset + ( idx * blockSize + row ) * Double.BYTES ), 0.0 );
+                }
+            }
+        }
+        Assert.assertFalse( "All permutations must be written.", expectedIter.hasNext() );
+    }
+
+    @Test
+    public void testAllPrimitiveTypes()
+    {
+        this.runPermutationAtTest( PermutationGeneratorProvider.createByteBufferGenerator( BYTE_ARRAY ) );
+        this.runPermutationAtTest( PermutationGeneratorProvider.createByteBufferGenerator( SHORT_ARRAY ) );
+        this.runPermutationAtTest( PermutationGeneratorProvider.createByteBufferGenerator( LONG_ARRAY ) );
+        this.runPermutationAtTest( PermutationGeneratorProvider.createByteBufferGenerator( FLOAT_ARRAY ) );
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownElementInBuffer()
+    {
+        RankedPermutationGenerator<ByteBuffer> generator = PermutationGeneratorProvider.createByteBufferGenerator(
+            INTS );
+        ByteBuffer buffer = generator.iterator().next();
+        buffer.putInt( 0, 42 );
+        generator.getRank( buffer );
+    }
+
+    private void runPermutationAtTest( RankedPermutationGenerator<ByteBuffer> generator )
+    {
+        long rank = 0L;
+        for( ByteBuffer buffer : generator )
+        {
+            ByteBuffer atRank = generator.permutationAt( BigInteger.valueOf( rank ), null );
+            Assert.assertEquals( "Permutation at rank must match the iterated one.", buffer, atRank );
+            ++rank;
+        }
+    }
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright (c) 2011, Stanislav Muhametsin. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package math.permutations;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.Iterator;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for capturing {@link PermutationCheckpoint}s and resuming iterators from them.
+ * 
+ * @author 2011 Stanislav Muhametsin
+ */
+public class CheckpointTest extends AbstractPermutationTest
+{
+    @Test
+    public void testAllOrders() throws IOException
+    {
+        for( PermutationOrder order : PermutationOrder.values() )
+        {
+            for( int skip : new int[]
+            {
+                0, 1, 17, 719, 720
+            } )
+            {
+                this.runResumeTest( this.createOptimizedGenerator( new int[]
+                {
+                    6, 2, 3, 1, 5, 4
+                } ), order, skip );
+                if( !order.requiresDistinctElements() )
+                {
+                    this.runResumeTest( this.createGenericComparableGenerator1( "c", "a", "b", "a", "c", "a" ), order,
+                        skip % 60 );
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testBoundedReadOfAllOrders() throws IOException
+    {
+        int[] array = new int[]
+        {
+            6, 2, 3, 1, 5, 4
+        };
+        for( PermutationOrder order : PermutationOrder.values() )
+        {
+            PermutationIterator<int[]> iter = this.createOptimizedGenerator( array ).iterator( order );
+            for( int idx = 0; idx < 17; ++idx )
+            {
+                iter.next();
+            }
+            PermutationCheckpoint checkpoint = iter.checkpoint();
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            checkpoint.writeTo( new DataOutputStream( bytes ) );
+            Assert.assertEquals( "Checkpoint of " + order + " must be readable with the length of the permutations.",
+                checkpoint, PermutationCheckpoint.readFrom( new DataInputStream( new ByteArrayInputStream( bytes
+                    .toByteArray() ) ), array.length ) );
+        }
+    }
+
+    @Test
+    public void testRange()
+    {
+        RankedPermutationGenerator<long[]> generator = this.createOptimizedGenerator( new long[]
+        {
+            1L, 2L, 2L, 3L, 4L
+        } );
+        PermutationIterator<long[]> iter = generator.iterator( BigInteger.valueOf( 10L ), BigInteger.valueOf( 40L ) );
+        PermutationCheckpoint checkpoint = iter.checkpoint();
+        Assert.assertEquals( "Checkpoint must start at the first rank of the range.", BigInteger.valueOf( 10L ),
+            checkpoint.getNextRank() );
+        Assert.assertEquals( "Checkpoint must end at the end of the range.", BigInteger.valueOf( 40L ),
+            checkpoint.getEndRank() );
+        for( int idx = 0; idx < 5; ++idx )
+        {
+            iter.next();
+        }
+        checkpoint = iter.checkpoint();
+        Assert.assertEquals( "Next rank must follow the returned permutations.", BigInteger.valueOf( 15L ),
+            checkpoint.getNextRank() );
+
+        PermutationIterator<long[]> resumed = generator.iterator( checkpoint );
+        long rank = 15L;
+        while( resumed.hasNext() )
+        {
+            Assert.assertEquals( "Resumed iterator must continue within the range.", rank,
+                generator.getRankAsLong( resumed.next() ) );
+            ++rank;
+        }
+        Assert.assertEquals( "Resumed iterator must stop at the end of the range.", 40L, rank );
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidClasses()
+    {
+        RankedPermutationGenerator<int[]> generator = this.createOptimizedGenerator( new int[]
+        {
+            1, 1, 2
+        } );
+        generator.iterator( new PermutationCheckpoint( PermutationOrder.LEXICOGRAPHIC, BigInteger.ZERO, BigInteger
+            .valueOf( 3L ), false, new int[]
+        {
+            1, 1, 0
+        }, new int[0] ) );
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testEndRankBeyondTotal()
+    {
+        RankedPermutationGenerator<int[]> generator = this.createOptimizedGenerator( new int[]
+        {
+            1, 1, 2
+        } );
+        generator.iterator( new PermutationCheckpoint( PermutationOrder.LEXICOGRAPHIC, BigInteger.ZERO, BigInteger
+            .valueOf( 4L ), false, new int[]
+        {
+            0, 0, 1
+        }, new int[0] ) );
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testClassesNotAtNextRank()
+    {
+        RankedPermutationGenerator<int[]> generator = this.createOptimizedGenerator( new int[]
+        {
+            1, 1, 2
+        } );
+        generator.iterator( new PermutationCheckpoint( PermutationOrder.LEXICOGRAPHIC, BigInteger.ONE, BigInteger
+            .valueOf( 3L ), false, new int[]
+        {
+            0, 0, 1
+        }, new int[0] ) );
+    }
+
+    @Test(expected = IOException.class)
+    public void testTooLongClasses() throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        this.createOptimizedGenerator( new int[]
+        {
+            1, 2, 3
+        } ).permutationIterator().checkpoint().writeTo( new DataOutputStream( bytes ) );
+        PermutationCheckpoint.readFrom( new DataInputStream( new ByteArrayInputStream( bytes.toByteArray() ) ), 2 );
+    }
+
+    private <T> void runResumeTest( RankedPermutationGenerator<T> generator, PermutationOrder order, int skip )
+        throws IOException
+    {
+        PermutationIterator<T> original = generator.iterator( order );
+        for( int idx = 0; idx < skip; ++idx )
+        {
+            original.next();
+        }
+        PermutationCheckpoint checkpoint = original.checkpoint();
+        Assert.assertEquals( "Next rank must be the amount of permutations returned in " + order + ".", BigInteger
+            .valueOf( skip ), checkpoint.getNextRank() );
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        checkpoint.writeTo( new DataOutputStream( bytes ) );
+        PermutationCheckpoint read = PermutationCheckpoint.readFrom( new DataInputStream( new ByteArrayInputStream(
+            bytes.toByteArray() ) ) );
+        Assert.assertEquals( "Checkpoint must survive serialization.", checkpoint, read );
+
+        Iterator<T> resumed = generator.iterator( read );
+        while( original.hasNext() )
+        {
+            Assert.assertTrue( "Resumed iterator must not end early in " + order + ".", resumed.hasNext() );
+            Assert.assertEquals( "Resumed iterator must produce the same permutations in " + order + ".",
+                generator.getRank( original.next() ), generator.getRank( resumed.next() ) );
+        }
+        Assert.assertFalse( "Resumed iterator must end with the original one in " + order + ".", resumed.hasNext() );
+    }
+}
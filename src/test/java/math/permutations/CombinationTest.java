@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) 2011, Stanislav Muhametsin. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package math.permutations;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for {@link CombinationGenerator}s.
+ * 
+ * @author 2011 Stanislav Muhametsin
+ */
+public class CombinationTest extends AbstractPermutationTest
+{
+    @Test
+    public void testAgainstKPermutations()
+    {
+        int[] array = new int[]
+        {
+            3, 1, 2, 1, 4, 1, 2, 5
+        };
+        RankedPermutationGenerator<int[]> generator = this.createOptimizedGenerator( array );
+        for( int k = 0; k <= array.length; ++k )
+        {
+            // The sorted k-permutations are exactly the combinations, in lexicographic order
+            List<int[]> expected = new ArrayList<int[]>();
+            for( int[] permutation : PermutationGeneratorProvider.createKPermutationGenerator( generator, k ) )
+            {
+                if( this.isSorted( permutation ) )
+                {
+                    expected.add( permutation.clone() );
+                }
+            }
+
+            CombinationGenerator<int[]> combinations = PermutationGeneratorProvider.createCombinationGenerator(
+                generator, k );
+            Assert.assertEquals( "Total must be the amount of combinations.", BigInteger.valueOf( expected.size() ),
+                combinations.getTotal() );
+            int rank = 0;
+            for( int[] combination : combinations )
+            {
+                Assert.assertArrayEquals( "Combinations must be in lexicographic order.", expected.get( rank ),
+                    combination );
+                Assert.assertEquals( "Rank must be the index of the combination.", rank, combinations
+                    .getRankAsLong( combination ) );
+                Assert.assertArrayEquals( "Unranking must be the inverse of ranking.", combination, combinations
+                    .combinationAt( BigInteger.valueOf( rank ), null ) );
+                ++rank;
+            }
+            Assert.assertEquals( "All combinations must be iterated.", expected.size(), rank );
+        }
+    }
+
+    @Test
+    public void testGeneric()
+    {
+        CombinationGenerator<String[]> combinations = PermutationGeneratorProvider.createCombinationGenerator( this
+            .createGenericComparableGenerator1( "b", "a", "c", "a", "b", "a" ), 3 );
+        String[][] expected = new String[][]
+        {
+            {
+                "a", "a", "a"
+            },
+            {
+                "a", "a", "b"
+            },
+            {
+                "a", "a", "c"
+            },
+            {
+                "a", "b", "b"
+            },
+            {
+                "a", "b", "c"
+            },
+            {
+                "b", "b", "c"
+            }
+        };
+        Iterator<String[]> iter = combinations.iterator();
+        for( String[] combination : expected )
+        {
+            Assert.assertArrayEquals( "Generic combinations must be in lexicographic order.", combination, iter
+                .next() );
+        }
+        Assert.assertFalse( "Only distinct combinations must be iterated.", iter.hasNext() );
+    }
+
+    @Test
+    public void testRangesAndStreams()
+    {
+        byte[] array = new byte[20];
+        for( int idx = 0; idx < array.length; ++idx )
+        {
+            array[idx] = (byte) ( idx % 7 );
+        }
+        CombinationGenerator<byte[]> combinations = PermutationGeneratorProvider.createCombinationGenerator( this
+            .createOptimizedGenerator( array ), 9 );
+        long total = combinations.getTotal().longValue();
+        Assert.assertEquals( "Stream must contain all combinations.", total, combinations.stream().count() );
+        Assert.assertEquals( "Parallel stream must contain all combinations.", total, combinations.parallelStream()
+            .count() );
+
+        PermutationIterator<byte[]> iter = combinations.iterator( BigInteger.valueOf( 300L ), BigInteger
+            .valueOf( 400L ) );
+        for( long rank = 300L; rank < 400L; ++rank )
+        {
+            if( rank == 350L )
+            {
+                iter = combinations.iterator( iter.checkpoint() );
+            }
+            Assert.assertArrayEquals( "Range must start from given rank.", combinations.combinationAt( BigInteger
+                .valueOf( rank ), null ), iter.next() );
+        }
+        Assert.assertFalse( "Range must end at given rank.", iter.hasNext() );
+    }
+
+    @Test
+    public void testLargeTotal()
+    {
+        int[] array = new int[400];
+        for( int idx = 0; idx < array.length; ++idx )
+        {
+            array[idx] = idx / 3;
+        }
+        CombinationGenerator<int[]> combinations = PermutationGeneratorProvider.createCombinationGenerator( this
+            .createOptimizedGenerator( array ), 150 );
+        Assert.assertTrue( "Total must not fit into long.", combinations.getTotal().bitLength() >= Long.SIZE );
+
+        BigInteger rank = combinations.getTotal().divide( BigInteger.valueOf( 7L ) );
+        PermutationIterator<int[]> iter = combinations.iterator( rank );
+        for( int idx = 0; idx < 100; ++idx )
+        {
+            Assert.assertEquals( "Rank must follow the iteration.", rank, combinations.getRank( iter.next() ) );
+            rank = rank.add( BigInteger.ONE );
+        }
+    }
+
+    @Test( expected = IllegalArgumentException.class )
+    public void testUnsortedRank()
+    {
+        PermutationGeneratorProvider.createCombinationGenerator( this.createOptimizedGenerator( INT_ARRAY ), 2 )
+            .getRank( new int[]
+            {
+                INT2, INT1
+            } );
+    }
+
+    private boolean isSorted( int[] array )
+    {
+        boolean result = true;
+        for( int idx = 1; idx < array.length; ++idx )
+        {
+            result = result && array[idx - 1] <= array[idx];
+        }
+        return result;
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2011, Stanislav Muhametsin. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package math.permutations;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import math.permutations.impl.Combinatorics;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for the computation of factorials and multinomial coefficients.
+ * 
+ * @author 2011 Stanislav Muhametsin
+ */
+public class CombinatoricsTest extends AbstractPermutationTest
+{
+    @Test
+    public void testFactorials()
+    {
+        BigInteger expected = BigInteger.ONE;
+        for( int n = 0; n <= Combinatorics.CACHE_LIMIT + 100; ++n )
+        {
+            if( n > 0 )
+            {
+                expected = expected.multiply( BigInteger.valueOf( n ) );
+            }
+            Assert.assertEquals( "Factorial of " + n + " must be correct.", expected, Combinatorics.factorial( n ) );
+        }
+    }
+
+    @Test
+    public void testMultinomials()
+    {
+        SplittableRandom random = new SplittableRandom( 24L );
+        for( int round = 0; round < 2000; ++round )
+        {
+            int[] multiplicities = new int[1 + random.nextInt( 8 )];
+            for( int idx = 0; idx < multiplicities.length; ++idx )
+            {
+                multiplicities[idx] = random.nextInt( round % 2 == 0 ? 6 : 30 );
+            }
+            BigInteger expected = naiveMultinomial( multiplicities );
+            String message = "Multinomial of " + Arrays.toString( multiplicities ) + " must be correct.";
+            Assert.assertEquals( message, expected, Combinatorics.multinomial( multiplicities ) );
+            Assert.assertEquals( message, expected.bitLength() < Long.SIZE ? expected.longValue() : -1L, Combinatorics
+                .multinomialAsLong( multiplicities ) );
+        }
+    }
+
+    @Test
+    public void testLongOverflowBoundary()
+    {
+        int[] twenty = new int[20];
+        Arrays.fill( twenty, 1 );
+        Assert.assertEquals( "20! must fit into long.", 2432902008176640000L, Combinatorics
+            .multinomialAsLong( twenty ) );
+        int[] twentyOne = new int[21];
+        Arrays.fill( twentyOne, 1 );
+        Assert.assertEquals( "21! must not fit into long.", -1L, Combinatorics.multinomialAsLong( twentyOne ) );
+        Assert.assertEquals( "Empty multiset must have one permutation.", 1L, Combinatorics
+            .multinomialAsLong( new int[0] ) );
+    }
+
+    @Test
+    public void testGeneratorTotals()
+    {
+        RankedPermutationGenerator<int[]> small = this.createOptimizedGenerator( INT_ARRAY );
+        Assert.assertTrue( "Small total must be exact.", small.isTotalLongExact() );
+        Assert.assertEquals( "Long total must match the total.", small.getTotal().longValue(), small
+            .getTotalAsLong() );
+
+        int[] array = new int[25];
+        for( int idx = 0; idx < array.length; ++idx )
+        {
+            array[idx] = idx;
+        }
+        RankedPermutationGenerator<int[]> large = this.createOptimizedGenerator( array );
+        Assert.assertFalse( "Large total must not be exact.", large.isTotalLongExact() );
+        Assert.assertEquals( "Large total must saturate.", Long.MAX_VALUE, large.getTotalAsLong() );
+        Assert.assertEquals( "Large total must be 25!.", Combinatorics.factorial( 25 ), large.getTotal() );
+    }
+
+    private static BigInteger naiveMultinomial( int[] multiplicities )
+    {
+        int sum = 0;
+        BigInteger lower = BigInteger.ONE;
+        for( int multiplicity : multiplicities )
+        {
+            sum += multiplicity;
+            lower = lower.multiply( naiveFactorial( multiplicity ) );
+        }
+        return naiveFactorial( sum ).divide( lower );
+    }
+
+    private static BigInteger naiveFactorial( int n )
+    {
+        BigInteger result = BigInteger.ONE;
+        for( int idx = 2; idx <= n; ++idx )
+        {
+            result = result.multiply( BigInteger.valueOf( idx ) );
+        }
+        return result;
+    }
+}
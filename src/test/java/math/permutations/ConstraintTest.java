@@ -0,0 +1,200 @@
+/*
+ * Copyright (c) 2011, Stanislav Muhametsin. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package math.permutations;
+
+import java.math.BigInteger;
+import java.util.Iterator;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for {@link ConstrainedPermutations}.
+ * 
+ * @author 2011 Stanislav Muhametsin
+ */
+public class ConstraintTest extends AbstractPermutationTest
+{
+    @Test
+    public void testForbiddenPositions()
+    {
+        int[] array = new int[]
+        {
+            1, 2, 2, 3, 4, 4, 5
+        };
+        // Element 1 never first, element 4 never at positions 2 or 6
+        this.runConstraintTest( array, new PermutationConstraints().forbidPosition( 0, 0 ).forbidPosition( 4, 2 )
+            .forbidPosition( 5, 6 ) );
+    }
+
+    @Test
+    public void testPrecedences()
+    {
+        int[] array = new int[]
+        {
+            5, 3, 3, 1, 2, 4
+        };
+        // 3 before 1, 1 before 4, 5 before 2
+        this.runConstraintTest( array, new PermutationConstraints().requireBefore( 1, 3 ).requireBefore( 3, 5 )
+            .requireBefore( 0, 4 ) );
+    }
+
+    @Test
+    public void testMixedConstraints()
+    {
+        int[] array = new int[]
+        {
+            1, 1, 2, 2, 3, 3
+        };
+        this.runConstraintTest( array, new PermutationConstraints().requireBefore( 2, 4 ).forbidPosition( 0, 0 )
+            .forbidPosition( 1, 5 ) );
+    }
+
+    @Test
+    public void testCycle()
+    {
+        int[] array = new int[]
+        {
+            1, 2, 3
+        };
+        ConstrainedPermutations<int[]> constrained = this.runConstraintTest( array, new PermutationConstraints()
+            .requireBefore( 0, 1 ).requireBefore( 1, 2 ).requireBefore( 2, 0 ) );
+        Assert.assertEquals( "Cyclic precedences must not allow any permutations.", BigInteger.ZERO, constrained
+            .getCount() );
+    }
+
+    @Test
+    public void testGenericVisitor()
+    {
+        String[] array = new String[]
+        {
+            "d", "a", "c", "b", "a"
+        };
+        RankedPermutationGenerator<String[]> generator = this.createGenericComparableGenerator1( array );
+        final ConstrainedPermutations<String[]> constrained = PermutationGeneratorProvider
+            .createConstrainedPermutations( generator, array, new PermutationConstraints().forbidPosition( 1, 4 )
+                .requireBefore( 0, 2 ) );
+        final Iterator<String[]> expected = constrained.iterator();
+        final int[] leaves = new int[1];
+        Assert.assertTrue( "Traversal must complete.", constrained.visit( new PermutationVisitor<String[]>()
+        {
+            @Override
+            public VisitResult enter( String[] prefix, int depth )
+            {
+                Assert.assertFalse( "Prefix must satisfy the position constraint.", depth == 4
+                    && "a".equals( prefix[4] ) );
+                if( depth == prefix.length - 1 )
+                {
+                    Assert.assertArrayEquals( "Visitor must produce the same permutations as the iterator.",
+                        expected.next(), prefix );
+                    ++leaves[0];
+                }
+                return VisitResult.CONTINUE;
+            }
+
+            @Override
+            public void leave( String[] prefix, int depth )
+            {
+            }
+        } ) );
+        Assert.assertEquals( "Visitor must visit all permutations.", constrained.getCount().intValue(), leaves[0] );
+    }
+
+    @Test
+    public void testUpperBound()
+    {
+        int[] array = new int[21];
+        for( int idx = 0; idx < array.length; ++idx )
+        {
+            array[idx] = idx;
+        }
+        RankedPermutationGenerator<int[]> generator = this.createOptimizedGenerator( array );
+        ConstrainedPermutations<int[]> constrained = PermutationGeneratorProvider.createConstrainedPermutations(
+            generator, array, new PermutationConstraints().requireBefore( 20, 0 ).forbidPosition( 3, 0 ) );
+        Assert.assertFalse( "Count must not be exact with too many states.", constrained.isCountExact() );
+        Assert.assertEquals( "Upper bound must use the strongest single constraint.", generator.getTotal().shiftRight(
+            1 ), constrained.getCount() );
+        int[] first = constrained.iterator().next();
+        Assert.assertEquals( "First permutation must satisfy the constraints.", 1, first[0] );
+        Assert.assertEquals( "First permutation must be the smallest valid one.", 3, first[2] );
+        Assert.assertEquals( "First permutation must satisfy the precedence.", 20, first[19] );
+        Assert.assertEquals( "First permutation must satisfy the precedence.", 0, first[20] );
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testArrayNotPermutation()
+    {
+        RankedPermutationGenerator<int[]> generator = this.createOptimizedGenerator( new int[]
+        {
+            1, 2, 2
+        } );
+        PermutationGeneratorProvider.createConstrainedPermutations( generator, new int[]
+        {
+            1, 1, 2
+        }, new PermutationConstraints().forbidPosition( 0, 0 ) );
+    }
+
+    private ConstrainedPermutations<int[]> runConstraintTest( int[] array, PermutationConstraints constraints )
+    {
+        RankedPermutationGenerator<int[]> generator = this.createOptimizedGenerator( array );
+        ConstrainedPermutations<int[]> constrained = PermutationGeneratorProvider.createConstrainedPermutations(
+            generator, array, constraints );
+        Assert.assertEquals( "Unconstrained total must be the total of the generator.", generator.getTotal(),
+            constrained.getUnconstrainedTotal() );
+        Assert.assertTrue( "Count must be exact for small multisets.", constrained.isCountExact() );
+
+        Iterator<int[]> iter = constrained.iterator();
+        long count = 0L;
+        for( int[] permutation : generator )
+        {
+            if( this.isValid( array, permutation, constraints ) )
+            {
+                Assert.assertTrue( "Valid permutation must be produced.", iter.hasNext() );
+                Assert.assertArrayEquals( "Valid permutations must be produced in order.", permutation, iter.next() );
+                ++count;
+            }
+        }
+        Assert.assertFalse( "Only valid permutations must be produced.", iter.hasNext() );
+        Assert.assertEquals( "Count must be exact.", BigInteger.valueOf( count ), constrained.getCount() );
+        return constrained;
+    }
+
+    private boolean isValid( int[] array, int[] permutation, PermutationConstraints constraints )
+    {
+        boolean result = true;
+        for( int[] forbidden : constraints.getForbiddenPositions() )
+        {
+            result = result && permutation[forbidden[1]] != array[forbidden[0]];
+        }
+        for( int[] precedence : constraints.getPrecedences() )
+        {
+            int lastFirst = -1;
+            int firstSecond = permutation.length;
+            for( int idx = 0; idx < permutation.length; ++idx )
+            {
+                if( permutation[idx] == array[precedence[0]] )
+                {
+                    lastFirst = idx;
+                }
+                if( permutation[idx] == array[precedence[1]] )
+                {
+                    firstSecond = Math.min( firstSecond, idx );
+                }
+            }
+            result = result && lastFirst < firstSecond;
+        }
+        return result;
+    }
+}
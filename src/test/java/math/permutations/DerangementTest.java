@@ -0,0 +1,191 @@
+/*
+ * Copyright (c) 2011, Stanislav Muhametsin. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package math.permutations;
+
+import java.math.BigInteger;
+import java.util.Iterator;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for derangement generators.
+ * 
+ * @author 2011 Stanislav Muhametsin
+ */
+public class DerangementTest extends AbstractPermutationTest
+{
+    @Test
+    public void testDistinct()
+    {
+        this.runFilterTest( new int[]
+        {
+            4, 7, 1, 3, 6, 2, 5
+        } );
+    }
+
+    @Test
+    public void testMultiset()
+    {
+        this.runFilterTest( new int[]
+        {
+            2, 1, 1, 3, 2, 3, 1
+        } );
+        this.runFilterTest( new int[]
+        {
+            1, 2, 1, 2, 1, 2
+        } );
+    }
+
+    @Test
+    public void testNoDerangements()
+    {
+        RankedPermutationGenerator<int[]> derangements = this.runFilterTest( new int[]
+        {
+            1, 2, 1, 1
+        } );
+        Assert.assertEquals( "Too frequent element must prevent derangements.", BigInteger.ZERO, derangements
+            .getTotal() );
+        Assert.assertEquals( "Empty array must have one derangement.", BigInteger.ONE, this.runFilterTest(
+            new int[0] ).getTotal() );
+    }
+
+    @Test
+    public void testGenericVisitor()
+    {
+        String[] original = new String[]
+        {
+            "b", "a", "c", "a", "d"
+        };
+        RankedPermutationGenerator<String[]> derangements = PermutationGeneratorProvider.createDerangementGenerator(
+            this.createGenericComparableGenerator1( original ), original );
+        final Iterator<String[]> expected = derangements.iterator();
+        final int[] leaves = new int[1];
+        Assert.assertTrue( "Traversal must complete.", derangements.visit( new PermutationVisitor<String[]>()
+        {
+            @Override
+            public VisitResult enter( String[] prefix, int depth )
+            {
+                if( depth == prefix.length - 1 )
+                {
+                    Assert.assertArrayEquals( "Visitor must produce the same derangements as the iterator.",
+                        expected.next(), prefix );
+                    ++leaves[0];
+                }
+                return VisitResult.CONTINUE;
+            }
+
+            @Override
+            public void leave( String[] prefix, int depth )
+            {
+            }
+        } ) );
+        Assert.assertEquals( "Visitor must visit only completable prefixes.", derangements.getTotal().intValue(),
+            leaves[0] );
+    }
+
+    @Test
+    public void testRangesAndStreams()
+    {
+        long[] original = new long[]
+        {
+            5L, 3L, 3L, 1L, 4L, 2L, 2L, 6L, 1L
+        };
+        RankedPermutationGenerator<long[]> derangements = PermutationGeneratorProvider.createDerangementGenerator( this
+            .createOptimizedGenerator( original ), original );
+        long total = derangements.getTotal().longValue();
+        Assert.assertEquals( "Parallel stream must contain all derangements.", total, derangements.parallelStream()
+            .count() );
+
+        PermutationIterator<long[]> iter = derangements.iterator( BigInteger.valueOf( 1000L ), BigInteger
+            .valueOf( 1100L ) );
+        for( long rank = 1000L; rank < 1100L; ++rank )
+        {
+            if( rank == 1050L )
+            {
+                iter = derangements.iterator( iter.checkpoint() );
+            }
+            long[] derangement = iter.next();
+            Assert.assertArrayEquals( "Range must start from given rank.", derangements.permutationAt( BigInteger
+                .valueOf( rank ), null ), derangement );
+            Assert.assertEquals( "Rank must follow the iteration.", rank, derangements.getRankAsLong( derangement ) );
+        }
+        Assert.assertFalse( "Range must end at given rank.", iter.hasNext() );
+    }
+
+    @Test
+    public void testLargeCount()
+    {
+        int[] array = new int[30];
+        for( int idx = 0; idx < array.length; ++idx )
+        {
+            array[idx] = array.length - idx;
+        }
+        RankedPermutationGenerator<int[]> derangements = PermutationGeneratorProvider.createDerangementGenerator( this
+            .createOptimizedGenerator( array ), array );
+
+        // D(n) = (n - 1) (D(n - 1) + D(n - 2))
+        BigInteger previous = BigInteger.ONE;
+        BigInteger current = BigInteger.ZERO;
+        for( int n = 2; n <= array.length; ++n )
+        {
+            BigInteger next = BigInteger.valueOf( n - 1 ).multiply( current.add( previous ) );
+            previous = current;
+            current = next;
+        }
+        Assert.assertEquals( "Count must match the recurrence.", current, derangements.getTotal() );
+
+        BigInteger rank = current.divide( BigInteger.valueOf( 3L ) );
+        PermutationIterator<int[]> iter = derangements.iterator( rank );
+        for( int idx = 0; idx < 50; ++idx )
+        {
+            Assert.assertEquals( "Rank must follow the iteration.", rank, derangements.getRank( iter.next() ) );
+            rank = rank.add( BigInteger.ONE );
+        }
+    }
+
+    private RankedPermutationGenerator<int[]> runFilterTest( int[] original )
+    {
+        RankedPermutationGenerator<int[]> generator = this.createOptimizedGenerator( original );
+        RankedPermutationGenerator<int[]> derangements = PermutationGeneratorProvider.createDerangementGenerator(
+            generator, original );
+        Iterator<int[]> iter = derangements.iterator();
+        long count = 0L;
+        for( int[] permutation : generator )
+        {
+            if( this.isDerangement( original, permutation ) )
+            {
+                Assert.assertTrue( "Derangement must be produced.", iter.hasNext() );
+                Assert.assertArrayEquals( "Derangements must be produced in order.", permutation, iter.next() );
+                Assert.assertEquals( "Rank must be the index of the derangement.", count, derangements
+                    .getRankAsLong( permutation ) );
+                ++count;
+            }
+        }
+        Assert.assertFalse( "Only derangements must be produced.", iter.hasNext() );
+        Assert.assertEquals( "Count must be exact.", BigInteger.valueOf( count ), derangements.getTotal() );
+        return derangements;
+    }
+
+    private boolean isDerangement( int[] original, int[] permutation )
+    {
+        boolean result = true;
+        for( int idx = 0; idx < original.length; ++idx )
+        {
+            result = result && original[idx] != permutation[idx];
+        }
+        return result;
+    }
+}
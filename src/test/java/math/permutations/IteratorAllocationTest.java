@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2011, Stanislav Muhametsin. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package math.permutations;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Iterator;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+/**
+ * Verifies that iterating over permutations does not allocate memory per permutation.
+ * 
+ * @author 2011 Stanislav Muhametsin
+ */
+public class IteratorAllocationTest extends AbstractPermutationTest
+{
+    /**
+     * How many bytes in total the measured loop may allocate. Allows some slack for the measurement itself, but is
+     * way less than a single {@link java.math.BigInteger} per permutation would take.
+     */
+    private static final long MAX_ALLOCATED_BYTES = 1024L;
+
+    @Test
+    public void testIntIteratorDoesNotAllocate()
+    {
+        this.runAllocationTest( this.createOptimizedGenerator( new int[]
+        {
+            1, 2, 3, 4, 5, 6, 7, 8, 9
+        } ) );
+    }
+
+    @Test
+    public void testIntIteratorWithDuplicatesDoesNotAllocate()
+    {
+        this.runAllocationTest( this.createOptimizedGenerator( new int[]
+        {
+            1, 1, 2, 2, 3, 3, 4, 4, 5, 5
+        } ) );
+    }
+
+    @Test
+    public void testDoubleIteratorDoesNotAllocate()
+    {
+        this.runAllocationTest( this.createOptimizedGenerator( new double[]
+        {
+            1.0, 2.0, 3.0, 4.0, 5.0, 6.0, 7.0, 8.0
+        } ) );
+    }
+
+    @Test
+    public void testGenericIteratorDoesNotAllocate()
+    {
+        this.runAllocationTest( this.createGenericComparableGenerator1( "a", "b", "c", "d", "e", "f", "g", "h" ) );
+    }
+
+    private <T> void runAllocationTest( RankedPermutationGenerator<T> generator )
+    {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue( bean instanceof com.sun.management.ThreadMXBean );
+        com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean) bean;
+        Assume.assumeTrue( sunBean.isThreadAllocatedMemorySupported() );
+        sunBean.setThreadAllocatedMemoryEnabled( true );
+
+        // Warm-up, so that class loading and such does not affect measurements
+        this.iterate( generator.iterator() );
+
+        Iterator<T> iter = generator.iterator();
+        long threadID = Thread.currentThread().getId();
+        long before = sunBean.getThreadAllocatedBytes( threadID );
+        long count = this.iterate( iter );
+        long allocated = sunBean.getThreadAllocatedBytes( threadID ) - before;
+
+        Assert.assertEquals( "All permutations must be iterated.", generator.getTotal().longValue(), count );
+        Assert.assertTrue( "Iterating must not allocate per permutation, but " + allocated + " bytes were allocated for "
+            + count + " permutations.", allocated <= MAX_ALLOCATED_BYTES );
+    }
+
+    private <T> long iterate( Iterator<T> iter )
+    {
+        long count = 0L;
+        while( iter.hasNext() )
+        {
+            iter.next();
+            ++count;
+        }
+        return count;
+    }
+}
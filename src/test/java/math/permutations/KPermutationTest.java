@@ -0,0 +1,192 @@
+/*
+ * Copyright (c) 2011, Stanislav Muhametsin. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package math.permutations;
+
+import java.lang.reflect.Array;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for generators of k-permutations.
+ * 
+ * @author 2011 Stanislav Muhametsin
+ */
+public class KPermutationTest extends AbstractPermutationTest
+{
+    @Test
+    public void testAgainstFullPermutations()
+    {
+        int[] array = new int[]
+        {
+            3, 1, 2, 1, 4, 1, 2
+        };
+        RankedPermutationGenerator<int[]> generator = this.createOptimizedGenerator( array );
+        for( int k = 0; k <= array.length; ++k )
+        {
+            List<int[]> expected = this.getDistinctPrefixes( generator, k );
+            RankedPermutationGenerator<int[]> kGenerator = PermutationGeneratorProvider.createKPermutationGenerator(
+                generator, k );
+            Assert.assertEquals( "Total must be the amount of distinct prefixes.", BigInteger.valueOf( expected
+                .size() ), kGenerator.getTotal() );
+
+            int rank = 0;
+            for( int[] permutation : kGenerator )
+            {
+                Assert.assertArrayEquals( "K-permutations must be in lexicographic order.", expected.get( rank ),
+                    permutation );
+                Assert.assertEquals( "Rank must be the index of the k-permutation.", rank, kGenerator
+                    .getRankAsLong( permutation ) );
+                Assert.assertArrayEquals( "Unranking must be the inverse of ranking.", permutation, kGenerator
+                    .permutationAt( BigInteger.valueOf( rank ), null ) );
+                ++rank;
+            }
+            Assert.assertEquals( "All k-permutations must be iterated.", expected.size(), rank );
+        }
+    }
+
+    @Test
+    public void testFullLength()
+    {
+        RankedPermutationGenerator<short[]> generator = this.createOptimizedGenerator( SHORT_ARRAY );
+        this.verifyPermutations( PermutationGeneratorProvider.createKPermutationGenerator( generator,
+            SHORT_ARRAY.length ), SHORT_PERMUTATIONS, EqualsMethodTester.INSTANCE );
+    }
+
+    @Test
+    public void testGeneric()
+    {
+        RankedPermutationGenerator<String[]> generator = this.createGenericComparableGenerator1( "b", "a", "c", "a",
+            "b" );
+        RankedPermutationGenerator<String[]> kGenerator = PermutationGeneratorProvider.createKPermutationGenerator(
+            generator, 3 );
+        List<String[]> expected = this.getDistinctPrefixes( generator, 3 );
+        Iterator<String[]> iter = kGenerator.iterator();
+        for( String[] prefix : expected )
+        {
+            Assert.assertArrayEquals( "Generic k-permutations must be in lexicographic order.", prefix, iter.next() );
+        }
+        Assert.assertFalse( "Only distinct k-permutations must be iterated.", iter.hasNext() );
+
+        final int[] leaves = new int[1];
+        Assert.assertTrue( "Traversal must complete.", kGenerator.visit( new PermutationVisitor<String[]>()
+        {
+            @Override
+            public VisitResult enter( String[] prefix, int depth )
+            {
+                if( depth == 2 )
+                {
+                    ++leaves[0];
+                }
+                return VisitResult.CONTINUE;
+            }
+
+            @Override
+            public void leave( String[] prefix, int depth )
+            {
+            }
+        } ) );
+        Assert.assertEquals( "Visitor must stop at depth k.", expected.size(), leaves[0] );
+    }
+
+    @Test
+    public void testRangesAndStreams()
+    {
+        RankedPermutationGenerator<double[]> kGenerator = PermutationGeneratorProvider.createKPermutationGenerator( this
+            .createOptimizedGenerator( new double[]
+            {
+                1.0, 2.0, 2.0, 3.0, 4.0, 5.0, 5.0, 5.0
+            } ), 5 );
+        long total = kGenerator.getTotal().longValue();
+        Assert.assertEquals( "Stream must contain all k-permutations.", total, kGenerator.stream().count() );
+        Assert.assertEquals( "Parallel stream must contain all k-permutations.", total, kGenerator.parallelStream()
+            .count() );
+
+        PermutationIterator<double[]> iter = kGenerator.iterator( BigInteger.valueOf( 100L ), BigInteger
+            .valueOf( 200L ) );
+        for( long rank = 100L; rank < 200L; ++rank )
+        {
+            if( rank == 150L )
+            {
+                iter = kGenerator.iterator( iter.checkpoint() );
+            }
+            Assert.assertArrayEquals( "Range must start from given rank.", kGenerator.permutationAt( BigInteger
+                .valueOf( rank ), null ), iter.next(), 0.0 );
+        }
+        Assert.assertFalse( "Range must end at given rank.", iter.hasNext() );
+    }
+
+    @Test
+    public void testLargeTotal()
+    {
+        long[] array = new long[40];
+        for( int idx = 0; idx < array.length; ++idx )
+        {
+            array[idx] = idx / 2;
+        }
+        RankedPermutationGenerator<long[]> kGenerator = PermutationGeneratorProvider.createKPermutationGenerator( this
+            .createOptimizedGenerator( array ), 30 );
+        Assert.assertTrue( "Total must not fit into long.", kGenerator.getTotal().bitLength() >= Long.SIZE );
+
+        BigInteger rank = kGenerator.getTotal().divide( BigInteger.valueOf( 3L ) );
+        PermutationIterator<long[]> iter = kGenerator.iterator( rank );
+        for( int idx = 0; idx < 100; ++idx )
+        {
+            Assert.assertEquals( "Rank must follow the iteration.", rank, kGenerator.getRank( iter.next() ) );
+            rank = rank.add( BigInteger.ONE );
+        }
+    }
+
+    @Test( expected = UnsupportedOperationException.class )
+    public void testUnsupportedOrder()
+    {
+        PermutationGeneratorProvider.createKPermutationGenerator( this.createOptimizedGenerator( INT_ARRAY ), 2 )
+            .iterator( PermutationOrder.HEAP );
+    }
+
+    private <T> List<T> getDistinctPrefixes( RankedPermutationGenerator<T> generator, int k )
+    {
+        List<T> result = new ArrayList<T>();
+        Object previous = null;
+        for( T permutation : generator )
+        {
+            Object prefix = this.copyPrefix( permutation, k );
+            if( previous == null || !Arrays.deepEquals( new Object[]
+            {
+                previous
+            }, new Object[]
+            {
+                prefix
+            } ) )
+            {
+                result.add( (T) prefix );
+                previous = prefix;
+            }
+        }
+        return result;
+    }
+
+    private Object copyPrefix( Object array, int k )
+    {
+        Object result = Array.newInstance( array.getClass().getComponentType(), k );
+        System.arraycopy( array, 0, result, 0, k );
+        return result;
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2011, Stanislav Muhametsin. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package math.permutations;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import math.permutations.impl.MappedPermutation;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for the permutation generator producing mapped {@link List} views.
+ * 
+ * @author 2011 Stanislav Muhametsin
+ */
+public class MappedPermutationTest extends AbstractPermutationTest
+{
+    private static final List<String> DISTINCT = Arrays.asList( "z", "y", "x" );
+
+    private static final int[] MULTIPLICITIES = new int[]
+    {
+        2, 1, 2
+    };
+
+    @Test
+    public void testSameOrderAsClasses()
+    {
+        RankedPermutationGenerator<List<String>> generator = PermutationGeneratorProvider
+            .createMappedPermutationGenerator( DISTINCT, MULTIPLICITIES );
+        RankedPermutationGenerator<int[]> classGenerator = this.createOptimizedGenerator( new int[]
+        {
+            0, 0, 1, 2, 2
+        } );
+        Assert.assertEquals( "Totals must match.", classGenerator.getTotal(), generator.getTotal() );
+
+        Iterator<int[]> classIter = classGenerator.iterator();
+        for( List<String> permutation : generator )
+        {
+            int[] classes = classIter.next();
+            Assert.assertEquals( "Size must match.", classes.length, permutation.size() );
+            for( int idx = 0; idx < classes.length; ++idx )
+            {
+                Assert.assertEquals( "Element must be mapped from the class.", DISTINCT.get( classes[idx] ),
+                    permutation.get( idx ) );
+                Assert.assertEquals( "Class index must match.", classes[idx],
+                    ( (MappedPermutation<String>) permutation ).getClassIndex( idx ) );
+            }
+        }
+        Assert.assertFalse( "Both generators must produce same amount of permutations.", classIter.hasNext() );
+    }
+
+    @Test
+    public void testRanking()
+    {
+        RankedPermutationGenerator<List<String>> generator = PermutationGeneratorProvider
+            .createMappedPermutationGenerator( DISTINCT, MULTIPLICITIES );
+        long rank = 0L;
+        for( List<String> permutation : generator )
+        {
+            Assert.assertEquals( "Rank of the view must match.", rank, generator.getRankAsLong( permutation ) );
+            List<String> copy = new ArrayList<String>( permutation );
+            Assert.assertEquals( "Rank of a plain list must match.", rank, generator.getRankAsLong( copy ) );
+            Assert.assertEquals( "Permutation at rank must match.", permutation,
+                generator.permutationAt( BigInteger.valueOf( rank ), null ) );
+
+            List<String> dest = new ArrayList<String>( DISTINCT );
+            dest.addAll( DISTINCT.subList( 0, 2 ) );
+            generator.permutationAt( BigInteger.valueOf( rank ), dest );
+            Assert.assertEquals( "Plain list must be filled with the permutation.", permutation, dest );
+            ++rank;
+        }
+    }
+
+    @Test
+    public void testNonComparableElements()
+    {
+        Object first = new Object();
+        Object second = new Object();
+        RankedPermutationGenerator<List<Object>> generator = PermutationGeneratorProvider
+            .createMappedPermutationGenerator( Arrays.asList( first, second ), 1, 2 );
+        List<List<Object>> all = new ArrayList<List<Object>>();
+        for( List<Object> permutation : generator )
+        {
+            all.add( new ArrayList<Object>( permutation ) );
+        }
+        Assert.assertEquals( "The order must follow the order of the distinct elements.", Arrays.asList(
+            Arrays.asList( first, second, second ), Arrays.asList( second, first, second ),
+            Arrays.asList( second, second, first ) ), all );
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownElement()
+    {
+        RankedPermutationGenerator<List<String>> generator = PermutationGeneratorProvider
+            .createMappedPermutationGenerator( DISTINCT, MULTIPLICITIES );
+        generator.getRank( Arrays.asList( "z", "z", "y", "x", "w" ) );
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDuplicateDistinctElements()
+    {
+        PermutationGeneratorProvider.createMappedPermutationGenerator( Arrays.asList( "a", "a" ), 1, 1 );
+    }
+}
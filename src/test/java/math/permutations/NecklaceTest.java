@@ -0,0 +1,180 @@
+/*
+ * Copyright (c) 2011, Stanislav Muhametsin. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package math.permutations;
+
+import java.math.BigInteger;
+import java.util.Iterator;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for necklace and bracelet generators.
+ * 
+ * @author 2011 Stanislav Muhametsin
+ */
+public class NecklaceTest extends AbstractPermutationTest
+{
+    @Test
+    public void testDistinct()
+    {
+        int[] array = new int[]
+        {
+            4, 1, 3, 6, 2, 5
+        };
+        Assert.assertEquals( "Distinct necklaces must be (n - 1)!.", BigInteger.valueOf( 120L ), this.runFilterTest(
+            array, false ) );
+        Assert.assertEquals( "Distinct bracelets must be (n - 1)! / 2.", BigInteger.valueOf( 60L ), this
+            .runFilterTest( array, true ) );
+    }
+
+    @Test
+    public void testMultiset()
+    {
+        int[][] arrays = new int[][]
+        {
+            {
+                1, 1, 2, 2, 3, 3
+            },
+            {
+                1, 1, 1, 1, 2, 2, 2, 2
+            },
+            {
+                1, 1, 2, 2, 2, 3, 3, 3, 4
+            },
+            {
+                1, 2, 2, 3, 3, 3, 3, 4
+            },
+            {
+                1, 1, 2, 2, 3, 3, 4, 4
+            },
+            {
+                1, 2, 2, 2, 2, 2, 3
+            },
+            {
+                3, 1, 1, 1, 1, 1, 1, 1, 2
+            }
+        };
+        for( int[] array : arrays )
+        {
+            this.runFilterTest( array, false );
+            this.runFilterTest( array, true );
+        }
+    }
+
+    @Test
+    public void testTrivial()
+    {
+        Assert.assertEquals( "Single class must have one necklace.", BigInteger.ONE, this.runFilterTest( new int[]
+        {
+            7, 7, 7, 7
+        }, false ) );
+        Assert.assertEquals( "Single element must have one bracelet.", BigInteger.ONE, this.runFilterTest( new int[]
+        {
+            7
+        }, true ) );
+        Assert.assertEquals( "Empty array must have one necklace.", BigInteger.ONE, this.runFilterTest( new int[0],
+            false ) );
+    }
+
+    @Test
+    public void testGeneric()
+    {
+        String[] array = new String[]
+        {
+            "b", "a", "c", "a", "b", "a"
+        };
+        NecklaceGenerator<String[]> necklaces = PermutationGeneratorProvider.createNecklaceGenerator( this
+            .createGenericComparableGenerator1( array ), true );
+        Iterator<String[]> iter = necklaces.iterator();
+        Assert.assertArrayEquals( "First bracelet must be the sorted array.", new String[]
+        {
+            "a", "a", "a", "b", "b", "c"
+        }, iter.next() );
+        int count = 1;
+        while( iter.hasNext() )
+        {
+            iter.next();
+            ++count;
+        }
+        Assert.assertEquals( "Count must be exact.", necklaces.getTotal().intValue(), count );
+    }
+
+    @Test
+    public void testLargeCount()
+    {
+        // Binary necklaces with n/2 ones for n = 2p, p prime, are (C(2p, p) + 2(p - 1)) / (2p)
+        int[] array = new int[34];
+        for( int idx = 0; idx < array.length; ++idx )
+        {
+            array[idx] = idx % 2;
+        }
+        NecklaceGenerator<int[]> necklaces = PermutationGeneratorProvider.createNecklaceGenerator( this
+            .createOptimizedGenerator( array ), false );
+        BigInteger binomial = BigInteger.ONE;
+        for( int idx = 1; idx <= 17; ++idx )
+        {
+            binomial = binomial.multiply( BigInteger.valueOf( 17 + idx ) ).divide( BigInteger.valueOf( idx ) );
+        }
+        Assert.assertEquals( "Count must match the closed form.", binomial.add( BigInteger.valueOf( 32L ) ).divide(
+            BigInteger.valueOf( 34L ) ), necklaces.getTotal() );
+    }
+
+    private BigInteger runFilterTest( int[] array, boolean bracelets )
+    {
+        RankedPermutationGenerator<int[]> generator = this.createOptimizedGenerator( array );
+        NecklaceGenerator<int[]> necklaces = PermutationGeneratorProvider.createNecklaceGenerator( generator,
+            bracelets );
+        Assert.assertEquals( "Generator must report the kind.", bracelets, necklaces.isBracelets() );
+        Iterator<int[]> iter = necklaces.iterator();
+        long count = 0L;
+        for( int[] permutation : generator )
+        {
+            if( this.isCanonical( permutation, bracelets ) )
+            {
+                Assert.assertTrue( "Canonical representative must be produced.", iter.hasNext() );
+                Assert.assertArrayEquals( "Representatives must be produced in order.", permutation, iter.next() );
+                ++count;
+            }
+        }
+        Assert.assertFalse( "Only canonical representatives must be produced.", iter.hasNext() );
+        Assert.assertEquals( "Count must be exact.", BigInteger.valueOf( count ), necklaces.getTotal() );
+        return necklaces.getTotal();
+    }
+
+    private boolean isCanonical( int[] permutation, boolean bracelets )
+    {
+        int n = permutation.length;
+        boolean result = true;
+        for( int shift = 0; result && shift < n; ++shift )
+        {
+            result = this.compare( permutation, shift, false ) <= 0 && ( !bracelets || this.compare( permutation,
+                shift, true ) <= 0 );
+        }
+        return result;
+    }
+
+    private int compare( int[] permutation, int shift, boolean reversed )
+    {
+        int n = permutation.length;
+        int result = 0;
+        for( int idx = 0; result == 0 && idx < n; ++idx )
+        {
+            int other = reversed ? permutation[n - 1 - ( shift + idx ) % n] : permutation[( shift + idx ) % n];
+            result = permutation[idx] - other;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2011, Stanislav Muhametsin. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package math.permutations;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * 
+ * @author 2011 Stanislav Muhametsin
+ */
+public class ParallelPermutationsTest extends AbstractPermutationTest
+{
+    private static final int[] INTS = new int[]
+    {
+        5, 1, 4, 2, 2, 3, 6, 7
+    };
+
+    @Test
+    public void testForEach()
+    {
+        RankedPermutationGenerator<int[]> generator = this.createOptimizedGenerator( INTS );
+        final AtomicLong count = new AtomicLong();
+        ParallelPermutations.forEach( generator, p -> count.incrementAndGet() );
+        Assert.assertEquals( "All permutations must be processed.", generator.getTotal().longValue(), count.get() );
+    }
+
+    @Test
+    public void testReduceMinimum()
+    {
+        // Minimize sum of |p[i] - i|, which is zero only for the sorted array of 0..n-1
+        RankedPermutationGenerator<int[]> generator = this.createOptimizedGenerator( new int[]
+        {
+            6, 3, 0, 2, 5, 1, 4, 7
+        } );
+        long[] min = ParallelPermutations.reduce( new ForkJoinPool( 3 ), generator, () -> new long[]
+        {
+            Long.MAX_VALUE
+        }, ( acc, p ) -> {
+            long cost = 0;
+            for( int idx = 0; idx < p.length; ++idx )
+            {
+                cost += Math.abs( p[idx] - idx );
+            }
+            acc[0] = Math.min( acc[0], cost );
+        }, ( left, right ) -> left[0] <= right[0] ? left : right );
+        Assert.assertEquals( "The minimum must be found.", 0L, min[0] );
+    }
+
+    @Test
+    public void testReduceKeepsOrder()
+    {
+        final RankedPermutationGenerator<int[]> generator = this.createOptimizedGenerator( INTS );
+        List<Long> ranks = ParallelPermutations.reduce( generator, () -> new ArrayList<Long>(),
+            ( acc, p ) -> acc.add( generator.getRankAsLong( p ) ), ( left, right ) -> {
+                left.addAll( right );
+                return left;
+            } );
+        Assert.assertEquals( "All permutations must be accumulated.", generator.getTotal().intValue(), ranks.size() );
+        for( int idx = 0; idx < ranks.size(); ++idx )
+        {
+            Assert.assertEquals( "The accumulators must be combined in order.", Long.valueOf( idx ), ranks.get( idx ) );
+        }
+    }
+
+    @Test
+    public void testAccumulatorPerChunk()
+    {
+        final AtomicLong created = new AtomicLong();
+        final AtomicLong combined = new AtomicLong();
+        ForkJoinPool pool = new ForkJoinPool( 2 );
+        ParallelPermutations.reduce( pool, this.createOptimizedGenerator( INTS ), () -> {
+            created.incrementAndGet();
+            return new long[1];
+        }, ( acc, p ) -> ++acc[0], ( left, right ) -> {
+            combined.incrementAndGet();
+            return left;
+        } );
+        Assert.assertTrue( "There must be less than twice the chunks per worker accumulators.", created.get() < 2L
+            * ParallelPermutations.CHUNKS_PER_WORKER * pool.getParallelism() );
+        Assert.assertEquals( "The combiner must be called once less than there are accumulators.", created.get() - 1L,
+            combined.get() );
+    }
+
+    @Test
+    public void testReduceSmallGenerator()
+    {
+        RankedPermutationGenerator<int[]> generator = this.createOptimizedGenerator( new int[] {} );
+        long[] count = ParallelPermutations.reduce( generator, () -> new long[1], ( acc, p ) -> ++acc[0], (
+            left, right ) -> new long[]
+        {
+            left[0] + right[0]
+        } );
+        Assert.assertEquals( "Empty array must have exactly one permutation.", 1L, count[0] );
+    }
+}
@@ -14,6 +14,11 @@
 
 package math.permutations;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import math.permutations.PermutationGeneratorProvider.OptimizedGeneratorCreator;
 import math.permutations.impl.BytePermutationGenerator;
 import math.permutations.impl.DoublePermutationGenerator;
 import math.permutations.impl.FloatPermutationGenerator;
@@ -119,4 +124,106 @@ public class PermutationGeneratorProviderTest extends AbstractPermutationTest
             DoublePermutationGenerator.class, this.createOptimizedGenerator( DOUBLE_ARRAY ).getClass() );
     }
 
+    @Test(expected = NoSuchOptimizedPermutationGeneratorException.class)
+    public void optimizedGeneratorTestMissing()
+    {
+        this.createOptimizedGenerator( new char[]
+        {
+            'a', 'b'
+        } );
+    }
+
+    @Test
+    public void registeredGeneratorTest()
+    {
+        PermutationGeneratorProvider.registerOptimizedGeneratorCreator( RegisteredElement[].class,
+            new PermutationGeneratorProvider.OptimizedGeneratorCreator()
+            {
+                @Override
+                public <ArrayType> RankedPermutationGenerator<ArrayType> createOptimizedGenerator( ArrayType array )
+                {
+                    return (RankedPermutationGenerator<ArrayType>) PermutationGeneratorProvider
+                        .createGenericPermutationGenerator( ( RegisteredElement first, RegisteredElement second ) -> 0,
+                            (RegisteredElement[]) array );
+                }
+            } );
+        Assert.assertEquals( "Registered creator must be used.", GenericPermutationGenerator.class, this
+            .createOptimizedGenerator( new RegisteredElement[]
+            {
+                new RegisteredElement(), new RegisteredElement()
+            } ).getClass() );
+    }
+
+    @Test
+    public void concurrentRegistrationTest() throws InterruptedException
+    {
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        final OptimizedGeneratorCreator creator = new OptimizedGeneratorCreator()
+        {
+            @Override
+            public <ArrayType> RankedPermutationGenerator<ArrayType> createOptimizedGenerator( ArrayType array )
+            {
+                throw new UnsupportedOperationException();
+            }
+        };
+        List<Thread> threads = new ArrayList<Thread>();
+        for( int idx = 0; idx < 4; ++idx )
+        {
+            final boolean registering = idx == 0;
+            threads.add( new Thread()
+            {
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        for( int round = 0; round < 2000; ++round )
+                        {
+                            if( registering )
+                            {
+                                PermutationGeneratorProvider.registerOptimizedGeneratorCreator(
+                                    ConcurrentElement[].class, creator );
+                            }
+                            else
+                            {
+                                Assert.assertEquals( "Built-in creator must be found.", IntPermutationGenerator.class,
+                                    PermutationGeneratorProvider.createOptimizedGenerator( INT_ARRAY ).getClass() );
+                                Assert.assertEquals( "Built-in creator must be found.", ShortPermutationGenerator.class,
+                                    PermutationGeneratorProvider.createOptimizedGenerator( SHORT_ARRAY ).getClass() );
+                            }
+                        }
+                    }
+                    catch( Throwable t )
+                    {
+                        failure.compareAndSet( null, t );
+                    }
+                }
+            } );
+        }
+        for( Thread thread : threads )
+        {
+            thread.start();
+        }
+        for( Thread thread : threads )
+        {
+            thread.join();
+        }
+        Assert.assertNull( "Concurrent lookups and registrations must not fail.", failure.get() );
+    }
+
+    /**
+     * The element type used only by {@link #registeredGeneratorTest()}, so that the registered creator does not affect
+     * other tests.
+     */
+    private static final class RegisteredElement
+    {
+    }
+
+    /**
+     * The element type used only by {@link #concurrentRegistrationTest()}, so that the registered creator does not
+     * affect other tests.
+     */
+    private static final class ConcurrentElement
+    {
+    }
 }
@@ -14,6 +14,11 @@
 
 package math.permutations;
 
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Iterator;
+
+import org.junit.Assert;
 import org.junit.Test;
 
 /**
@@ -60,6 +65,32 @@ public class PermutationGeneratorTest extends AbstractPermutationTest
         this.runGenericTest3( WRAPPER_PERMUTATIONS, IntWrapper.class, IntWrapperComparator.INSTANCE, INT_WRAPPER_ARRAY );
     }
 
+    @Test
+    public void genericGeneratorKeepsEqualObjects()
+    {
+        String upper = "A";
+        String lower = "a";
+        String other = "b";
+        RankedPermutationGenerator<String[]> generator = this.createGenericGenerator1( String.CASE_INSENSITIVE_ORDER,
+            upper, lower, other );
+        Assert.assertEquals( "Equal elements must be counted as one class.", 3L, generator.getTotalAsLong() );
+        int count = 0;
+        for( String[] permutation : generator )
+        {
+            int uppers = 0;
+            int lowers = 0;
+            for( String element : permutation )
+            {
+                uppers += element == upper ? 1 : 0;
+                lowers += element == lower ? 1 : 0;
+            }
+            Assert.assertTrue( "Every permutation must contain each original object once, but was "
+                + Arrays.toString( permutation ), uppers == 1 && lowers == 1 );
+            ++count;
+        }
+        Assert.assertEquals( "The iterator must return all permutations.", 3, count );
+    }
+
     @Test
     public void optimizedGeneratorTestByte()
     {
@@ -96,4 +127,26 @@ public class PermutationGeneratorTest extends AbstractPermutationTest
         this.runOptimizedTest( DOUBLE_PERMUTATIONS, DOUBLE_ARRAY );
     }
 
+    @Test
+    public void minimalGeneratorTest()
+    {
+        final RankedPermutationGenerator<int[]> delegate = this.createOptimizedGenerator( INT_ARRAY );
+        PermutationGenerator<int[]> generator = new PermutationGenerator<int[]>()
+        {
+            @Override
+            public BigInteger getTotal()
+            {
+                return delegate.getTotal();
+            }
+
+            @Override
+            public Iterator<int[]> iterator()
+            {
+                return delegate.iterator();
+            }
+        };
+
+        Assert.assertEquals( "The default stream must return all permutations.", delegate.getTotalAsLong(),
+            generator.stream().count() );
+    }
 }
@@ -0,0 +1,325 @@
+/*
+ * Copyright (c) 2011, Stanislav Muhametsin. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package math.permutations;
+
+import java.lang.reflect.Array;
+import java.util.BitSet;
+import java.util.Iterator;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for the minimal-change orders of {@link PermutationOrder}.
+ * 
+ * @author 2011 Stanislav Muhametsin
+ */
+public class PermutationOrderTest extends AbstractPermutationTest
+{
+    @Test
+    public void testHeap()
+    {
+        this.runOrderTest( this.createOptimizedGenerator( new int[]
+        {
+            5, 3, 1, 2, 4, 6
+        } ), PermutationOrder.HEAP, false );
+        this.runOrderTest( this.createOptimizedGenerator( new double[]
+        {
+            1.0, 2.0, 3.0, 4.0, 5.0
+        } ), PermutationOrder.HEAP, false );
+    }
+
+    @Test
+    public void testJohnsonTrotter()
+    {
+        this.runOrderTest( this.createOptimizedGenerator( new int[]
+        {
+            5, 3, 1, 2, 4, 6
+        } ), PermutationOrder.JOHNSON_TROTTER, true );
+        this.runOrderTest( this.createGenericComparableGenerator1( "e", "d", "c", "b", "a" ),
+            PermutationOrder.JOHNSON_TROTTER, true );
+    }
+
+    @Test
+    public void testMultisetTransposition()
+    {
+        this.runOrderTest( this.createOptimizedGenerator( new int[]
+        {
+            1, 1, 2, 2
+        } ), PermutationOrder.MULTISET_TRANSPOSITION, false );
+        this.runOrderTest( this.createOptimizedGenerator( new byte[]
+        {
+            3, 1, 1, 2, 1, 3, 2
+        } ), PermutationOrder.MULTISET_TRANSPOSITION, false );
+        this.runOrderTest( this.createOptimizedGenerator( new long[]
+        {
+            1L, 2L, 3L, 4L, 5L, 6L
+        } ), PermutationOrder.MULTISET_TRANSPOSITION, false );
+        this.runOrderTest( this.createGenericGenerator1( WRAPPER_COMPARATOR, INT_WRAPPER1, INT_WRAPPER2,
+            INT_WRAPPER1, INT_WRAPPER3, INT_WRAPPER2 ), PermutationOrder.MULTISET_TRANSPOSITION, false );
+    }
+
+    @Test
+    public void testCoolLex()
+    {
+        this.runCoolLexTest( this.createOptimizedGenerator( new int[]
+        {
+            1, 1, 2, 2
+        } ) );
+        this.runCoolLexTest( this.createOptimizedGenerator( new float[]
+        {
+            3.0f, 1.0f, 1.0f, 2.0f, 1.0f, 3.0f, 2.0f
+        } ) );
+        this.runCoolLexTest( this.createOptimizedGenerator( new long[]
+        {
+            6L, 5L, 4L, 3L, 2L, 1L
+        } ) );
+        this.runCoolLexTest( this.createGenericGenerator1( WRAPPER_COMPARATOR, INT_WRAPPER1, INT_WRAPPER2,
+            INT_WRAPPER1, INT_WRAPPER3, INT_WRAPPER2 ) );
+        this.runCoolLexTest( this.createGenericComparableGenerator1( "a", "b" ) );
+        this.runCoolLexTest( this.createGenericComparableGenerator1( "a" ) );
+    }
+
+    @Test
+    public void testCoolLexRotationLength()
+    {
+        // Less than 3 elements are moved on average for distinct elements
+        Assert.assertTrue( "The rotations must be amortised constant for distinct elements.", this.runRotationTest(
+            new int[]
+            {
+                7, 6, 5, 4, 3, 2, 1
+            } ) < 3.0 );
+        this.runRotationTest( new int[]
+        {
+            1, 1, 2, 2, 3, 3, 4
+        } );
+        // Most prefixes are sorted when all but one element are equal, so about n / 2 elements are moved
+        Assert.assertEquals( "The rotations must be linear for skewed multisets.", 41.0 / 7.0, this.runRotationTest(
+            new int[]
+            {
+                1, 2, 2, 2, 2, 2, 2, 2
+            } ), 1.0e-9 );
+    }
+
+    @Test
+    public void testLexicographic()
+    {
+        RankedPermutationGenerator<int[]> generator = this.createOptimizedGenerator( new int[]
+        {
+            1, 2, 2, 3
+        } );
+        long rank = 0L;
+        Iterator<int[]> iter = generator.iterator( PermutationOrder.LEXICOGRAPHIC );
+        while( iter.hasNext() )
+        {
+            Assert.assertEquals( "Lexicographic order must follow ranks.", rank, generator.getRankAsLong( iter.next() ) );
+            ++rank;
+        }
+        Assert.assertEquals( "All permutations must be iterated.", generator.getTotal().longValue(), rank );
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDistinctOrderWithDuplicates()
+    {
+        this.createOptimizedGenerator( new int[]
+        {
+            1, 1, 2
+        } ).iterator( PermutationOrder.HEAP );
+    }
+
+    @Test
+    public void testChangeListener()
+    {
+        for( PermutationOrder order : PermutationOrder.values() )
+        {
+            this.runListenerTest( this.createOptimizedGenerator( new short[]
+            {
+                6, 2, 3, 1, 5, 4
+            } ), order );
+            if( !order.requiresDistinctElements() )
+            {
+                this.runListenerTest( this.createOptimizedGenerator( new short[]
+                {
+                    2, 2, 3, 1, 1, 1, 3
+                } ), order );
+            }
+        }
+    }
+
+    private void runListenerTest( RankedPermutationGenerator<short[]> generator, PermutationOrder order )
+    {
+        final short[][] mirror = new short[1][];
+        Iterator<short[]> iter = generator.iterator( order, new PermutationChangeListener()
+        {
+            @Override
+            public void onSwap( int first, int second )
+            {
+                Assert.assertTrue( "The first position must be smaller.", first < second );
+                short temp = mirror[0][first];
+                mirror[0][first] = mirror[0][second];
+                mirror[0][second] = temp;
+            }
+
+            @Override
+            public void onReverse( int from, int to )
+            {
+                for( int s = from, r = to - 1; s < r; ++s, --r )
+                {
+                    this.onSwap( s, r );
+                }
+            }
+
+            @Override
+            public void onRotate( int from, int to )
+            {
+                for( int idx = to - 1; idx > from; --idx )
+                {
+                    this.onSwap( idx - 1, idx );
+                }
+            }
+        } );
+        mirror[0] = iter.next().clone();
+        while( iter.hasNext() )
+        {
+            short[] permutation = iter.next();
+            Assert.assertArrayEquals( "The changes reported to listener must produce the permutation in " + order
+                + ".", permutation, mirror[0] );
+        }
+    }
+
+    private <T> void runOrderTest( RankedPermutationGenerator<T> generator, PermutationOrder order, boolean adjacent )
+    {
+        int total = generator.getTotal().intValue();
+        BitSet seen = new BitSet( total );
+        Iterator<T> iter = generator.iterator( order );
+        T first = iter.next();
+        int length = Array.getLength( first );
+        Assert.assertEquals( "The first permutation must be the sorted array.", 0L, generator.getRankAsLong( first ) );
+        seen.set( 0 );
+        Object[] previous = this.toObjects( first, length );
+        int count = 1;
+        while( iter.hasNext() )
+        {
+            T permutation = iter.next();
+            int rank = (int) generator.getRankAsLong( permutation );
+            Assert.assertFalse( "Each permutation must be produced only once.", seen.get( rank ) );
+            seen.set( rank );
+
+            int firstChanged = -1;
+            int changedCount = 0;
+            for( int idx = 0; idx < length; ++idx )
+            {
+                if( !previous[idx].equals( Array.get( permutation, idx ) ) )
+                {
+                    if( changedCount == 0 )
+                    {
+                        firstChanged = idx;
+                    }
+                    else if( adjacent )
+                    {
+                        Assert.assertEquals( "The swapped elements must be adjacent.", firstChanged + 1, idx );
+                    }
+                    ++changedCount;
+                }
+            }
+            Assert.assertEquals( "Exactly two elements must be swapped on each step in " + order + ".", 2,
+                changedCount );
+
+            previous = this.toObjects( permutation, length );
+            ++count;
+        }
+        Assert.assertEquals( "All permutations must be iterated.", total, count );
+    }
+
+    private <T> void runCoolLexTest( RankedPermutationGenerator<T> generator )
+    {
+        int total = generator.getTotal().intValue();
+        BitSet seen = new BitSet( total );
+        Iterator<T> iter = generator.iterator( PermutationOrder.COOL_LEX );
+        int count = 0;
+        while( iter.hasNext() )
+        {
+            T permutation = iter.next();
+            int rank = (int) generator.getRankAsLong( permutation );
+            if( count == 0 )
+            {
+                Assert.assertEquals( "The first permutation must be the sorted array.", 0, rank );
+            }
+            Assert.assertFalse( "Each permutation must be produced only once.", seen.get( rank ) );
+            seen.set( rank );
+            ++count;
+        }
+        Assert.assertEquals( "All permutations must be iterated.", total, count );
+    }
+
+    /**
+     * Checks that each rotation of the cool-lex order is at most two positions longer than the non-decreasing prefix of
+     * the previous permutation, and returns the average length of the rotations.
+     */
+    private double runRotationTest( int[] array )
+    {
+        final int[] rotated = new int[1];
+        Iterator<int[]> iter = this.createOptimizedGenerator( array ).iterator( PermutationOrder.COOL_LEX,
+            new PermutationChangeListener()
+            {
+                @Override
+                public void onSwap( int first, int second )
+                {
+                    Assert.fail( "Cool-lex order must only rotate." );
+                }
+
+                @Override
+                public void onReverse( int from, int to )
+                {
+                    Assert.fail( "Cool-lex order must only rotate." );
+                }
+
+                @Override
+                public void onRotate( int from, int to )
+                {
+                    Assert.assertEquals( "Cool-lex order must rotate a prefix.", 0, from );
+                    rotated[0] = to;
+                }
+            } );
+        int[] previous = iter.next().clone();
+        long total = 0L;
+        int steps = 0;
+        while( iter.hasNext() )
+        {
+            int[] permutation = iter.next();
+            int sorted = 1;
+            while( sorted < previous.length && previous[sorted - 1] <= previous[sorted] )
+            {
+                ++sorted;
+            }
+            Assert.assertTrue( "The rotation must be at most two positions longer than the sorted prefix.",
+                rotated[0] <= sorted + 2 );
+            total += rotated[0];
+            ++steps;
+            previous = permutation.clone();
+        }
+        return (double) total / steps;
+    }
+
+    private Object[] toObjects( Object array, int length )
+    {
+        Object[] result = new Object[length];
+        for( int idx = 0; idx < length; ++idx )
+        {
+            result[idx] = Array.get( array, idx );
+        }
+        return result;
+    }
+}
@@ -0,0 +1,313 @@
+/*
+ * Copyright (c) 2011, Stanislav Muhametsin. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package math.permutations;
+
+import java.lang.reflect.Array;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for accessing permutations by their lexicographic rank.
+ * 
+ * @author 2011 Stanislav Muhametsin
+ */
+public class RankingTest extends AbstractPermutationTest
+{
+
+    @Test
+    public void testIntUnranking()
+    {
+        this.runUnrankingTest( this.createOptimizedGenerator( new int[]
+        {
+            3, 1, 2, 1, 3, 4
+        } ), EqualsMethodTester.INSTANCE );
+    }
+
+    @Test
+    public void testDistinctByteUnranking()
+    {
+        this.runUnrankingTest( this.createOptimizedGenerator( new byte[]
+        {
+            5, 4, 3, 2, 1
+        } ), EqualsMethodTester.INSTANCE );
+    }
+
+    @Test
+    public void testShortUnranking()
+    {
+        this.runUnrankingTest( this.createOptimizedGenerator( new short[]
+        {
+            2, 2, 1, 1
+        } ), EqualsMethodTester.INSTANCE );
+    }
+
+    @Test
+    public void testLongUnranking()
+    {
+        this.runUnrankingTest( this.createOptimizedGenerator( new long[]
+        {
+            7L, 7L, 7L, 1L, 9L
+        } ), EqualsMethodTester.INSTANCE );
+    }
+
+    @Test
+    public void testFloatUnranking()
+    {
+        this.runUnrankingTest( this.createOptimizedGenerator( FLOAT_ARRAY ), EqualsMethodTester.INSTANCE );
+    }
+
+    @Test
+    public void testDoubleUnranking()
+    {
+        this.runUnrankingTest( this.createOptimizedGenerator( new double[]
+        {
+            0.0d, Double.NaN, -0.0d, Double.NaN
+        } ), EqualsMethodTester.INSTANCE );
+    }
+
+    @Test
+    public void testGenericComparableUnranking()
+    {
+        this.runUnrankingTest( this.createGenericComparableGenerator1( "b", "a", "b", "c", "a" ),
+            new ComparableEqualityTester<String>() );
+    }
+
+    @Test
+    public void testGenericUnranking()
+    {
+        this.runUnrankingTest( this.createGenericGenerator1( WRAPPER_COMPARATOR, INT_WRAPPER3, INT_WRAPPER1,
+            INT_WRAPPER2, INT_WRAPPER1 ), new ComparatorEqualityTester<IntWrapper>( WRAPPER_COMPARATOR ) );
+    }
+
+    @Test
+    public void testComparatorNotCalledAfterConstruction()
+    {
+        final int[] calls = new int[1];
+        Comparator<IntWrapper> countingComparator = new Comparator<IntWrapper>()
+        {
+            @Override
+            public int compare( IntWrapper o1, IntWrapper o2 )
+            {
+                ++calls[0];
+                return WRAPPER_COMPARATOR.compare( o1, o2 );
+            }
+        };
+        RankedPermutationGenerator<IntWrapper[]> generator = this.createGenericGenerator1( countingComparator,
+            INT_WRAPPER3, INT_WRAPPER1, INT_WRAPPER2, INT_WRAPPER1 );
+        calls[0] = 0;
+
+        long rank = 0L;
+        for( IntWrapper[] permutation : generator )
+        {
+            Assert.assertEquals( "The rank must be correct.", rank, generator.getRankAsLong( permutation ) );
+            ++rank;
+        }
+        Assert.assertEquals( "The comparator must not be called after construction.", 0, calls[0] );
+
+        Assert.assertEquals( "Equal elements, which are not in the original array, must be ranked using comparator.",
+            0L, generator.getRankAsLong( new IntWrapper[]
+            {
+                new IntWrapper( 1 ), new IntWrapper( 1 ), new IntWrapper( 2 ), new IntWrapper( 3 )
+            } ) );
+    }
+
+    @Test
+    public void testEmptyUnranking()
+    {
+        this.runUnrankingTest( this.createOptimizedGenerator( new int[] {} ), EqualsMethodTester.INSTANCE );
+    }
+
+    @Test
+    public void testUnrankingBeyondLong()
+    {
+        int[] array = new int[25];
+        for( int idx = 0; idx < array.length; ++idx )
+        {
+            array[idx] = idx;
+        }
+        RankedPermutationGenerator<int[]> generator = this.createOptimizedGenerator( array );
+        BigInteger last = generator.getTotal().subtract( BigInteger.ONE );
+        Assert.assertTrue( "The total must not fit into long.", last.bitLength() >= Long.SIZE );
+
+        int[] lastPermutation = generator.permutationAt( last, null );
+        for( int idx = 0; idx < array.length; ++idx )
+        {
+            Assert.assertEquals( "The last permutation must be in descending order.", array.length - idx - 1,
+                lastPermutation[idx] );
+        }
+
+        Iterator<int[]> iter = generator.iterator( last.subtract( BigInteger.ONE ) );
+        Assert.assertTrue( iter.hasNext() );
+        int[] permutation = iter.next();
+        Assert.assertEquals( "The second last permutation must have two last elements in ascending order.", 0,
+            permutation[array.length - 2] );
+        Assert.assertTrue( iter.hasNext() );
+        Assert.assertArrayEquals( lastPermutation, iter.next() );
+        Assert.assertFalse( iter.hasNext() );
+    }
+
+    @Test
+    public void testRankingBeyondLong()
+    {
+        long[] array = new long[30];
+        for( int idx = 0; idx < array.length; ++idx )
+        {
+            array[idx] = idx % 7;
+        }
+        RankedPermutationGenerator<long[]> generator = this.createOptimizedGenerator( array );
+        BigInteger total = generator.getTotal();
+        Assert.assertTrue( "The total must not fit into long.", total.bitLength() >= Long.SIZE );
+
+        BigInteger rank = BigInteger.ONE;
+        while( rank.compareTo( total ) < 0 )
+        {
+            Assert.assertEquals( "Ranking must be inverse of unranking.", rank,
+                generator.getRank( generator.permutationAt( rank, null ) ) );
+            rank = rank.multiply( BigInteger.valueOf( 3L ) ).add( BigInteger.ONE );
+        }
+        Assert.assertEquals( "Ranking must be inverse of unranking.", total.subtract( BigInteger.ONE ),
+            generator.getRank( generator.permutationAt( total.subtract( BigInteger.ONE ), null ) ) );
+    }
+
+    @Test(expected = ArithmeticException.class)
+    public void testLongRankBeyondLong()
+    {
+        int[] array = new int[25];
+        for( int idx = 0; idx < array.length; ++idx )
+        {
+            array[idx] = idx;
+        }
+        this.createOptimizedGenerator( array ).getRankAsLong( array );
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRankOfNonPermutation()
+    {
+        this.createOptimizedGenerator( INT_ARRAY ).getRank( new int[]
+        {
+            INT1, INT1, INT2
+        } );
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRankOfUnknownElement()
+    {
+        this.createGenericComparableGenerator1( STRING_ARRAY ).getRank( new String[]
+        {
+            STRING1, STRING2, "unknown"
+        } );
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeRank()
+    {
+        this.createOptimizedGenerator( INT_ARRAY ).permutationAt( BigInteger.valueOf( -1L ), null );
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTooBigRank()
+    {
+        RankedPermutationGenerator<int[]> generator = this.createOptimizedGenerator( INT_ARRAY );
+        generator.iterator( generator.getTotal().add( BigInteger.ONE ) );
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testWrongDestinationLength()
+    {
+        this.createOptimizedGenerator( INT_ARRAY ).permutationAt( BigInteger.ZERO, new int[INT_ARRAY.length + 1] );
+    }
+
+    protected <T> List<T> collectPermutations( Iterator<T> iter )
+    {
+        List<T> result = new ArrayList<T>();
+        while( iter.hasNext() )
+        {
+            result.add( this.copyArray( iter.next() ) );
+        }
+        return result;
+    }
+
+    protected <T> T copyArray( T array )
+    {
+        int length = Array.getLength( array );
+        Object result = Array.newInstance( array.getClass().getComponentType(), length );
+        System.arraycopy( array, 0, result, 0, length );
+        return (T) result;
+    }
+
+    protected void assertSamePermutation( String message, Object expected, Object actual, EqualityTester eqTester )
+    {
+        Assert.assertEquals( message, Array.getLength( expected ), Array.getLength( actual ) );
+        for( int idx = 0; idx < Array.getLength( expected ); ++idx )
+        {
+            Assert.assertTrue( message + " Expected " + this.arrayToString( expected ) + ", got "
+                + this.arrayToString( actual ) + ".",
+                eqTester.equals( Array.get( expected, idx ), Array.get( actual, idx ) ) );
+        }
+    }
+
+    private <T> void runUnrankingTest( RankedPermutationGenerator<T> generator, EqualityTester eqTester )
+    {
+        List<T> all = this.collectPermutations( generator.iterator() );
+        Assert.assertEquals( "The amount of permutations must be correct.", generator.getTotal().intValue(),
+            all.size() );
+
+        for( int rank = 0; rank < all.size(); ++rank )
+        {
+            BigInteger bigRank = BigInteger.valueOf( rank );
+            this.assertSamePermutation( "Permutation at rank " + rank + " must be correct.", all.get( rank ),
+                generator.permutationAt( bigRank, null ), eqTester );
+
+            List<T> fromRank = this.collectPermutations( generator.iterator( bigRank ) );
+            Assert.assertEquals( "The iterator must return all permutations starting from rank " + rank + ".",
+                all.size() - rank, fromRank.size() );
+            for( int idx = 0; idx < fromRank.size(); ++idx )
+            {
+                this.assertSamePermutation( "The iterator starting at rank " + rank + " must be correct.",
+                    all.get( rank + idx ), fromRank.get( idx ), eqTester );
+            }
+        }
+
+        Assert.assertFalse( "The iterator starting from total must be empty.",
+            generator.iterator( generator.getTotal() ).hasNext() );
+
+        for( int rank = 0; rank < all.size(); ++rank )
+        {
+            Assert.assertEquals( "The rank must be correct.", BigInteger.valueOf( rank ),
+                generator.getRank( all.get( rank ) ) );
+            Assert.assertEquals( "The rank must be correct.", rank, generator.getRankAsLong( all.get( rank ) ) );
+        }
+
+        int length = Array.getLength( all.get( 0 ) );
+        T block = (T) Array.newInstance( all.get( 0 ).getClass().getComponentType(), all.size() * length );
+        for( int idx = 0; idx < all.size(); ++idx )
+        {
+            // Reverse order, so that the ranks are not trivially ascending
+            System.arraycopy( all.get( all.size() - idx - 1 ), 0, block, idx * length, length );
+        }
+        long[] ranks = new long[all.size()];
+        generator.getRanks( block, all.size(), ranks );
+        for( int idx = 0; idx < ranks.length; ++idx )
+        {
+            Assert.assertEquals( "The rank in the block must be correct.", all.size() - idx - 1, ranks[idx] );
+        }
+    }
+}
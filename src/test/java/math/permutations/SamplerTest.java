@@ -0,0 +1,264 @@
+/*
+ * Copyright (c) 2011, Stanislav Muhametsin. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package math.permutations;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.stream.Collectors;
+
+import math.permutations.impl.SampleSpliterator;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for random permutation samplers.
+ * 
+ * @author 2011 Stanislav Muhametsin
+ */
+public class SamplerTest extends AbstractPermutationTest
+{
+    @Test
+    public void testUniform()
+    {
+        RankedPermutationGenerator<int[]> generator = this.createOptimizedGenerator( new int[]
+        {
+            3, 1, 2, 1, 2
+        } );
+        PermutationSampler<int[]> sampler = PermutationGeneratorProvider.createSampler( generator );
+        int total = generator.getTotal().intValue();
+        int perPermutation = 2000;
+        int[] counts = new int[total];
+        SplittableRandom random = new SplittableRandom( 12345L );
+        int[] sample = null;
+        for( int idx = 0; idx < total * perPermutation; ++idx )
+        {
+            sample = sampler.sample( random, sample );
+            ++counts[(int) generator.getRankAsLong( sample )];
+        }
+
+        // Six standard deviations
+        int tolerance = (int) ( 6.0 * Math.sqrt( perPermutation ) );
+        for( int count : counts )
+        {
+            Assert.assertTrue( "Each permutation must be equally probable, but got " + count + ".", Math.abs( count
+                - perPermutation ) <= tolerance );
+        }
+    }
+
+    @Test
+    public void testReproducible()
+    {
+        PermutationSampler<String[]> sampler = PermutationGeneratorProvider.createSampler( this
+            .createGenericComparableGenerator1( "d", "a", "c", "a", "b", "e", "c" ) );
+        String[] first = sampler.sample( new SplittableRandom( 7L ), null );
+        Assert.assertArrayEquals( "Same random must produce same sample.", first, sampler.sample( new SplittableRandom(
+            7L ), new String[first.length] ) );
+        String[] sorted = first.clone();
+        Arrays.sort( sorted );
+        Assert.assertArrayEquals( "Sample must be a permutation of the array.", new String[]
+        {
+            "a", "a", "b", "c", "c", "d", "e"
+        }, sorted );
+    }
+
+    @Test
+    public void testBlocks()
+    {
+        PermutationSampler<int[]> sampler = PermutationGeneratorProvider.createSampler( this
+            .createOptimizedGenerator( INT_ARRAY ) );
+        int n = INT_ARRAY.length;
+        int count = 17;
+        int[] rows = new int[count * n];
+        int[] columns = new int[count * n];
+        sampler.sampleBlock( new SplittableRandom( 99L ), rows, count );
+        sampler.sampleBlock( new SplittableRandom( 99L ), columns, count, true );
+
+        SplittableRandom random = new SplittableRandom( 99L );
+        int[] sample = null;
+        for( int idx = 0; idx < count; ++idx )
+        {
+            sample = sampler.sample( random, sample );
+            for( int pos = 0; pos < n; ++pos )
+            {
+                Assert.assertEquals( "Row-major block must match single samples.", sample[pos], rows[idx * n + pos] );
+                Assert.assertEquals( "Column-major block must match single samples.", sample[pos], columns[pos
+                    * count + idx] );
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBlockTooSmall()
+    {
+        PermutationGeneratorProvider.createSampler( this.createOptimizedGenerator( INT_ARRAY ) ).sampleBlock(
+            new SplittableRandom(), new int[INT_ARRAY.length * 2 - 1], 2 );
+    }
+
+    @Test
+    public void testParallelDeterministic()
+    {
+        PermutationSampler<long[]> sampler = PermutationGeneratorProvider.createSampler( this
+            .createOptimizedGenerator( new long[]
+            {
+                9L, 4L, 4L, 7L, 1L, 3L, 3L, 3L, 8L, 2L, 6L, 5L, 0L, 7L, 4L, 2L, 1L, 9L, 6L, 5L, 3L, 2L
+            } ) );
+        long count = 5L * PermutationSampler.SAMPLES_PER_BLOCK + 123L;
+        List<long[]> sequential = sampler.stream( 2011L, count ).map( long[]::clone ).collect( Collectors
+            .<long[]> toList() );
+        List<long[]> parallel = sampler.parallelStream( 2011L, count ).map( long[]::clone ).collect( Collectors
+            .<long[]> toList() );
+        Assert.assertEquals( "Stream must have given amount of samples.", count, sequential.size() );
+        Assert.assertEquals( "Parallel stream must have given amount of samples.", count, parallel.size() );
+
+        List<long[]> expected = new ArrayList<long[]>();
+        long[] sample = null;
+        SplittableRandom random = null;
+        for( long idx = 0L; idx < count; ++idx )
+        {
+            if( idx % PermutationSampler.SAMPLES_PER_BLOCK == 0L )
+            {
+                random = SampleSpliterator.createBlockRandom( 2011L, idx / PermutationSampler.SAMPLES_PER_BLOCK );
+            }
+            sample = sampler.sample( random, sample );
+            expected.add( sample.clone() );
+        }
+        for( int idx = 0; idx < count; ++idx )
+        {
+            Assert.assertArrayEquals( "Sequential stream must use the block randoms.", expected.get( idx ), sequential
+                .get( idx ) );
+            Assert.assertArrayEquals( "Parallel stream must produce the same samples.", expected.get( idx ), parallel
+                .get( idx ) );
+        }
+    }
+
+    @Test
+    public void testDistinctRanks()
+    {
+        PermutationSampler<int[]> sampler = PermutationGeneratorProvider.createSampler( this
+            .createOptimizedGenerator( new int[]
+            {
+                8, 3, 5, 1, 7, 2, 6, 4
+            } ) );
+        long[] sorted = sampler.sampleDistinctRanks( new SplittableRandom( 5L ), 3000, true );
+        long[] shuffled = sampler.sampleDistinctRanks( new SplittableRandom( 5L ), 3000, false );
+        Assert.assertFalse( "Ranks must be shuffled.", Arrays.equals( sorted, shuffled ) );
+        Arrays.sort( shuffled );
+        Assert.assertArrayEquals( "Shuffled ranks must be the same ranks.", sorted, shuffled );
+        for( int idx = 1; idx < sorted.length; ++idx )
+        {
+            Assert.assertTrue( "Ranks must be distinct and sorted.", sorted[idx - 1] < sorted[idx] );
+        }
+        Assert.assertTrue( "Ranks must be within total.", sorted[0] >= 0L && sorted[sorted.length - 1] < 40320L );
+    }
+
+    @Test
+    public void testDistinctRanksDense()
+    {
+        PermutationSampler<int[]> sampler = PermutationGeneratorProvider.createSampler( this
+            .createOptimizedGenerator( new int[]
+            {
+                3, 1, 2, 1, 2
+            } ) );
+        long[] all = sampler.sampleDistinctRanks( new SplittableRandom( 1L ), 30, true );
+        for( int idx = 0; idx < all.length; ++idx )
+        {
+            Assert.assertEquals( "All ranks must be selected.", idx, all[idx] );
+        }
+
+        // Each rank must be selected with probability k / N, both when sparse and when dense
+        SplittableRandom random = new SplittableRandom( 3L );
+        int trials = 30000;
+        for( int k : new int[]
+        {
+            3, 20
+        } )
+        {
+            int[] counts = new int[30];
+            for( int trial = 0; trial < trials; ++trial )
+            {
+                for( long rank : sampler.sampleDistinctRanks( random, k, false ) )
+                {
+                    ++counts[(int) rank];
+                }
+            }
+            double expected = (double) trials * k / 30.0;
+            for( int count : counts )
+            {
+                Assert.assertTrue( "Each rank must be equally probable, but got " + count + ".", Math.abs( count
+                    - expected ) <= 6.0 * Math.sqrt( expected ) );
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTooManyDistinct()
+    {
+        PermutationGeneratorProvider.createSampler( this.createOptimizedGenerator( new int[]
+        {
+            1, 1, 2
+        } ) ).sampleDistinctRanks( new SplittableRandom(), 4, true );
+    }
+
+    @Test
+    public void testDistinctLexicographic()
+    {
+        int[] array = new int[15];
+        for( int idx = 0; idx < array.length; ++idx )
+        {
+            array[idx] = array.length - idx;
+        }
+        RankedPermutationGenerator<int[]> generator = this.createOptimizedGenerator( array );
+        PermutationSampler<int[]> sampler = PermutationGeneratorProvider.createSampler( generator );
+        Iterator<int[]> iter = sampler.sampleDistinct( new SplittableRandom( 15L ), 10000, true );
+        long previous = -1L;
+        int count = 0;
+        while( iter.hasNext() )
+        {
+            long rank = generator.getRankAsLong( iter.next() );
+            Assert.assertTrue( "Permutations must be distinct and in lexicographic order.", previous < rank );
+            previous = rank;
+            ++count;
+        }
+        Assert.assertEquals( "Iterator must return given amount of permutations.", 10000, count );
+    }
+
+    @Test
+    public void testDistinctBigTotal()
+    {
+        String[] array = new String[25];
+        for( int idx = 0; idx < array.length; ++idx )
+        {
+            array[idx] = Character.toString( (char) ( 'a' + idx ) );
+        }
+        RankedPermutationGenerator<String[]> generator = this.createGenericComparableGenerator1( array );
+        PermutationSampler<String[]> sampler = PermutationGeneratorProvider.createSampler( generator );
+        Set<BigInteger> ranks = new HashSet<BigInteger>();
+        Iterator<String[]> iter = sampler.sampleDistinct( new SplittableRandom( 25L ), 500, false );
+        while( iter.hasNext() )
+        {
+            BigInteger rank = generator.getRank( iter.next() );
+            Assert.assertTrue( "Rank must be within total.", rank.compareTo( generator.getTotal() ) < 0 );
+            ranks.add( rank );
+        }
+        Assert.assertEquals( "Permutations must be distinct.", 500, ranks.size() );
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2011, Stanislav Muhametsin. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package math.permutations;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for {@link Spliterator}s and streams of {@link PermutationGenerator}.
+ * 
+ * @author 2011 Stanislav Muhametsin
+ */
+public class StreamTest extends AbstractPermutationTest
+{
+    private static final int[] INTS = new int[]
+    {
+        1, 2, 2, 3, 4, 5, 6, 7
+    };
+
+    @Test
+    public void testSequentialStream()
+    {
+        RankedPermutationGenerator<int[]> generator = this.createOptimizedGenerator( INTS );
+        List<int[]> streamed = generator.stream().map( int[]::clone ).collect( Collectors.toList() );
+
+        Iterator<int[]> iter = generator.iterator();
+        for( int[] permutation : streamed )
+        {
+            Assert.assertArrayEquals( "The stream must be in same order as the iterator.", iter.next(), permutation );
+        }
+        Assert.assertFalse( "The stream must contain all permutations.", iter.hasNext() );
+    }
+
+    @Test
+    public void testParallelStream()
+    {
+        final RankedPermutationGenerator<int[]> generator = this.createOptimizedGenerator( INTS );
+        int total = generator.getTotal().intValue();
+        Assert.assertEquals( "Parallel stream must contain all permutations.", total, generator.parallelStream()
+            .count() );
+
+        long[] ranks = generator.parallelStream().mapToLong( generator::getRankAsLong ).toArray();
+        BitSet seen = new BitSet( total );
+        for( int idx = 0; idx < ranks.length; ++idx )
+        {
+            Assert.assertEquals( "Parallel stream must preserve the order.", idx, ranks[idx] );
+            seen.set( (int) ranks[idx] );
+        }
+        Assert.assertEquals( "Each permutation must be seen exactly once.", total, seen.cardinality() );
+    }
+
+    @Test
+    public void testGenericParallelStream()
+    {
+        RankedPermutationGenerator<String[]> generator = this.createGenericComparableGenerator1( "a", "b", "b", "c",
+            "d", "e" );
+        List<String> joined = generator.parallelStream().map( Arrays::toString ).collect( Collectors.toList() );
+        List<String> expected = generator.stream().map( Arrays::toString ).collect( Collectors.toList() );
+        Assert.assertEquals( "Parallel and sequential streams must produce same permutations.", expected, joined );
+    }
+
+    @Test
+    public void testSpliteratorSplitting()
+    {
+        RankedPermutationGenerator<int[]> generator = this.createOptimizedGenerator( INTS );
+        Spliterator<int[]> right = generator.spliterator();
+        long total = generator.getTotal().longValue();
+        Assert.assertTrue( "Spliterator must be sized.", right.hasCharacteristics( Spliterator.SIZED
+            | Spliterator.SUBSIZED ) );
+        Assert.assertEquals( total, right.getExactSizeIfKnown() );
+
+        // Consume one permutation before splitting, to make sure that splitting takes it into account
+        right.tryAdvance( p -> {} );
+        Spliterator<int[]> left = right.trySplit();
+        Assert.assertEquals( "Splitting must halve the size.", ( total - 1 ) / 2, left.estimateSize() );
+        Assert.assertEquals( "Splitting must halve the size.", total - 1 - ( total - 1 ) / 2, right.estimateSize() );
+
+        final long[] firstRanks = new long[2];
+        left.tryAdvance( p -> firstRanks[0] = generator.getRankAsLong( p ) );
+        right.tryAdvance( p -> firstRanks[1] = generator.getRankAsLong( p ) );
+        Assert.assertEquals( "The prefix must start after consumed permutation.", 1L, firstRanks[0] );
+        Assert.assertEquals( "The suffix must start from the middle.", 1L + ( total - 1 ) / 2, firstRanks[1] );
+    }
+
+    @Test
+    public void testUnsizedSpliterator()
+    {
+        int[] array = new int[22];
+        for( int idx = 0; idx < array.length; ++idx )
+        {
+            array[idx] = idx;
+        }
+        RankedPermutationGenerator<int[]> generator = this.createOptimizedGenerator( array );
+        Spliterator<int[]> spliterator = generator.spliterator();
+        Assert.assertFalse( "Spliterator must not be sized when total does not fit into long.",
+            spliterator.hasCharacteristics( Spliterator.SIZED ) );
+        Assert.assertEquals( Long.MAX_VALUE, spliterator.estimateSize() );
+
+        Spliterator<int[]> left = spliterator.trySplit();
+        final BigInteger[] rank = new BigInteger[1];
+        spliterator.tryAdvance( p -> rank[0] = generator.getRank( p ) );
+        Assert.assertEquals( "The suffix must start from the middle.", generator.getTotal().shiftRight( 1 ), rank[0] );
+        left.tryAdvance( p -> rank[0] = generator.getRank( p ) );
+        Assert.assertEquals( "The prefix must start from the beginning.", BigInteger.ZERO, rank[0] );
+    }
+
+    @Test
+    public void testRangeIterator()
+    {
+        RankedPermutationGenerator<int[]> generator = this.createOptimizedGenerator( INTS );
+        Iterator<int[]> iter = generator.iterator( BigInteger.valueOf( 10L ), BigInteger.valueOf( 20L ) );
+        long expected = 10L;
+        while( iter.hasNext() )
+        {
+            Assert.assertEquals( expected, generator.getRankAsLong( iter.next() ) );
+            ++expected;
+        }
+        Assert.assertEquals( "The range iterator must stop at the end of the range.", 20L, expected );
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2011, Stanislav Muhametsin. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package math.permutations;
+
+import java.lang.reflect.Array;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for the depth-first traversal of permutation prefixes with
+ * {@link PermutationGenerator#visit(PermutationVisitor)}.
+ * 
+ * @author 2011 Stanislav Muhametsin
+ */
+public class VisitorTest extends AbstractPermutationTest
+{
+    @Test
+    public void testAllLeaves()
+    {
+        this.runLeavesTest( this.createOptimizedGenerator( new int[]
+        {
+            3, 1, 2, 2, 1, 4
+        } ) );
+        this.runLeavesTest( this.createOptimizedGenerator( new double[]
+        {
+            0.5, -1.0, 0.5
+        } ) );
+        this.runLeavesTest( this.createGenericComparableGenerator1( "b", "a", "c", "a" ) );
+        this.runLeavesTest( this.createGenericGenerator1( WRAPPER_COMPARATOR, INT_WRAPPER1, INT_WRAPPER2,
+            INT_WRAPPER3 ) );
+        this.runLeavesTest( PermutationGeneratorProvider.createMappedPermutationGenerator( Arrays.asList( "x", "y",
+            "z" ), 2, 1, 2 ) );
+    }
+
+    @Test
+    public void testSkipSubtree()
+    {
+        // Sum of prefix must stay at most 10 at each depth
+        final int[] sums = new int[6];
+        final int[] leaves = new int[1];
+        RankedPermutationGenerator<int[]> generator = this.createOptimizedGenerator( new int[]
+        {
+            1, 2, 3, 4, 5, 6
+        } );
+        generator.visit( new PermutationVisitor<int[]>()
+        {
+            @Override
+            public VisitResult enter( int[] prefix, int depth )
+            {
+                sums[depth] = ( depth > 0 ? sums[depth - 1] : 0 ) + prefix[depth];
+                if( depth == prefix.length - 1 )
+                {
+                    ++leaves[0];
+                }
+                return depth < 2 && sums[depth] > 5 ? VisitResult.SKIP_SUBTREE : VisitResult.CONTINUE;
+            }
+
+            @Override
+            public void leave( int[] prefix, int depth )
+            {
+            }
+        } );
+
+        int expected = 0;
+        for( int[] permutation : generator )
+        {
+            if( permutation[0] <= 5 && permutation[0] + permutation[1] <= 5 )
+            {
+                ++expected;
+            }
+        }
+        Assert.assertEquals( "Skipped subtrees must not produce permutations.", expected, leaves[0] );
+    }
+
+    @Test
+    public void testTerminate()
+    {
+        final int[] entered = new int[1];
+        boolean completed = this.createOptimizedGenerator( new byte[]
+        {
+            1, 2, 3, 4
+        } ).visit( new PermutationVisitor<byte[]>()
+        {
+            @Override
+            public VisitResult enter( byte[] prefix, int depth )
+            {
+                ++entered[0];
+                return prefix[0] == 2 ? VisitResult.TERMINATE : VisitResult.CONTINUE;
+            }
+
+            @Override
+            public void leave( byte[] prefix, int depth )
+            {
+                Assert.assertTrue( "Nodes must not be left after terminating.", prefix[0] != 2 );
+            }
+        } );
+        Assert.assertFalse( "Terminated traversal must not be completed.", completed );
+        Assert.assertEquals( "Traversal must stop immediately.", 1 + 3 + 6 + 6 + 1, entered[0] );
+    }
+
+    private <T> void runLeavesTest( RankedPermutationGenerator<T> generator )
+    {
+        final Iterator<T> expected = generator.iterator();
+        final int[] depths = new int[1];
+        final int[] leaves = new int[1];
+        boolean completed = generator.visit( new PermutationVisitor<T>()
+        {
+            @Override
+            public VisitResult enter( T prefix, int depth )
+            {
+                Assert.assertEquals( "Nodes must be entered one depth at a time.", depths[0], depth );
+                ++depths[0];
+                if( depth == this.getLength( prefix ) - 1 )
+                {
+                    T permutation = expected.next();
+                    for( int idx = 0; idx <= depth; ++idx )
+                    {
+                        Assert.assertEquals( "Leaves must be permutations in lexicographic order.", this.get(
+                            permutation, idx ), this.get( prefix, idx ) );
+                    }
+                    ++leaves[0];
+                }
+                return VisitResult.CONTINUE;
+            }
+
+            @Override
+            public void leave( T prefix, int depth )
+            {
+                --depths[0];
+                Assert.assertEquals( "Nodes must be left in reverse order.", depths[0], depth );
+            }
+
+            private int getLength( Object array )
+            {
+                return array instanceof List<?> ? ( (List<?>) array ).size() : Array.getLength( array );
+            }
+
+            private Object get( Object array, int index )
+            {
+                return array instanceof List<?> ? ( (List<?>) array ).get( index ) : Array.get( array, index );
+            }
+        } );
+        Assert.assertTrue( "Traversal must complete.", completed );
+        Assert.assertFalse( "All permutations must be visited.", expected.hasNext() );
+        Assert.assertEquals( "Each permutation must be visited once.", generator.getTotal().intValue(), leaves[0] );
+        Assert.assertEquals( "All nodes must be left.", 0, depths[0] );
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2011, Stanislav Muhametsin. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package math.permutations.io;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.BitSet;
+
+import math.permutations.AbstractPermutationTest;
+
+import math.permutations.RankedPermutationGenerator;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests for writing checkpoints into files with {@link CheckpointingIterator}, and resuming from them.
+ * 
+ * @author 2011 Stanislav Muhametsin
+ */
+public class CheckpointingIteratorTest extends AbstractPermutationTest
+{
+    @Rule
+    public TemporaryFolder _folder = new TemporaryFolder();
+
+    @Test
+    public void testShardsWithRestarts() throws IOException
+    {
+        RankedPermutationGenerator<int[]> generator = this.createOptimizedGenerator( new int[]
+        {
+            1, 2, 2, 3, 4, 5
+        } );
+        int total = generator.getTotal().intValue();
+        int shards = 3;
+        BitSet seen = new BitSet( total );
+        for( int shard = 0; shard < shards; ++shard )
+        {
+            BigInteger from = BigInteger.valueOf( (long) total * shard / shards );
+            BigInteger to = BigInteger.valueOf( (long) total * ( shard + 1 ) / shards );
+            Path path = this._folder.getRoot().toPath().resolve( "shard" + shard + ".checkpoint" );
+
+            // Crash after some permutations, and restart until the shard is complete
+            int restarts = 0;
+            CheckpointingIterator<int[]> iter = CheckpointingIterator.resume( generator, from, to, path, 7L );
+            while( iter.hasNext() )
+            {
+                for( int count = 0; count < 25 && iter.hasNext(); ++count )
+                {
+                    int rank = (int) generator.getRankAsLong( iter.next() );
+                    Assert.assertTrue( "Shard must stay within its range.", rank >= from.intValue()
+                        && rank < to.intValue() );
+                    seen.set( rank );
+                }
+                iter = CheckpointingIterator.resume( generator, from, to, path, 7L );
+                ++restarts;
+            }
+            Assert.assertTrue( "Shard must be restarted.", restarts > 1 );
+            Assert.assertTrue( "Checkpoint file must exist.", Files.exists( path ) );
+            Assert.assertFalse( "Completed shard must not produce anything after resuming.", CheckpointingIterator
+                .resume( generator, from, to, path, 7L ).hasNext() );
+        }
+        Assert.assertEquals( "All permutations must be produced.", total, seen.cardinality() );
+    }
+
+    @Test
+    public void testSaveAndLoad() throws IOException
+    {
+        RankedPermutationGenerator<byte[]> generator = this.createOptimizedGenerator( new byte[]
+        {
+            3, 1, 2
+        } );
+        Path path = this._folder.getRoot().toPath().resolve( "explicit.checkpoint" );
+        CheckpointingIterator<byte[]> iter = new CheckpointingIterator<byte[]>( generator.permutationIterator(), path,
+            100L );
+        iter.next();
+        iter.next();
+        iter.saveCheckpoint();
+        Assert.assertEquals( "Saved checkpoint must be loaded.", iter.checkpoint(),
+            CheckpointingIterator.load( path ) );
+        Assert.assertFalse( "Temporary file must be moved.", Files.exists( path.resolveSibling( path.getFileName()
+            + ".tmp" ) ) );
+    }
+}
@@ -0,0 +1,226 @@
+/*
+ * Copyright (c) 2011, Stanislav Muhametsin. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package math.permutations.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Array;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+
+import math.permutations.AbstractPermutationTest;
+
+import math.permutations.RankedPermutationGenerator;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests for writing permutations with {@link DeltaPermutationWriter}, and reading them with
+ * {@link DeltaPermutationReader}.
+ * 
+ * @author 2011 Stanislav Muhametsin
+ */
+public class DeltaPermutationTest extends AbstractPermutationTest
+{
+    @Rule
+    public TemporaryFolder _folder = new TemporaryFolder();
+
+    @Test
+    public void testIntStream() throws IOException
+    {
+        int[] array = new int[]
+        {
+            3, 1, 2, 2, 4, 1, 5
+        };
+        byte[] bytes = this.write( array, 100 );
+        Assert.assertTrue( "Delta stream must be smaller than fixed-stride storage.", bytes.length < this
+            .createOptimizedGenerator( array ).getTotal().intValue() * array.length );
+
+        DeltaPermutationReader<int[]> reader = DeltaPermutationReader.open( Channels.newChannel(
+            new ByteArrayInputStream( bytes ) ), int[].class );
+        Assert.assertEquals( "Element type must be stored.", ElementType.INT, reader.getElementType() );
+        Assert.assertArrayEquals( "Multiplicities must be stored.", new int[]
+        {
+            2, 2, 1, 1, 1
+        }, reader.getMultiplicities() );
+        Assert.assertEquals( "Keyframe interval must be stored.", 100, reader.getKeyframeInterval() );
+        Iterator<int[]> expected = this.createOptimizedGenerator( array ).iterator();
+        long count = 0L;
+        while( reader.hasNext() )
+        {
+            Assert.assertArrayEquals( "Delta stream must produce the permutations in order.", expected.next(),
+                reader.next() );
+            ++count;
+        }
+        Assert.assertFalse( "All permutations must be read.", expected.hasNext() );
+        Assert.assertEquals( "Total must be stored.", count, reader.getTotal() );
+    }
+
+    @Test
+    public void testLongStreamWithDefaultInterval() throws IOException
+    {
+        long[] array = new long[]
+        {
+            Long.MAX_VALUE, -1L, 0L, Long.MIN_VALUE, 7L, 0L
+        };
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        DeltaPermutationWriter.write( array, Channels.newChannel( out ) );
+        DeltaPermutationReader<long[]> reader = DeltaPermutationReader.open( Channels.newChannel(
+            new ByteArrayInputStream( out.toByteArray() ) ), long[].class );
+        Iterator<long[]> expected = this.createOptimizedGenerator( array ).iterator();
+        while( expected.hasNext() )
+        {
+            Assert.assertArrayEquals( "Delta stream must produce the permutations in order.", expected.next(),
+                reader.next() );
+        }
+        Assert.assertFalse( "All permutations must be read.", reader.hasNext() );
+    }
+
+    @Test
+    public void testSeek() throws IOException
+    {
+        double[] array = new double[]
+        {
+            0.5, 1.5, 0.5, -2.0, 3.0, 1.5
+        };
+        byte[] bytes = this.write( array, 16 );
+        RankedPermutationGenerator<double[]> generator = this.createOptimizedGenerator( array );
+
+        DeltaPermutationReader<double[]> reader = DeltaPermutationReader.open( Channels.newChannel(
+            new ByteArrayInputStream( bytes ) ), double[].class );
+        this.checkSeek( generator, reader, 3L );
+        this.checkSeek( generator, reader, 5L );
+        this.checkSeek( generator, reader, 100L );
+        this.checkSeek( generator, reader, 112L );
+        reader.seek( reader.getTotal() );
+        Assert.assertFalse( "Seeking to the end must exhaust the reader.", reader.hasNext() );
+
+        Path path = this._folder.newFile( "double.delta" ).toPath();
+        FileChannel out = FileChannel.open( path, StandardOpenOption.WRITE );
+        try
+        {
+            DeltaPermutationWriter.write( array, out, 16 );
+        }
+        finally
+        {
+            out.close();
+        }
+        FileChannel in = FileChannel.open( path, StandardOpenOption.READ );
+        try
+        {
+            reader = DeltaPermutationReader.open( in, double[].class );
+            this.checkSeek( generator, reader, 47L );
+            this.checkSeek( generator, reader, 48L );
+            this.checkSeek( generator, reader, reader.getTotal() - 1L );
+        }
+        finally
+        {
+            in.close();
+        }
+    }
+
+    @Test
+    public void testOtherElementTypes() throws IOException
+    {
+        this.runStreamTest( new byte[]
+        {
+            2, -1, 2, 0, 5
+        }, byte[].class );
+        this.runStreamTest( new short[]
+        {
+            300, 1, 1, -300
+        }, short[].class );
+        this.runStreamTest( new float[]
+        {
+            0.5f, -0.5f, 2.0f, 0.5f, 1.0f
+        }, float[].class );
+    }
+
+    @Test(expected = UncheckedIOException.class)
+    public void testInvalidClass() throws IOException
+    {
+        byte[] bytes = this.write( new short[]
+        {
+            1, 2, 3
+        }, 2 );
+        // The first class of the first keyframe, after the header and the size of the block
+        bytes[DeltaPermutationReader.FIXED_HEADER_SIZE + 3 * ( 4 + 2 ) + 4] = 3;
+        DeltaPermutationReader.open( Channels.newChannel( new ByteArrayInputStream( bytes ) ), short[].class ).next();
+    }
+
+    @Test(expected = UncheckedIOException.class)
+    public void testInvalidBlockSize() throws IOException
+    {
+        byte[] bytes = this.write( new short[]
+        {
+            1, 2, 3
+        }, 2 );
+        // The size of the first block, after the header
+        ByteBuffer.wrap( bytes ).putInt( DeltaPermutationReader.FIXED_HEADER_SIZE + 3 * ( 4 + 2 ), Integer.MAX_VALUE );
+        DeltaPermutationReader.open( Channels.newChannel( new ByteArrayInputStream( bytes ) ), short[].class ).next();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testWrongArrayType() throws IOException
+    {
+        byte[] bytes = this.write( new short[]
+        {
+            1, 2, 3
+        }, 2 );
+        DeltaPermutationReader.open( Channels.newChannel( new ByteArrayInputStream( bytes ) ), int[].class );
+    }
+
+    private <T> void runStreamTest( T array, Class<T> arrayClass ) throws IOException
+    {
+        DeltaPermutationReader<T> reader = DeltaPermutationReader.open( Channels.newChannel( new ByteArrayInputStream(
+            this.write( array, 7 ) ) ), arrayClass );
+        Iterator<T> expected = this.createOptimizedGenerator( array ).iterator();
+        while( expected.hasNext() )
+        {
+            T permutation = expected.next();
+            T read = reader.next();
+            for( int idx = 0; idx < Array.getLength( permutation ); ++idx )
+            {
+                Assert.assertEquals( "Delta stream must produce the permutations in order.", Array.get( permutation,
+                    idx ), Array.get( read, idx ) );
+            }
+        }
+        Assert.assertFalse( "All permutations must be read.", reader.hasNext() );
+    }
+
+    private <T> byte[] write( T array, int keyframeInterval ) throws IOException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        DeltaPermutationWriter.write( array, Channels.newChannel( out ), keyframeInterval );
+        return out.toByteArray();
+    }
+
+    private void checkSeek( RankedPermutationGenerator<double[]> generator, DeltaPermutationReader<double[]> reader,
+        long rank ) throws IOException
+    {
+        reader.seek( rank );
+        Assert.assertArrayEquals( "Seek must move to permutation at rank " + rank + ".", generator.permutationAt(
+            BigInteger.valueOf( rank ), null ), reader.next(), 0.0 );
+    }
+}
@@ -0,0 +1,236 @@
+/*
+ * Copyright (c) 2011, Stanislav Muhametsin. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package math.permutations.io;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import math.permutations.AbstractPermutationTest;
+
+import math.permutations.RankedPermutationGenerator;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests for writing permutations into binary files with {@link PermutationFileWriter}, and reading them with
+ * {@link PermutationFile}.
+ * 
+ * @author 2011 Stanislav Muhametsin
+ */
+public class PermutationFileTest extends AbstractPermutationTest
+{
+    @Rule
+    public TemporaryFolder _folder = new TemporaryFolder();
+
+    @Test
+    public void testIntFile() throws IOException
+    {
+        int[] array = new int[]
+        {
+            4, 1, 2, 2, 3, 1
+        };
+        Path path = this._folder.newFile( "int.perm" ).toPath();
+        PermutationFileWriter.write( array, path, ByteOrder.BIG_ENDIAN, 7L );
+        RankedPermutationGenerator<int[]> generator = this.createOptimizedGenerator( array );
+        PermutationFile file = PermutationFile.open( path );
+        try
+        {
+            Assert.assertEquals( "Element type must be stored.", ElementType.INT, file.getElementType() );
+            Assert.assertEquals( "Byte order must be stored.", ByteOrder.BIG_ENDIAN, file.getByteOrder() );
+            Assert.assertEquals( "Length must be stored.", array.length, file.getLength() );
+            Assert.assertArrayEquals( "Multiplicities must be stored.", new int[]
+            {
+                2, 2, 1, 1
+            }, file.getMultiplicities() );
+            Assert.assertEquals( "Total must be stored.", generator.getTotal().longValue(), file.getTotal() );
+            for( long rank = 0L; rank < file.getTotal(); ++rank )
+            {
+                ByteBuffer permutation = file.getPermutation( rank );
+                int[] expected = generator.permutationAt( BigInteger.valueOf( rank ), null );
+                Assert.assertEquals( "Permutation must have correct size.", expected.length * Integer.BYTES,
+                    permutation.remaining() );
+                for( int idx = 0; idx < expected.length; ++idx )
+                {
+                    Assert.assertEquals( "Permutation at rank " + rank + " must be stored.", expected[idx],
+                        permutation.getInt( idx * Integer.BYTES ) );
+                }
+            }
+        }
+        finally
+        {
+            file.close();
+        }
+    }
+
+    @Test
+    public void testDoubleFile() throws IOException
+    {
+        double[] array = new double[]
+        {
+            0.5, -1.0, 2.0, 0.5
+        };
+        Path path = this._folder.newFile( "double.perm" ).toPath();
+        PermutationFileWriter.write( array, path );
+        RankedPermutationGenerator<double[]> generator = this.createOptimizedGenerator( array );
+        PermutationFile file = PermutationFile.open( path );
+        try
+        {
+            Assert.assertEquals( "Element type must be stored.", ElementType.DOUBLE, file.getElementType() );
+            Assert.assertEquals( "Native byte order must be used by default.", ByteOrder.nativeOrder(),
+                file.getByteOrder() );
+            for( long rank = file.getTotal() - 1L; rank >= 0L; --rank )
+            {
+                double[] actual = new double[array.length];
+                file.getPermutation( rank ).asDoubleBuffer().get( actual );
+                Assert.assertArrayEquals( "Permutation at rank " + rank + " must be stored.",
+                    generator.permutationAt( BigInteger.valueOf( rank ), null ), actual, 0.0 );
+            }
+        }
+        finally
+        {
+            file.close();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidRank() throws IOException
+    {
+        Path path = this._folder.newFile( "byte.perm" ).toPath();
+        PermutationFileWriter.write( new byte[]
+        {
+            1, 2, 3
+        }, path );
+        PermutationFile file = PermutationFile.open( path );
+        try
+        {
+            file.getPermutation( 6L );
+        }
+        finally
+        {
+            file.close();
+        }
+    }
+
+    @Test
+    public void testDefaultRegions()
+    {
+        Assert.assertEquals( "Each thread must get several regions.", 62500L, PermutationFileWriter
+            .getDefaultPermutationsPerRegion( 1000000L, 40, 4 ) );
+        Assert.assertEquals( "Regions must not be too small.", PermutationFileWriter.MIN_REGION_BYTES / 40,
+            PermutationFileWriter.getDefaultPermutationsPerRegion( 10000L, 40, 4 ) );
+        Assert.assertEquals( "Empty permutations must fit into one region.", 1L, PermutationFileWriter
+            .getDefaultPermutationsPerRegion( 1L, 0, 1 ) );
+    }
+
+    @Test
+    public void testInvalidHeader() throws IOException
+    {
+        int[] array = new int[]
+        {
+            1, 2, 2
+        };
+        Path path = this._folder.newFile( "invalid.perm" ).toPath();
+
+        // Unknown element type
+        this.checkInvalid( array, path, 8, new byte[]
+        {
+            (byte) 0x80
+        } );
+        // Unknown byte order
+        this.checkInvalid( array, path, 9, new byte[]
+        {
+            2
+        } );
+        // Negative length
+        this.checkInvalid( array, path, 12, new byte[]
+        {
+            (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFD
+        } );
+        // Negative amount of distinct elements
+        this.checkInvalid( array, path, 16, new byte[]
+        {
+            (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFE
+        } );
+        // Negative total
+        this.checkInvalid( array, path, 20, new byte[]
+        {
+            (byte) 0xFF
+        } );
+        // Data offset inside the multiplicities
+        this.checkInvalid( array, path, 28, new byte[]
+        {
+            0, 0, 0, 36
+        } );
+        // Total not matching the size of the file
+        this.checkInvalid( array, path, 27, new byte[]
+        {
+            4
+        } );
+        // Multiplicities not matching the length
+        this.checkInvalid( array, path, 32, new byte[]
+        {
+            0, 0, 0, 2
+        } );
+
+        // Truncated file
+        PermutationFileWriter.write( array, path, ByteOrder.BIG_ENDIAN, 1L );
+        FileChannel channel = FileChannel.open( path, StandardOpenOption.WRITE );
+        try
+        {
+            channel.truncate( channel.size() - 1L );
+        }
+        finally
+        {
+            channel.close();
+        }
+        this.checkInvalid( path );
+    }
+
+    private void checkInvalid( int[] array, Path path, long offset, byte[] bytes ) throws IOException
+    {
+        PermutationFileWriter.write( array, path, ByteOrder.BIG_ENDIAN, 1L );
+        FileChannel channel = FileChannel.open( path, StandardOpenOption.WRITE );
+        try
+        {
+            channel.write( ByteBuffer.wrap( bytes ), offset );
+        }
+        finally
+        {
+            channel.close();
+        }
+        this.checkInvalid( path );
+    }
+
+    private void checkInvalid( Path path )
+    {
+        boolean rejected = false;
+        try
+        {
+            PermutationFile.open( path ).close();
+        }
+        catch( IOException ioe )
+        {
+            rejected = true;
+        }
+        Assert.assertTrue( "Invalid file must be rejected.", rejected );
+    }
+}